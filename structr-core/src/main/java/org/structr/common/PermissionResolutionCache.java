@@ -0,0 +1,214 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.structr.api.util.SegmentedCache;
+
+/**
+ * A concurrent, size-bounded cache for permission resolution results,
+ * keyed by (node UUID, principalId, permission name). Invalidation increments
+ * a generation counter instead of clearing the cache, entries from older
+ * generations are treated as misses and are replaced or evicted later.
+ *
+ * Nodes are identified by their UUID because node IDs are reused after a
+ * node is deleted, so deleting a node does not require an invalidation.
+ *
+ * Within a generation, a granted result is never downgraded, because
+ * resolution can grant a permission via one path and find no permission
+ * via another.
+ */
+public class PermissionResolutionCache {
+
+	private final AtomicLong generation      = new AtomicLong();
+	private final LongAdder invalidations    = new LongAdder();
+	private final LongAdder hits             = new LongAdder();
+	private final LongAdder misses           = new LongAdder();
+	private SegmentedCache<Key, Entry> cache = null;
+
+	public PermissionResolutionCache(final int maxSize) {
+		this.cache = new SegmentedCache<>(maxSize);
+	}
+
+	public Boolean get(final String nodeUuid, final long principalId, final Permission permission) {
+
+		final Entry entry = cache.get(new Key(nodeUuid, principalId, permission));
+		if (entry != null && entry.generation == generation.get()) {
+
+			hits.increment();
+			return entry.value;
+		}
+
+		misses.increment();
+
+		return null;
+	}
+
+	/**
+	 * Returns the current generation. Callers must read it before they
+	 * start resolving a permission and pass it to {@link #put}, so that
+	 * results based on data from before an invalidation are not stored.
+	 *
+	 * @return the current generation
+	 */
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	/**
+	 * Stores the given result if no invalidation happened since the given
+	 * generation was read. The entry keeps that generation, so a result
+	 * that races with a concurrent invalidation is a miss for later reads.
+	 *
+	 * @param nodeUuid
+	 * @param principalId
+	 * @param permission
+	 * @param value
+	 * @param resolvedGeneration the generation read before resolution started
+	 */
+	public void put(final String nodeUuid, final long principalId, final Permission permission, final boolean value, final long resolvedGeneration) {
+
+		if (resolvedGeneration != generation.get()) {
+
+			// cache was invalidated while the result was resolved
+			return;
+		}
+
+		final Key key = new Key(nodeUuid, principalId, permission);
+
+		if (!value) {
+
+			final Entry existing = cache.get(key);
+			if (existing != null && existing.generation == resolvedGeneration && existing.value) {
+
+				// do not downgrade granted results
+				return;
+			}
+		}
+
+		cache.put(key, new Entry(value, resolvedGeneration));
+	}
+
+	public void invalidate() {
+
+		generation.incrementAndGet();
+		invalidations.increment();
+	}
+
+	public void clear() {
+
+		invalidate();
+		cache.clear();
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public long getInvalidationCount() {
+		return invalidations.sum();
+	}
+
+	public long getEvictionCount() {
+		return cache.getEvictionCount();
+	}
+
+	public int size() {
+		return cache.size();
+	}
+
+	public void resetStatistics() {
+
+		hits.reset();
+		misses.reset();
+		invalidations.reset();
+	}
+
+	public Map<String, Object> getStatistics() {
+
+		final Map<String, Object> statistics = new LinkedHashMap<>();
+		final long hitCount                  = getHitCount();
+		final long total                     = hitCount + getMissCount();
+
+		statistics.put("size",          size());
+		statistics.put("maxSize",       cache.getMaxSize());
+		statistics.put("hits",          hitCount);
+		statistics.put("misses",        getMissCount());
+		statistics.put("hitRatio",      total > 0 ? (double)hitCount / (double)total : 0.0);
+		statistics.put("invalidations", getInvalidationCount());
+		statistics.put("evictions",     getEvictionCount());
+
+		return statistics;
+	}
+
+	// ----- nested classes -----
+	private static final class Key {
+
+		private final String nodeUuid;
+		private final long principalId;
+		private final String permission;
+		private final int hash;
+
+		public Key(final String nodeUuid, final long principalId, final Permission permission) {
+
+			// permissions are identified by their name, like in security relationships
+			this.nodeUuid    = nodeUuid;
+			this.principalId = principalId;
+			this.permission  = permission.name();
+			this.hash        = (int)(((nodeUuid.hashCode() * 31L + principalId) * 31L + this.permission.hashCode()) * 0x9E3779B97F4A7C15L >>> 32);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+
+			if (obj instanceof Key) {
+
+				final Key other = (Key)obj;
+
+				return principalId == other.principalId && nodeUuid.equals(other.nodeUuid) && permission.equals(other.permission);
+			}
+
+			return false;
+		}
+	}
+
+	private static final class Entry {
+
+		private final boolean value;
+		private final long generation;
+
+		public Entry(final boolean value, final long generation) {
+
+			this.value      = value;
+			this.generation = generation;
+		}
+	}
+}
@@ -52,6 +52,7 @@ import org.structr.schema.SchemaHelper;
 public class SecurityContext {
 
 	public static final String JSON_PARALLELIZATION_REQUEST_PARAMETER_NAME = "parallelizeJsonOutput";
+	public static final String QUERY_CACHE_REQUEST_PARAMETER_NAME          = "cacheResults";
 	public static final String LOCALE_KEY                                  = "locale";
 
 	public enum MergeMode {
@@ -68,9 +69,11 @@ public class SecurityContext {
 	private boolean doCascadingDelete                    = true;
 	private boolean modifyAccessTime                     = true;
 	private boolean ignoreResultCount                    = false;
+	private boolean estimateResultCount                  = false;
 	private boolean ensureCardinality                    = true;
 	private boolean isReadOnlyTransaction                = false;
 	private boolean doMultiThreadedJsonOutput            = false;
+	private boolean doCacheQueryResults                  = false;
 	private int serializationDepth                       = -1;
 
 	private final Map<String, QueryRange> ranges = new ConcurrentHashMap<>();
@@ -142,9 +145,17 @@ public class SecurityContext {
 				this.ignoreResultCount = true;
 			}
 
+			if (request.getParameter("estimateResultCount") != null) {
+				this.estimateResultCount = true;
+			}
+
 			if (request.getParameter(SecurityContext.JSON_PARALLELIZATION_REQUEST_PARAMETER_NAME) != null) {
 				this.doMultiThreadedJsonOutput = true;
 			}
+
+			if (request.getParameter(SecurityContext.QUERY_CACHE_REQUEST_PARAMETER_NAME) != null) {
+				this.doCacheQueryResults = true;
+			}
 		}
 	}
 
@@ -828,6 +839,22 @@ public class SecurityContext {
 		return ignoreResultCount;
 	}
 
+	public void estimateResultCount(final boolean doEstimate) {
+		this.estimateResultCount = doEstimate;
+	}
+
+	public boolean estimateResultCount() {
+		return estimateResultCount;
+	}
+
+	public void cacheQueryResults(final boolean doCache) {
+		this.doCacheQueryResults = doCache;
+	}
+
+	public boolean doCacheQueryResults() {
+		return doCacheQueryResults;
+	}
+
 	public boolean doEnsureCardinality() {
 		return ensureCardinality;
 	}
@@ -24,6 +24,7 @@ import java.util.Set;
 import org.structr.api.graph.PropertyContainer;
 import org.structr.core.app.StructrApp;
 import org.structr.core.graph.RelationshipInterface;
+import org.structr.core.graph.TransactionCommand;
 import org.structr.core.property.PropertyKey;
 
 /**
@@ -67,6 +68,8 @@ public class SecurityDelegate {
 			final PropertyContainer propertyContainer = graphObject.getPropertyContainer();
 			propertyContainer.setProperty(key.dbName(), allowed);
 
+			// the property is written directly, so the modification queue must be notified explicitly
+			TransactionCommand.permissionsModified();
 		}
 	}
 
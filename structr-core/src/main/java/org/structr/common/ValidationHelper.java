@@ -38,6 +38,7 @@ import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.RelationshipInterface;
+import org.structr.core.graph.TransactionCommand;
 import org.structr.core.property.GenericProperty;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
@@ -522,7 +523,7 @@ public class ValidationHelper {
 		return true;
 	}
 
-	public static synchronized boolean isValidUniqueProperty(final GraphObject object, final PropertyKey key, final ErrorBuffer errorBuffer) {
+	public static boolean isValidUniqueProperty(final GraphObject object, final PropertyKey key, final ErrorBuffer errorBuffer) {
 
 		if (key != null) {
 
@@ -540,6 +541,8 @@ public class ValidationHelper {
 					type = object.getClass();
 				}
 
+				TransactionCommand.lockUniqueValue(type.getName() + "." + key.dbName(), value);
+
 				try {
 
 					if (object instanceof NodeInterface) {
@@ -599,7 +602,7 @@ public class ValidationHelper {
 		return true;
 	}
 
-	public static synchronized boolean areValidCompoundUniqueProperties(final GraphObject object, final ErrorBuffer errorBuffer, final PropertyKey... keys) {
+	public static boolean areValidCompoundUniqueProperties(final GraphObject object, final ErrorBuffer errorBuffer, final PropertyKey... keys) {
 
 		if (keys != null && keys.length > 0) {
 
@@ -624,6 +627,8 @@ public class ValidationHelper {
 				type = object.getClass();
 			}
 
+			TransactionCommand.lockUniqueValue(type.getName() + "." + getDatabaseNames(keys), properties.values().toArray());
+
 			try {
 
 				if (object instanceof NodeInterface) {
@@ -682,13 +687,15 @@ public class ValidationHelper {
 		return true;
 	}
 
-	public static synchronized boolean isValidGloballyUniqueProperty(final GraphObject object, final PropertyKey key, final ErrorBuffer errorBuffer) {
+	public static boolean isValidGloballyUniqueProperty(final GraphObject object, final PropertyKey key, final ErrorBuffer errorBuffer) {
 
 		if (key != null) {
 
 			final Object value                 = object.getProperty(key);
 			List<? extends GraphObject> result = null;
 
+			TransactionCommand.lockUniqueValue((object instanceof NodeInterface ? "NodeInterface." : "RelationshipInterface.") + key.dbName(), value);
+
 			try {
 
 				if (object instanceof NodeInterface) {
@@ -743,4 +750,17 @@ public class ValidationHelper {
 		return true;
 
 	}
+
+	// ----- private static methods -----
+	private static String getDatabaseNames(final PropertyKey... keys) {
+
+		final StringBuilder buf = new StringBuilder();
+
+		for (final PropertyKey key : keys) {
+
+			buf.append(key.dbName()).append(",");
+		}
+
+		return buf.toString();
+	}
 }
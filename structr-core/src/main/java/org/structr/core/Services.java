@@ -54,6 +54,7 @@ import org.structr.common.SecurityContext;
 import org.structr.common.VersionHelper;
 import org.structr.common.error.ErrorBuffer;
 import org.structr.core.app.StructrApp;
+import org.structr.core.graph.ChangelogJournal;
 import org.structr.core.graph.NodeService;
 import org.structr.schema.ConfigurationProvider;
 import org.structr.schema.SchemaService;
@@ -364,6 +365,9 @@ public class Services implements StructrServices {
 
 			serviceCache.clear();
 
+			// write pending changelog entries
+			ChangelogJournal.shutdown();
+
 			// shut down configuration provider
 			configuration.shutdown();
 
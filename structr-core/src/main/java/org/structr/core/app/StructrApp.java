@@ -103,37 +103,22 @@ public class StructrApp implements App {
 	@Override
 	public <T extends NodeInterface> T create(final Class<T> type, final PropertyMap source) throws FrameworkException {
 
-		if (type == null) {
-			throw new FrameworkException(422, "Empty type (null). Please supply a valid class name in the type property.");
-		}
-
 		final CreateNodeCommand<T> command = command(CreateNodeCommand.class);
-		final PropertyMap properties       = new PropertyMap(source);
-		String finalType                   = type.getSimpleName();
-
-		// try to identify the actual type from input set (creation wouldn't work otherwise anyway)
-		final String typeFromInput = properties.get(NodeInterface.type);
-		if (typeFromInput != null) {
 
-			Class actualType = StructrApp.getConfiguration().getNodeEntityClass(typeFromInput);
-			if (actualType == null) {
-
-				// overwrite type information when creating a node (adhere to type specified by resource!)
-				properties.put(AbstractNode.type, type.getSimpleName());
+		return command.execute(getCreationProperties(type, source));
+	}
 
-			} else if (actualType.isInterface() || Modifier.isAbstract(actualType.getModifiers())) {
+	@Override
+	public <T extends NodeInterface> List<T> create(final Class<T> type, final List<PropertyMap> source) throws FrameworkException {
 
-				throw new FrameworkException(422, "Invalid abstract type " + type.getSimpleName() + ", please supply a non-abstract class name in the type property");
+		final CreateNodeCommand<T> command = command(CreateNodeCommand.class);
+		final List<PropertyMap> properties = new LinkedList<>();
 
-			} else {
+		for (final PropertyMap map : source) {
 
-				finalType = actualType.getSimpleName();
-			}
+			properties.add(getCreationProperties(type, map));
 		}
 
-		// set type
-		properties.put(AbstractNode.type, finalType);
-
 		return command.execute(properties);
 	}
 
@@ -165,6 +150,16 @@ public class StructrApp implements App {
 		return command(CreateRelationshipCommand.class).execute(fromNode, toNode, relType, properties);
 	}
 
+	@Override
+	public <A extends NodeInterface, B extends NodeInterface, R extends Relation<A, B, ?, ?>> List<R> create(final List<? extends A> fromNodes, final List<? extends B> toNodes, final Class<R> relType) throws FrameworkException {
+		return command(CreateRelationshipCommand.class).execute(fromNodes, toNodes, relType, null);
+	}
+
+	@Override
+	public <A extends NodeInterface, B extends NodeInterface, R extends Relation<A, B, ?, ?>> List<R> create(final List<? extends A> fromNodes, final List<? extends B> toNodes, final Class<R> relType, final List<PropertyMap> properties) throws FrameworkException {
+		return command(CreateRelationshipCommand.class).execute(fromNodes, toNodes, relType, properties);
+	}
+
 	@Override
 	public void delete(final RelationshipInterface relationship) {
 		removeRelFromCache(relationship);
@@ -601,6 +596,41 @@ public class StructrApp implements App {
 	private static final Map<Class, URI> typeIdMap   = new LinkedHashMap<>();
 
 	// ---------- private methods -----
+	private <T extends NodeInterface> PropertyMap getCreationProperties(final Class<T> type, final PropertyMap source) throws FrameworkException {
+
+		if (type == null) {
+			throw new FrameworkException(422, "Empty type (null). Please supply a valid class name in the type property.");
+		}
+
+		final PropertyMap properties = new PropertyMap(source);
+		String finalType             = type.getSimpleName();
+
+		// try to identify the actual type from input set (creation wouldn't work otherwise anyway)
+		final String typeFromInput = properties.get(NodeInterface.type);
+		if (typeFromInput != null) {
+
+			Class actualType = StructrApp.getConfiguration().getNodeEntityClass(typeFromInput);
+			if (actualType == null) {
+
+				// overwrite type information when creating a node (adhere to type specified by resource!)
+				properties.put(AbstractNode.type, type.getSimpleName());
+
+			} else if (actualType.isInterface() || Modifier.isAbstract(actualType.getModifiers())) {
+
+				throw new FrameworkException(422, "Invalid abstract type " + type.getSimpleName() + ", please supply a non-abstract class name in the type property");
+
+			} else {
+
+				finalType = actualType.getSimpleName();
+			}
+		}
+
+		// set type
+		properties.put(AbstractNode.type, finalType);
+
+		return properties;
+	}
+
 	private synchronized Long getNodeFromCache(final String uuid) {
 
 		if (nodeUuidMap == null) {
@@ -65,6 +65,7 @@ import org.structr.cmis.info.CMISSecondaryInfo;
 import org.structr.common.AccessControllable;
 import org.structr.common.Permission;
 import org.structr.common.PermissionPropagation;
+import org.structr.common.PermissionResolutionCache;
 import org.structr.common.PermissionResolutionMask;
 import org.structr.common.PropertyView;
 import org.structr.common.SecurityContext;
@@ -100,11 +101,11 @@ import org.structr.schema.action.Function;
  */
 public abstract class AbstractNode implements NodeInterface, AccessControllable, CMISInfo, CMISItemInfo {
 
-	private static final int permissionResolutionMaxLevel                                                 = Settings.ResolutionDepth.getValue();
-	private static final Logger logger                                                                    = LoggerFactory.getLogger(AbstractNode.class.getName());
-	private static final FixedSizeCache<String, Boolean> isGrantedResultCache                             = new FixedSizeCache<String, Boolean>(100000);
-	private static final FixedSizeCache<String, Object> relationshipTemplateInstanceCache                 = new FixedSizeCache<>(1000);
-	private static final Map<Long, Map<Long, PermissionResolutionResult>> globalPermissionResolutionCache = new HashMap<>();
+	private static final int permissionResolutionMaxLevel                                 = Settings.ResolutionDepth.getValue();
+	private static final Logger logger                                                    = LoggerFactory.getLogger(AbstractNode.class.getName());
+	private static final PermissionResolutionCache isGrantedResultCache                   = new PermissionResolutionCache(Settings.PermissionCacheSize.getValue());
+	private static final PermissionResolutionCache globalPermissionResolutionCache        = new PermissionResolutionCache(Settings.PermissionCacheSize.getValue());
+	private static final FixedSizeCache<String, Object> relationshipTemplateInstanceCache = new FixedSizeCache<>(1000);
 
 	public static final View defaultView = new View(AbstractNode.class, PropertyView.Public, id, type, name);
 
@@ -790,8 +791,9 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 			accessingUser = context.getUser(false);
 		}
 
-		final String cacheKey = getUuid() + "." + permission.name() + "." + context.getCachedUserId();
-		final Boolean cached  = isGrantedResultCache.get(cacheKey);
+		final long principalId = accessingUser != null ? accessingUser.getId() : -1L;
+		final long generation  = isGrantedResultCache.getGeneration();
+		final Boolean cached   = isGrantedResultCache.get(getUuid(), principalId, permission);
 
 		if (cached != null && cached == true) {
 			return true;
@@ -800,7 +802,7 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 		final boolean doLog  = securityContext.hasParameter("logPermissionResolution");
 		final boolean result = isGranted(permission, accessingUser, new PermissionResolutionMask(), 0, new AlreadyTraversed(), true, doLog, isCreation);
 
-		isGrantedResultCache.put(cacheKey, result);
+		isGrantedResultCache.put(getUuid(), principalId, permission, result, generation);
 
 		return result;
 	}
@@ -811,6 +813,8 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 
 	private boolean isGranted(final Permission permission, final Principal accessingUser, final PermissionResolutionMask mask, final int level, final AlreadyTraversed alreadyTraversed, final boolean resolvePermissions, final boolean doLog, final Map<String, Security> incomingSecurityRelationships, final boolean isCreation) {
 
+		// read before any data is resolved, see PermissionResolutionCache#put
+		final long generation                                          = globalPermissionResolutionCache.getGeneration();
 		final Map<String, Security> localIncomingSecurityRelationships = (Map<String, Security>) incomingSecurityRelationships != null ? incomingSecurityRelationships : mapSecurityRelationshipsMapped(getIncomingRelationshipsAsSuperUser(Security.class));
 
 		if (level > 100) {
@@ -921,17 +925,17 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 							if (Boolean.TRUE.equals(value)) {
 
 								// do backtracking
-								backtrack(info, accessingUser.getId(), permission, true, 0, doLog);
+								backtrack(info, accessingUser.getId(), permission, true, 0, doLog, generation);
 
 								return true;
 							}
 
 						} else {
 
-							if (info.node.hasEffectivePermissions(info, accessingUser, permission, mask, level, alreadyTraversed, bfsNodes, doLog, isCreation)) {
+							if (info.node.hasEffectivePermissions(info, accessingUser, permission, mask, level, alreadyTraversed, bfsNodes, doLog, isCreation, generation)) {
 
 								// do backtracking
-								backtrack(info, accessingUser.getId(), permission, true, 0, doLog);
+								backtrack(info, accessingUser.getId(), permission, true, 0, doLog, generation);
 
 								return true;
 							}
@@ -941,7 +945,7 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 				} while (!bfsNodes.isEmpty());
 
 				// do backtracking
-				backtrack(root, accessingUser.getId(), permission, false, 0, doLog);
+				backtrack(root, accessingUser.getId(), permission, false, 0, doLog, generation);
 			}
 
 			// Last: recursively check possible parent principals
@@ -956,7 +960,7 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 		return false;
 	}
 
-	private void backtrack(final BFSInfo info, final long principalId, final Permission permission, final boolean value, final int level, final boolean doLog) {
+	private void backtrack(final BFSInfo info, final long principalId, final Permission permission, final boolean value, final int level, final boolean doLog, final long generation) {
 
 		if (doLog) {
 
@@ -975,12 +979,12 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 			System.out.print(info.node.getType() + " (" + info.node.getUuid() + ") --> ");
 		}
 
-		info.node.storePermissionResolutionResult(principalId, permission, value);
+		info.node.storePermissionResolutionResult(principalId, permission, value, generation);
 
 		// go to parent(s)
 		if (info.parent != null) {
 
-			backtrack(info.parent, principalId, permission, value, level+1, doLog);
+			backtrack(info.parent, principalId, permission, value, level+1, doLog, generation);
 		}
 
 		if (doLog && level == 0) {
@@ -989,7 +993,7 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 	}
 
 
-	private boolean hasEffectivePermissions(final BFSInfo parent, final Principal principal, final Permission permission, final PermissionResolutionMask mask, final int level, final AlreadyTraversed alreadyTraversed, final Queue<BFSInfo> bfsNodes, final boolean doLog, final boolean isCreation) {
+	private boolean hasEffectivePermissions(final BFSInfo parent, final Principal principal, final Permission permission, final PermissionResolutionMask mask, final int level, final AlreadyTraversed alreadyTraversed, final Queue<BFSInfo> bfsNodes, final boolean doLog, final boolean isCreation, final long generation) {
 
 		// check nodes here to avoid circles in permission-propagating relationships
 		if (alreadyTraversed.contains("Node", dbNode.getId())) {
@@ -1018,7 +1022,7 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 
 							if (otherNode.isGranted(permission, principal, mask, level, alreadyTraversed, false, doLog, isCreation)) {
 
-								otherNode.storePermissionResolutionResult(principal.getId(), permission, true);
+								otherNode.storePermissionResolutionResult(principal.getId(), permission, true, generation);
 
 								// break early
 								return true;
@@ -1160,68 +1164,11 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 	}
 
 	private Boolean getPermissionResolutionResult(final long principalId, final Permission permission) {
-
-		Map<Long, PermissionResolutionResult> permissionResolutionCache = globalPermissionResolutionCache.get(getId());
-		if (permissionResolutionCache == null) {
-
-			permissionResolutionCache = new HashMap<>();
-			globalPermissionResolutionCache.put(getId(), permissionResolutionCache);
-		}
-
-		PermissionResolutionResult result = permissionResolutionCache.get(principalId);
-		if (result != null) {
-
-			if (permission.equals(Permission.read)) {
-				return result.read;
-			}
-
-			if (permission.equals(Permission.write)) {
-				return result.write;
-			}
-
-			if (permission.equals(Permission.delete)) {
-				return result.delete;
-			}
-
-			if (permission.equals(Permission.accessControl)) {
-				return result.accessControl;
-			}
-		}
-
-		return null;
+		return globalPermissionResolutionCache.get(getUuid(), principalId, permission);
 	}
 
-	private void storePermissionResolutionResult(final long principalId, final Permission permission, final boolean value) {
-
-		Map<Long, PermissionResolutionResult> permissionResolutionCache = globalPermissionResolutionCache.get(getId());
-		if (permissionResolutionCache == null) {
-
-			permissionResolutionCache = new HashMap<>();
-			globalPermissionResolutionCache.put(getId(), permissionResolutionCache);
-		}
-
-		PermissionResolutionResult result = permissionResolutionCache.get(principalId);
-		if (result == null) {
-
-			result = new PermissionResolutionResult();
-			permissionResolutionCache.put(principalId, result);
-		}
-
-		if (permission.equals(Permission.read) && (result.read == null || result.read == false)) {
-			result.read = value;
-		}
-
-		if (permission.equals(Permission.write) && (result.write == null || result.write == false)) {
-			result.write = value;
-		}
-
-		if (permission.equals(Permission.delete) && (result.delete == null || result.delete == false)) {
-			result.delete = value;
-		}
-
-		if (permission.equals(Permission.accessControl) && (result.accessControl == null || result.accessControl == false)) {
-			result.accessControl = value;
-		}
+	private void storePermissionResolutionResult(final long principalId, final Permission permission, final boolean value, final long generation) {
+		globalPermissionResolutionCache.put(getUuid(), principalId, permission, value, generation);
 	}
 
 	private Security getSecurityRelationship(final Principal p, final Map<String, Security> securityRelationships) {
@@ -1263,12 +1210,10 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 
 	@Override
 	public void onModification(SecurityContext securityContext, ErrorBuffer errorBuffer, final ModificationQueue modificationQueue) throws FrameworkException {
-		clearCaches();
 	}
 
 	@Override
 	public void onDeletion(SecurityContext securityContext, ErrorBuffer errorBuffer, PropertyMap properties) throws FrameworkException {
-		clearCaches();
 	}
 
 	@Override
@@ -1285,22 +1230,18 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 
 	@Override
 	public void ownerModified(SecurityContext securityContext) {
-		clearCaches();
 	}
 
 	@Override
 	public void securityModified(SecurityContext securityContext) {
-		clearCaches();
 	}
 
 	@Override
 	public void locationModified(SecurityContext securityContext) {
-		clearCaches();
 	}
 
 	@Override
 	public void propagatedModification(SecurityContext securityContext) {
-		clearCaches();
 	}
 
 	@Override
@@ -1530,9 +1471,29 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 		relationshipTemplateInstanceCache.clear();
 	}
 
+	/**
+	 * Invalidates all cached permission resolution results, and all
+	 * cached query results because they depend on permissions.
+	 */
 	public static void clearCaches() {
-		globalPermissionResolutionCache.clear();
-		isGrantedResultCache.clear();
+		globalPermissionResolutionCache.invalidate();
+		isGrantedResultCache.invalidate();
+	}
+
+	public static Map<String, Object> getPermissionCacheStatistics() {
+
+		final Map<String, Object> statistics = new LinkedHashMap<>();
+
+		statistics.put("isGranted",            isGrantedResultCache.getStatistics());
+		statistics.put("permissionResolution", globalPermissionResolutionCache.getStatistics());
+
+		return statistics;
+	}
+
+	public static void resetPermissionCacheStatistics() {
+
+		isGrantedResultCache.resetStatistics();
+		globalPermissionResolutionCache.resetStatistics();
 	}
 
 	public static <A extends NodeInterface, B extends NodeInterface, R extends Relation<A, B, ?, ?>> R getRelationshipForType(final Class<R> type) {
@@ -1780,8 +1741,6 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 			throw new FrameworkException(403, "Access control not permitted");
 		}
 
-		clearCaches();
-
 		Security secRel = getSecurityRelationship(principal);
 		if (secRel == null) {
 
@@ -1828,8 +1787,6 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 			throw new FrameworkException(403, "Access control not permitted");
 		}
 
-		clearCaches();
-
 		Security secRel = getSecurityRelationship(principal);
 		if (secRel != null) {
 
@@ -2146,12 +2103,4 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 			}
 		}
 	}
-
-	private static class PermissionResolutionResult {
-
-		Boolean read          = null;
-		Boolean write         = null;
-		Boolean delete        = null;
-		Boolean accessControl = null;
-	}
 }
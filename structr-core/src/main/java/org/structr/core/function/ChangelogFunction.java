@@ -42,6 +42,7 @@ import org.structr.core.GraphObject;
 import org.structr.core.GraphObjectMap;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
+import org.structr.core.graph.ChangelogJournal;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.property.EndNodeProperty;
 import org.structr.core.property.Property;
@@ -183,16 +184,16 @@ public class ChangelogFunction extends Function<Object, Object> {
 
 	protected String getChangelogForUUID (final String uuid, final String changelogType) throws IOException {
 
-		java.io.File file = getChangeLogFileOnDisk(changelogType, uuid, false);
+		final java.io.File file = getChangeLogFileOnDisk(changelogType, uuid, false);
+		final String changelog  = ChangelogJournal.getInstance().read(changelogType, uuid);
 
+		// data in the previous per-entity file layout precedes the journal
 		if (file.exists()) {
 
-			return FileUtils.readFileToString(file, "utf-8");
-
-		} else {
-
-			return "";
+			return FileUtils.readFileToString(file, "utf-8").concat(changelog);
 		}
+
+		return changelog;
 	}
 
 	public static java.io.File getChangeLogFileOnDisk(final String typeFolderName, final String uuid, final boolean create) {
@@ -201,8 +202,10 @@ public class ChangelogFunction extends Function<Object, Object> {
 		final String uuidPath      = getDirectoryPath(uuid);
 		final java.io.File file    = new java.io.File(changelogPath + java.io.File.separator + typeFolderName + java.io.File.separator + uuidPath + java.io.File.separator + uuid);
 
-		// create parent directory tree
-		file.getParentFile().mkdirs();
+		// create parent directory tree only if requested
+		if (create) {
+			file.getParentFile().mkdirs();
+		}
 
 		// create file only if requested
 		if (!file.exists() && create) {
@@ -29,6 +29,7 @@ import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
 import org.apache.commons.lang3.StringUtils;
+import org.structr.api.util.SegmentedCache;
 import org.structr.common.error.FrameworkException;
 import org.structr.common.error.UnlicensedScriptException;
 import org.structr.core.GraphObject;
@@ -60,7 +61,8 @@ import org.structr.schema.action.Function;
  */
 public class Functions {
 
-	private static final Map<String, Function<Object, Object>> functions = new LinkedHashMap<>();
+	private static final Map<String, Function<Object, Object>> functions    = new LinkedHashMap<>();
+	private static final SegmentedCache<String, Expression> expressionCache = new SegmentedCache<>(10000);
 
 	public static void put(final boolean licensed, final int edition, final String name, final Function<Object, Object> function) {
 
@@ -87,6 +89,29 @@ public class Functions {
 	}
 
 	public static Object evaluate(final ActionContext actionContext, final GraphObject entity, final String expression) throws FrameworkException, UnlicensedScriptException {
+		return parse(expression).evaluate(actionContext, entity);
+	}
+
+	public static void clearCache() {
+		expressionCache.clear();
+	}
+
+	/**
+	 * Returns the expression tree for the given StructrScript source. The
+	 * tree is not modified after parsing, so it is cached by its source
+	 * and shared between all threads that evaluate the same expression.
+	 *
+	 * @param expression
+	 * @return the expression tree
+	 * @throws FrameworkException if the expression is invalid
+	 */
+	public static Expression parse(final String expression) throws FrameworkException {
+
+		final Expression cached = expressionCache.get(expression);
+		if (cached != null) {
+
+			return cached;
+		}
 
 		final String expressionWithoutNewlines = expression.replace('\n', ' ').replace('\r', ' ');
 		final StreamTokenizer tokenizer = new StreamTokenizer(new StringReader(expressionWithoutNewlines));
@@ -213,7 +238,10 @@ public class Functions {
 			throw new FrameworkException(422, "Invalid expression: mismatched closing bracket after " + lastToken);
 		}
 
-		return root.evaluate(actionContext, entity);
+		// invalid expressions are not cached, parsing fails with an exception above
+		expressionCache.put(expression, root);
+
+		return root;
 	}
 
 	public static String cleanString(final Object input) {
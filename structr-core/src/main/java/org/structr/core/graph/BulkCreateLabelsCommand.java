@@ -19,7 +19,6 @@
 package org.structr.core.graph;
 
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.Map;
 import org.structr.api.DatabaseService;
 import org.structr.api.util.Iterables;
@@ -39,12 +38,29 @@ public class BulkCreateLabelsCommand extends NodeServiceCommand implements Maint
 	@Override
 	public void execute(Map<String, Object> attributes) {
 
-		final String entityType                   = (String) attributes.get("type");
-		final DatabaseService graphDb             = (DatabaseService) arguments.get("graphDb");
-		final SecurityContext superUserContext    = SecurityContext.getSuperUserInstance();
-		final NodeFactory nodeFactory             = new NodeFactory(superUserContext);
-		final boolean removeUnused                = !attributes.containsKey("removeUnused");
-		final Iterator<AbstractNode> nodeIterator = Iterables.map(nodeFactory, Iterables.filter(new StructrAndSpatialPredicate(true, false, false), graphDb.getNodesByTypeProperty(entityType))).iterator();
+		final String entityType                = (String) attributes.get("type");
+		final DatabaseService graphDb          = (DatabaseService) arguments.get("graphDb");
+		final SecurityContext superUserContext = SecurityContext.getSuperUserInstance();
+		final NodeFactory nodeFactory          = new NodeFactory(superUserContext);
+		final boolean removeUnused             = !attributes.containsKey("removeUnused");
+
+		final PartitionedSource<AbstractNode> nodes = new PartitionedSource<AbstractNode>() {
+
+			@Override
+			public String getName() {
+				return entityType != null ? entityType : "all";
+			}
+
+			@Override
+			public long getMaxId() {
+				return graphDb.getMaxNodeId();
+			}
+
+			@Override
+			public Iterable<AbstractNode> getRange(final long fromId, final long toId) {
+				return Iterables.map(nodeFactory, Iterables.filter(new StructrAndSpatialPredicate(true, false, false), graphDb.getNodesByTypeProperty(entityType, fromId, toId)));
+			}
+		};
 
 		if (entityType == null) {
 
@@ -55,7 +71,7 @@ public class BulkCreateLabelsCommand extends NodeServiceCommand implements Maint
 			info("Starting creation of labels for all nodes of type {}", entityType);
 		}
 
-		final long count = bulkGraphOperation(securityContext, nodeIterator, 10000, "CreateLabels", new BulkGraphOperation<AbstractNode>() {
+		final long count = bulkGraphOperation(securityContext, nodes, 10000, "CreateLabels", new BulkGraphOperation<AbstractNode>() {
 
 			@Override
 			public boolean handleGraphObject(SecurityContext securityContext, AbstractNode node) {
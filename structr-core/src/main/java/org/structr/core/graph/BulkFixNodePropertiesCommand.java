@@ -18,7 +18,6 @@
  */
 package org.structr.core.graph;
 
-import java.util.Iterator;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,13 +55,30 @@ public class BulkFixNodePropertiesCommand extends NodeServiceCommand implements
 			final Class type = SchemaHelper.getEntityClassForRawType(entityTypeName);
 			if (type != null) {
 
-				final DatabaseService db                  = StructrApp.getInstance(securityContext).getDatabaseService();
-				final NodeFactory factory                 = new NodeFactory(securityContext);
-				final Iterator<AbstractNode> nodeIterator = Iterables.map(factory, db.getNodesByLabel(entityTypeName)).iterator();
+				final DatabaseService db  = StructrApp.getInstance(securityContext).getDatabaseService();
+				final NodeFactory factory = new NodeFactory(securityContext);
+
+				final PartitionedSource<AbstractNode> nodes = new PartitionedSource<AbstractNode>() {
+
+					@Override
+					public String getName() {
+						return entityTypeName + (propertyName != null ? "." + propertyName : "");
+					}
+
+					@Override
+					public long getMaxId() {
+						return db.getMaxNodeId();
+					}
+
+					@Override
+					public Iterable<AbstractNode> getRange(final long fromId, final long toId) {
+						return Iterables.map(factory, db.getNodesByLabel(entityTypeName, fromId, toId));
+					}
+				};
 
 				logger.info("Trying to fix properties of all {} nodes", type.getSimpleName() );
 
-				long nodeCount = bulkGraphOperation(securityContext, nodeIterator, 100, "FixNodeProperties", new BulkGraphOperation<AbstractNode>() {
+				long nodeCount = bulkGraphOperation(securityContext, nodes, 100, "FixNodeProperties", new BulkGraphOperation<AbstractNode>() {
 
 					private void fixProperty(AbstractNode node, Property propertyToFix) {
 
@@ -35,6 +35,16 @@ public abstract class BulkGraphOperation<T> {
 
 	public abstract boolean handleGraphObject(SecurityContext securityContext, T obj) throws FrameworkException;
 
+	/**
+	 * Called after the last object of a batch was handled, before the
+	 * transaction of the batch is committed.
+	 *
+	 * @param securityContext
+	 * @throws FrameworkException to roll back the batch
+	 */
+	public void beforeCommit(final SecurityContext securityContext) throws FrameworkException {
+	}
+
 	public void handleThrowable(final SecurityContext securityContext, final Throwable t, final T currentObject) {
 		logger.warn("Exception in bulk graph operation.", t);
 	}
@@ -20,13 +20,19 @@ package org.structr.core.graph;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.DatabaseService;
+import org.structr.api.config.Settings;
 import org.structr.api.graph.PropertyContainer;
 import org.structr.api.util.Iterables;
 import org.structr.common.SecurityContext;
@@ -37,12 +43,14 @@ import org.structr.core.entity.AbstractRelationship;
 import org.structr.core.function.ChangelogFunction;
 
 /**
- * Maintenance command to migrate structrChangeLog property values
- * to the new disk-based storage.
+ * Maintenance command to migrate structrChangeLog property values and
+ * the per-entity changelog files to the changelog journal.
  */
 public class BulkMigrateChangelogCommand extends NodeServiceCommand implements MaintenanceCommand {
 
-	private static final Logger logger = LoggerFactory.getLogger(BulkMigrateChangelogCommand.class.getName());
+	private static final Logger logger         = LoggerFactory.getLogger(BulkMigrateChangelogCommand.class.getName());
+	private static final String changeLogName  = "structrChangeLog";
+	private static final int IMPORT_BATCH_SIZE = 1000;
 
 	@Override
 	public void execute(final Map<String, Object> properties) throws FrameworkException {
@@ -51,38 +59,61 @@ public class BulkMigrateChangelogCommand extends NodeServiceCommand implements M
 		final SecurityContext superUserContext = SecurityContext.getSuperUserInstance();
 		final RelationshipFactory relFactory   = new RelationshipFactory(superUserContext);
 		final NodeFactory nodeFactory          = new NodeFactory(superUserContext);
+		final List<Migration> pending          = new ArrayList<>();
 
 		if (graphDb != null) {
 
 			final Iterator<AbstractNode> nodeIterator = Iterables.map(nodeFactory, graphDb.getAllNodes()).iterator();
 
-			final long nodeCount = bulkGraphOperation(securityContext, nodeIterator, 1000, "MigrateChangeLog", new BulkGraphOperation<AbstractNode>() {
+			final long nodeCount = bulkGraphOperation(securityContext, nodeIterator, IMPORT_BATCH_SIZE, "MigrateChangeLog", new BulkGraphOperation<AbstractNode>() {
 
 				@Override
 				public boolean handleGraphObject(SecurityContext securityContext, AbstractNode node) {
 
-					handleObject(node);
+					handleObject(node, pending);
 					return true;
 				}
+
+				@Override
+				public void beforeCommit(final SecurityContext securityContext) {
+					finishMigrations(pending);
+				}
 			});
 
 			logger.info("Migrated {} nodes ...", nodeCount);
 
 			final Iterator<AbstractRelationship> relIterator = Iterables.map(relFactory, graphDb.getAllRelationships()).iterator();
 
-			final long relCount = bulkGraphOperation(securityContext, relIterator, 1000, "MigrateChangeLog", new BulkGraphOperation<AbstractRelationship>() {
+			final long relCount = bulkGraphOperation(securityContext, relIterator, IMPORT_BATCH_SIZE, "MigrateChangeLog", new BulkGraphOperation<AbstractRelationship>() {
 
 				@Override
 				public boolean handleGraphObject(SecurityContext securityContext, AbstractRelationship rel) {
 
-					handleObject(rel);
+					handleObject(rel, pending);
 					return true;
 				}
+
+				@Override
+				public void beforeCommit(final SecurityContext securityContext) {
+					finishMigrations(pending);
+				}
 			});
 
 			logger.info("Migrated {} relationships ...", relCount);
 		}
 
+		// migrate remaining files, e.g. user changelogs and changelogs of deleted entities
+		for (final String typeFolderName : new String[] { "n", "r", "u" }) {
+
+			final File folder = new File(Settings.ChangelogPath.getValue(), typeFolderName);
+			if (folder.exists()) {
+
+				final long fileCount = migrateFiles(typeFolderName, folder);
+
+				logger.info("Migrated {} changelog files from {} ...", fileCount, folder);
+			}
+		}
+
 		logger.info("Done");
 	}
 
@@ -97,10 +128,9 @@ public class BulkMigrateChangelogCommand extends NodeServiceCommand implements M
 	}
 
 	// ----- private methods -----
-	private void handleObject(final GraphObject obj) {
+	private void handleObject(final GraphObject obj, final List<Migration> pending) {
 
 		final PropertyContainer propertyContainer = obj.getPropertyContainer();
-		final String changeLogName                = "structrChangeLog";
 
 		if (propertyContainer.hasProperty(changeLogName)) {
 
@@ -110,18 +140,14 @@ public class BulkMigrateChangelogCommand extends NodeServiceCommand implements M
 				final String existingChangeLog = (String)changeLogSource;
 				if (StringUtils.isNotBlank(existingChangeLog)) {
 
-					if (writeChangelogToDisk(obj, existingChangeLog)) {
-
-						// remove data in case of success
-						propertyContainer.removeProperty(changeLogName);
-					}
+					submitChangelog(obj, existingChangeLog, pending);
 				}
 			}
 		}
 
 	}
 
-	private boolean writeChangelogToDisk(final GraphObject obj, final String changeLogValue) {
+	private void submitChangelog(final GraphObject obj, final String changeLogValue, final List<Migration> pending) {
 
 		try {
 
@@ -129,27 +155,118 @@ public class BulkMigrateChangelogCommand extends NodeServiceCommand implements M
 
 				final String uuid           = obj.getUuid();
 				final String typeFolderName = obj.isNode() ? "n" : "r";
-				final File file             = ChangelogFunction.getChangeLogFileOnDisk(typeFolderName, uuid, true);
+				final File file             = ChangelogFunction.getChangeLogFileOnDisk(typeFolderName, uuid, false);
 				final StringBuilder buf     = new StringBuilder();
 
 				// prepend existing data
 				buf.append(changeLogValue);
 
 				// read file data
-				buf.append(FileUtils.readFileToString(file, "utf-8"));
-
-				// write concatenated data
-				FileUtils.write(file, buf.toString(), "utf-8", false);
+				if (file.exists()) {
+					buf.append(FileUtils.readFileToString(file, "utf-8"));
+				}
 
-				return true;
+				// write concatenated data, the property and the file are removed when the batch is written
+				pending.add(new Migration(ChangelogJournal.getInstance().submitImport(typeFolderName, uuid, buf.toString()), obj.getPropertyContainer(), file));
 			}
 
 		} catch (IOException ioex) {
-			logger.error("Unable to write changelog to file: {}", ioex.getMessage());
+			logger.error("Unable to write changelog to journal: {}", ioex.getMessage());
 		} catch (Throwable t) {
 			logger.warn("", t);
 		}
+	}
 
-		return false;
+	private long migrateFiles(final String typeFolderName, final File folder) {
+
+		final List<Migration> pending = new ArrayList<>();
+		long count                    = 0L;
+
+		try (final Stream<Path> files = Files.walk(folder.toPath())) {
+
+			final ChangelogJournal journal = ChangelogJournal.getInstance();
+
+			for (final Iterator<Path> it = files.filter(Files::isRegularFile).iterator(); it.hasNext();) {
+
+				final File file = it.next().toFile();
+
+				// the file name is the UUID of the entity
+				pending.add(new Migration(journal.submitImport(typeFolderName, file.getName(), FileUtils.readFileToString(file, "utf-8")), null, file));
+
+				if (pending.size() >= IMPORT_BATCH_SIZE) {
+					count += finishMigrations(pending);
+				}
+			}
+
+		} catch (IOException ioex) {
+			logger.error("Unable to migrate changelog files: {}", ioex.getMessage());
+		}
+
+		// files that were submitted before an error are finished as well
+		count += finishMigrations(pending);
+
+		return count;
+	}
+
+	/**
+	 * Waits once until all submitted imports are written, and removes
+	 * the migrated data of those that were written successfully.
+	 */
+	private long finishMigrations(final List<Migration> pending) {
+
+		long count = 0L;
+
+		if (!pending.isEmpty()) {
+
+			try {
+
+				ChangelogJournal.getInstance().flush();
+
+			} catch (IOException ioex) {
+				logger.error("Unable to write changelog to journal: {}", ioex.getMessage());
+			}
+
+			for (final Migration migration : pending) {
+
+				if (migration.finish()) {
+					count++;
+				}
+			}
+
+			pending.clear();
+		}
+
+		return count;
+	}
+
+	// ----- nested classes -----
+	private static class Migration {
+
+		private ChangelogJournal.PendingImport pendingImport = null;
+		private PropertyContainer propertyContainer           = null;
+		private File file                                     = null;
+
+		public Migration(final ChangelogJournal.PendingImport pendingImport, final PropertyContainer propertyContainer, final File file) {
+
+			this.pendingImport     = pendingImport;
+			this.propertyContainer = propertyContainer;
+			this.file              = file;
+		}
+
+		public boolean finish() {
+
+			// data that was not written is kept in its previous location
+			if (!pendingImport.isWritten()) {
+				return false;
+			}
+
+			if (propertyContainer != null) {
+				propertyContainer.removeProperty(changeLogName);
+			}
+
+			file.delete();
+
+			return true;
+		}
 	}
 }
@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
+
+/**
+ * Persistent record of the completed partitions of a parallel bulk graph
+ * operation, so that an interrupted operation can be resumed.
+ */
+public class BulkOperationCheckpoint {
+
+	private static final Logger logger = LoggerFactory.getLogger(BulkOperationCheckpoint.class.getName());
+
+	private final Set<Integer> completed = new TreeSet<>();
+	private File file                    = null;
+	private long partitionSize           = 0L;
+
+	private BulkOperationCheckpoint(final File file, final long partitionSize) {
+
+		this.file          = file;
+		this.partitionSize = partitionSize;
+	}
+
+	/**
+	 * Loads the checkpoint with the given name, or creates a new one if
+	 * there is none. The partition size of an existing checkpoint takes
+	 * precedence over the given one, so that partitions stay aligned.
+	 *
+	 * @param name the name of the operation
+	 * @param partitionSize the partition size of a new checkpoint
+	 *
+	 * @return the checkpoint
+	 */
+	public static BulkOperationCheckpoint load(final String name, final long partitionSize) {
+
+		final File directory                     = new File(Settings.getBasePath(), "checkpoints");
+		final File file                          = new File(directory, name.replaceAll("[^a-zA-Z0-9_\\-\\.]", "_") + ".checkpoint");
+		final BulkOperationCheckpoint checkpoint = new BulkOperationCheckpoint(file, partitionSize);
+
+		if (file.exists()) {
+
+			try (final InputStream is = new FileInputStream(file)) {
+
+				final Properties properties = new Properties();
+
+				properties.load(is);
+
+				checkpoint.partitionSize = Long.valueOf(properties.getProperty("partitionSize"));
+
+				for (final String partition : StringUtils.split(properties.getProperty("completed", ""), ",")) {
+					checkpoint.completed.add(Integer.valueOf(partition));
+				}
+
+			} catch (IOException | RuntimeException ex) {
+
+				logger.warn("Unable to read checkpoint {}, starting from the beginning: {}", file, ex.getMessage());
+
+				checkpoint.partitionSize = partitionSize;
+				checkpoint.completed.clear();
+			}
+
+		} else {
+
+			directory.mkdirs();
+		}
+
+		return checkpoint;
+	}
+
+	public long getPartitionSize() {
+		return partitionSize;
+	}
+
+	public synchronized int getCompletedCount() {
+		return completed.size();
+	}
+
+	public synchronized boolean isCompleted(final int partition) {
+		return completed.contains(partition);
+	}
+
+	public synchronized void complete(final int partition) {
+
+		completed.add(partition);
+
+		final Properties properties = new Properties();
+		final File tmp              = new File(file.getPath() + ".tmp");
+
+		properties.setProperty("partitionSize", Long.toString(partitionSize));
+		properties.setProperty("completed", StringUtils.join(completed, ","));
+
+		try {
+
+			try (final OutputStream os = new FileOutputStream(tmp)) {
+				properties.store(os, null);
+			}
+
+			// replace the previous checkpoint atomically
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		} catch (IOException ioex) {
+
+			logger.warn("Unable to write checkpoint {}: {}", file, ioex.getMessage());
+		}
+	}
+
+	public synchronized void delete() {
+		file.delete();
+	}
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a running parallel bulk graph operation.
+ */
+public class BulkOperationProgress {
+
+	private static final Map<String, BulkOperationProgress> operations = new ConcurrentHashMap<>();
+
+	private final AtomicInteger completedPartitions = new AtomicInteger();
+	private final AtomicLong processedObjects       = new AtomicLong();
+	private final long startTime                    = System.currentTimeMillis();
+	private String name                             = null;
+	private int resumedPartitions                   = 0;
+	private int partitions                          = 0;
+
+	private BulkOperationProgress(final String name, final int partitions, final int resumedPartitions) {
+
+		this.name              = name;
+		this.partitions        = partitions;
+		this.resumedPartitions = resumedPartitions;
+	}
+
+	public static BulkOperationProgress start(final String name, final int partitions, final int resumedPartitions) {
+
+		final BulkOperationProgress progress = new BulkOperationProgress(name, partitions, resumedPartitions);
+
+		operations.put(name, progress);
+
+		return progress;
+	}
+
+	public static Collection<BulkOperationProgress> getRunningOperations() {
+		return operations.values();
+	}
+
+	public void finish() {
+		operations.remove(name, this);
+	}
+
+	public void partitionCompleted(final long objectCount) {
+
+		processedObjects.addAndGet(objectCount);
+		completedPartitions.incrementAndGet();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getProcessedObjects() {
+		return processedObjects.get();
+	}
+
+	/**
+	 * Returns the number of objects processed per second since the
+	 * operation was started.
+	 *
+	 * @return the throughput
+	 */
+	public long getThroughput() {
+		return processedObjects.get() * 1000L / Math.max(1L, System.currentTimeMillis() - startTime);
+	}
+
+	/**
+	 * Returns the estimated number of seconds until the operation is
+	 * finished, or -1 if no partition has been completed yet.
+	 *
+	 * @return the estimated remaining time in seconds
+	 */
+	public long getEstimatedSeconds() {
+
+		final int completed = completedPartitions.get();
+		if (completed == 0) {
+
+			return -1L;
+		}
+
+		final long elapsed  = System.currentTimeMillis() - startTime;
+		final int remaining = partitions - resumedPartitions - completed;
+
+		return (elapsed * remaining / completed) / 1000L;
+	}
+
+	public Map<String, Object> toMap() {
+
+		final Map<String, Object> map = new LinkedHashMap<>();
+
+		map.put("name",                name);
+		map.put("partitions",          partitions);
+		map.put("completedPartitions", resumedPartitions + completedPartitions.get());
+		map.put("processedObjects",    processedObjects.get());
+		map.put("throughput",          getThroughput());
+		map.put("eta",                 getEstimatedSeconds());
+
+		return map;
+	}
+}
@@ -86,11 +86,26 @@ public class BulkRebuildIndexCommand extends NodeServiceCommand implements Maint
 	// ----- private methods -----
 	private void rebuildNodeIndex(final String entityType) {
 
-		final NodeFactory nodeFactory       = new NodeFactory(SecurityContext.getSuperUserInstance());
-		final DatabaseService graphDb       = (DatabaseService) arguments.get("graphDb");
-		Iterator<AbstractNode> nodeIterator = null;
+		final NodeFactory nodeFactory = new NodeFactory(SecurityContext.getSuperUserInstance());
+		final DatabaseService graphDb = (DatabaseService) arguments.get("graphDb");
 
-		nodeIterator = Iterables.map(nodeFactory, Iterables.filter(new StructrAndSpatialPredicate(true, false, false), graphDb.getNodesByTypeProperty(entityType))).iterator();
+		final PartitionedSource<AbstractNode> nodes = new PartitionedSource<AbstractNode>() {
+
+			@Override
+			public String getName() {
+				return entityType != null ? entityType : "all";
+			}
+
+			@Override
+			public long getMaxId() {
+				return graphDb.getMaxNodeId();
+			}
+
+			@Override
+			public Iterable<AbstractNode> getRange(final long fromId, final long toId) {
+				return Iterables.map(nodeFactory, Iterables.filter(new StructrAndSpatialPredicate(true, false, false), graphDb.getNodesByTypeProperty(entityType, fromId, toId)));
+			}
+		};
 
 		if (entityType == null) {
 
@@ -101,7 +116,7 @@ public class BulkRebuildIndexCommand extends NodeServiceCommand implements Maint
 			info("Starting (re-)indexing all nodes of type {}", entityType);
 		}
 
-		long count = bulkGraphOperation(securityContext, nodeIterator, 1000, "RebuildNodeIndex", new BulkGraphOperation<AbstractNode>() {
+		long count = bulkGraphOperation(securityContext, nodes, 1000, "RebuildNodeIndex", new BulkGraphOperation<AbstractNode>() {
 
 			@Override
 			public boolean handleGraphObject(SecurityContext securityContext, AbstractNode node) {
@@ -127,9 +142,26 @@ public class BulkRebuildIndexCommand extends NodeServiceCommand implements Maint
 
 	private void rebuildRelationshipIndex(final String relType) {
 
-		final RelationshipFactory relFactory             = new RelationshipFactory(SecurityContext.getSuperUserInstance());
-		final DatabaseService graphDb                    = (DatabaseService) arguments.get("graphDb");
-		final Iterator<AbstractRelationship> relIterator = Iterables.map(relFactory, Iterables.filter(new StructrAndSpatialPredicate(true, false, false), graphDb.getRelationshipsByType(relType))).iterator();
+		final RelationshipFactory relFactory = new RelationshipFactory(SecurityContext.getSuperUserInstance());
+		final DatabaseService graphDb        = (DatabaseService) arguments.get("graphDb");
+
+		final PartitionedSource<AbstractRelationship> rels = new PartitionedSource<AbstractRelationship>() {
+
+			@Override
+			public String getName() {
+				return relType != null ? relType : "all";
+			}
+
+			@Override
+			public long getMaxId() {
+				return graphDb.getMaxRelationshipId();
+			}
+
+			@Override
+			public Iterable<AbstractRelationship> getRange(final long fromId, final long toId) {
+				return Iterables.map(relFactory, Iterables.filter(new StructrAndSpatialPredicate(true, false, false), graphDb.getRelationshipsByType(relType, fromId, toId)));
+			}
+		};
 
 		if (relType == null) {
 
@@ -141,7 +173,7 @@ public class BulkRebuildIndexCommand extends NodeServiceCommand implements Maint
 
 		}
 
-		long count = bulkGraphOperation(securityContext, relIterator, 1000, "RebuildRelIndex", new BulkGraphOperation<AbstractRelationship>() {
+		long count = bulkGraphOperation(securityContext, rels, 1000, "RebuildRelIndex", new BulkGraphOperation<AbstractRelationship>() {
 
 			@Override
 			public boolean handleGraphObject(SecurityContext securityContext, AbstractRelationship rel) {
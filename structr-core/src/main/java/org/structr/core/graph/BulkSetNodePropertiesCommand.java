@@ -18,7 +18,6 @@
  */
 package org.structr.core.graph;
 
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import org.apache.commons.lang3.StringUtils;
@@ -29,7 +28,6 @@ import org.structr.api.util.Iterables;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
-import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
 import org.structr.core.converter.PropertyConverter;
 import org.structr.core.entity.AbstractNode;
@@ -66,28 +64,37 @@ public class BulkSetNodePropertiesCommand extends NodeServiceCommand implements
 
 		if (graphDb != null) {
 
-			final App app                       = StructrApp.getInstance(securityContext);
-			Iterator<AbstractNode> nodeIterator = null;
+			final boolean byType = properties.containsKey(AbstractNode.type.dbName());
 
-			if (properties.containsKey(AbstractNode.type.dbName())) {
+			// remove "type" so it won't be set later
+			properties.remove("type");
 
-				try (final Tx tx = app.tx()) {
+			final PartitionedSource<AbstractNode> nodes = new PartitionedSource<AbstractNode>() {
 
-					nodeIterator = app.nodeQuery(cls).getResultStream().iterator();
-					properties.remove(AbstractNode.type.dbName());
+				@Override
+				public String getName() {
+					return (byType ? type : "all") + "-" + Integer.toHexString(properties.hashCode());
+				}
 
-					tx.success();
+				@Override
+				public long getMaxId() {
+					return graphDb.getMaxNodeId();
 				}
 
-			} else {
+				@Override
+				public Iterable<AbstractNode> getRange(final long fromId, final long toId) {
 
-				nodeIterator = Iterables.map(nodeFactory, graphDb.getAllNodes()).iterator();
-			}
+					if (byType) {
 
-			// remove "type" so it won't be set later
-			properties.remove("type");
+						// labels include the type hierarchy, like a node query
+						return Iterables.map(nodeFactory, graphDb.getNodesByLabel(cls.getSimpleName(), fromId, toId));
+					}
+
+					return Iterables.map(nodeFactory, graphDb.getAllNodes(fromId, toId));
+				}
+			};
 
-			final long count = bulkGraphOperation(securityContext, nodeIterator, 1000, "SetNodeProperties", new BulkGraphOperation<AbstractNode>() {
+			final long count = bulkGraphOperation(securityContext, nodes, 1000, "SetNodeProperties", new BulkGraphOperation<AbstractNode>() {
 
 				@Override
 				public boolean handleGraphObject(SecurityContext securityContext, AbstractNode node) {
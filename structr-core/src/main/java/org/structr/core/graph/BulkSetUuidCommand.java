@@ -18,7 +18,6 @@
  */
 package org.structr.core.graph;
 
-import java.util.Iterator;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,22 +59,40 @@ public class BulkSetUuidCommand extends NodeServiceCommand implements Maintenanc
 
 		if (nodeType != null || Boolean.TRUE.equals(allNodes)) {
 
-			Iterator<AbstractNode> nodeIterator = null;
+			final PartitionedSource<AbstractNode> nodes = new PartitionedSource<AbstractNode>() {
 
-			if (Boolean.TRUE.equals(allNodes)) {
+				@Override
+				public String getName() {
+					return Boolean.TRUE.equals(allNodes) ? "all" : nodeType;
+				}
+
+				@Override
+				public long getMaxId() {
+					return graphDb.getMaxNodeId();
+				}
+
+				@Override
+				public Iterable<AbstractNode> getRange(final long fromId, final long toId) {
 
-				nodeIterator = Iterables.map(nodeFactory, graphDb.getAllNodes()).iterator();
+					if (Boolean.TRUE.equals(allNodes)) {
+
+						return Iterables.map(nodeFactory, graphDb.getAllNodes(fromId, toId));
+					}
+
+					return Iterables.map(nodeFactory, graphDb.getNodesByTypeProperty(nodeType, fromId, toId));
+				}
+			};
+
+			if (Boolean.TRUE.equals(allNodes)) {
 
 				info("Start setting UUID on all nodes");
 
 			} else {
 
-				nodeIterator = Iterables.map(nodeFactory, graphDb.getNodesByTypeProperty(nodeType)).iterator();
-
 				info("Start setting UUID on nodes of type {}", new Object[] { nodeType });
 			}
 
-			final long count = bulkGraphOperation(securityContext, nodeIterator, 1000, "SetNodeUuid", new BulkGraphOperation<AbstractNode>() {
+			final long count = bulkGraphOperation(securityContext, nodes, 1000, "SetNodeUuid", new BulkGraphOperation<AbstractNode>() {
 
 				@Override
 				public boolean handleGraphObject(final SecurityContext securityContext, final AbstractNode node) {
@@ -119,22 +136,40 @@ public class BulkSetUuidCommand extends NodeServiceCommand implements Maintenanc
 
 		if (relType != null || Boolean.TRUE.equals(allRels)) {
 
-			Iterator<AbstractRelationship> relIterator = null;
+			final PartitionedSource<AbstractRelationship> rels = new PartitionedSource<AbstractRelationship>() {
 
-			if (Boolean.TRUE.equals(allRels)) {
+				@Override
+				public String getName() {
+					return Boolean.TRUE.equals(allRels) ? "all" : relType;
+				}
+
+				@Override
+				public long getMaxId() {
+					return graphDb.getMaxRelationshipId();
+				}
+
+				@Override
+				public Iterable<AbstractRelationship> getRange(final long fromId, final long toId) {
 
-				relIterator = Iterables.map(relFactory, graphDb.getAllRelationships()).iterator();
+					if (Boolean.TRUE.equals(allRels)) {
+
+						return Iterables.map(relFactory, graphDb.getAllRelationships(fromId, toId));
+					}
+
+					return Iterables.map(relFactory, graphDb.getRelationshipsByType(relType, fromId, toId));
+				}
+			};
+
+			if (Boolean.TRUE.equals(allRels)) {
 
 				info("Start setting UUID on all rels");
 
 			} else {
 
-				relIterator = Iterables.map(relFactory, graphDb.getRelationshipsByType(relType)).iterator();
-
 				info("Start setting UUID on rels of type {}", relType);
 			}
 
-			final long count = bulkGraphOperation(securityContext, relIterator, 1000, "SetRelationshipUuid", new BulkGraphOperation<AbstractRelationship>() {
+			final long count = bulkGraphOperation(securityContext, rels, 1000, "SetRelationshipUuid", new BulkGraphOperation<AbstractRelationship>() {
 
 				@Override
 				public boolean handleGraphObject(SecurityContext securityContext, AbstractRelationship rel) {
@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.entity.AbstractNode;
+
+/**
+ * Returns hit and miss statistics of the permission resolution caches
+ * and of all caches registered by other modules. Use the "reset"
+ * parameter to clear the statistics afterwards.
+ */
+public class CacheStatisticsCommand extends NodeServiceCommand implements MaintenanceCommand {
+
+	private static final Map<String, Supplier<Map<String, Object>>> statistics = new ConcurrentHashMap<>();
+	private static final Map<String, Runnable> resetHandlers                   = new ConcurrentHashMap<>();
+
+	private Map<String, Object> result = null;
+
+	/**
+	 * Registers the statistics of a cache under the given name.
+	 *
+	 * @param name
+	 * @param statisticsSupplier
+	 * @param resetHandler
+	 */
+	public static void registerCache(final String name, final Supplier<Map<String, Object>> statisticsSupplier, final Runnable resetHandler) {
+
+		statistics.put(name, statisticsSupplier);
+		resetHandlers.put(name, resetHandler);
+	}
+
+	@Override
+	public void execute(final Map<String, Object> attributes) throws FrameworkException {
+
+		result = new LinkedHashMap<>();
+
+		result.put("permissions", AbstractNode.getPermissionCacheStatistics());
+
+		for (final Map.Entry<String, Supplier<Map<String, Object>>> entry : statistics.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().get());
+		}
+
+		if (Boolean.TRUE.equals(attributes.get("reset"))) {
+
+			AbstractNode.resetPermissionCacheStatistics();
+
+			for (final Runnable resetHandler : resetHandlers.values()) {
+				resetHandler.run();
+			}
+		}
+	}
+
+	@Override
+	public Object getCommandResult() {
+		return result;
+	}
+
+	@Override
+	public boolean requiresEnclosingTransaction() {
+		return false;
+	}
+
+	@Override
+	public boolean requiresFlushingOfCaches() {
+		return false;
+	}
+}
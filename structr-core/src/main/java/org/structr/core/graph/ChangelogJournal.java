@@ -0,0 +1,1020 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
+
+/**
+ * Append-only storage for changelog entries. Entries are written to
+ * rolling segment files by a single writer thread that writes all
+ * pending entries at once, so a transaction never waits for the disk.
+ * The number of pending entries is bounded, appending waits while the
+ * queue is full. If a batch can not be written after the configured
+ * number of attempts, the journal fails and rejects all further entries.
+ *
+ * Only the entries of the current segment are indexed in memory. When
+ * a segment is full, its index is stored next to it as a sorted list of
+ * fixed-size records (hash of type and UUID, offset) that is searched
+ * on disk, so the memory footprint does not grow with the journal.
+ *
+ * Each entry consists of a flag byte, the changelog type ("n", "r" or
+ * "u"), the length and the bytes of the UUID, the length and the CRC32
+ * checksum of the data and the UTF-8 encoded data itself.
+ */
+public class ChangelogJournal implements Closeable {
+
+	private static final Logger logger          = LoggerFactory.getLogger(ChangelogJournal.class.getName());
+	private static final Pattern segmentPattern = Pattern.compile("changelog-([0-9]+)\\.journal");
+	private static final byte FLAG_IMPORTED     = 1;
+	private static final long IMPORTED_BIT      = 1L << 63;
+	private static final int INDEX_RECORD_SIZE  = 16;
+	private static final int MAX_BATCH_SIZE     = 10000;
+	private static final long RETRY_DELAY       = 1000L;
+	private static ChangelogJournal instance    = null;
+
+	private final ConcurrentHashMap<Integer, FileChannel> indexChannels = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<Integer, FileChannel> channels      = new ConcurrentHashMap<>();
+	private LinkedBlockingQueue<Entry> queue                            = null;
+	private final Object writeMonitor                                   = new Object();
+	private ByteBuffer buffer                                           = ByteBuffer.allocate(65536);
+	private volatile Throwable writeFailure                             = null;
+	private volatile IndexState state                                   = null;
+	private volatile boolean running                                    = true;
+	private volatile boolean failed                                     = false;
+	private volatile long writtenSequence                               = 0L;
+	private FileChannel segment                                         = null;
+	private Thread writer                                               = null;
+	private File directory                                              = null;
+	private long maxSegmentSize                                         = 0L;
+	private long enqueuedSequence                                       = 0L;
+	private int segmentNumber                                           = 0;
+	private int maxAttempts                                             = 0;
+	private boolean sync                                                = false;
+
+	public ChangelogJournal(final File directory, final long maxSegmentSize, final boolean sync) throws IOException {
+		this(directory, maxSegmentSize, sync, Settings.ChangelogQueueSize.getValue(), Settings.ChangelogMaxAttempts.getValue());
+	}
+
+	public ChangelogJournal(final File directory, final long maxSegmentSize, final boolean sync, final int queueSize, final int maxAttempts) throws IOException {
+
+		this.queue          = new LinkedBlockingQueue<>(Math.max(1, queueSize));
+		this.maxAttempts    = Math.max(1, maxAttempts);
+		this.directory      = directory;
+		this.maxSegmentSize = maxSegmentSize;
+		this.sync           = sync;
+
+		directory.mkdirs();
+
+		open();
+
+		writer = new Thread(() -> write(), "ChangelogJournalWriter");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Adds the given changelog data for the entity with the given UUID
+	 * to the journal. The data is written asynchronously, but it is
+	 * visible to all subsequent calls to {@link #read}.
+	 *
+	 * @param type
+	 * @param uuid
+	 * @param data
+	 * @throws IOException if the journal has failed
+	 */
+	public void append(final String type, final String uuid, final String data) throws IOException {
+
+		if (data != null && !data.isEmpty()) {
+
+			enqueue(new Entry(type, uuid, data, false));
+		}
+	}
+
+	/**
+	 * Adds changelog data from a previous storage format and waits until
+	 * it is written. Imported data is returned before all other data of
+	 * the same entity, regardless of when it was imported.
+	 *
+	 * @param type
+	 * @param uuid
+	 * @param data
+	 * @return whether the data was written successfully
+	 * @throws IOException if the journal has failed
+	 */
+	public boolean importData(final String type, final String uuid, final String data) throws IOException {
+
+		final PendingImport pending = submitImport(type, uuid, data);
+
+		awaitWritten(pending.entry.sequence);
+
+		return pending.isWritten();
+	}
+
+	/**
+	 * Adds changelog data from a previous storage format without waiting
+	 * until it is written, so that many imports are written in the same
+	 * batch. Callers wait for all submitted imports with {@link #flush}
+	 * and check each of them with {@link PendingImport#isWritten}.
+	 *
+	 * @param type
+	 * @param uuid
+	 * @param data
+	 * @return the pending import
+	 * @throws IOException if the journal has failed
+	 */
+	public PendingImport submitImport(final String type, final String uuid, final String data) throws IOException {
+
+		final Entry entry = new Entry(type, uuid, data, true);
+
+		if (data != null && !data.isEmpty()) {
+
+			enqueue(entry);
+
+		} else {
+
+			// nothing to write
+			entry.written = true;
+		}
+
+		return new PendingImport(entry);
+	}
+
+	/**
+	 * Returns the concatenated changelog data of the entity with the
+	 * given UUID, or an empty string.
+	 *
+	 * @param type
+	 * @param uuid
+	 * @return the changelog data
+	 * @throws IOException if previously appended data could not be written
+	 */
+	public String read(final String type, final String uuid) throws IOException {
+
+		// make all previously appended data visible
+		flush();
+
+		final IndexState current  = state;
+		final long hash           = hash(type, uuid);
+		final List<Long> imported = new ArrayList<>();
+		final List<Long> other    = new ArrayList<>();
+
+		for (final int number : current.sealed) {
+
+			findInSegmentIndex(number, hash, imported, other);
+		}
+
+		final Locations locations = current.active.get(hash);
+		if (locations != null) {
+
+			for (final long location : locations.toArray()) {
+
+				addLocation(current.activeSegment, location, imported, other);
+			}
+		}
+
+		// imported data precedes all other data
+		imported.addAll(other);
+
+		final StringBuilder buf = new StringBuilder();
+
+		for (final long location : imported) {
+
+			final String data = readData(type, uuid, getSegment(location), getOffset(location));
+			if (data != null) {
+
+				buf.append(data);
+			}
+		}
+
+		return buf.toString();
+	}
+
+	/**
+	 * Waits until all data that was appended before this call is written.
+	 *
+	 * @throws IOException if the data could not be written
+	 */
+	public void flush() throws IOException {
+
+		final long sequence;
+
+		synchronized (queue) {
+			sequence = enqueuedSequence;
+		}
+
+		if (!awaitWritten(sequence)) {
+
+			final IOException ioex = new IOException("Unable to write changelog");
+
+			ioex.initCause(writeFailure);
+
+			throw ioex;
+		}
+	}
+
+	/**
+	 * Indicates whether writing has failed permanently. A failed journal
+	 * rejects all entries and must be replaced, see {@link #getInstance}.
+	 *
+	 * @return whether the journal has failed
+	 */
+	public boolean hasFailed() {
+		return failed;
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		try {
+
+			flush();
+
+		} finally {
+
+			// the writer must not be interrupted, an interrupt closes the segment channel
+			running = false;
+
+			try {
+
+				writer.join(TimeUnit.SECONDS.toMillis(10));
+
+			} catch (InterruptedException iex) {
+				logger.warn("Interrupted while waiting for changelog writer to finish");
+			}
+
+			for (final FileChannel channel : channels.values()) {
+				channel.close();
+			}
+
+			for (final FileChannel channel : indexChannels.values()) {
+				channel.close();
+			}
+
+			channels.clear();
+			indexChannels.clear();
+		}
+	}
+
+	// ----- public static methods -----
+	/**
+	 * Returns the journal in the configured changelog directory and
+	 * opens it if necessary.
+	 *
+	 * @return the journal
+	 * @throws IOException
+	 */
+	public static synchronized ChangelogJournal getInstance() throws IOException {
+
+		final File directory = new File(Settings.ChangelogPath.getValue(), "journal");
+
+		if (instance != null && (instance.failed || !instance.directory.equals(directory))) {
+
+			try {
+
+				instance.close();
+
+			} catch (IOException ioex) {
+				logger.warn("Unable to close changelog journal: {}", ioex.getMessage());
+			}
+
+			instance = null;
+		}
+
+		if (instance == null) {
+
+			instance = new ChangelogJournal(directory, Settings.ChangelogSegmentSize.getValue() * 1024L * 1024L, Settings.ChangelogSync.getValue());
+		}
+
+		return instance;
+	}
+
+	public static synchronized void shutdown() {
+
+		if (instance != null) {
+
+			try {
+
+				instance.close();
+
+			} catch (IOException ioex) {
+				logger.warn("Unable to close changelog journal: {}", ioex.getMessage());
+			}
+
+			instance = null;
+		}
+	}
+
+	// ----- private methods -----
+	private void enqueue(final Entry entry) throws IOException {
+
+		// sequence numbers must be in queue order, see awaitWritten()
+		synchronized (queue) {
+
+			boolean added = false;
+
+			entry.sequence = enqueuedSequence + 1;
+
+			try {
+
+				// wait while the queue is full, unless the writer gives up
+				while (!failed && writer.isAlive() && !added) {
+
+					added = queue.offer(entry, 100, TimeUnit.MILLISECONDS);
+				}
+
+			} catch (InterruptedException iex) {
+				throw new InterruptedIOException("Interrupted while waiting for changelog writer");
+			}
+
+			if (!added) {
+
+				final IOException ioex = new IOException("Changelog journal has failed");
+
+				ioex.initCause(writeFailure);
+
+				throw ioex;
+			}
+
+			enqueuedSequence = entry.sequence;
+		}
+	}
+
+	/**
+	 * Waits until the entry with the given sequence number is written
+	 * and returns false if writing has failed in the meantime.
+	 */
+	private boolean awaitWritten(final long sequence) {
+
+		synchronized (writeMonitor) {
+
+			while (writtenSequence < sequence) {
+
+				if (writeFailure != null || !writer.isAlive()) {
+					return false;
+				}
+
+				try {
+
+					writeMonitor.wait(100);
+
+				} catch (InterruptedException iex) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private void write() {
+
+		final List<Entry> batch = new ArrayList<>();
+		int attempts            = 0;
+
+		while (running || !queue.isEmpty() || !batch.isEmpty()) {
+
+			try {
+
+				if (batch.isEmpty()) {
+
+					final Entry first = queue.poll(1, TimeUnit.SECONDS);
+					if (first == null) {
+
+						continue;
+					}
+
+					batch.add(first);
+				}
+
+				queue.drainTo(batch, Math.max(0, MAX_BATCH_SIZE - batch.size()));
+
+				final long lastSequence = batch.get(batch.size() - 1).sequence;
+
+				try {
+
+					writeBatch(batch);
+
+					writeFailure = null;
+					attempts     = 0;
+
+				} catch (Throwable t) {
+
+					logger.error("Unable to write changelog: {}", t.getMessage());
+
+					writeFailure = t;
+				}
+
+				// entries that could not be written are kept and written first in the next attempt
+				batch.removeIf(entry -> entry.written);
+
+				if (!batch.isEmpty() && ++attempts >= maxAttempts) {
+
+					logger.error("Unable to write {} changelog entries after {} attempts, rejecting all further changelog entries", batch.size() + queue.size(), attempts);
+
+					// waiting threads and subsequent appends see the failure
+					failed = true;
+
+					queue.clear();
+
+					synchronized (writeMonitor) {
+						writeMonitor.notifyAll();
+					}
+
+					return;
+				}
+
+				synchronized (writeMonitor) {
+
+					writtenSequence = batch.isEmpty() ? lastSequence : batch.get(0).sequence - 1;
+					writeMonitor.notifyAll();
+				}
+
+				if (!batch.isEmpty()) {
+
+					if (running) {
+
+						Thread.sleep(RETRY_DELAY);
+
+					} else {
+
+						logger.error("Discarding {} unwritten changelog entries on shutdown", batch.size());
+						batch.clear();
+					}
+				}
+
+			} catch (InterruptedException iex) {
+
+				// shutdown is handled by the loop condition
+			}
+		}
+	}
+
+	private void writeBatch(final List<Entry> batch) throws IOException {
+
+		final List<Entry> pending = new ArrayList<>();
+		long position             = segment.size();
+
+		buffer.clear();
+
+		for (final Entry entry : batch) {
+
+			final byte[] uuid = entry.uuid.getBytes(StandardCharsets.UTF_8);
+			final byte[] data = entry.data.getBytes(StandardCharsets.UTF_8);
+			final int size    = 11 + uuid.length + data.length;
+
+			final long end = position + buffer.position();
+
+			if (end > 0 && end + size > maxSegmentSize) {
+
+				// current segment is full, write what we have and start a new one
+				flushBuffer(pending);
+				rollSegment();
+
+				position = 0L;
+			}
+
+			ensureCapacity(size);
+
+			entry.offset = position + buffer.position();
+
+			final CRC32 crc = new CRC32();
+			crc.update(data);
+
+			buffer.put(entry.imported ? FLAG_IMPORTED : 0);
+			buffer.put((byte)entry.type.charAt(0));
+			buffer.put((byte)uuid.length);
+			buffer.put(uuid);
+			buffer.putInt(data.length);
+			buffer.putInt((int)crc.getValue());
+			buffer.put(data);
+
+			pending.add(entry);
+		}
+
+		flushBuffer(pending);
+	}
+
+	private void flushBuffer(final List<Entry> pending) throws IOException {
+
+		final long start = segment.size();
+
+		buffer.flip();
+
+		try {
+
+			while (buffer.hasRemaining()) {
+				segment.write(buffer);
+			}
+
+		} catch (IOException ioex) {
+
+			// do not leave incomplete entries in the segment
+			segment.truncate(start);
+			throw ioex;
+
+		} finally {
+
+			buffer.clear();
+		}
+
+		// group commit: one sync for all entries of the batch
+		if (sync) {
+			segment.force(false);
+		}
+
+		// entries become visible to readers only after they are written
+		for (final Entry entry : pending) {
+
+			addToIndex(state.active, entry.type, entry.uuid, entry.offset, entry.imported);
+			entry.written = true;
+		}
+
+		pending.clear();
+	}
+
+	private void ensureCapacity(final int size) {
+
+		if (buffer.remaining() < size) {
+
+			final ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size));
+
+			buffer.flip();
+			larger.put(buffer);
+
+			buffer = larger;
+		}
+	}
+
+	private void addToIndex(final Map<Long, Locations> index, final String type, final String uuid, final long offset, final boolean imported) {
+		index.computeIfAbsent(hash(type, uuid), k -> new Locations()).add(imported ? offset | IMPORTED_BIT : offset);
+	}
+
+	private void rollSegment() throws IOException {
+
+		final IndexState current = state;
+
+		segment.force(false);
+
+		// store the index of the full segment, it is searched on disk from now on
+		writeIndex(segmentNumber, current.active);
+
+		openSegment(segmentNumber + 1);
+
+		final int[] sealed = Arrays.copyOf(current.sealed, current.sealed.length + 1);
+
+		sealed[current.sealed.length] = current.activeSegment;
+
+		// readers see either the old or the new set of segments, never a mix
+		state = new IndexState(sealed, segmentNumber, new ConcurrentHashMap<>());
+	}
+
+	private void open() throws IOException {
+
+		final TreeMap<Integer, File> segments = new TreeMap<>();
+		final List<Integer> sealed            = new ArrayList<>();
+		final File[] files                    = directory.listFiles();
+
+		if (files != null) {
+
+			for (final File file : files) {
+
+				final Matcher matcher = segmentPattern.matcher(file.getName());
+				if (matcher.matches()) {
+
+					segments.put(Integer.valueOf(matcher.group(1)), file);
+				}
+			}
+		}
+
+		if (segments.isEmpty()) {
+
+			openSegment(1);
+
+			state = new IndexState(new int[0], 1, new ConcurrentHashMap<>());
+			return;
+		}
+
+		for (final Map.Entry<Integer, File> entry : segments.entrySet()) {
+
+			final int number = entry.getKey();
+
+			if (number == segments.lastKey()) {
+
+				final Map<Long, Locations> active = new ConcurrentHashMap<>();
+				final long validLength            = scanSegment(entry.getValue(), active);
+
+				openSegment(number);
+
+				// remove incomplete data from a previous crash
+				if (segment.size() > validLength) {
+
+					logger.warn("Removing {} bytes of incomplete changelog data from {}", segment.size() - validLength, entry.getValue());
+					segment.truncate(validLength);
+				}
+
+				state = new IndexState(sealed.stream().mapToInt(Integer::intValue).toArray(), number, active);
+
+			} else {
+
+				final File index = getIndexFile(number);
+
+				if (!index.exists() || index.length() % INDEX_RECORD_SIZE != 0) {
+
+					// segment was full but its index is missing or incomplete
+					final Map<Long, Locations> entries = new HashMap<>();
+
+					scanSegment(entry.getValue(), entries);
+					writeIndex(number, entries);
+				}
+
+				sealed.add(number);
+			}
+		}
+	}
+
+	private void openSegment(final int number) throws IOException {
+
+		final File file = new File(directory, String.format("changelog-%010d.journal", number));
+
+		segment       = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		segmentNumber = number;
+
+		segment.position(segment.size());
+
+		channels.put(number, segment);
+	}
+
+	/**
+	 * Stores the given index entries of a segment sorted by hash and
+	 * offset, so they can be found by a binary search on disk.
+	 */
+	private void writeIndex(final int number, final Map<Long, Locations> index) throws IOException {
+
+		final List<long[]> records = new ArrayList<>();
+		final File file            = getIndexFile(number);
+		final File tmp             = new File(file.getPath() + ".tmp");
+
+		for (final Map.Entry<Long, Locations> entry : index.entrySet()) {
+
+			for (final long location : entry.getValue().toArray()) {
+
+				records.add(new long[] { entry.getKey(), location });
+			}
+		}
+
+		records.sort((a, b) -> {
+
+			final int result = Long.compare(a[0], b[0]);
+			if (result != 0) {
+
+				return result;
+			}
+
+			return Long.compare(a[1] & ~IMPORTED_BIT, b[1] & ~IMPORTED_BIT);
+		});
+
+		try (final FileOutputStream fos = new FileOutputStream(tmp)) {
+
+			final DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(fos));
+
+			for (final long[] record : records) {
+
+				dos.writeLong(record[0]);
+				dos.writeLong(record[1]);
+			}
+
+			dos.flush();
+			fos.getFD().sync();
+		}
+
+		// an index file is either complete or missing
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private void findInSegmentIndex(final int number, final long hash, final List<Long> imported, final List<Long> other) throws IOException {
+
+		final FileChannel channel = getIndexChannel(number);
+		final ByteBuffer record   = ByteBuffer.allocate(INDEX_RECORD_SIZE);
+		final long count          = channel.size() / INDEX_RECORD_SIZE;
+		long low                  = 0L;
+		long high                 = count;
+
+		// find the first record with the given hash
+		while (low < high) {
+
+			final long middle = (low + high) >>> 1;
+
+			record.clear();
+			readFully(channel, record, middle * INDEX_RECORD_SIZE);
+
+			if (record.getLong(0) < hash) {
+
+				low = middle + 1;
+
+			} else {
+
+				high = middle;
+			}
+		}
+
+		for (long i=low; i<count; i++) {
+
+			record.clear();
+			readFully(channel, record, i * INDEX_RECORD_SIZE);
+
+			if (record.getLong(0) != hash) {
+				break;
+			}
+
+			addLocation(number, record.getLong(8), imported, other);
+		}
+	}
+
+	private void addLocation(final int number, final long location, final List<Long> imported, final List<Long> other) {
+
+		final long segmentLocation = ((long)number << 40) | (location & ~IMPORTED_BIT);
+
+		if ((location & IMPORTED_BIT) != 0) {
+
+			imported.add(segmentLocation);
+
+		} else {
+
+			other.add(segmentLocation);
+		}
+	}
+
+	/**
+	 * Adds all complete entries of the given segment to the given index
+	 * and returns the length of the segment up to the last complete entry.
+	 */
+	private long scanSegment(final File file, final Map<Long, Locations> index) throws IOException {
+
+		long offset = 0L;
+
+		try (final DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+
+			while (true) {
+
+				final byte flags  = dis.readByte();
+				final String type = String.valueOf((char)dis.readByte());
+				final byte[] uuid = new byte[dis.readUnsignedByte()];
+
+				dis.readFully(uuid);
+
+				final int length  = dis.readInt();
+				final int crc     = dis.readInt();
+
+				if (length < 0 || offset + 11 + uuid.length + length > file.length()) {
+					break;
+				}
+
+				final byte[] data = new byte[length];
+				final CRC32 check = new CRC32();
+
+				dis.readFully(data);
+				check.update(data);
+
+				if ((int)check.getValue() != crc) {
+					break;
+				}
+
+				addToIndex(index, type, new String(uuid, StandardCharsets.UTF_8), offset, flags == FLAG_IMPORTED);
+
+				offset += 11 + uuid.length + length;
+			}
+
+		} catch (EOFException eof) {
+
+			// incomplete entry at the end of the segment
+		}
+
+		return offset;
+	}
+
+	/**
+	 * Returns the data of the entry at the given position, or null if
+	 * the entry belongs to a different entity with the same hash.
+	 */
+	private String readData(final String type, final String uuid, final int number, final long offset) throws IOException {
+
+		final FileChannel channel = getChannel(number);
+		final ByteBuffer header   = ByteBuffer.allocate(3);
+		final byte[] expected     = uuid.getBytes(StandardCharsets.UTF_8);
+
+		readFully(channel, header, offset);
+
+		if (header.get(1) != (byte)type.charAt(0) || (header.get(2) & 0xff) != expected.length) {
+			return null;
+		}
+
+		final ByteBuffer actual = ByteBuffer.allocate(expected.length);
+
+		readFully(channel, actual, offset + 3);
+
+		if (!Arrays.equals(expected, actual.array())) {
+			return null;
+		}
+
+		final int uuidLength    = expected.length;
+		final ByteBuffer length = ByteBuffer.allocate(4);
+
+		readFully(channel, length, offset + 3 + uuidLength);
+
+		final ByteBuffer data = ByteBuffer.allocate(length.getInt(0));
+
+		readFully(channel, data, offset + 11 + uuidLength);
+
+		return new String(data.array(), StandardCharsets.UTF_8);
+	}
+
+	private void readFully(final FileChannel channel, final ByteBuffer buf, final long position) throws IOException {
+
+		while (buf.hasRemaining()) {
+
+			if (channel.read(buf, position + buf.position()) < 0) {
+				throw new EOFException("Unexpected end of changelog file " + channel);
+			}
+		}
+	}
+
+	private FileChannel getChannel(final int number) throws IOException {
+		return getReadChannel(channels, new File(directory, String.format("changelog-%010d.journal", number)), number);
+	}
+
+	private FileChannel getIndexChannel(final int number) throws IOException {
+		return getReadChannel(indexChannels, getIndexFile(number), number);
+	}
+
+	private FileChannel getReadChannel(final Map<Integer, FileChannel> map, final File file, final int number) throws IOException {
+
+		FileChannel channel = map.get(number);
+		if (channel == null) {
+
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+			final FileChannel existing = map.putIfAbsent(number, channel);
+			if (existing != null) {
+
+				channel.close();
+				channel = existing;
+			}
+		}
+
+		return channel;
+	}
+
+	private File getIndexFile(final int number) {
+		return new File(directory, String.format("changelog-%010d.index", number));
+	}
+
+	private int getSegment(final long location) {
+		return (int)(location >>> 40);
+	}
+
+	private long getOffset(final long location) {
+		return location & ((1L << 40) - 1);
+	}
+
+	/**
+	 * 64-bit FNV-1a hash of the changelog type and the UUID.
+	 */
+	private static long hash(final String type, final String uuid) {
+
+		long hash = 0xcbf29ce484222325L;
+
+		hash = (hash ^ type.charAt(0)) * 0x100000001b3L;
+
+		for (int i=0; i<uuid.length(); i++) {
+
+			hash = (hash ^ uuid.charAt(i)) * 0x100000001b3L;
+		}
+
+		return hash;
+	}
+
+	// ----- nested classes -----
+	/**
+	 * Changelog data that was submitted for import and is written
+	 * asynchronously.
+	 */
+	public static final class PendingImport {
+
+		private Entry entry = null;
+
+		private PendingImport(final Entry entry) {
+			this.entry = entry;
+		}
+
+		public boolean isWritten() {
+			return entry.written;
+		}
+	}
+
+	private static class Entry {
+
+		private volatile boolean written = false;
+		private String type              = null;
+		private String uuid              = null;
+		private String data              = null;
+		private boolean imported         = false;
+		private long sequence            = 0L;
+		private long offset              = 0L;
+
+		public Entry(final String type, final String uuid, final String data, final boolean imported) {
+
+			this.type     = type;
+			this.uuid     = uuid;
+			this.data     = data;
+			this.imported = imported;
+		}
+	}
+
+	/**
+	 * The sealed segments and the in-memory index of the current segment,
+	 * replaced as a whole when a segment is rolled over.
+	 */
+	private static class IndexState {
+
+		private Map<Long, Locations> active = null;
+		private int[] sealed                = null;
+		private int activeSegment           = 0;
+
+		public IndexState(final int[] sealed, final int activeSegment, final Map<Long, Locations> active) {
+
+			this.sealed        = sealed;
+			this.activeSegment = activeSegment;
+			this.active        = active;
+		}
+	}
+
+	/**
+	 * The offsets of the entries with the same hash in the current segment,
+	 * with the highest bit set for imported entries.
+	 */
+	private static class Locations {
+
+		private long[] locations = new long[1];
+		private int size         = 0;
+
+		public synchronized void add(final long location) {
+
+			if (size == locations.length) {
+				locations = Arrays.copyOf(locations, size * 2);
+			}
+
+			locations[size++] = location;
+		}
+
+		public synchronized long[] toArray() {
+			return Arrays.copyOf(locations, size);
+		}
+	}
+}
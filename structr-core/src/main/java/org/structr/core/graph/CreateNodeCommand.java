@@ -21,6 +21,9 @@ package org.structr.core.graph;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -30,6 +33,10 @@ import org.structr.api.ConstraintViolationException;
 import org.structr.api.DataFormatException;
 import org.structr.api.DatabaseService;
 import org.structr.api.graph.Node;
+import org.structr.api.graph.NodeCreationData;
+import org.structr.api.graph.Relationship;
+import org.structr.api.graph.RelationshipCreationData;
+import org.structr.api.graph.RelationshipType;
 import org.structr.bolt.wrapper.NodeWrapper;
 import org.structr.bolt.wrapper.RelationshipWrapper;
 import org.structr.common.Permission;
@@ -87,133 +94,285 @@ public class CreateNodeCommand<T extends NodeInterface> extends NodeServiceComma
 
 		if (graphDb != null) {
 
-			final NodeFactory<T> nodeFactory = new NodeFactory<>(securityContext);
-			final PropertyMap properties     = new PropertyMap(attributes);
-			final PropertyMap toNotify       = new PropertyMap();
-			final Object typeObject          = properties.get(AbstractNode.type);
-			final Class nodeType             = getTypeOrGeneric(typeObject);
-			final Set<String> labels         = TypeProperty.getLabelsForType(nodeType);
-			final CreationContainer tmp      = new CreationContainer(true);
-			final Date now                   = new Date();
-			final boolean isCreation         = true;
+			final NodeCreation creation = prepareCreation(attributes, user, new Date());
 
-			// use user-supplied UUID?
-			String uuid = properties.get(GraphObject.id);
-			if (uuid == null) {
+			node = finishCreation(creation, createNode(graphDb, user, creation.labels, creation.container.getData()), user);
+		}
 
-				// no, create new one
-				uuid = getNextUuid();
+		if (node != null) {
 
-				properties.put(GraphObject.id, uuid);
+			notifyCreation(node);
+		}
 
-			} else {
+		return node;
+	}
 
-				// enable UUID validation
-				securityContext.uuidWasSetManually(true);
-			}
+	/**
+	 * Creates all nodes described by the given property maps with a
+	 * small number of batched statements instead of one statement per
+	 * node, and returns them in the order of the input list.
+	 *
+	 * @param attributes
+	 * @return the created nodes
+	 * @throws FrameworkException
+	 */
+	public List<T> execute(final List<PropertyMap> attributes) throws FrameworkException {
 
-			// use property keys to set property values on creation dummy
-			// set default values for common properties in creation query
-			GraphObject.id.setProperty(securityContext, tmp, uuid);
-			GraphObject.type.setProperty(securityContext, tmp, nodeType.getSimpleName());
-			AbstractNode.createdDate.setProperty(securityContext, tmp, now);
-			AbstractNode.lastModifiedDate.setProperty(securityContext, tmp, now);
+		final DatabaseService graphDb = (DatabaseService) arguments.get("graphDb");
+		final Principal user          = securityContext.getUser(false);
+		final List<T> nodes           = new LinkedList<>();
+
+		if (graphDb != null && !attributes.isEmpty()) {
 
-			// default property values
-			AbstractNode.visibleToPublicUsers.setProperty(securityContext, tmp,        getOrDefault(properties, AbstractNode.visibleToPublicUsers, false));
-			AbstractNode.visibleToAuthenticatedUsers.setProperty(securityContext, tmp, getOrDefault(properties, AbstractNode.visibleToAuthenticatedUsers, false));
-			AbstractNode.hidden.setProperty(securityContext, tmp,                      getOrDefault(properties, AbstractNode.hidden, false));
+			final List<NodeCreationData> data     = new LinkedList<>();
+			final List<NodeCreation> creations    = new LinkedList<>();
+			final Date now                        = new Date();
 
-			if (user != null) {
+			for (final PropertyMap map : attributes) {
 
-				final String userId = user.getProperty(GraphObject.id);
+				final NodeCreation creation = prepareCreation(map, user, now);
 
-				AbstractNode.createdBy.setProperty(securityContext, tmp, userId);
-				AbstractNode.lastModifiedBy.setProperty(securityContext, tmp, userId);
+				data.add(new NodeCreationData(creation.labels, creation.container.getData()));
+				creations.add(creation);
 			}
 
-			// prevent double setting of properties
-			properties.remove(AbstractNode.id);
-			properties.remove(AbstractNode.type);
-			properties.remove(AbstractNode.visibleToPublicUsers);
-			properties.remove(AbstractNode.visibleToAuthenticatedUsers);
-			properties.remove(AbstractNode.hidden);
-			properties.remove(AbstractNode.lastModifiedDate);
-			properties.remove(AbstractNode.lastModifiedBy);
-			properties.remove(AbstractNode.createdDate);
-			properties.remove(AbstractNode.createdBy);
+			final List<Node> createdNodes = createNodes(graphDb, user, data);
+			final Iterator<Node> iterator = createdNodes.iterator();
 
-			// move properties to creation container that can be set directly on creation
-			tmp.filterIndexableForCreation(securityContext, properties, tmp, toNotify);
+			for (final NodeCreation creation : creations) {
 
-			// collect default values and try to set them on creation
-			for (final PropertyKey key : StructrApp.getConfiguration().getPropertySet(nodeType, PropertyView.All)) {
+				final T node = finishCreation(creation, iterator.next(), user);
+				if (node != null) {
 
-				if (key instanceof AbstractPrimitiveProperty && !tmp.hasProperty(key.jsonName())) {
+					nodes.add(node);
+				}
+			}
 
-					final Object defaultValue = key.defaultValue();
-					if (defaultValue != null) {
+			for (final T node : nodes) {
 
-						key.setProperty(securityContext, tmp, defaultValue);
-					}
-				}
+				notifyCreation(node);
 			}
+		}
 
-			node = (T) nodeFactory.instantiateWithType(createNode(graphDb, user, labels, tmp.getData()), nodeType, -1, isCreation);
-			if (node != null) {
+		return nodes;
+	}
 
-				TransactionCommand.nodeCreated(user, node);
+	// ----- private methods -----
+	private NodeCreation prepareCreation(final PropertyMap attributes, final Principal user, final Date now) throws FrameworkException {
 
-				securityContext.disableModificationOfAccessTime();
-				node.setProperties(securityContext, properties, true);
-				securityContext.enableModificationOfAccessTime();
+		final NodeCreation creation = new NodeCreation();
+		final PropertyMap properties = new PropertyMap(attributes);
+		final Object typeObject      = properties.get(AbstractNode.type);
+		final Class nodeType         = getTypeOrGeneric(typeObject);
+		final CreationContainer tmp  = new CreationContainer(true);
 
-				// ensure modification callbacks are called (necessary for validation)
-				for (final Entry<PropertyKey, Object> entry : toNotify.entrySet()) {
+		creation.labels     = TypeProperty.getLabelsForType(nodeType);
+		creation.properties = properties;
+		creation.toNotify   = new PropertyMap();
+		creation.nodeType   = nodeType;
+		creation.container  = tmp;
 
-					final PropertyKey key = entry.getKey();
-					final Object value    = entry.getValue();
+		// use user-supplied UUID?
+		String uuid = properties.get(GraphObject.id);
+		if (uuid == null) {
 
-					if (!key.isUnvalidated()) {
-						TransactionCommand.nodeModified(securityContext.getCachedUser(), (AbstractNode)node, key, null, value);
-					}
-				}
+			// no, create new one
+			uuid = getNextUuid();
+
+			properties.put(GraphObject.id, uuid);
+
+		} else {
+
+			// enable UUID validation
+			securityContext.uuidWasSetManually(true);
+		}
 
-				properties.clear();
+		creation.uuid = uuid;
 
-				// ensure indexing of newly created node
-				node.addToIndex();
+		// use property keys to set property values on creation dummy
+		// set default values for common properties in creation query
+		GraphObject.id.setProperty(securityContext, tmp, uuid);
+		GraphObject.type.setProperty(securityContext, tmp, nodeType.getSimpleName());
+		AbstractNode.createdDate.setProperty(securityContext, tmp, now);
+		AbstractNode.lastModifiedDate.setProperty(securityContext, tmp, now);
 
-				// invalidate UUID cache
-				StructrApp.invalidate(uuid);
+		// default property values
+		AbstractNode.visibleToPublicUsers.setProperty(securityContext, tmp,        getOrDefault(properties, AbstractNode.visibleToPublicUsers, false));
+		AbstractNode.visibleToAuthenticatedUsers.setProperty(securityContext, tmp, getOrDefault(properties, AbstractNode.visibleToAuthenticatedUsers, false));
+		AbstractNode.hidden.setProperty(securityContext, tmp,                      getOrDefault(properties, AbstractNode.hidden, false));
+
+		if (user != null) {
+
+			final String userId = user.getProperty(GraphObject.id);
+
+			AbstractNode.createdBy.setProperty(securityContext, tmp, userId);
+			AbstractNode.lastModifiedBy.setProperty(securityContext, tmp, userId);
+		}
+
+		// prevent double setting of properties
+		properties.remove(AbstractNode.id);
+		properties.remove(AbstractNode.type);
+		properties.remove(AbstractNode.visibleToPublicUsers);
+		properties.remove(AbstractNode.visibleToAuthenticatedUsers);
+		properties.remove(AbstractNode.hidden);
+		properties.remove(AbstractNode.lastModifiedDate);
+		properties.remove(AbstractNode.lastModifiedBy);
+		properties.remove(AbstractNode.createdDate);
+		properties.remove(AbstractNode.createdBy);
+
+		// move properties to creation container that can be set directly on creation
+		tmp.filterIndexableForCreation(securityContext, properties, tmp, creation.toNotify);
+
+		// collect default values and try to set them on creation
+		for (final PropertyKey key : StructrApp.getConfiguration().getPropertySet(nodeType, PropertyView.All)) {
+
+			if (key instanceof AbstractPrimitiveProperty && !tmp.hasProperty(key.jsonName())) {
+
+				final Object defaultValue = key.defaultValue();
+				if (defaultValue != null) {
+
+					key.setProperty(securityContext, tmp, defaultValue);
+				}
 			}
 		}
 
+		return creation;
+	}
+
+	private T finishCreation(final NodeCreation creation, final Node dbNode, final Principal user) throws FrameworkException {
+
+		final NodeFactory<T> nodeFactory = new NodeFactory<>(securityContext);
+		final PropertyMap properties     = creation.properties;
+		final T node                     = (T) nodeFactory.instantiateWithType(dbNode, creation.nodeType, -1, true);
+
 		if (node != null) {
 
-			// notify node of its creation
-			node.onNodeCreation();
+			TransactionCommand.nodeCreated(user, node);
+
+			securityContext.disableModificationOfAccessTime();
+			node.setProperties(securityContext, properties, true);
+			securityContext.enableModificationOfAccessTime();
 
-			// iterate post creation transformations
-			final Set<Transformation<GraphObject>> transformations = StructrApp.getConfiguration().getEntityCreationTransformations(node.getClass());
-			for (Transformation<GraphObject> transformation : transformations) {
+			// ensure modification callbacks are called (necessary for validation)
+			for (final Entry<PropertyKey, Object> entry : creation.toNotify.entrySet()) {
 
-				transformation.apply(securityContext, node);
+				final PropertyKey key = entry.getKey();
+				final Object value    = entry.getValue();
+
+				if (!key.isUnvalidated()) {
+					TransactionCommand.nodeModified(securityContext.getCachedUser(), (AbstractNode)node, key, null, value);
+				}
 			}
+
+			properties.clear();
+
+			// ensure indexing of newly created node
+			node.addToIndex();
+
+			// invalidate UUID cache
+			StructrApp.invalidate(creation.uuid);
 		}
 
 		return node;
 	}
 
-	// ----- private methods -----
-	private Node createNode(final DatabaseService graphDb, final Principal user, final Set<String> labels, final Map<String, Object> properties) throws FrameworkException {
+	private void notifyCreation(final T node) throws FrameworkException {
+
+		// notify node of its creation
+		node.onNodeCreation();
+
+		// iterate post creation transformations
+		final Set<Transformation<GraphObject>> transformations = StructrApp.getConfiguration().getEntityCreationTransformations(node.getClass());
+		for (Transformation<GraphObject> transformation : transformations) {
+
+			transformation.apply(securityContext, node);
+		}
+	}
+
+	private List<Node> createNodes(final DatabaseService graphDb, final Principal user, final List<NodeCreationData> data) throws FrameworkException {
+
+		try {
+
+			final List<Node> nodes = graphDb.createNodes(data);
+
+			if (user != null && user.shouldSkipSecurityRelationships() == false) {
+
+				final List<RelationshipCreationData> ownsRels     = new LinkedList<>();
+				final List<RelationshipCreationData> securityRels = new LinkedList<>();
+				final RelationshipType ownsType                   = graphDb.forName(RelationshipType.class, "OWNS");
+				final RelationshipType securityType               = graphDb.forName(RelationshipType.class, "SECURITY");
+				final Node userNode                               = user.getNode();
+				final String userId                               = user.getUuid();
+
+				for (final Node node : nodes) {
+
+					final String newUuid = (String)node.getProperty("id");
+
+					ownsRels.add(new RelationshipCreationData(userNode, node, ownsType, getOwnsProperties(graphDb, userId, newUuid)));
+					securityRels.add(new RelationshipCreationData(userNode, node, securityType, getSecurityProperties(graphDb, userId, newUuid)));
+				}
+
+				for (final Relationship rel : graphDb.createRelationships(securityRels)) {
+					notifySecurityRelCreation(user, (RelationshipWrapper)rel);
+				}
+
+				for (final Relationship rel : graphDb.createRelationships(ownsRels)) {
+					notifyOwnsRelCreation(user, (RelationshipWrapper)rel);
+				}
+			}
+
+			return nodes;
+
+		} catch (DataFormatException dex) {
+			throw new FrameworkException(422, dex.getMessage());
+		} catch (ConstraintViolationException qex) {
+			throw new FrameworkException(422, qex.getMessage());
+		}
+	}
+
+	private Map<String, Object> getOwnsProperties(final DatabaseService graphDb, final String userId, final String newUuid) {
+
+		final Map<String, Object> ownsProperties = new HashMap<>();
+
+		// configure OWNS relationship creation statement for maximum performance
+		ownsProperties.put(GraphObject.id.dbName(),                          getNextUuid());
+		ownsProperties.put(GraphObject.type.dbName(),                        PrincipalOwnsNode.class.getSimpleName());
+		ownsProperties.put(GraphObject.visibleToPublicUsers.dbName(),        false);
+		ownsProperties.put(GraphObject.visibleToAuthenticatedUsers.dbName(), false);
+		ownsProperties.put(AbstractRelationship.relType.dbName(),            "OWNS");
+		ownsProperties.put(AbstractRelationship.sourceId.dbName(),           userId);
+		ownsProperties.put(AbstractRelationship.targetId.dbName(),           newUuid);
+		ownsProperties.put(AbstractRelationship.internalTimestamp.dbName(),  graphDb.getInternalTimestamp());
+
+		return ownsProperties;
+	}
+
+	private Map<String, Object> getSecurityProperties(final DatabaseService graphDb, final String userId, final String newUuid) {
 
-		final Map<String, Object> parameters         = new HashMap<>();
-		final Map<String, Object> ownsProperties     = new HashMap<>();
 		final Map<String, Object> securityProperties = new HashMap<>();
-		final StringBuilder buf                      = new StringBuilder();
-		final String newUuid                         = (String)properties.get("id");
-		final String tenantId                        = graphDb.getTenantIdentifier();
+
+		// configure SECURITY relationship creation statement for maximum performance
+		securityProperties.put(GraphObject.id.dbName(),                          getNextUuid());
+		securityProperties.put(GraphObject.type.dbName(),                        Security.class.getSimpleName());
+		securityProperties.put(GraphObject.visibleToPublicUsers.dbName(),        false);
+		securityProperties.put(GraphObject.visibleToAuthenticatedUsers.dbName(), false);
+		securityProperties.put(AbstractRelationship.relType.dbName(),            "SECURITY");
+		securityProperties.put(AbstractRelationship.sourceId.dbName(),           userId);
+		securityProperties.put(AbstractRelationship.targetId.dbName(),           newUuid);
+		securityProperties.put(AbstractRelationship.internalTimestamp.dbName(),  graphDb.getInternalTimestamp());
+		securityProperties.put(Security.allowed.dbName(),                        new String[] { Permission.read.name(), Permission.write.name(), Permission.delete.name(), Permission.accessControl.name() } );
+		securityProperties.put(Security.principalId.dbName(),                    userId);
+		securityProperties.put(Security.accessControllableId.dbName(),           newUuid);
+
+		return securityProperties;
+	}
+
+	private Node createNode(final DatabaseService graphDb, final Principal user, final Set<String> labels, final Map<String, Object> properties) throws FrameworkException {
+
+		final Map<String, Object> parameters = new HashMap<>();
+		final StringBuilder buf              = new StringBuilder();
+		final String newUuid                 = (String)properties.get("id");
+		final String tenantId                = graphDb.getTenantIdentifier();
 
 		if (user != null && user.shouldSkipSecurityRelationships() == false) {
 
@@ -245,33 +404,10 @@ public class CreateNodeCommand<T extends NodeInterface> extends NodeServiceComma
 			buf.append(" {nodeProperties})<-[s:SECURITY {securityProperties}]-(u)");
 			buf.append(" RETURN n, s, o");
 
-			// configure OWNS relationship creation statement for maximum performance
-			ownsProperties.put(GraphObject.id.dbName(),                          getNextUuid());
-			ownsProperties.put(GraphObject.type.dbName(),                        PrincipalOwnsNode.class.getSimpleName());
-			ownsProperties.put(GraphObject.visibleToPublicUsers.dbName(),        false);
-			ownsProperties.put(GraphObject.visibleToAuthenticatedUsers.dbName(), false);
-			ownsProperties.put(AbstractRelationship.relType.dbName(),            "OWNS");
-			ownsProperties.put(AbstractRelationship.sourceId.dbName(),           userId);
-			ownsProperties.put(AbstractRelationship.targetId.dbName(),           newUuid);
-			ownsProperties.put(AbstractRelationship.internalTimestamp.dbName(),  graphDb.getInternalTimestamp());
-
-			// configure SECURITY relationship creation statement for maximum performance
-			securityProperties.put(GraphObject.id.dbName(),                          getNextUuid());
-			securityProperties.put(GraphObject.type.dbName(),                        Security.class.getSimpleName());
-			securityProperties.put(GraphObject.visibleToPublicUsers.dbName(),        false);
-			securityProperties.put(GraphObject.visibleToAuthenticatedUsers.dbName(), false);
-			securityProperties.put(AbstractRelationship.relType.dbName(),            "SECURITY");
-			securityProperties.put(AbstractRelationship.sourceId.dbName(),           userId);
-			securityProperties.put(AbstractRelationship.targetId.dbName(),           newUuid);
-			securityProperties.put(AbstractRelationship.internalTimestamp.dbName(),  graphDb.getInternalTimestamp());
-			securityProperties.put(Security.allowed.dbName(),                        new String[] { Permission.read.name(), Permission.write.name(), Permission.delete.name(), Permission.accessControl.name() } );
-			securityProperties.put(Security.principalId.dbName(),                    userId);
-			securityProperties.put(Security.accessControllableId.dbName(),           newUuid);
-
 			// store properties in statement
 			parameters.put("userId",             user.getId());
-			parameters.put("ownsProperties",     ownsProperties);
-			parameters.put("securityProperties", securityProperties);
+			parameters.put("ownsProperties",     getOwnsProperties(graphDb, userId, newUuid));
+			parameters.put("securityProperties", getSecurityProperties(graphDb, userId, newUuid));
 			parameters.put("nodeProperties",     properties);
 
 			final Iterable<Map<String, Object>> result = graphDb.execute(buf.toString(), parameters);
@@ -442,4 +578,15 @@ public class CreateNodeCommand<T extends NodeInterface> extends NodeServiceComma
 
 		}
 	}
+
+	// ----- nested classes -----
+	private static class NodeCreation {
+
+		private CreationContainer container = null;
+		private PropertyMap properties      = null;
+		private PropertyMap toNotify        = null;
+		private Set<String> labels          = null;
+		private Class nodeType              = null;
+		private String uuid                 = null;
+	}
 }
@@ -19,12 +19,19 @@
 package org.structr.core.graph;
 
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map.Entry;
+import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.DatabaseService;
+import org.structr.api.NotFoundException;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
+import org.structr.api.graph.RelationshipCreationData;
 import org.structr.common.PropertyView;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
@@ -54,21 +61,135 @@ public class CreateRelationshipCommand extends NodeServiceCommand {
 		return createRelationship(fromNode, toNode, relType, properties);
 	}
 
+	/**
+	 * Creates one relationship of the given type for each pair of nodes
+	 * at the same position in the given lists, using a small number of
+	 * batched statements. Cardinality is enforced against existing
+	 * relationships, and a node must not occur more than once on an end
+	 * of the relationship type that allows only one relationship.
+	 *
+	 * @param fromNodes
+	 * @param toNodes
+	 * @param relType
+	 * @param properties optional list of initial properties
+	 * @return the created relationships
+	 * @throws FrameworkException
+	 */
+	public <A extends NodeInterface, B extends NodeInterface, R extends Relation<A, B, ?, ?>> List<R> execute(final List<? extends A> fromNodes, final List<? extends B> toNodes, final Class<R> relType, final List<PropertyMap> properties) throws FrameworkException {
+
+		if (fromNodes.size() != toNodes.size() || (properties != null && properties.size() != fromNodes.size())) {
+			throw new FrameworkException(422, "Unable to create relationships, number of start nodes, end nodes and property sets must be equal");
+		}
+
+		// must be checked before ensureCardinality removes existing relationships
+		checkBatchCardinality(fromNodes, toNodes, relType);
+
+		// disable updating access time when creating relationships
+		securityContext.disableModificationOfAccessTime();
+
+		final DatabaseService db                      = (DatabaseService)this.getArgument("graphDb");
+		final List<RelationshipCreationData> data     = new LinkedList<>();
+		final List<RelationshipCreation> creations    = new LinkedList<>();
+		final List<R> relationships                   = new LinkedList<>();
+		final Iterator<PropertyMap> propertyIterator  = properties != null ? properties.iterator() : null;
+		final Iterator<? extends B> toNodeIterator    = toNodes.iterator();
+		final Date now                                = new Date();
+
+		for (final A fromNode : fromNodes) {
+
+			final B toNode                        = toNodeIterator.next();
+			final RelationshipCreation creation   = prepareCreation(db, fromNode, toNode, relType, propertyIterator != null ? propertyIterator.next() : null, now);
+
+			data.add(new RelationshipCreationData(fromNode.getNode(), toNode.getNode(), creation.template, creation.container.getData()));
+			creations.add(creation);
+		}
+
+		Iterator<Relationship> iterator = null;
+
+		try {
+
+			iterator = db.createRelationships(data).iterator();
+
+		} catch (NotFoundException nfex) {
+
+			throw new FrameworkException(404, nfex.getMessage());
+		}
+
+		for (final RelationshipCreation creation : creations) {
+
+			final R newRel = finishCreation(creation, iterator.next(), relType);
+			if (newRel != null) {
+
+				relationships.add(newRel);
+			}
+		}
+
+		// enable access time update again for subsequent calls
+		securityContext.enableModificationOfAccessTime();
+
+		return relationships;
+	}
+
+	private <A extends NodeInterface, B extends NodeInterface, R extends Relation<A, B, ?, ?>> void checkBatchCardinality(final List<? extends A> fromNodes, final List<? extends B> toNodes, final Class<R> relType) throws FrameworkException {
+
+		final Relation template = Relation.getInstance(relType);
+
+		// each target node can have only one incoming relationship of this type
+		if (Relation.Multiplicity.One.equals(template.getSourceMultiplicity())) {
+			checkUnique(toNodes, relType);
+		}
+
+		// each source node can have only one outgoing relationship of this type
+		if (Relation.Multiplicity.One.equals(template.getTargetMultiplicity())) {
+			checkUnique(fromNodes, relType);
+		}
+	}
+
+	private void checkUnique(final List<? extends NodeInterface> nodes, final Class relType) throws FrameworkException {
+
+		final Set<String> uuids = new HashSet<>();
+
+		for (final NodeInterface node : nodes) {
+
+			if (!uuids.add(node.getUuid())) {
+				throw new FrameworkException(422, "Unable to create relationships, node " + node.getUuid() + " occurs more than once on the single end of " + relType.getSimpleName());
+			}
+		}
+	}
+
 	private synchronized <A extends NodeInterface, B extends NodeInterface, R extends Relation<A, B, ?, ?>> R createRelationship(final A fromNode, final B toNode, final Class<R> relType, final PropertyMap attributes) throws FrameworkException {
 
 		// disable updating access time when creating relationships
 		securityContext.disableModificationOfAccessTime();
 
-		final DatabaseService db             = (DatabaseService)this.getArgument("graphDb");
-		final RelationshipFactory<R> factory = new RelationshipFactory(securityContext);
-		final PropertyMap properties         = new PropertyMap(attributes);
-		final PropertyMap toNotify           = new PropertyMap();
-		final CreationContainer tmp          = new CreationContainer(false);
-		final R template                     = (R)Relation.getInstance(relType);
-		final Node startNode                 = fromNode.getNode();
-		final Node endNode                   = toNode.getNode();
-		final Date now                       = new Date();
-		final Principal user                 = securityContext.getCachedUser();
+		final DatabaseService db            = (DatabaseService)this.getArgument("graphDb");
+		final RelationshipCreation creation = prepareCreation(db, fromNode, toNode, relType, attributes, new Date());
+		final Node startNode                = fromNode.getNode();
+		final Node endNode                  = toNode.getNode();
+
+		// create relationship including initial properties
+		final Relationship rel = startNode.createRelationshipTo(endNode, creation.template, creation.container.getData());
+		final R newRel         = finishCreation(creation, rel, relType);
+
+		// enable access time update again for subsequent calls
+		securityContext.enableModificationOfAccessTime();
+
+		return newRel;
+	}
+
+	private <A extends NodeInterface, B extends NodeInterface, R extends Relation<A, B, ?, ?>> RelationshipCreation prepareCreation(final DatabaseService db, final A fromNode, final B toNode, final Class<R> relType, final PropertyMap attributes, final Date now) throws FrameworkException {
+
+		final RelationshipCreation creation = new RelationshipCreation();
+		final PropertyMap properties        = new PropertyMap(attributes);
+		final PropertyMap toNotify          = new PropertyMap();
+		final CreationContainer tmp         = new CreationContainer(false);
+		final R template                    = (R)Relation.getInstance(relType);
+		final Principal user                = securityContext.getCachedUser();
+
+		creation.properties = properties;
+		creation.toNotify   = toNotify;
+		creation.container  = tmp;
+		creation.template   = template;
 
 		template.ensureCardinality(securityContext, fromNode, toNode);
 
@@ -106,21 +227,26 @@ public class CreateRelationshipCommand extends NodeServiceCommand {
 			}
 		}
 
-		// create relationship including initial properties
-		final Relationship rel = startNode.createRelationshipTo(endNode, template, tmp.getData());
-		final R newRel         = factory.instantiateWithType(rel, relType, -1, true);
+		return creation;
+	}
+
+	private <R extends Relation> R finishCreation(final RelationshipCreation creation, final Relationship rel, final Class<R> relType) throws FrameworkException {
+
+		final RelationshipFactory<R> factory = new RelationshipFactory(securityContext);
+		final PropertyMap properties         = creation.properties;
+		final R newRel                       = factory.instantiateWithType(rel, relType, -1, true);
 
 		if (newRel != null) {
 
 			// notify transaction handler
-			TransactionCommand.relationshipCreated(user, newRel);
+			TransactionCommand.relationshipCreated(securityContext.getCachedUser(), newRel);
 
 			securityContext.disableModificationOfAccessTime();
 			newRel.setProperties(securityContext, properties);
 			securityContext.enableModificationOfAccessTime();
 
 			// ensure modification callbacks are called (necessary for validation)
-			for (final Entry<PropertyKey, Object> entry : toNotify.entrySet()) {
+			for (final Entry<PropertyKey, Object> entry : creation.toNotify.entrySet()) {
 
 				final PropertyKey key = entry.getKey();
 				final Object value    = entry.getValue();
@@ -145,9 +271,15 @@ public class CreateRelationshipCommand extends NodeServiceCommand {
 			}
 		}
 
-		// enable access time update again for subsequent calls
-		securityContext.enableModificationOfAccessTime();
-
 		return newRel;
 	}
+
+	// ----- nested classes -----
+	private static class RelationshipCreation {
+
+		private CreationContainer container = null;
+		private PropertyMap properties      = null;
+		private PropertyMap toNotify        = null;
+		private Relation template           = null;
+	}
 }
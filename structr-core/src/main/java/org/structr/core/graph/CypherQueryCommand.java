@@ -24,6 +24,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.DatabaseService;
@@ -33,6 +34,7 @@ import org.structr.api.util.Iterables;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
 import org.structr.core.GraphObjectMap;
+import org.structr.core.graph.search.SearchCommand;
 import org.structr.core.property.GenericProperty;
 
 /**
@@ -59,6 +61,13 @@ public class CypherQueryCommand extends NodeServiceCommand {
 
 	public Iterable<GraphObject> execute(String query, Map<String, Object> parameters, boolean includeHiddenAndDeleted, boolean publicOnly) throws FrameworkException {
 
+		final Consumer<Class> observer = SearchCommand.getQueryObserver();
+		if (observer != null) {
+
+			// the types a Cypher query depends on are unknown
+			observer.accept(null);
+		}
+
 		DatabaseService graphDb = (DatabaseService) arguments.get("graphDb");
 		if (graphDb != null) {
 
@@ -27,7 +27,10 @@ import org.structr.bolt.wrapper.RelationshipWrapper;
 import org.structr.common.AccessPathCache;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.app.StructrApp;
+import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.ResourceAccess;
+import org.structr.core.function.Functions;
+import org.structr.core.graph.search.SearchCommand;
 import org.structr.schema.action.Actions;
 
 public class FlushCachesCommand extends NodeServiceCommand implements MaintenanceCommand {
@@ -50,8 +53,11 @@ public class FlushCachesCommand extends NodeServiceCommand implements Maintenanc
 		NodeWrapper.clearCache();
 		RelationshipWrapper.clearCache();
 		Actions.clearCache();
+		Functions.clearCache();
 		AdvancedCypherQuery.flushCaches();
 		AccessPathCache.invalidate();
+		AbstractNode.clearCaches();
+		SearchCommand.clearQueryCache();
 
 		StructrApp.getInstance().invalidateCache();
 	}
@@ -53,6 +53,14 @@ public interface MaintenanceCommand {
 		return customHeaders;
 	}
 
+	/**
+	 * Returns the data this command produced, which is sent back to the
+	 * client of the maintenance endpoint, or null if there is none.
+	 */
+	default public Object getCommandResult() {
+		return null;
+	}
+
 	default void publishBeginMessage (final String type, final Map additionalInfo) {
 
 		final Map<String, Object> msgData = new HashMap();
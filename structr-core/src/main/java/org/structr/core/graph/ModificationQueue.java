@@ -31,7 +31,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentSkipListMap;
-import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.config.Settings;
@@ -40,15 +39,18 @@ import org.structr.api.graph.PropertyContainer;
 import org.structr.api.graph.Relationship;
 import org.structr.api.graph.RelationshipType;
 import org.structr.bolt.wrapper.EntityWrapper;
+import org.structr.common.PermissionPropagation;
 import org.structr.common.RelType;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.ErrorBuffer;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
 import org.structr.core.GraphObjectMap;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.Principal;
 import org.structr.core.entity.Relation;
-import org.structr.core.function.ChangelogFunction;
+import org.structr.core.graph.search.SearchCommand;
 import org.structr.core.property.GenericProperty;
 import org.structr.core.property.PropertyKey;
 
@@ -66,7 +68,11 @@ public class ModificationQueue {
 	private final Map<String, TransactionPostProcess> postProcesses                         = new LinkedHashMap<>();
 	private final Set<String> alreadyPropagated                                             = new LinkedHashSet<>();
 	private final Set<String> synchronizationKeys                                           = new TreeSet<>();
+	private final Set<Class> modifiedTypes                                                  = new LinkedHashSet<>();
+	private final Set<String> createdNodeUuids                                              = new LinkedHashSet<>();
 	private boolean doUpateChangelogIfEnabled                                               = true;
+	private boolean permissionsModified                                                     = false;
+	private boolean propagationModified                                                     = false;
 
 	public ModificationQueue() {
 		this(true);
@@ -191,13 +197,23 @@ public class ModificationQueue {
 		}
 	}
 
-	public void updateChangelog() {
+	/**
+	 * Appends the changelog entries of this queue to the journal. This is
+	 * called before the database commit, so that a transaction fails if
+	 * its changelog entries can not be stored.
+	 *
+	 * @throws FrameworkException if the changelog journal is not available
+	 */
+	public void updateChangelog() throws FrameworkException {
 
 		if (doUpateChangelogIfEnabled && (Settings.ChangelogEnabled.getValue() || Settings.UserChangelogEnabled.getValue())) {
 
-			for (final ModificationEvent ev: modificationEvents) {
+			try {
 
-				try {
+				final ChangelogJournal journal = ChangelogJournal.getInstance();
+
+				// entries are written asynchronously by the journal
+				for (final ModificationEvent ev: modificationEvents) {
 
 					if (Settings.ChangelogEnabled.getValue()) {
 
@@ -209,9 +225,7 @@ public class ModificationQueue {
 							final String uuid           = ev.isDeleted() ? ev.getUuid() : obj.getUuid();
 							final String typeFolderName = obj.isNode() ? "n" : "r";
 
-							java.io.File file = ChangelogFunction.getChangeLogFileOnDisk(typeFolderName, uuid, true);
-
-							FileUtils.write(file, newLog, "utf-8", true);
+							journal.append(typeFolderName, uuid, newLog);
 						}
 					}
 
@@ -219,17 +233,19 @@ public class ModificationQueue {
 
 						for (Map.Entry<String, StringBuilder> entry : ev.getUserChangeLogs().entrySet()) {
 
-							java.io.File file = ChangelogFunction.getChangeLogFileOnDisk("u", entry.getKey(), true);
-
-							FileUtils.write(file, entry.getValue().toString(), "utf-8", true);
+							journal.append("u", entry.getKey(), entry.getValue().toString());
 						}
 					}
-
-				} catch (IOException ioex) {
-					logger.error("Unable to write changelog to file: {}", ioex.getMessage());
-				} catch (Throwable t) {
-					logger.warn("", t);
 				}
+
+			} catch (IOException ioex) {
+
+				logger.error("Unable to write changelog: {}", ioex.getMessage());
+
+				final FrameworkException fex = new FrameworkException(503, "Unable to write changelog: " + ioex.getMessage());
+				fex.initCause(ioex);
+
+				throw fex;
 			}
 		}
 	}
@@ -242,10 +258,70 @@ public class ModificationQueue {
 		modificationEvents.clear();
 	}
 
+	/**
+	 * Invalidates the permission resolution caches because a change in
+	 * this transaction affects access rights.
+	 */
+	public void permissionsModified() {
+
+		permissionsModified = true;
+
+		AbstractNode.clearCaches();
+	}
+
+	/**
+	 * Invalidates the permission resolution caches again after the
+	 * transaction has finished, because other threads can have cached
+	 * results based on the state before the commit in the meantime.
+	 */
+	public void invalidatePermissionsIfModified() {
+
+		if (permissionsModified) {
+
+			permissionsModified = false;
+
+			AbstractNode.clearCaches();
+		}
+	}
+
+	/**
+	 * Invalidates the cached query results for all types that were
+	 * modified in this queue before the commit becomes visible, so that
+	 * no other thread can read the previous results in the meantime.
+	 */
+	public void invalidateQueryResultsBeforeCommit() {
+
+		if (!modifiedTypes.isEmpty()) {
+
+			SearchCommand.invalidateQueryCache(modifiedTypes);
+		}
+	}
+
+	/**
+	 * Invalidates the cached query results for all types that were
+	 * modified in this queue again after the transaction has finished,
+	 * because other threads can have cached results based on the state
+	 * before the commit in the meantime.
+	 */
+	public void invalidateQueryResultsIfModified() {
+
+		if (!modifiedTypes.isEmpty()) {
+
+			SearchCommand.invalidateQueryCache(modifiedTypes);
+			modifiedTypes.clear();
+		}
+	}
+
 	public void create(final Principal user, final NodeInterface node) {
 
 		getState(node).create();
 
+		final String uuid = node.getUuid();
+		if (uuid != null) {
+
+			createdNodeUuids.add(uuid);
+		}
+
 		if (Settings.ChangelogEnabled.getValue() || Settings.UserChangelogEnabled.getValue()) {
 
 			getState(node).updateChangeLog(user, GraphObjectModificationState.Verb.create, node.getUuid());
@@ -260,6 +336,10 @@ public class ModificationQueue {
 		final NodeInterface sourceNode = relationship.getSourceNode();
 		final NodeInterface targetNode = relationship.getTargetNode();
 
+		if (affectsPermissions(relationship, sourceNode, targetNode) && !isNewlyCreatedTarget(relationship, targetNode)) {
+			permissionsModified();
+		}
+
 		if (sourceNode != null && targetNode != null) {
 
 			modifyEndNodes(user, sourceNode, targetNode, relationship, false);
@@ -291,15 +371,33 @@ public class ModificationQueue {
 
 		getState(node).modify(user, key, previousValue, newValue);
 
+		if (key != null && affectsPermissions(node, key)) {
+			permissionsModified();
+		}
+
 		if (key != null&& key.requiresSynchronization()) {
 			synchronizationKeys.add(key.getSynchronizationKey());
 		}
+
+		// a node that changes its type must also invalidate the results for the new type
+		if (GraphObject.type.equals(key) && newValue instanceof String) {
+
+			final Class newType = StructrApp.getConfiguration().getNodeEntityClass((String)newValue);
+			if (newType != null) {
+
+				modifiedTypes.add(newType);
+			}
+		}
 	}
 
 	public void modify(final Principal user, RelationshipInterface relationship, PropertyKey key, Object previousValue, Object newValue) {
 
 		getState(relationship).modify(user, key, previousValue, newValue);
 
+		if (affectsPermissions(relationship, relationship.getSourceNodeAsSuperUser(), relationship.getTargetNodeAsSuperUser())) {
+			permissionsModified();
+		}
+
 		if (key != null && key.requiresSynchronization()) {
 			synchronizationKeys.add(key.getSynchronizationKey());
 		}
@@ -324,6 +422,11 @@ public class ModificationQueue {
 
 		getState(node).delete(false);
 
+		// cached results are keyed by node UUID but by principal ID, which can be reused for new nodes
+		if (node instanceof Principal) {
+			permissionsModified();
+		}
+
 		if (Settings.ChangelogEnabled.getValue() || Settings.UserChangelogEnabled.getValue()) {
 
 			getState(node).updateChangeLog(user, GraphObjectModificationState.Verb.delete, node.getUuid());
@@ -337,6 +440,10 @@ public class ModificationQueue {
 		final NodeInterface sourceNode = relationship.getSourceNodeAsSuperUser();
 		final NodeInterface targetNode = relationship.getTargetNodeAsSuperUser();
 
+		if (affectsPermissions(relationship, sourceNode, targetNode)) {
+			permissionsModified();
+		}
+
 		modifyEndNodes(user, sourceNode, targetNode, relationship, true);
 
 		if (Settings.ChangelogEnabled.getValue() || Settings.UserChangelogEnabled.getValue()) {
@@ -551,6 +658,60 @@ public class ModificationQueue {
 		}
 	}
 
+	/**
+	 * Ownership, security, permission-propagating relationships and all
+	 * relationships of principals (group membership etc.) are the only
+	 * relationships that permission resolution depends on.
+	 */
+	private boolean affectsPermissions(final RelationshipInterface rel, final NodeInterface sourceNode, final NodeInterface targetNode) {
+
+		final RelationshipType relType = rel.getRelType();
+
+		if (RelType.OWNS.equals(relType) || RelType.SECURITY.equals(relType)) {
+			return true;
+		}
+
+		if (rel instanceof PermissionPropagation) {
+
+			propagationModified = true;
+			return true;
+		}
+
+		return sourceNode instanceof Principal || targetNode instanceof Principal;
+	}
+
+	/**
+	 * Linking a node that was created in this transaction can not change
+	 * cached results for other nodes, unless permission propagation was
+	 * modified in this transaction as well.
+	 */
+	private boolean isNewlyCreatedTarget(final RelationshipInterface rel, final NodeInterface targetNode) {
+
+		if (propagationModified || rel instanceof PermissionPropagation || targetNode == null) {
+			return false;
+		}
+
+		// node IDs can be reused within a transaction, UUIDs can not
+		return createdNodeUuids.contains(targetNode.getUuid());
+	}
+
+	private boolean affectsPermissions(final NodeInterface node, final PropertyKey key) {
+
+		if (AbstractNode.visibleToPublicUsers.equals(key) || AbstractNode.visibleToAuthenticatedUsers.equals(key)) {
+			return true;
+		}
+
+		if (node instanceof Principal) {
+
+			// only these properties of principals are used in permission resolution
+			final String name = key.jsonName();
+
+			return "isAdmin".equals(name) || name.startsWith("customPermissionQuery");
+		}
+
+		return false;
+	}
+
 	private GraphObjectModificationState getState(final NodeInterface node) {
 		return getState(node, false);
 	}
@@ -565,6 +726,7 @@ public class ModificationQueue {
 			state = new GraphObjectModificationState(node);
 			modifications.put(hash, state);
 			modificationEvents.add(state);
+			modifiedTypes.add(node.getClass());
 		}
 
 		return state;
@@ -584,6 +746,7 @@ public class ModificationQueue {
 			state = new GraphObjectModificationState(rel);
 			modifications.put(hash, state);
 			modificationEvents.add(state);
+			modifiedTypes.add(rel.getClass());
 		}
 
 		return state;
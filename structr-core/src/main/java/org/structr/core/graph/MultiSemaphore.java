@@ -18,16 +18,21 @@
  */
 package org.structr.core.graph;
 
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- *
+ * A set of fair semaphores, one per synchronization key. Semaphores are
+ * always acquired in the natural order of their keys, so two callers can
+ * not deadlock and callers with disjoint key sets do not block each other.
  */
 public class MultiSemaphore {
 
@@ -35,12 +40,28 @@ public class MultiSemaphore {
 
 	private final Map<String, Semaphore> semaphoreMap = new ConcurrentHashMap<>();
 
-	public synchronized void acquire(final Set<String> types) throws InterruptedException {
+	public void acquire(final Set<String> types) throws InterruptedException {
 
 		if (types != null && !types.isEmpty()) {
 
-			for (Semaphore semaphore : getSemaphores(types)) {
-				semaphore.acquire();
+			final List<Semaphore> acquired = new ArrayList<>();
+
+			try {
+
+				for (Semaphore semaphore : getSemaphores(types)) {
+
+					semaphore.acquire();
+					acquired.add(semaphore);
+				}
+
+			} catch (InterruptedException iex) {
+
+				// do not leak the semaphores acquired so far
+				for (final Semaphore semaphore : acquired) {
+					semaphore.release();
+				}
+
+				throw iex;
 			}
 		}
 	}
@@ -57,7 +78,8 @@ public class MultiSemaphore {
 
 	private Set<Semaphore> getSemaphores(final Set<String> types) {
 
-		Set<Semaphore> semaphores = new LinkedHashSet<>();
+		final Set<Semaphore> semaphores = new LinkedHashSet<>();
+		final Set<String> sortedTypes   = new TreeSet<>();
 
 		if (types != null) {
 
@@ -65,15 +87,13 @@ public class MultiSemaphore {
 
 				if (type != null) {
 
-					Semaphore semaphore = semaphoreMap.get(type);
-					if (semaphore == null) {
+					sortedTypes.add(type);
+				}
+			}
 
-						semaphore = new Semaphore(1, true);
-						semaphoreMap.put(type, semaphore);
-					}
+			for (String type : sortedTypes) {
 
-					semaphores.add(semaphore);
-				}
+				semaphores.add(semaphoreMap.computeIfAbsent(type, k -> new Semaphore(1, true)));
 			}
 		}
 
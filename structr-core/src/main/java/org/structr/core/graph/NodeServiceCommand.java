@@ -20,13 +20,21 @@ package org.structr.core.graph;
 
 import java.io.IOException;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.Predicate;
+import org.structr.api.config.Settings;
 import org.structr.api.service.Command;
 import org.structr.common.Filter;
 import org.structr.common.SecurityContext;
@@ -85,55 +93,121 @@ public abstract class NodeServiceCommand extends Command {
 	 * @return the number of nodes processed
 	 */
 	public <T> long bulkGraphOperation(final SecurityContext securityContext, final Iterator<T> iterator, final long commitCount, String description, final BulkGraphOperation<T> operation, boolean validation) {
+		return processBatches(securityContext, iterator, commitCount, description, operation, null);
+	}
 
-		final Predicate<Long> condition = operation.getCondition();
-		final App app                   = StructrApp.getInstance(securityContext);
-		final boolean doValidation      = operation.doValidation();
-		final boolean doCallbacks       = operation.doCallbacks();
-		final boolean doNotifications   = operation.doNotifications();
-		long objectCount                = 0L;
-		boolean active                  = true;
+	/**
+	 * Executes the given operation on all objects of the given source. If
+	 * more than one maintenance thread is configured, the ID space of the
+	 * source is split into partitions that are processed in parallel, each
+	 * partition in its own transactions. Completed partitions are recorded
+	 * in a checkpoint, so an interrupted operation continues where it left
+	 * off when it is started again.
+	 *
+	 * @param <T>
+	 * @param securityContext
+	 * @param source the source that provides the objects to operate on
+	 * @param commitCount
+	 * @param description
+	 * @param operation the operation to execute
+	 * @return the number of objects processed
+	 */
+	public <T> long bulkGraphOperation(final SecurityContext securityContext, final PartitionedSource<T> source, final long commitCount, final String description, final BulkGraphOperation<T> operation) {
 
-		while (active) {
+		final int threads = Settings.MaintenanceThreads.getValue();
 
-			active = false;
+		if (threads <= 1 || operation.getCondition() != null) {
 
-			try (final Tx tx = app.tx(doValidation, doCallbacks, doNotifications)) {
+			return bulkGraphOperation(securityContext, source.getRange(-1L, Long.MAX_VALUE).iterator(), commitCount, description, operation);
+		}
 
-				while (iterator.hasNext() && (condition == null || condition.accept(objectCount))) {
+		final String name                        = description + "-" + source.getName();
+		final BulkOperationCheckpoint checkpoint = BulkOperationCheckpoint.load(name, Settings.MaintenancePartitionSize.getValue());
+		final long partitionSize                 = checkpoint.getPartitionSize();
+		final List<Future<Long>> futures         = new LinkedList<>();
+		long maxId                               = -1L;
 
-					T node = iterator.next();
-					active = true;
+		try (final Tx tx = StructrApp.getInstance(securityContext).tx()) {
 
-					try {
+			maxId = source.getMaxId();
+			tx.success();
 
-						boolean success = operation.handleGraphObject(securityContext, node);
-						if (success) {
-							objectCount++;
-						}
+		} catch (FrameworkException fex) {
 
-					} catch (Throwable t) {
+			operation.handleTransactionFailure(securityContext, fex);
+			return 0L;
+		}
 
-						operation.handleThrowable(securityContext, t, node);
-					}
+		final int partitions                 = (int)((maxId + partitionSize) / partitionSize);
+		final BulkOperationProgress progress = BulkOperationProgress.start(name, partitions, checkpoint.getCompletedCount());
+		final ExecutorService executor       = Executors.newFixedThreadPool(threads);
+		final AtomicBoolean incomplete       = new AtomicBoolean(false);
+		final long max                       = maxId;
 
-					// commit transaction after commitCount
-					if ((objectCount % commitCount) == 0) {
-						break;
+		if (checkpoint.getCompletedCount() > 0) {
+			info("{}: resuming, {} of {} partitions already processed", description, checkpoint.getCompletedCount(), partitions);
+		}
+
+		for (int i=0; i<partitions; i++) {
+
+			if (!checkpoint.isCompleted(i)) {
+
+				final int partition = i;
+
+				futures.add(executor.submit(() -> {
+
+					// the lower bound is exclusive
+					final long fromId          = partition * partitionSize - 1;
+					final long toId            = Math.min(fromId + partitionSize, max);
+					final AtomicBoolean failed = new AtomicBoolean(false);
+					final long count           = processBatches(securityContext, source.getRange(fromId, toId).iterator(), commitCount, null, operation, failed);
+
+					// a partition with failed batches is processed again when the operation is resumed
+					if (failed.get()) {
+
+						warn("{}: partition {} could not be processed completely", description, partition);
+						incomplete.set(true);
+
+					} else {
+
+						checkpoint.complete(partition);
 					}
-				}
 
-				tx.success();
+					progress.partitionCompleted(count);
 
-			} catch (Throwable t) {
+					info("{}: {} objects processed, {} objects/s, {} s remaining", description, progress.getProcessedObjects(), progress.getThroughput(), progress.getEstimatedSeconds());
 
-				// bulk transaction failed, what to do?
-				operation.handleTransactionFailure(securityContext, t);
+					return count;
+				}));
 			}
+		}
 
-			if (description != null) {
-				info("{}: {} objects processed", description, objectCount);
+		executor.shutdown();
+
+		boolean interrupted = false;
+		long objectCount    = 0L;
+
+		try {
+
+			for (final Future<Long> future : futures) {
+				objectCount += future.get();
 			}
+
+		} catch (InterruptedException | ExecutionException ex) {
+
+			// keep the checkpoint so the operation can be resumed
+			executor.shutdownNow();
+			operation.handleTransactionFailure(securityContext, ex);
+
+			interrupted = true;
+
+		} finally {
+
+			progress.finish();
+		}
+
+		if (!interrupted && !incomplete.get()) {
+			checkpoint.delete();
 		}
 
 		return objectCount;
@@ -235,6 +309,74 @@ public abstract class NodeServiceCommand extends Command {
 		}
 	}
 
+	// ----- private methods -----
+	/**
+	 * Executes the given operation on all objects of the given iterator
+	 * in batches of commitCount objects. If a batch fails to commit, the
+	 * given flag is set.
+	 */
+	private <T> long processBatches(final SecurityContext securityContext, final Iterator<T> iterator, final long commitCount, final String description, final BulkGraphOperation<T> operation, final AtomicBoolean failed) {
+
+		final Predicate<Long> condition = operation.getCondition();
+		final App app                   = StructrApp.getInstance(securityContext);
+		final boolean doValidation      = operation.doValidation();
+		final boolean doCallbacks       = operation.doCallbacks();
+		final boolean doNotifications   = operation.doNotifications();
+		long objectCount                = 0L;
+		boolean active                  = true;
+
+		while (active) {
+
+			active = false;
+
+			try (final Tx tx = app.tx(doValidation, doCallbacks, doNotifications)) {
+
+				while (iterator.hasNext() && (condition == null || condition.accept(objectCount))) {
+
+					T node = iterator.next();
+					active = true;
+
+					try {
+
+						boolean success = operation.handleGraphObject(securityContext, node);
+						if (success) {
+							objectCount++;
+						}
+
+					} catch (Throwable t) {
+
+						operation.handleThrowable(securityContext, t, node);
+					}
+
+					// commit transaction after commitCount
+					if ((objectCount % commitCount) == 0) {
+						break;
+					}
+				}
+
+				operation.beforeCommit(securityContext);
+
+				tx.success();
+
+			} catch (Throwable t) {
+
+				if (failed != null) {
+					failed.set(true);
+				}
+
+				// bulk transaction failed, what to do?
+				operation.handleTransactionFailure(securityContext, t);
+			}
+
+			if (description != null) {
+				info("{}: {} objects processed", description, objectCount);
+			}
+		}
+
+		return objectCount;
+	}
+
+
 	// create uuid producer that fills the queue
 	static {
 
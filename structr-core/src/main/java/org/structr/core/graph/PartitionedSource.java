@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+/**
+ * Provides the objects of a bulk graph operation in ranges of database
+ * IDs, so that the operation can be split into partitions that are
+ * processed in parallel.
+ */
+public interface PartitionedSource<T> {
+
+	/**
+	 * Returns a name that identifies the objects of this source, e.g.
+	 * their type. It is used to find the checkpoint of an interrupted
+	 * operation.
+	 *
+	 * @return the name
+	 */
+	String getName();
+
+	/**
+	 * Returns the highest ID of all objects, or -1 if there are none.
+	 *
+	 * @return the highest ID
+	 */
+	long getMaxId();
+
+	/**
+	 * Returns the objects with an ID greater than fromId and less than
+	 * or equal to toId.
+	 *
+	 * @param fromId the exclusive lower bound
+	 * @param toId the inclusive upper bound
+	 *
+	 * @return the objects
+	 */
+	Iterable<T> getRange(final long fromId, final long toId);
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import org.structr.api.DatabaseService;
+import org.structr.api.util.QueryStatistics;
+import org.structr.api.util.StatementSummary;
+import org.structr.common.error.FrameworkException;
+
+/**
+ * Returns the collected Cypher statement statistics, ordered by total
+ * execution time. Use the "limit" parameter to control the number of
+ * statement shapes, and "reset" to clear the statistics afterwards.
+ */
+public class QueryStatisticsCommand extends NodeServiceCommand implements MaintenanceCommand {
+
+	private static final int DEFAULT_LIMIT = 100;
+
+	private Map<String, Object> result = null;
+
+	@Override
+	public void execute(final Map<String, Object> attributes) throws FrameworkException {
+
+		final DatabaseService graphDb          = (DatabaseService)arguments.get("graphDb");
+		final QueryStatistics statistics       = graphDb.getQueryStatistics();
+		final List<Map<String, Object>> shapes = new LinkedList<>();
+		final Object limitValue                = attributes.get("limit");
+		final int limit                        = limitValue instanceof Number ? ((Number)limitValue).intValue() : DEFAULT_LIMIT;
+
+		for (final StatementSummary summary : statistics.getStatements(limit)) {
+			shapes.add(summary.toMap());
+		}
+
+		result = new LinkedHashMap<>();
+
+		result.put("statementCount",     statistics.getStatementCount());
+		result.put("slowStatementCount", statistics.getSlowStatementCount());
+		result.put("shapeCount",         statistics.getShapeCount());
+		result.put("statements",         shapes);
+
+		if (Boolean.TRUE.equals(attributes.get("reset"))) {
+			statistics.reset();
+		}
+	}
+
+	@Override
+	public Object getCommandResult() {
+		return result;
+	}
+
+	@Override
+	public boolean requiresEnclosingTransaction() {
+		return false;
+	}
+
+	@Override
+	public boolean requiresFlushingOfCaches() {
+		return false;
+	}
+}
@@ -23,12 +23,18 @@ import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.ConstraintViolationException;
+import org.structr.api.DataFormatException;
 import org.structr.api.DatabaseService;
 import org.structr.api.NetworkException;
 import org.structr.api.NotInTransactionException;
 import org.structr.api.Predicate;
+import org.structr.api.RetryException;
+import org.structr.api.config.Settings;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
 import org.structr.common.SecurityContext;
@@ -54,10 +60,14 @@ public class TransactionCommand {
 	private static final Set<StructrTransactionListener> listeners = new LinkedHashSet<>();
 	private static final ThreadLocal<TransactionCommand> commands  = new ThreadLocal<>();
 	private static final MultiSemaphore                  semaphore = new MultiSemaphore();
+	private static final UniqueValueLocks               valueLocks = new UniqueValueLocks();
 
-	private TransactionReference transaction = null;
-	private ModificationQueue queue          = null;
-	private ErrorBuffer errorBuffer          = null;
+	private final SortedSet<Integer> lockedValues = new TreeSet<>();
+	private TransactionReference transaction      = null;
+	private ModificationQueue queue               = null;
+	private ErrorBuffer errorBuffer               = null;
+	private Set<String> lockedKeys                = null;
+	private boolean lockValues                    = false;
 
 
 	private static TransactionCommand getInstance() {
@@ -105,7 +115,7 @@ public class TransactionCommand {
 		return cmd;
 	}
 
-	public static void commitTx(final SecurityContext securityContext, final boolean doValidation) throws FrameworkException {
+	public static void commitTx(final SecurityContext securityContext, final boolean doValidation, final boolean doChangelog) throws FrameworkException {
 
 		final TransactionCommand cmd  = TransactionCommand.getInstance();
 
@@ -126,15 +136,23 @@ public class TransactionCommand {
 				throw new FrameworkException(422, "Unable to commit transaction, validation failed", errorBuffer);
 			}
 
-			// 2. fetch all types of entities modified in this tx
-			Set<String> synchronizationKeys = modificationQueue.getSynchronizationKeys();
-
 			// we need to protect the validation and indexing part of every transaction
 			// from being entered multiple times in the presence of validators
-			// 3. acquire semaphores for each modified type
-			try { semaphore.acquire(synchronizationKeys); } catch (InterruptedException iex) { return; }
+			cmd.lockValues = "value".equals(Settings.CommitLocking.getValue());
+
+			if (!cmd.lockValues) {
+
+				// 2. fetch all unique properties modified in this tx
+				final Set<String> synchronizationKeys = new TreeSet<>(modificationQueue.getSynchronizationKeys());
+
+				// 3. acquire semaphores for each modified property
+				try { semaphore.acquire(synchronizationKeys); } catch (InterruptedException iex) { return; }
 
-			// do validation under the protection of the semaphores for each type
+				cmd.lockedKeys = synchronizationKeys;
+			}
+
+			// do validation under the protection of the semaphores for each property,
+			// or of the locks for each unique value that is validated (see lockUniqueValue)
 			if (!modificationQueue.doValidation(securityContext, errorBuffer, doValidation)) {
 
 				cmd.transaction.failure();
@@ -150,11 +168,43 @@ public class TransactionCommand {
 				throw new FrameworkException(422, "Unable to commit transaction, transaction post processing failed", errorBuffer);
 			}
 
+			try {
+
+				// the transaction fails if its changelog can not be stored
+				if (doChangelog) {
+					modificationQueue.updateChangelog();
+				}
+
+			} catch (FrameworkException fex) {
+
+				cmd.transaction.failure();
+				throw fex;
+			}
+
 			try {
 				cmd.transaction.success();
 
+			} catch (RetryException rex) {
+
+				// buffered writes can fail with transient errors, let the caller retry
+				throw rex;
+
+			} catch (DataFormatException | ConstraintViolationException ex) {
+
+				cmd.transaction.failure();
+				throw new FrameworkException(422, ex.getMessage());
+
 			} catch (Throwable t) {
+
 				logger.error("Unable to commit transaction", t);
+
+				// buffered writes were not flushed, the caller must not assume that the data was stored
+				cmd.transaction.failure();
+
+				final FrameworkException fex = new FrameworkException(500, "Unable to commit transaction: " + t.getMessage());
+				fex.initCause(t);
+
+				throw fex;
 			}
 		}
 	}
@@ -170,18 +220,24 @@ public class TransactionCommand {
 
 				modificationQueue = cmd.queue;
 
-				final Set<String> synchronizationKeys = modificationQueue.getSynchronizationKeys();
-
 				// cleanup
 				commands.remove();
 
 				try {
+
+					// cached query results must be invalid before the commit is visible
+					modificationQueue.invalidateQueryResultsBeforeCommit();
+
 					cmd.transaction.close();
 
 				} finally {
 
-					// release semaphores as the transaction is now finished
-					semaphore.release(synchronizationKeys);	// careful: this can be null
+					// release semaphores and locks as the transaction is now finished
+					semaphore.release(cmd.lockedKeys);	// careful: this can be null
+					valueLocks.unlock(cmd.lockedValues);
+
+					modificationQueue.invalidatePermissionsIfModified();
+					modificationQueue.invalidateQueryResultsIfModified();
 				}
 
 			} else {
@@ -193,6 +249,26 @@ public class TransactionCommand {
 		return modificationQueue;
 	}
 
+	/**
+	 * Locks the given unique value until the current transaction is
+	 * finished, if commits are configured to lock on unique values
+	 * instead of unique properties.
+	 *
+	 * @param synchronizationKey the key that identifies the uniqueness scope
+	 * @param value the value that is validated
+	 *
+	 * @throws RetryException if the value is locked by a concurrent
+	 * transaction and waiting could deadlock, or on timeout
+	 */
+	public static void lockUniqueValue(final String synchronizationKey, final Object value) {
+
+		final TransactionCommand cmd = commands.get();
+		if (cmd != null && cmd.lockValues) {
+
+			valueLocks.lock(cmd.lockedValues, synchronizationKey, value, Settings.CommitLockTimeout.getValue());
+		}
+	}
+
 	public static void disableChangelog() {
 
 		TransactionCommand command = commands.get();
@@ -214,6 +290,27 @@ public class TransactionCommand {
 		}
 	}
 
+	public static void permissionsModified() {
+
+		TransactionCommand command = commands.get();
+		if (command != null) {
+
+			ModificationQueue modificationQueue = command.getModificationQueue();
+			if (modificationQueue != null) {
+
+				modificationQueue.permissionsModified();
+
+			} else {
+
+				logger.error("Got empty changeSet from command!");
+			}
+
+		} else {
+
+			AbstractNode.clearCaches();
+		}
+	}
+
 	public static void postProcess(final String key, final TransactionPostProcess process) {
 
 		TransactionCommand command = commands.get();
@@ -451,6 +548,23 @@ public class TransactionCommand {
 		throw new NotInTransactionException("Not in transaction.");
 	}
 
+	/**
+	 * Indicates whether the current transaction contains modifications
+	 * that are not committed yet.
+	 *
+	 * @return whether there are uncommitted modifications
+	 */
+	public static boolean hasPendingModifications() {
+
+		final TransactionCommand cmd = commands.get();
+		if (cmd != null) {
+
+			return cmd.queue.getSize() > 0;
+		}
+
+		return false;
+	}
+
 	public static boolean isDeleted(final Node node) {
 
 		TransactionCommand cmd = commands.get();
@@ -63,7 +63,7 @@ public class Tx implements AutoCloseable {
 
 	public void success() throws FrameworkException {
 
-		TransactionCommand.commitTx(securityContext, doValidation);
+		TransactionCommand.commitTx(securityContext, doValidation, doCallbacks);
 		success = true;
 	}
 
@@ -96,7 +96,6 @@ public class Tx implements AutoCloseable {
 							}
 						}
 
-						modificationQueue.updateChangelog();
 						modificationQueue.clear();
 					}
 
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.structr.api.RetryException;
+
+/**
+ * Striped locks for (synchronization key, value) tuples that are checked
+ * for uniqueness during validation. A lock is held by the transaction
+ * thread until the transaction is finished, so two transactions that
+ * validate the same value are serialized, while transactions that use
+ * different values run concurrently.
+ */
+public class UniqueValueLocks {
+
+	private static final int STRIPES = 4096;
+
+	private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+	public UniqueValueLocks() {
+
+		for (int i=0; i<STRIPES; i++) {
+			locks[i] = new ReentrantLock(true);
+		}
+	}
+
+	/**
+	 * Locks the stripe for the given key and value, unless it is already
+	 * contained in the given set of stripes held by the caller.
+	 *
+	 * Values are validated in arbitrary order, so waiting for a stripe is
+	 * only allowed if it is higher than all stripes the caller holds. That
+	 * keeps every wait in ascending stripe order, which rules out deadlocks.
+	 * A caller that would have to wait for a lower stripe fails immediately
+	 * and can retry its transaction.
+	 *
+	 * @param held the stripes held by the calling transaction
+	 * @param key the synchronization key
+	 * @param value the value
+	 * @param timeout the timeout in seconds
+	 *
+	 * @throws RetryException if the lock is held by another transaction
+	 * and waiting could deadlock, or if it could not be acquired in time
+	 */
+	public void lock(final SortedSet<Integer> held, final String key, final Object value, final int timeout) {
+
+		final Integer stripe = getStripe(key, value);
+
+		if (!held.contains(stripe)) {
+
+			final ReentrantLock lock = locks[stripe];
+
+			if (!lock.tryLock()) {
+
+				if (!held.isEmpty() && stripe < held.last()) {
+					throw new RetryException("Concurrent validation of unique value of " + key);
+				}
+
+				try {
+
+					if (!lock.tryLock(timeout, TimeUnit.SECONDS)) {
+						throw new RetryException("Timeout waiting for lock on unique value of " + key);
+					}
+
+				} catch (InterruptedException iex) {
+
+					throw new RetryException(iex);
+				}
+			}
+
+			held.add(stripe);
+		}
+	}
+
+	public void unlock(final Set<Integer> held) {
+
+		for (final Integer stripe : held) {
+			locks[stripe].unlock();
+		}
+
+		held.clear();
+	}
+
+	// ----- private methods -----
+	private Integer getStripe(final String key, final Object value) {
+
+		int hash = key.hashCode() * 31;
+
+		if (value instanceof Object[]) {
+
+			hash += Arrays.deepHashCode((Object[])value);
+
+		} else if (value != null) {
+
+			hash += value.hashCode();
+		}
+
+		// spread the bits like HashMap does
+		hash ^= (hash >>> 16);
+
+		return hash & (STRIPES - 1);
+	}
+}
@@ -18,12 +18,22 @@
  */
 package org.structr.core.graph.search;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 import org.apache.commons.lang3.StringUtils;
 import org.structr.api.search.EmptyQuery;
 import org.structr.api.search.Occurrence;
 import org.structr.core.GraphObject;
+import org.structr.core.property.DateProperty;
+import org.structr.core.property.DoubleProperty;
+import org.structr.core.property.EnumProperty;
+import org.structr.core.property.IntProperty;
+import org.structr.core.property.LongProperty;
+import org.structr.core.property.Property;
 import org.structr.core.property.PropertyKey;
+import org.structr.core.property.StringProperty;
 
 /**
  *
@@ -31,6 +41,11 @@ import org.structr.core.property.PropertyKey;
  */
 public class EmptySearchAttribute<T> extends PropertySearchAttribute<T> {
 
+	// property types that read null exactly when there is no database value
+	private static final Set<Class> storedAsIsTypes = new HashSet<>(Arrays.asList(
+		StringProperty.class, IntProperty.class, LongProperty.class, DoubleProperty.class, DateProperty.class, EnumProperty.class
+	));
+
 	private boolean removeFromQuery = false;
 
 	public EmptySearchAttribute(PropertyKey<T> key, T value) {
@@ -101,6 +116,27 @@ public class EmptySearchAttribute<T> extends PropertySearchAttribute<T> {
 		return removeFromQuery;
 	}
 
+	/**
+	 * Indicates whether the database query alone selects the results of
+	 * this search attribute, so that the results do not need to be
+	 * filtered in memory. This is the case when searching for missing
+	 * values of properties that are read as they are stored and have no
+	 * default value, because the in-memory check accepts every entity
+	 * that the database query selects for such a property.
+	 *
+	 * @return whether this search attribute is resolved by the database query
+	 */
+	public boolean isResolvedInQuery() {
+
+		final PropertyKey<T> key = getKey();
+
+		if (removeFromQuery || getValue() != null || Occurrence.FORBIDDEN.equals(getOccurrence())) {
+			return false;
+		}
+
+		return key != null && storedAsIsTypes.contains(key.getClass()) && key.defaultValue() == null && !((Property)key).hasTransformators();
+	}
+
 	private boolean equal(T nodeValue, T searchValue) {
 
 		// easy, both values are null => equal
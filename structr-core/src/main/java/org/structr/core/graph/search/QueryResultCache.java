@@ -0,0 +1,252 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph.search;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.structr.api.util.SegmentedCache;
+
+/**
+ * A concurrent, size-bounded cache for the ids of query results. Each
+ * entry records the generation of the types it depends on at the time
+ * the query was started. Modifying a type increments its generation,
+ * which turns all entries that depend on it into misses, so stale
+ * results are never returned even if a commit happens while a query
+ * is running. Entries also expire after a fixed time, which limits the
+ * effect of modifications that bypass the transaction queue.
+ */
+public class QueryResultCache {
+
+	public static final int UNKNOWN_RESULT_COUNT          = -1;
+
+	private final Map<String, AtomicLong> typeGenerations = new ConcurrentHashMap<>();
+	private final AtomicLong globalGeneration             = new AtomicLong();
+	private final LongAdder invalidations                 = new LongAdder();
+	private final LongAdder expirations                   = new LongAdder();
+	private final LongAdder hits                          = new LongAdder();
+	private final LongAdder misses                        = new LongAdder();
+	private SegmentedCache<String, Entry> cache           = null;
+	private long timeout                                  = 0L;
+	private int maxResultSize                             = 0;
+
+	public QueryResultCache(final int maxSize, final int maxResultSize, final long timeout) {
+
+		this.cache         = new SegmentedCache<>(Math.max(1, maxSize));
+		this.maxResultSize = maxResultSize;
+		this.timeout       = timeout;
+	}
+
+	/**
+	 * Returns the cached entry for the given key, or null if there is no
+	 * entry, or if it has expired or one of its types was modified, or if
+	 * a result count is required and the entry has none.
+	 *
+	 * @param key
+	 * @param needsResultCount whether the caller needs the result count
+	 * @return the entry or null
+	 */
+	public Entry get(final String key, final boolean needsResultCount) {
+
+		final Entry entry = cache.get(key);
+		if (entry != null) {
+
+			if (System.currentTimeMillis() - entry.timestamp > timeout) {
+
+				cache.remove(key);
+				expirations.increment();
+
+			} else if (isCurrent(entry) && (!needsResultCount || entry.hasResultCount())) {
+
+				hits.increment();
+				return entry;
+			}
+		}
+
+		misses.increment();
+
+		return null;
+	}
+
+	/**
+	 * Returns the current generations of the given types. Callers must
+	 * fetch the generations before the query is executed and store them
+	 * together with the result.
+	 *
+	 * @param types
+	 * @return the generations
+	 */
+	public Generations getGenerations(final Set<String> types) {
+
+		final String[] typeArray = types.toArray(new String[0]);
+		final long[] generations = new long[typeArray.length];
+
+		for (int i=0; i<typeArray.length; i++) {
+			generations[i] = getGeneration(typeArray[i]).get();
+		}
+
+		return new Generations(globalGeneration.get(), typeArray, generations);
+	}
+
+	public void put(final String key, final Generations generations, final long[] ids, final int resultCount) {
+
+		if (ids.length <= maxResultSize) {
+
+			cache.put(key, new Entry(generations, ids, resultCount));
+		}
+	}
+
+	/**
+	 * Invalidates all entries that depend on one of the given types.
+	 *
+	 * @param types
+	 */
+	public void invalidate(final Collection<String> types) {
+
+		for (final String type : types) {
+
+			final AtomicLong generation = typeGenerations.get(type);
+			if (generation != null) {
+
+				generation.incrementAndGet();
+				invalidations.increment();
+			}
+		}
+	}
+
+	public void clear() {
+
+		globalGeneration.incrementAndGet();
+		invalidations.increment();
+
+		cache.clear();
+	}
+
+	public boolean isEnabled() {
+		return maxResultSize > 0 && timeout > 0;
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public int size() {
+		return cache.size();
+	}
+
+	public void resetStatistics() {
+
+		hits.reset();
+		misses.reset();
+		invalidations.reset();
+		expirations.reset();
+	}
+
+	public Map<String, Object> getStatistics() {
+
+		final Map<String, Object> statistics = new LinkedHashMap<>();
+		final long hitCount                  = getHitCount();
+		final long total                     = hitCount + getMissCount();
+
+		statistics.put("size",          size());
+		statistics.put("maxSize",       cache.getMaxSize());
+		statistics.put("hits",          hitCount);
+		statistics.put("misses",        getMissCount());
+		statistics.put("hitRatio",      total > 0 ? (double)hitCount / (double)total : 0.0);
+		statistics.put("invalidations", invalidations.sum());
+		statistics.put("expirations",   expirations.sum());
+		statistics.put("evictions",     cache.getEvictionCount());
+
+		return statistics;
+	}
+
+	// ----- private methods -----
+	private AtomicLong getGeneration(final String type) {
+		return typeGenerations.computeIfAbsent(type, k -> new AtomicLong());
+	}
+
+	private boolean isCurrent(final Entry entry) {
+
+		final Generations generations = entry.generations;
+
+		if (generations.global != globalGeneration.get()) {
+			return false;
+		}
+
+		for (int i=0; i<generations.types.length; i++) {
+
+			if (generations.values[i] != getGeneration(generations.types[i]).get()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	// ----- nested classes -----
+	public static final class Generations {
+
+		private final String[] types;
+		private final long[] values;
+		private final long global;
+
+		private Generations(final long global, final String[] types, final long[] values) {
+
+			this.global = global;
+			this.types  = types;
+			this.values = values;
+		}
+	}
+
+	public static final class Entry {
+
+		private final Generations generations;
+		private final long timestamp;
+		private final int resultCount;
+		private final long[] ids;
+
+		private Entry(final Generations generations, final long[] ids, final int resultCount) {
+
+			this.timestamp   = System.currentTimeMillis();
+			this.generations = generations;
+			this.resultCount = resultCount;
+			this.ids         = ids;
+		}
+
+		public long[] getIds() {
+			return ids;
+		}
+
+		public int getResultCount() {
+			return resultCount;
+		}
+
+		public boolean hasResultCount() {
+			return resultCount != UNKNOWN_RESULT_COUNT;
+		}
+	}
+}
@@ -18,11 +18,22 @@
  */
 package org.structr.core.graph.search;
 
+import org.structr.api.search.Occurrence;
 import org.structr.api.search.RelationshipQuery;
 import org.structr.core.GraphObject;
 import org.structr.core.entity.AbstractRelationship;
 
-public class RelationshipVisibilitySearchAttribute<T> extends SearchAttribute<T> {
+/**
+ * Restricts relationship searches of anonymous users to relationships
+ * whose start and end nodes are both visible to public users. The key
+ * and value of this attribute describe the node property that the
+ * database query compares, the in-memory check resolves both nodes.
+ */
+public class RelationshipVisibilitySearchAttribute extends SearchAttribute<Boolean> {
+
+	public RelationshipVisibilitySearchAttribute() {
+		super(Occurrence.REQUIRED, GraphObject.visibleToPublicUsers, true);
+	}
 
 	@Override
 	public boolean includeInResult(GraphObject entity) {
@@ -19,22 +19,31 @@
 package org.structr.core.graph.search;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.DatabaseService;
+import org.structr.api.NotFoundException;
 import org.structr.api.Predicate;
+import org.structr.api.config.Settings;
+import org.structr.api.graph.Direction;
+import org.structr.api.graph.Node;
 import org.structr.api.graph.PropertyContainer;
 import org.structr.api.index.Index;
 import org.structr.api.search.Occurrence;
 import org.structr.api.search.QueryContext;
+import org.structr.api.search.QueryCursor;
 import org.structr.api.util.Iterables;
 import org.structr.api.util.PagingIterable;
 import org.structr.api.util.ResultStream;
@@ -47,13 +56,17 @@ import org.structr.core.GraphObject;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.AbstractRelationship;
+import org.structr.core.entity.Principal;
+import org.structr.core.graph.CacheStatisticsCommand;
 import org.structr.core.graph.Factory;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.NodeServiceCommand;
 import org.structr.core.graph.RelationshipInterface;
+import org.structr.core.graph.TransactionCommand;
 import org.structr.core.property.AbstractPrimitiveProperty;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
+import org.structr.core.property.RelationProperty;
 import org.structr.schema.ConfigurationProvider;
 
 /**
@@ -67,8 +80,14 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 	protected static final boolean INCLUDE_DELETED_AND_HIDDEN = true;
 	protected static final boolean PUBLIC_ONLY		  = false;
 
-	private static final Map<String, Set<String>> subtypeMapForType = new LinkedHashMap<>();
 	private static final Set<String> baseTypes                      = new LinkedHashSet<>();
+	private static final int PREFETCH_BATCH_SIZE                    = 1000;
+	private static final ThreadLocal<Consumer<Class>> queryObserver = new ThreadLocal<>();
+	private static final QueryResultCache queryResultCache          = new QueryResultCache(Settings.QueryCacheSize.getValue(), Settings.QueryCacheMaxResults.getValue(), Settings.QueryCacheTimeout.getValue() * 1000L);
+	private static final Set<Class> cacheableAttributeTypes         = new LinkedHashSet<>(Arrays.asList(
+		SearchAttributeGroup.class, TypeSearchAttribute.class, PropertySearchAttribute.class, ArraySearchAttribute.class, EmptySearchAttribute.class,
+		NotBlankSearchAttribute.class, RangeSearchAttribute.class, ComparisonSearchAttribute.class, UuidSearchAttribute.class
+	));
 
 	public static final String LAT_LON_SEARCH_KEYWORD     = "latlon";
 	public static final String LOCATION_SEARCH_KEYWORD    = "location";
@@ -86,20 +105,25 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 		baseTypes.add(AbstractRelationship.class.getSimpleName());
 		baseTypes.add(NodeInterface.class.getSimpleName());
 		baseTypes.add(AbstractNode.class.getSimpleName());
+
+		CacheStatisticsCommand.registerCache("queryResults", SearchCommand::getQueryCacheStatistics, SearchCommand::resetQueryCacheStatistics);
 	}
 
-	private final SearchAttributeGroup rootGroup = new SearchAttributeGroup(Occurrence.REQUIRED);
-	private SearchAttributeGroup currentGroup    = rootGroup;
-	private Comparator<T> comparator             = null;
-	private PropertyKey sortKey                  = null;
-	private boolean publicOnly                   = false;
-	private boolean includeHidden                = true;
-	private boolean sortDescending               = false;
-	private boolean doNotSort                    = false;
-	private Class type                           = null;
-	private int pageSize                         = Integer.MAX_VALUE;
-	private int page                             = 1;
-	private QueryContext queryContext            = new QueryContext();
+	private final List<RelationProperty> prefetch = new LinkedList<>();
+	private final SearchAttributeGroup rootGroup  = new SearchAttributeGroup(Occurrence.REQUIRED);
+	private SearchAttributeGroup currentGroup     = rootGroup;
+	private Comparator<T> comparator              = null;
+	private PropertyKey sortKey                   = null;
+	private boolean publicOnly                    = false;
+	private boolean includeHidden                 = true;
+	private boolean sortDescending                = false;
+	private boolean doNotSort                     = false;
+	private boolean cached                        = false;
+	private Class type                            = null;
+	private int pageSize                          = Integer.MAX_VALUE;
+	private int page                              = 1;
+	private String cursor                         = null;
+	private QueryContext queryContext             = new QueryContext();
 
 	public abstract Factory<S, T> getFactory(final SecurityContext securityContext, final boolean includeHidden, final boolean publicOnly, final int pageSize, final int page);
 	public abstract boolean isRelationshipSearch();
@@ -112,10 +136,36 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 			return PagingIterable.EMPTY_ITERABLE;
 		}
 
-		final Factory<S, T> factory  = getFactory(securityContext, includeHidden, publicOnly, pageSize, page);
+		// keyset pagination: the database skips everything up to the cursor
+		final boolean keyset         = cursor != null;
+		final int resultPage         = keyset ? 1 : page;
+		final Factory<S, T> factory  = getFactory(securityContext, includeHidden, publicOnly, pageSize, resultPage);
+		QueryCursor position         = null;
 		boolean hasGraphSources      = false;
 		boolean hasSpatialSource     = false;
 
+		if (keyset) {
+
+			try {
+
+				position = cursor.isEmpty() ? null : QueryCursor.decode(cursor);
+
+			} catch (IllegalArgumentException iex) {
+
+				throw new FrameworkException(422, iex.getMessage());
+			}
+
+			// sort values of collection properties can not be compared in the database
+			if (sortKey != null && !doNotSort && sortKey.isCollection()) {
+
+				throw new FrameworkException(422, "Cursor pagination is not supported for collection property " + sortKey.jsonName());
+			}
+
+			// cursors with sort values that can not be compared in the database
+			// continue at their offset, in the same stable order
+			getQueryContext().keyset(position != null && position.isKeyset() ? position : null, pageSize);
+		}
+
 		if (securityContext.getUser(false) == null && !isRelationshipSearch()) {
 
 			rootGroup.add(new PropertySearchAttribute(GraphObject.visibleToPublicUsers, true, Occurrence.REQUIRED, true));
@@ -135,8 +185,7 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 		// At this point, all search attributes are ready
 		final List<SourceSearchAttribute> sources    = new ArrayList<>();
 		boolean hasEmptySearchFields                 = false;
-		boolean hasRelationshipVisibilitySearch      = false;
-		Iterable indexHits                           = null;
+		Iterable<T> indexHits                        = null;
 
 		// check for optional-only queries
 		// (some query types seem to allow no MUST occurs)
@@ -161,7 +210,7 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 
 					}
 
-					if (item instanceof EmptySearchAttribute) {
+					if (item instanceof EmptySearchAttribute && !((EmptySearchAttribute)item).isResolvedInQuery()) {
 						hasEmptySearchFields = true;
 					}
 				}
@@ -191,13 +240,15 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 				hasGraphSources = true;
 			}
 
-			if (attr instanceof EmptySearchAttribute) {
+			if (attr instanceof EmptySearchAttribute && !((EmptySearchAttribute)attr).isResolvedInQuery()) {
 				hasEmptySearchFields = true;
 			}
+		}
 
-			if (attr instanceof RelationshipVisibilitySearchAttribute) {
-				hasRelationshipVisibilitySearch = true;
-			}
+		// results that are sorted or filtered in memory can not be paged with a cursor
+		if (keyset && (comparator != null || hasEmptySearchFields || hasGraphSources || hasSpatialSource)) {
+
+			throw new FrameworkException(422, "Cursor pagination is not supported for this query");
 		}
 
 		// only do "normal" query if no other sources are present
@@ -229,23 +280,15 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 
 				if (comparator != null) {
 
-					// pull results into memory
-					final List<T> rawResult = Iterables.toList(indexHits);
-
-					// sort result
-					Collections.sort(rawResult, comparator);
-
-					// return paging iterable
-					return new PagingIterable(rawResult, pageSize, page);
+					// keep only what is needed for the requested page
+					return withPrefetching(sortAndPage(indexHits, comparator));
 				}
 			}
 		}
 
-		if (indexHits != null && (hasEmptySearchFields || hasGraphSources || hasSpatialSource || hasRelationshipVisibilitySearch)) {
+		if (indexHits != null && (hasEmptySearchFields || hasGraphSources || hasSpatialSource)) {
 
-			// sorted result set
-			final Set<T> intermediateResultSet = new LinkedHashSet<>(Iterables.toList(indexHits));
-			final List<T> finalResult          = new ArrayList<>();
+			Iterable<T> intermediateResult = indexHits;
 
 			// We need to find out whether there was a source for any of the possible sets that we want to merge.
 			// If there was only a single source, the final result is the result of that source. If there are
@@ -253,6 +296,9 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 
 			if (hasGraphSources) {
 
+				// sorted result set
+				final Set<T> intermediateResultSet = new LinkedHashSet<>(Iterables.toList(indexHits));
+
 				// merge sources according to their occur flag
 				final Set<T> mergedSources = mergeSources(sources);
 
@@ -265,39 +311,423 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 
 					intermediateResultSet.addAll(mergedSources);
 				}
+
+				intermediateResult = intermediateResultSet;
 			}
 
-			// Filter intermediate result
-			for (final T obj : intermediateResultSet) {
+			// filter intermediate result while streaming
+			final Iterable<T> finalResult = Iterables.filter(obj -> includeInResult(obj), intermediateResult);
 
-				boolean addToResult = true;
+			if (sortKey == null) {
 
-				// check all attributes before adding a node
-				for (SearchAttribute attr : rootGroup.getSearchAttributes()) {
+				// no sort key means that the order of the intermediate result is kept
+				return withPrefetching(new PagingIterable<>(finalResult, pageSize, page));
+			}
 
-					// check all search attributes
-					addToResult &= attr.includeInResult(obj);
-				}
+			return withPrefetching(sortAndPage(finalResult, new GraphObjectComparator(sortKey, sortDescending)));
+
+		} else {
+
+			// no filtering
+			final int offset               = position != null ? position.getOffset() : 0;
+			final int skip                 = position != null && !position.isKeyset() ? offset : 0;
+			final PagingIterable<T> result = new PagingIterable<T>(indexHits, pageSize, resultPage, skip);
+
+			if (keyset) {
+
+				final PropertyKey cursorKey = doNotSort ? null : sortKey;
+
+				result.setCursorFunction(obj -> new QueryCursor(cursorKey != null ? obj.getPropertyContainer().getProperty(cursorKey.dbName()) : null, obj.getId(), offset + pageSize).encode());
+			}
+
+			if (indexHits != null && canCountInDatabase()) {
+
+				result.setResultCountFunction(() -> countInDatabase());
+			}
+
+			return withPrefetching(result);
+		}
+	}
+
+	private ResultStream<T> search() throws FrameworkException {
+
+		final Consumer<Class> observer = queryObserver.get();
+		if (observer != null) {
+
+			observer.accept(type);
+		}
+
+		final boolean cacheRequested = cached || (securityContext != null && securityContext.doCacheQueryResults());
+
+		// results must include uncommitted changes of the current transaction
+		if (cacheRequested && !TransactionCommand.hasPendingModifications()) {
+
+			final Set<String> types = new LinkedHashSet<>();
+			if (isCacheable(rootGroup, types)) {
+
+				return doCachedSearch(getCacheKey(), types);
+			}
+		}
+
+		return doSearch();
+	}
+
+	/**
+	 * Returns the result of this query from the query result cache, or
+	 * executes the query and caches its result. Only the ids are cached,
+	 * all objects are instantiated (and checked for visibility) again.
+	 */
+	private ResultStream<T> doCachedSearch(final String cacheKey, final Set<String> types) throws FrameworkException {
+
+		final boolean countResults         = securityContext == null || !securityContext.ignoreResultCount();
+		final QueryResultCache.Entry entry = queryResultCache.get(cacheKey, countResults);
+		if (entry != null) {
+
+			final List<T> cachedResult = instantiate(entry.getIds());
+			if (cachedResult != null) {
 
-				if (addToResult) {
+				return withPrefetching(createPagingIterable(cachedResult, entry.getResultCount()));
+			}
+		}
+
+		// generations must be fetched before the query is executed
+		final QueryResultCache.Generations generations = queryResultCache.getGenerations(types);
+		final ResultStream<T> result                   = doSearch();
+		final List<T> list                             = Iterables.toList(result);
+		final int resultCount                          = countResults ? result.calculateTotalResultCount() : QueryResultCache.UNKNOWN_RESULT_COUNT;
+		final long[] ids                               = new long[list.size()];
+		int index                                      = 0;
+
+		for (final T obj : list) {
+			ids[index++] = obj.getId();
+		}
+
+		queryResultCache.put(cacheKey, generations, ids, resultCount);
+
+		return createPagingIterable(list, resultCount);
+	}
+
+	/**
+	 * Instantiates the nodes with the given ids, or returns null if one
+	 * of them does not exist anymore or is not visible.
+	 */
+	private List<T> instantiate(final long[] ids) {
 
-					finalResult.add(obj);
+		final DatabaseService graphDb = (DatabaseService)arguments.get("graphDb");
+		final Factory<S, T> factory   = getFactory(securityContext, includeHidden, publicOnly, pageSize, page);
+		final List<T> result          = new ArrayList<>(ids.length);
+
+		try {
+
+			for (final long id : ids) {
+
+				final T obj = factory.instantiate((S)graphDb.getNodeById(id));
+				if (obj == null) {
+
+					return null;
 				}
+
+				result.add(obj);
+			}
+
+		} catch (NotFoundException nfex) {
+
+			return null;
+		}
+
+		return result;
+	}
+
+	private boolean includeInResult(final T obj) {
+
+		// check all search attributes
+		for (final SearchAttribute attr : rootGroup.getSearchAttributes()) {
+
+			if (!attr.includeInResult(obj)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Sorts the given results and returns the requested page. Only the
+	 * first page * pageSize results are kept in a bounded heap, so the
+	 * memory needed depends on the requested page and not on the number
+	 * of results. Results that are equal according to the comparator
+	 * keep their original order.
+	 */
+	private PagingIterable<T> sortAndPage(final Iterable<T> source, final Comparator<? super T> comparator) {
+
+		final long limit = (long)page * pageSize;
+
+		if (page < 1 || limit >= Integer.MAX_VALUE) {
+
+			final List<T> result = Iterables.toList(source);
+
+			Collections.sort(result, comparator);
+
+			return new PagingIterable<>(result, pageSize, page);
+		}
+
+		// the head of the heap is the element that is dropped first
+		final PriorityQueue<Ranked<T>> heap = new PriorityQueue<>((int)Math.min(limit, PREFETCH_BATCH_SIZE), (a, b) -> {
+
+			final int result = comparator.compare(b.value, a.value);
+
+			return result != 0 ? result : Integer.compare(b.index, a.index);
+		});
+
+		int count = 0;
+
+		for (final T obj : source) {
+
+			if (heap.size() < limit) {
+
+				heap.add(new Ranked<>(obj, count));
+
+			} else if (comparator.compare(obj, heap.peek().value) < 0) {
+
+				// later elements lose ties, so only strictly smaller ones replace the head
+				heap.poll();
+				heap.add(new Ranked<>(obj, count));
+			}
+
+			count++;
+		}
+
+		final int offset     = getOffset();
+		final List<T> result = new ArrayList<>(Math.max(0, heap.size() - offset));
+
+		// elements before the requested page remain in the heap
+		while (heap.size() > offset) {
+			result.add(heap.poll().value);
+		}
+
+		Collections.reverse(result);
+
+		return createPagingIterable(result, count);
+	}
+
+	private PagingIterable<T> createPagingIterable(final List<T> page, final int resultCount) {
+
+		final PagingIterable<T> result = new PagingIterable<>(new OffsetIterable<>(page, getOffset()), pageSize, this.page);
+
+		result.setResultCountFunction(() -> resultCount);
+
+		return result;
+	}
+
+	private int getOffset() {
+		return pageSize == Integer.MAX_VALUE ? 0 : (page - 1) * pageSize;
+	}
+
+	/**
+	 * Indicates whether the result of this query can be cached, and
+	 * collects the types it depends on. Queries that depend on related
+	 * nodes, on geocoding, on custom comparators or on cursors are not
+	 * cached.
+	 */
+	private boolean isCacheable(final SearchAttributeGroup group, final Set<String> types) {
+
+		if (group == rootGroup) {
+
+			if (!queryResultCache.isEnabled() || isRelationshipSearch() || comparator != null || cursor != null || page <= 0 || pageSize <= 0 || getQueryContext().isSliced()) {
+				return false;
+			}
+		}
+
+		for (final SearchAttribute attr : group.getSearchAttributes()) {
+
+			if (!cacheableAttributeTypes.contains(attr.getClass())) {
+				return false;
 			}
 
-			// sort list
-			Collections.sort(finalResult, new GraphObjectComparator(sortKey, sortDescending));
+			if (attr instanceof SearchAttributeGroup && !isCacheable((SearchAttributeGroup)attr, types)) {
+				return false;
+			}
+
+			if (attr instanceof TypeSearchAttribute) {
+				types.add((String)attr.getValue());
+			}
+		}
+
+		return group != rootGroup || !types.isEmpty();
+	}
+
+	private String getCacheKey() {
+
+		final StringBuilder buf = new StringBuilder();
+		final Principal user    = securityContext.getUser(false);
+
+		if (securityContext.isSuperUser()) {
 
-			return new PagingIterable(finalResult, pageSize, page);
+			buf.append("superuser");
 
-			// return paged final result
-			//return new Result(PagingHelper.subList(finalResult, pageSize, page), resultCount, true, false);
+		} else if (user != null) {
+
+			buf.append(user.getId());
 
 		} else {
 
-			// no filtering
-			return new PagingIterable(indexHits, pageSize, page);
+			buf.append("public");
+		}
+
+		buf.append(";").append(securityContext.getAccessMode());
+		buf.append(";").append(includeHidden);
+		buf.append(";").append(publicOnly);
+		buf.append(";").append(securityContext.estimateResultCount());
+		buf.append(";").append(doNotSort ? null : sortKey != null ? sortKey.dbName() : null);
+		buf.append(";").append(sortDescending);
+		buf.append(";").append(pageSize);
+		buf.append(";").append(page);
+		buf.append(";");
+
+		appendCacheKey(buf, rootGroup);
+
+		return buf.toString();
+	}
+
+	private void appendCacheKey(final StringBuilder buf, final SearchAttribute attr) {
+
+		buf.append(attr.getClass().getSimpleName());
+		buf.append("(");
+		buf.append(attr.getOccurrence());
+
+		if (attr instanceof SearchAttributeGroup) {
+
+			for (final SearchAttribute child : ((SearchAttributeGroup)attr).getSearchAttributes()) {
+
+				buf.append(",");
+				appendCacheKey(buf, child);
+			}
+
+		} else if (attr instanceof UuidSearchAttribute) {
+
+			buf.append(",").append(((UuidSearchAttribute)attr).getUuid());
+
+		} else if (attr instanceof RangeSearchAttribute) {
+
+			final RangeSearchAttribute range = (RangeSearchAttribute)attr;
+
+			buf.append(",").append(range.getKey().dbName());
+			appendCacheKey(buf, range.getRangeStart());
+			appendCacheKey(buf, range.getRangeEnd());
+
+		} else if (attr instanceof ComparisonSearchAttribute) {
+
+			final ComparisonSearchAttribute comparison = (ComparisonSearchAttribute)attr;
+
+			buf.append(",").append(comparison.getKey().dbName());
+			buf.append(",").append(comparison.getOperation());
+			appendCacheKey(buf, comparison.getSearchValue());
+
+		} else {
+
+			final PropertyKey key = attr.getKey();
+
+			buf.append(",").append(key != null ? key.dbName() : null);
+			buf.append(",").append(attr.isExactMatch());
+			appendCacheKey(buf, attr.getValue());
+		}
+
+		buf.append(")");
+	}
+
+	private void appendCacheKey(final StringBuilder buf, final Object value) {
+
+		buf.append(",");
+
+		if (value == null) {
+
+			buf.append("null");
+
+		} else if (value instanceof Object[]) {
+
+			buf.append(Arrays.deepToString((Object[])value));
+
+		} else if (value instanceof Date) {
+
+			buf.append("Date:").append(((Date)value).getTime());
+
+		} else {
+
+			// include the type so that e.g. 1 and "1" are different keys
+			buf.append(value.getClass().getSimpleName()).append(":").append(value);
+		}
+	}
+
+	private PagingIterable<T> withPrefetching(final PagingIterable<T> result) {
+
+		if (!prefetch.isEmpty() && !isRelationshipSearch()) {
+
+			result.setPrefetchFunction(batch -> prefetch(batch), Math.min(pageSize, PREFETCH_BATCH_SIZE));
+		}
+
+		return result;
+	}
+
+	private void prefetch(final List<T> batch) {
+
+		final DatabaseService graphDb = (DatabaseService)arguments.get("graphDb");
+		final List<Node> nodes        = new ArrayList<>(batch.size());
+
+		for (final T obj : batch) {
+
+			if (obj instanceof NodeInterface) {
+
+				nodes.add(((NodeInterface)obj).getNode());
+			}
+		}
+
+		for (final RelationProperty key : prefetch) {
+
+			final Direction direction = "in".equals(key.getDirectionKey()) ? Direction.INCOMING : Direction.OUTGOING;
+
+			graphDb.prefetchRelationships(nodes, direction, key.getRelation());
+		}
+	}
+
+	/**
+	 * The result can be counted in the database if the factory does not
+	 * remove any of the results, i.e. if all permission checks are either
+	 * part of the query or are known to succeed.
+	 */
+	private boolean canCountInDatabase() {
+
+		if (getQueryContext().isSliced()) {
+			return false;
 		}
+
+		if (securityContext.isSuperUserSecurityContext()) {
+			return true;
+		}
+
+		if (securityContext.isSuperUser()) {
+			return !publicOnly;
+		}
+
+		// anonymous node searches contain the visibleToPublicUsers predicate
+		return securityContext.getUser(false) == null && !isRelationshipSearch();
+	}
+
+	private int countInDatabase() {
+
+		final Index<S> index = getIndex();
+		long count           = -1L;
+
+		// estimates ignore permissions, so they are only available to admin users
+		if (securityContext.estimateResultCount() && securityContext.isSuperUser()) {
+
+			count = index.estimateCount(getQueryContext(), rootGroup);
+
+		} else {
+
+			count = index.count(getQueryContext(), rootGroup);
+		}
+
+		return count >= 0 ? (int)Math.min(count, Integer.MAX_VALUE) : -1;
 	}
 
 	private Set<T> mergeSources(List<SourceSearchAttribute> sources) {
@@ -341,12 +771,12 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 
 	@Override
 	public ResultStream<T> getResultStream() throws FrameworkException {
-		return doSearch();
+		return search();
 	}
 
 	@Override
 	public List<T> getAsList() throws FrameworkException {
-		return Iterables.toList(doSearch());
+		return Iterables.toList(search());
 	}
 
 	@Override
@@ -428,6 +858,54 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 		return this;
 	}
 
+	/**
+	 * Enables keyset pagination, starting after the given cursor. An
+	 * empty cursor selects the first page. The cursor for the next page
+	 * is available from the result stream.
+	 *
+	 * @param cursor
+	 * @return this
+	 */
+	@Override
+	public org.structr.core.app.Query<T> cursor(final String cursor) {
+		this.cursor = cursor;
+		return this;
+	}
+
+	/**
+	 * Loads the relationships of the given keys for all nodes of the
+	 * result in batches, instead of one query per node and key. Keys
+	 * that are not relationship properties are ignored.
+	 *
+	 * @param keys
+	 * @return this
+	 */
+	@Override
+	public org.structr.core.app.Query<T> prefetch(final PropertyKey... keys) {
+
+		for (final PropertyKey key : keys) {
+
+			if (key instanceof RelationProperty) {
+
+				prefetch.add((RelationProperty)key);
+			}
+		}
+
+		return this;
+	}
+
+	@Override
+	public org.structr.core.app.Query<T> cached() {
+		return cached(true);
+	}
+
+	@Override
+	public org.structr.core.app.Query<T> cached(final boolean cached) {
+
+		this.cached = cached;
+		return this;
+	}
+
 	@Override
 	public org.structr.core.app.Query<T> publicOnly() {
 		this.publicOnly = true;
@@ -732,76 +1210,70 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 	}
 
 	// ----- static methods -----
-	public static synchronized void clearInheritanceMap() {
-		subtypeMapForType.clear();
+	public static Set<String> getAllSubtypesAsStringSet(final String type) {
+		return StructrApp.getConfiguration().getAllSubtypesAsStringSet(type);
 	}
 
-	public static synchronized Set<String> getAllSubtypesAsStringSet(final String type) {
-
-		Set<String> allSubtypes = subtypeMapForType.get(type);
-		if (allSubtypes == null) {
-
-			logger.debug("Subtype map cache miss.");
-
-			allSubtypes = new LinkedHashSet<>();
-			subtypeMapForType.put(type, allSubtypes);
-
-			final ConfigurationProvider configuration                             = StructrApp.getConfiguration();
-			final Map<String, Class<? extends NodeInterface>> nodeEntities        = configuration.getNodeEntities();
-			final Map<String, Class<? extends RelationshipInterface>> relEntities = configuration.getRelationshipEntities();
+	public static boolean isTypeAssignableFromOtherType (Class type, Class otherType) {
 
-			// add type first (this is neccesary because two class objects of the same dynamic type node are not equal
-			// to each other and not assignable, if the schema node was modified in the meantime)
-			allSubtypes.add(type);
+		return getAllSubtypesAsStringSet(type.getSimpleName()).contains(otherType.getSimpleName());
 
-			// scan all node entities for subtypes
-			for (final Map.Entry<String, Class<? extends NodeInterface>> entity : nodeEntities.entrySet()) {
+	}
 
-				final Class entityType     = entity.getValue();
-				final Set<Class> ancestors = typeAndAllSupertypes(entityType);
+	/**
+	 * Invalidates all cached query results that depend on one of the
+	 * given types, including results of queries for their supertypes.
+	 *
+	 * @param types the modified types
+	 */
+	public static void invalidateQueryCache(final Set<Class> types) {
 
-				for (final Class superClass : ancestors) {
+		final Set<String> typeNames = new LinkedHashSet<>();
 
-					final String superClasSimpleName = superClass.getSimpleName();
-					final String superClassFullName  = superClass.getName();
+		for (final Class type : types) {
 
-					if ((superClassFullName.startsWith("org.structr.") || superClassFullName.startsWith("com.structr.")) && superClasSimpleName.equals(type)) {
+			for (final Class supertype : typeAndAllSupertypes(type)) {
 
-						allSubtypes.add(entityType.getSimpleName());
-					}
-				}
+				typeNames.add(supertype.getSimpleName());
 			}
+		}
 
-			// scan all relationship entities for subtypes
-			for (final Map.Entry<String, Class<? extends RelationshipInterface>> entity : relEntities.entrySet()) {
-
-				final Class entityType     = entity.getValue();
-				final Set<Class> ancestors = typeAndAllSupertypes(entityType);
-
-				for (final Class superClass : ancestors) {
+		queryResultCache.invalidate(typeNames);
+	}
 
-					final String superClasSimpleName = superClass.getSimpleName();
-					final String superClassFullName  = superClass.getName();
+	/**
+	 * Sets an observer that is notified of the type of every query that
+	 * is executed in the current thread (null for untyped queries), or
+	 * removes the observer if null is given.
+	 *
+	 * @param observer the observer or null
+	 */
+	public static void setQueryObserver(final Consumer<Class> observer) {
 
-					if ((superClassFullName.startsWith("org.structr.") || superClassFullName.startsWith("com.structr.")) && superClasSimpleName.equals(type)) {
+		if (observer != null) {
 
-						allSubtypes.add(entityType.getSimpleName());
-					}
-				}
-			}
+			queryObserver.set(observer);
 
 		} else {
 
-			logger.debug("Subtype map cache hit.");
+			queryObserver.remove();
 		}
+	}
 
-		return Collections.unmodifiableSet(allSubtypes);
+	public static Consumer<Class> getQueryObserver() {
+		return queryObserver.get();
 	}
 
-	public static boolean isTypeAssignableFromOtherType (Class type, Class otherType) {
+	public static void clearQueryCache() {
+		queryResultCache.clear();
+	}
 
-		return getAllSubtypesAsStringSet(type.getSimpleName()).contains(otherType.getSimpleName());
+	public static Map<String, Object> getQueryCacheStatistics() {
+		return queryResultCache.getStatistics();
+	}
 
+	public static void resetQueryCacheStatistics() {
+		queryResultCache.resetStatistics();
 	}
 
 	public static Set<Class> typeAndAllSupertypes(final Class type) {
@@ -907,5 +1379,63 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 		}
 	}
 
+	/**
+	 * An element of a sorted result together with its original position.
+	 */
+	private static class Ranked<T> {
+
+		private T value   = null;
+		private int index = 0;
+
+		public Ranked(final T value, final int index) {
+
+			this.value = value;
+			this.index = index;
+		}
+	}
+
+	/**
+	 * Places a cached page at its original offset, so the paging
+	 * iterable reports the same page and page size as for an uncached
+	 * result.
+	 */
+	private static class OffsetIterable<T> implements Iterable<T> {
+
+		private List<T> page = null;
+		private int offset   = 0;
 
+		public OffsetIterable(final List<T> page, final int offset) {
+
+			this.page   = page;
+			this.offset = offset;
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+
+			final Iterator<T> iterator = page.iterator();
+
+			return new Iterator<T>() {
+
+				private int skipped = 0;
+
+				@Override
+				public boolean hasNext() {
+					return skipped < offset || iterator.hasNext();
+				}
+
+				@Override
+				public T next() {
+
+					if (skipped < offset) {
+
+						skipped++;
+						return null;
+					}
+
+					return iterator.next();
+				}
+			};
+		}
+	}
 }
@@ -148,6 +148,9 @@ public class QueryConfig implements GraphQLQueryConfiguration {
 		query.pageSize(pageSize);
 		query.attributes(new LinkedList<>(attributes.values()));
 
+		// load the relationships of all selected fields in batches
+		query.prefetch(propertyKeys.toArray(new PropertyKey[0]));
+
 		if (sortKey != null) {
 
 			if (sortDescending) {
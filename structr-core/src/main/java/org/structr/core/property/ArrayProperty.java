@@ -46,8 +46,9 @@ public class ArrayProperty<T> extends AbstractPrimitiveProperty<T[]> {
 
 	private static final Logger logger = LoggerFactory.getLogger(ArrayProperty.class.getName());
 
-	private Class<T> componentType = null;
-	private Method valueOfMethod = null;
+	private final ArrayDatabaseConverter sharedDatabaseConverter = new ArrayDatabaseConverter(null);
+	private Class<T> componentType                               = null;
+	private Method valueOfMethod                                 = null;
 
 	public ArrayProperty(String name, Class<T> componentType) {
 
@@ -75,15 +76,7 @@ public class ArrayProperty<T> extends AbstractPrimitiveProperty<T[]> {
 				fixedValue = stringValue.split(" ");
 			}
 
-			if (securityContext != null && entity != null) {
-
-				try {
-					setProperty(securityContext, entity, (T[])fixedValue);
-				} catch (FrameworkException ex) {
-					logger.warn("", ex);
-				}
-			}
-
+			// callers store the fixed value themselves
 			return fixedValue;
 
 		}
@@ -114,14 +107,12 @@ public class ArrayProperty<T> extends AbstractPrimitiveProperty<T[]> {
 
 	@Override
 	public PropertyConverter<T[], ?> databaseConverter(SecurityContext securityContext) {
-		return new ArrayDatabaseConverter(securityContext);
+		return sharedDatabaseConverter;
 	}
 
 	@Override
 	public PropertyConverter<T[], ?> databaseConverter(SecurityContext securityContext, GraphObject entity) {
-		this.securityContext = securityContext;
-		this.entity = entity;
-		return databaseConverter(securityContext);
+		return sharedDatabaseConverter;
 	}
 
 	@Override
@@ -195,6 +186,13 @@ public class ArrayProperty<T> extends AbstractPrimitiveProperty<T[]> {
 			}
 
 			if (source.getClass().isArray()) {
+
+				// arrays of the correct type are hydrated once by the database layer,
+				// which already returns a copy of its cached value
+				if (componentType.equals(source.getClass().getComponentType())) {
+					return (T[])source;
+				}
+
 				return revert(Arrays.asList((T[])source));
 			}
 
@@ -40,6 +40,8 @@ public class BooleanProperty extends AbstractPrimitiveProperty<Boolean> {
 	private static final Logger logger = LoggerFactory.getLogger(BooleanProperty.class.getName());
 	private static final Set<String> TRUE_VALUES = new LinkedHashSet<>(Arrays.asList(new String[] { "true", "1", "on" }));
 
+	private final DatabaseConverter sharedDatabaseConverter = new DatabaseConverter(null);
+
 	public BooleanProperty(final String name) {
 		super(name);
 	}
@@ -77,7 +79,7 @@ public class BooleanProperty extends AbstractPrimitiveProperty<Boolean> {
 	public PropertyConverter<Boolean, ?> databaseConverter(final SecurityContext securityContext, final GraphObject entity) {
 		this.securityContext = securityContext;
 		this.entity          = entity;
-		return new DatabaseConverter(securityContext);
+		return sharedDatabaseConverter;
 	}
 
 	@Override
@@ -48,6 +48,8 @@ public class DateArrayProperty extends AbstractPrimitiveProperty<Date[]> {
 
 	private static final Logger logger = LoggerFactory.getLogger(DateArrayProperty.class.getName());
 
+	private final ArrayDatabaseConverter sharedDatabaseConverter = new ArrayDatabaseConverter(null, null);
+
 	public DateArrayProperty(final String name) {
 		super(name);
                 this.format = getDefaultFormat();
@@ -96,7 +98,7 @@ public class DateArrayProperty extends AbstractPrimitiveProperty<Date[]> {
 
 	@Override
 	public PropertyConverter<Date[], Long[]> databaseConverter(SecurityContext securityContext, GraphObject entity) {
-		return new ArrayDatabaseConverter(securityContext, entity);
+		return sharedDatabaseConverter;
 	}
 
 	@Override
@@ -40,6 +40,8 @@ import org.structr.schema.parser.DatePropertyParser;
  */
 public class DateProperty extends AbstractPrimitiveProperty<Date> {
 
+	private final DatabaseConverter sharedDatabaseConverter = new DatabaseConverter(null, null);
+
 	public DateProperty(final String name) {
 		super(name);
 		this.format = getDefaultFormat();
@@ -82,7 +84,7 @@ public class DateProperty extends AbstractPrimitiveProperty<Date> {
 
 	@Override
 	public PropertyConverter<Date, Long> databaseConverter(SecurityContext securityContext, GraphObject entity) {
-		return new DatabaseConverter(securityContext, entity);
+		return sharedDatabaseConverter;
 	}
 
 	@Override
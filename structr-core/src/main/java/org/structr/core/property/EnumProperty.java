@@ -36,8 +36,9 @@ import org.structr.core.converter.PropertyConverter;
  */
 public class EnumProperty<T extends Enum> extends AbstractPrimitiveProperty<T> {
 
-	private static final Logger logger = LoggerFactory.getLogger(EnumProperty.class.getName());
-	private Class<T> enumType          = null;
+	private static final Logger logger                      = LoggerFactory.getLogger(EnumProperty.class.getName());
+	private final DatabaseConverter sharedDatabaseConverter = new DatabaseConverter(null, null);
+	private Class<T> enumType                               = null;
 
 	public EnumProperty(final String name, final Class<T> enumType) {
 		this(name, enumType, null);
@@ -81,7 +82,7 @@ public class EnumProperty<T extends Enum> extends AbstractPrimitiveProperty<T> {
 
 	@Override
 	public PropertyConverter<T, String> databaseConverter(SecurityContext securityContext, GraphObject entity) {
-		return new DatabaseConverter(securityContext, entity);
+		return sharedDatabaseConverter;
 	}
 
 	@Override
@@ -128,7 +129,7 @@ public class EnumProperty<T extends Enum> extends AbstractPrimitiveProperty<T> {
 
 				} catch (Throwable t) {
 
-					logger.warn("Cannot convert database value '{}' on object {} to enum of type '{}', ignoring.", new Object[] { source, this.currentObject.getUuid(), enumType.getSimpleName() } );
+					logger.warn("Cannot convert database value '{}' of property {} to enum of type '{}', ignoring.", new Object[] { source, jsonName(), enumType.getSimpleName() } );
 				}
 			}
 
@@ -38,6 +38,8 @@ import org.structr.schema.parser.DatePropertyParser;
  */
 public class ISO8601DateProperty extends DateProperty {
 
+	private final DatabaseConverter sharedDatabaseConverter = new DatabaseConverter(null, null);
+
 	public ISO8601DateProperty(final String name) {
 		super(name);
 	}
@@ -47,7 +49,7 @@ public class ISO8601DateProperty extends DateProperty {
 	@Override
 	public PropertyConverter<Date, Long> databaseConverter(SecurityContext securityContext, GraphObject entity) {
 
-		return new DatabaseConverter(securityContext, entity);
+		return sharedDatabaseConverter;
 
 	}
 
@@ -38,6 +38,8 @@ public class IntProperty extends AbstractPrimitiveProperty<Integer> implements N
 
 	private static final Logger logger = LoggerFactory.getLogger(IntProperty.class.getName());
 
+	private final DatabaseConverter sharedDatabaseConverter = new DatabaseConverter(null);
+
 	public IntProperty(final String name) {
 		super(name);
 	}
@@ -68,7 +70,7 @@ public class IntProperty extends AbstractPrimitiveProperty<Integer> implements N
 
 	@Override
 	public PropertyConverter<Integer, ?> databaseConverter(SecurityContext securityContext, GraphObject entity) {
-		return new DatabaseConverter(securityContext);
+		return sharedDatabaseConverter;
 	}
 
 	@Override
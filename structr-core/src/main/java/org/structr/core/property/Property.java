@@ -394,6 +394,10 @@ public abstract class Property<T> implements PropertyKey<T> {
 		return this;
 	}
 
+	public boolean hasTransformators() {
+		return !transformators.isEmpty();
+	}
+
 	@Override
 	public int hashCode() {
 
@@ -26,6 +26,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -40,6 +41,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -116,6 +118,7 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 	private final Set<String> dynamicViews                                                         = new LinkedHashSet<>();
 
 	private FactoryDefinition factoryDefinition                                                    = new DefaultFactoryDefinition();
+	private final AtomicReference<TypeRegistry> typeRegistry                                       = new AtomicReference<>();
 	private LicenseManager licenseManager                                                          = null;
 
 	// ----- interface ConfigurationProvider -----
@@ -124,7 +127,11 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 
 		this.licenseManager = licenseManager;
 
-		scanResources();
+		synchronized (SchemaService.class) {
+
+			scanResources();
+			publishTypeRegistry();
+		}
 	}
 
 	@Override
@@ -139,25 +146,41 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 	@Override
 	public Map<String, Class<? extends NodeInterface>> getNodeEntities() {
 
-		synchronized (SchemaService.class) {
+		if (isModifyingSchema()) {
 			return nodeEntityClassCache;
 		}
+
+		return getTypeRegistry().getNodeEntities();
 	}
 
 	@Override
 	public Map<String, Class<? extends RelationshipInterface>> getRelationshipEntities() {
 
-		synchronized (SchemaService.class) {
+		if (isModifyingSchema()) {
 			return relationshipEntityClassCache;
 		}
+
+		return getTypeRegistry().getRelationshipEntities();
 	}
 
 	@Override
 	public Set<Class> getClassesForInterface(final String simpleName) {
 
-		synchronized (SchemaService.class) {
+		if (isModifyingSchema()) {
 			return interfaceCache.get(simpleName);
 		}
+
+		return getTypeRegistry().getClassesForInterface(simpleName);
+	}
+
+	@Override
+	public Set<String> getAllSubtypesAsStringSet(final String type) {
+
+		if (isModifyingSchema()) {
+			return TypeRegistry.collectSubtypes(type, nodeEntityClassCache.values(), relationshipEntityClassCache.values());
+		}
+
+		return getTypeRegistry().getAllSubtypesAsStringSet(type);
 	}
 
 	@Override
@@ -167,32 +190,34 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 
 		if ((simpleName != null) && (!simpleName.isEmpty())) {
 
-			synchronized (SchemaService.class) {
+			final boolean isModifying         = isModifyingSchema();
+			final TypeRegistry registry       = isModifying ? null : getTypeRegistry();
+			final Collection<String> packages = isModifying ? nodeEntityPackages : registry.getNodeEntityPackages();
 
-				nodeEntityClass = nodeEntityClassCache.get(simpleName);
+			nodeEntityClass = isModifying ? nodeEntityClassCache.get(simpleName) : registry.getNodeEntities().get(simpleName);
 
-				if (nodeEntityClass == null) {
+			if (nodeEntityClass == null) {
 
-					for (String possiblePath : nodeEntityPackages) {
+				for (String possiblePath : packages) {
 
-						if (possiblePath != null) {
+					if (possiblePath != null) {
 
-							try {
+						try {
 
-								Class nodeClass = Class.forName(possiblePath + "." + simpleName);
+							Class nodeClass = Class.forName(possiblePath + "." + simpleName);
 
-								if (!Modifier.isAbstract(nodeClass.getModifiers())) {
+							if (!Modifier.isAbstract(nodeClass.getModifiers())) {
 
-									nodeEntityClassCache.put(simpleName, nodeClass);
-									nodeEntityClass = nodeClass;
+								registerLazily(nodeEntityClassCache, simpleName, nodeClass);
 
-									// first match wins
-									break;
+								nodeEntityClass = nodeClass;
 
-								}
+								// first match wins
+								break;
 
-							} catch (ClassNotFoundException ex) {}
-						}
+							}
+
+						} catch (ClassNotFoundException ex) {}
 					}
 				}
 			}
@@ -209,33 +234,34 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 
 		if ((name != null) && (name.length() > 0)) {
 
-			synchronized (SchemaService.class) {
+			final boolean isModifying         = isModifyingSchema();
+			final TypeRegistry registry       = isModifying ? null : getTypeRegistry();
+			final Collection<String> packages = isModifying ? relationshipPackages : registry.getRelationshipPackages();
 
-				relationClass = relationshipEntityClassCache.get(name);
+			relationClass = isModifying ? relationshipEntityClassCache.get(name) : registry.getRelationshipEntities().get(name);
 
-				if (relationClass == null) {
+			if (relationClass == null) {
 
-					for (String possiblePath : relationshipPackages) {
+				for (String possiblePath : packages) {
 
-						if (possiblePath != null) {
+					if (possiblePath != null) {
 
-							try {
+						try {
 
-								Class nodeClass = Class.forName(possiblePath + "." + name);
+							Class nodeClass = Class.forName(possiblePath + "." + name);
 
-								if (!Modifier.isAbstract(nodeClass.getModifiers())) {
+							if (!Modifier.isAbstract(nodeClass.getModifiers())) {
 
-									relationshipEntityClassCache.put(name, nodeClass);
+								registerLazily(relationshipEntityClassCache, name, nodeClass);
 
-									// first match wins
-									return nodeClass;
+								// first match wins
+								return nodeClass;
 
-								}
+							}
 
-							} catch (ClassNotFoundException ex) {
+						} catch (ClassNotFoundException ex) {
 
-								// ignore
-							}
+							// ignore
 						}
 					}
 				}
@@ -288,7 +314,35 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 
 	@Override
 	public Map<String, Class> getInterfaces() {
-		return reverseInterfaceMap;
+
+		if (isModifyingSchema()) {
+			return reverseInterfaceMap;
+		}
+
+		return getTypeRegistry().getInterfaces();
+	}
+
+	/**
+	 * Builds a new immutable snapshot of the registered types under the
+	 * schema lock and publishes it for all readers with a single reference
+	 * swap.
+	 */
+	@Override
+	public void publishTypeRegistry() {
+
+		synchronized (SchemaService.class) {
+
+			typeRegistry.set(new TypeRegistry(
+				nodeEntityClassCache,
+				relationshipEntityClassCache,
+				interfaceCache,
+				reverseInterfaceMap,
+				globalPropertyViewMap,
+				dynamicViews,
+				nodeEntityPackages,
+				relationshipPackages
+			));
+		}
 	}
 
 	@Override
@@ -525,6 +579,14 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 	@Override
 	public void registerEntityType(final Class type) {
 
+		synchronized (SchemaService.class) {
+
+			registerEntityTypeInternal(type);
+		}
+	}
+
+	private void registerEntityTypeInternal(final Class type) {
+
 		// moved here from scanEntity, no reason to have this in a separate
 		// method requiring two different calls instead of one
 		final String simpleName = type.getSimpleName();
@@ -781,17 +843,11 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 	@Override
 	public Set<String> getPropertyViews() {
 
-		Set<String> views = new LinkedHashSet<>();
-
-		// add all existing views
-		for (Map<String, Set<PropertyKey>> view : globalPropertyViewMap.values()) {
-			views.addAll(view.keySet());
+		if (isModifyingSchema()) {
+			return Collections.unmodifiableSet(TypeRegistry.collectPropertyViews(globalPropertyViewMap, dynamicViews));
 		}
 
-		// merge dynamic views in as well
-		views.addAll(dynamicViews);
-
-		return Collections.unmodifiableSet(views);
+		return getTypeRegistry().getPropertyViews();
 	}
 
 	@Override
@@ -808,8 +864,12 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 
 	@Override
 	public void registerDynamicViews(final Set<String> dynamicViews) {
-		this.dynamicViews.clear();
-		this.dynamicViews.addAll(dynamicViews);
+
+		synchronized (SchemaService.class) {
+
+			this.dynamicViews.clear();
+			this.dynamicViews.addAll(dynamicViews);
+		}
 	}
 
 	@Override
@@ -845,6 +905,7 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 		Set<PropertyKey> properties = propertyViewMap.get(propertyView);
 
 		if (properties == null) {
+
 			properties = new LinkedHashSet<>();
 			propertyViewMap.put(propertyView, properties);
 		}
@@ -1379,6 +1440,49 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 		return fields;
 	}
 
+	private boolean isModifyingSchema() {
+
+		// the thread that modifies the schema must see its own changes
+		return Thread.holdsLock(SchemaService.class);
+	}
+
+	/**
+	 * Returns the current type registry without locking. While the schema
+	 * is reloaded, readers keep using the previous snapshot until the
+	 * reload publishes the new one.
+	 */
+	private TypeRegistry getTypeRegistry() {
+
+		final TypeRegistry registry = typeRegistry.get();
+		if (registry != null) {
+
+			return registry;
+		}
+
+		// only before initialization
+		publishTypeRegistry();
+
+		return typeRegistry.get();
+	}
+
+	/**
+	 * Caches a type that was found by name after the registry was built.
+	 * The cache is only modified under the schema lock, and a new
+	 * snapshot is published unless a schema reload is in progress, which
+	 * publishes its own snapshot when it is done.
+	 */
+	private void registerLazily(final Map cache, final String name, final Class type) {
+
+		synchronized (SchemaService.class) {
+
+			cache.put(name, type);
+
+			if (!SchemaService.isCompiling()) {
+				publishTypeRegistry();
+			}
+		}
+	}
+
 	private Set<Class<?>> getAllTypes(final Class<?> type) {
 
 		final List<Class<?>> types = new LinkedList<>();
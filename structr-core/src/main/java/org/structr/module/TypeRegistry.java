@@ -0,0 +1,242 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.module;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.structr.core.graph.NodeInterface;
+import org.structr.core.graph.RelationshipInterface;
+import org.structr.core.property.PropertyKey;
+
+/**
+ * An immutable snapshot of the registered entity types, interfaces,
+ * subtype sets and property view names. A new snapshot is built after the
+ * set of types has changed and replaces the previous one atomically, so
+ * lookups never need to lock.
+ */
+final class TypeRegistry {
+
+	private final Map<String, Class<? extends NodeInterface>> nodeEntities;
+	private final Map<String, Class<? extends RelationshipInterface>> relationshipEntities;
+	private final Map<String, Set<Class>> classesForInterface;
+	private final Map<String, Class> interfaces;
+	private final Map<String, Set<String>> subtypes;
+	private final Set<String> propertyViews;
+	private final List<String> nodeEntityPackages;
+	private final List<String> relationshipPackages;
+
+	TypeRegistry(
+		final Map<String, Class<? extends NodeInterface>> nodeEntities,
+		final Map<String, Class<? extends RelationshipInterface>> relationshipEntities,
+		final Map<String, Set<Class>> classesForInterface,
+		final Map<String, Class> interfaces,
+		final Map<String, Map<String, Set<PropertyKey>>> propertyViewMap,
+		final Set<String> dynamicViews,
+		final Collection<String> nodeEntityPackages,
+		final Collection<String> relationshipPackages
+	) {
+
+		final Map<String, Set<Class>> interfaceCopy = new LinkedHashMap<>();
+
+		for (final Map.Entry<String, Set<Class>> entry : classesForInterface.entrySet()) {
+			interfaceCopy.put(entry.getKey(), Collections.unmodifiableSet(new LinkedHashSet<>(entry.getValue())));
+		}
+
+		this.nodeEntities         = Collections.unmodifiableMap(new LinkedHashMap<>(nodeEntities));
+		this.relationshipEntities = Collections.unmodifiableMap(new LinkedHashMap<>(relationshipEntities));
+		this.interfaces           = Collections.unmodifiableMap(new LinkedHashMap<>(interfaces));
+		this.classesForInterface  = Collections.unmodifiableMap(interfaceCopy);
+		this.propertyViews        = Collections.unmodifiableSet(collectPropertyViews(propertyViewMap, dynamicViews));
+		this.subtypes             = Collections.unmodifiableMap(collectAllSubtypes(this.nodeEntities.values(), this.relationshipEntities.values()));
+		this.nodeEntityPackages   = Collections.unmodifiableList(new ArrayList<>(nodeEntityPackages));
+		this.relationshipPackages = Collections.unmodifiableList(new ArrayList<>(relationshipPackages));
+	}
+
+	public Map<String, Class<? extends NodeInterface>> getNodeEntities() {
+		return nodeEntities;
+	}
+
+	public Map<String, Class<? extends RelationshipInterface>> getRelationshipEntities() {
+		return relationshipEntities;
+	}
+
+	public Set<Class> getClassesForInterface(final String simpleName) {
+		return classesForInterface.get(simpleName);
+	}
+
+	public Map<String, Class> getInterfaces() {
+		return interfaces;
+	}
+
+	public Set<String> getPropertyViews() {
+		return propertyViews;
+	}
+
+	public List<String> getNodeEntityPackages() {
+		return nodeEntityPackages;
+	}
+
+	public List<String> getRelationshipPackages() {
+		return relationshipPackages;
+	}
+
+	public Set<String> getAllSubtypesAsStringSet(final String type) {
+
+		final Set<String> set = subtypes.get(type);
+		if (set != null) {
+
+			return set;
+		}
+
+		return Collections.singleton(type);
+	}
+
+	// ----- static methods -----
+	static Set<String> collectPropertyViews(final Map<String, Map<String, Set<PropertyKey>>> propertyViewMap, final Set<String> dynamicViews) {
+
+		final Set<String> views = new LinkedHashSet<>();
+
+		// add all existing views
+		for (final Map<String, Set<PropertyKey>> view : propertyViewMap.values()) {
+			views.addAll(view.keySet());
+		}
+
+		// merge dynamic views in as well
+		views.addAll(dynamicViews);
+
+		return views;
+	}
+
+	/**
+	 * Collects the simple names of the given type and all entity types
+	 * that have a Structr class or interface with the given simple name
+	 * among their ancestors. Simple names are compared because two class
+	 * objects of the same dynamic type are not assignable to each other
+	 * if the schema node was modified in the meantime.
+	 */
+	static Set<String> collectSubtypes(final String type, final Collection<? extends Class> nodeEntities, final Collection<? extends Class> relationshipEntities) {
+
+		final Set<String> allSubtypes = new LinkedHashSet<>();
+
+		allSubtypes.add(type);
+
+		for (final Class entityType : nodeEntities) {
+
+			if (hasAncestor(entityType, type)) {
+				allSubtypes.add(entityType.getSimpleName());
+			}
+		}
+
+		for (final Class entityType : relationshipEntities) {
+
+			if (hasAncestor(entityType, type)) {
+				allSubtypes.add(entityType.getSimpleName());
+			}
+		}
+
+		return Collections.unmodifiableSet(allSubtypes);
+	}
+
+	// ----- private static methods -----
+	private static Map<String, Set<String>> collectAllSubtypes(final Collection<? extends Class> nodeEntities, final Collection<? extends Class> relationshipEntities) {
+
+		final Map<String, Set<String>> map = new LinkedHashMap<>();
+
+		for (final Class entityType : nodeEntities) {
+			addToAncestors(map, entityType);
+		}
+
+		for (final Class entityType : relationshipEntities) {
+			addToAncestors(map, entityType);
+		}
+
+		for (final Map.Entry<String, Set<String>> entry : map.entrySet()) {
+			entry.setValue(Collections.unmodifiableSet(entry.getValue()));
+		}
+
+		return map;
+	}
+
+	private static void addToAncestors(final Map<String, Set<String>> map, final Class entityType) {
+
+		for (final Class ancestor : getAncestors(entityType)) {
+
+			if (isStructrType(ancestor)) {
+
+				final String ancestorName = ancestor.getSimpleName();
+				Set<String> set           = map.get(ancestorName);
+
+				if (set == null) {
+
+					set = new LinkedHashSet<>();
+					map.put(ancestorName, set);
+
+					// the type itself always comes first
+					set.add(ancestorName);
+				}
+
+				set.add(entityType.getSimpleName());
+			}
+		}
+	}
+
+	private static boolean hasAncestor(final Class entityType, final String simpleName) {
+
+		for (final Class ancestor : getAncestors(entityType)) {
+
+			if (isStructrType(ancestor) && ancestor.getSimpleName().equals(simpleName)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static Set<Class> getAncestors(final Class type) {
+
+		final Set<Class> ancestors = new LinkedHashSet<>();
+		Class localType            = type;
+
+		while (localType != null && !localType.equals(Object.class)) {
+
+			ancestors.add(localType);
+
+			for (final Class iface : localType.getInterfaces()) {
+				ancestors.add(iface);
+			}
+
+			localType = localType.getSuperclass();
+		}
+
+		return ancestors;
+	}
+
+	private static boolean isStructrType(final Class type) {
+
+		final String name = type.getName();
+
+		return name.startsWith("org.structr.") || name.startsWith("com.structr.");
+	}
+}
@@ -53,6 +53,8 @@ public interface ConfigurationProvider {
 	public Map<String, Class> getInterfaces();
 
 	public Set<Class> getClassesForInterface(final String simpleName);
+	public Set<String> getAllSubtypesAsStringSet(final String type);
+	public void publishTypeRegistry();
 
 
 	public void registerPropertyGroup(final Class entityClass, final PropertyKey propertyKey, final PropertyGroup propertyGroup);
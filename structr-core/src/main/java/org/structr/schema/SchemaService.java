@@ -42,6 +42,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -95,7 +96,8 @@ public class SchemaService implements Service {
 	private static final AtomicBoolean compiling                  = new AtomicBoolean(false);
 	private static final AtomicBoolean updating                   = new AtomicBoolean(false);
 	private static final Set<String> blacklist                    = new LinkedHashSet<>();
-	private static GraphQLSchema graphQLSchema                    = null;
+	private static final Set<Runnable> reloadListeners            = new CopyOnWriteArraySet<>();
+	private static volatile GraphQLSchema graphQLSchema           = null;
 
 	static {
 
@@ -120,10 +122,33 @@ public class SchemaService implements Service {
 		return dynamicSchema;
 	}
 
-	public static synchronized GraphQLSchema getGraphQLSchema() {
+	public static GraphQLSchema getGraphQLSchema() {
 		return graphQLSchema;
 	}
 
+	/**
+	 * Returns whether a schema reload is in progress.
+	 *
+	 * @return whether the schema is being compiled
+	 */
+	public static boolean isCompiling() {
+		return compiling.get();
+	}
+
+	/**
+	 * Registers a listener that is run after each successful schema
+	 * reload, e.g. to clear caches that refer to the previous classes.
+	 *
+	 * @param listener
+	 */
+	public static void registerReloadListener(final Runnable listener) {
+		reloadListeners.add(listener);
+	}
+
+	public static void removeReloadListener(final Runnable listener) {
+		reloadListeners.remove(listener);
+	}
+
 	public static boolean reloadSchema(final ErrorBuffer errorBuffer, final String initiatedBySessionId) {
 
 		final ConfigurationProvider config = StructrApp.getConfiguration();
@@ -286,8 +311,6 @@ public class SchemaService implements Service {
 
 						if (success) {
 
-							// prevent inheritance map from leaking
-							SearchCommand.clearInheritanceMap();
 							AccessPathCache.invalidate();
 
 							// clear relationship instance cache
@@ -296,9 +319,19 @@ public class SchemaService implements Service {
 							// clear permission cache
 							AbstractNode.clearCaches();
 
+							// clear query results of types that were changed
+							SearchCommand.clearQueryCache();
+
 							// inject views in configuration provider
 							config.registerDynamicViews(dynamicViews);
 
+							// publish new type registry snapshot for lock-free lookups
+							config.publishTypeRegistry();
+
+							for (final Runnable listener : reloadListeners) {
+								listener.run();
+							}
+
 							if (Services.calculateHierarchy() || !Services.isTesting()) {
 
 								calculateHierarchy(schemaNodes);
@@ -344,19 +377,16 @@ public class SchemaService implements Service {
 								}
 							}
 
-							// exchange graphQL schema after successful build
-							synchronized (SchemaService.class) {
+							// exchange graphQL schema after successful build, readers never wait for it
+							try {
 
-								try {
+								graphQLSchema = GraphQLSchema
+									.newSchema()
+									.query(queryTypeBuilder.name("Query").build())
+									.build(new LinkedHashSet<>(graphQLTypes.values()));
 
-									graphQLSchema = GraphQLSchema
-										.newSchema()
-										.query(queryTypeBuilder.name("Query").build())
-										.build(new LinkedHashSet<>(graphQLTypes.values()));
-
-								} catch (Throwable t) {
-									logger.warn("Unable to build GraphQL schema: {}", t.getMessage());
-								}
+							} catch (Throwable t) {
+								logger.warn("Unable to build GraphQL schema: {}", t.getMessage());
 							}
 						}
 				}
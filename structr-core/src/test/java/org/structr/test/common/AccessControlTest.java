@@ -20,6 +20,7 @@ package org.structr.test.common;
 
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.Map;
 import org.testng.annotations.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -1599,6 +1600,133 @@ public class AccessControlTest extends StructrTest {
 	}
 
 
+	@Test
+	public void testPermissionCacheInvalidation() {
+
+		// remove auto-generated resource access objects
+		clearResourceAccess();
+
+		try {
+
+			final List<Principal> users = createTestNodes(Principal.class, 2);
+			final Principal user1       = users.get(0);
+			final Principal user2       = users.get(1);
+			final TestOne t1            = createTestNode(TestOne.class, user1);
+			final SecurityContext ctx   = SecurityContext.getInstance(user2, AccessMode.Backend);
+			Group group                 = null;
+
+			try (final Tx tx = app.tx()) {
+
+				t1.grant(Permission.read, user2);
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				assertTrue(t1.isGranted(Permission.read, ctx));
+				assertTrue(t1.isGranted(Permission.read, ctx));
+				assertFalse(t1.isGranted(Permission.write, ctx));
+			}
+
+			assertTrue("Permission cache should have been used", getPermissionCacheStatistic("isGranted", "hits") > 0);
+
+			final long invalidations = getPermissionCacheStatistic("isGranted", "invalidations");
+
+			try (final Tx tx = app.tx()) {
+
+				// modifications that do not affect permissions must not invalidate the cache
+				t1.setProperty(TestOne.aString, "modified");
+				tx.success();
+			}
+
+			assertEquals("Permission cache should not have been invalidated", invalidations, getPermissionCacheStatistic("isGranted", "invalidations"));
+
+			try (final Tx tx = app.tx()) {
+
+				t1.revoke(Permission.read, user2);
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				assertFalse(t1.isGranted(Permission.read, ctx));
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				group = app.create(Group.class, "group");
+
+				t1.grant(Permission.read, group);
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				assertFalse(t1.isGranted(Permission.read, ctx));
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				group.addMember(user2);
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				assertTrue(t1.isGranted(Permission.read, ctx));
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				group.removeMember(user2);
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				assertFalse(t1.isGranted(Permission.read, ctx));
+			}
+
+			final long invalidationsBeforePrincipal = getPermissionCacheStatistic("isGranted", "invalidations");
+
+			try (final Tx tx = app.tx()) {
+
+				// properties that permission resolution does not read
+				user2.setProperty(StructrApp.key(Principal.class, "eMail"), "user2@example.com");
+				tx.success();
+			}
+
+			assertEquals("Modifying an unrelated principal property should not invalidate the permission cache", invalidationsBeforePrincipal, getPermissionCacheStatistic("isGranted", "invalidations"));
+
+			try (final Tx tx = app.tx()) {
+
+				user2.setProperty(StructrApp.key(Principal.class, "customPermissionQueryRead"), "MATCH (n) RETURN n");
+				tx.success();
+			}
+
+			assertTrue("Modifying a custom permission query should invalidate the permission cache", getPermissionCacheStatistic("isGranted", "invalidations") > invalidationsBeforePrincipal);
+
+			final TestOne t2 = createTestNode(TestOne.class);
+
+			final long invalidationsBeforeDeletion = getPermissionCacheStatistic("isGranted", "invalidations");
+
+			try (final Tx tx = app.tx()) {
+
+				// cached results are keyed by node UUID, so deleting a node without relationships does not invalidate
+				app.delete(t2);
+				tx.success();
+			}
+
+			assertEquals("Deleting a node should not invalidate the permission cache", invalidationsBeforeDeletion, getPermissionCacheStatistic("isGranted", "invalidations"));
+
+		} catch (FrameworkException ex) {
+
+			logger.warn("", ex);
+			fail("Unexpected exception");
+		}
+	}
+
+
 	// ----- private methods -----
 	public static void clearResourceAccess() {
 
@@ -1617,4 +1745,11 @@ public class AccessControlTest extends StructrTest {
 			logger.warn("Unable to clear resource access grants", t);
 		}
 	}
+
+	private long getPermissionCacheStatistic(final String cache, final String key) {
+
+		final Map<String, Object> statistics = (Map<String, Object>)AbstractNode.getPermissionCacheStatistics().get(cache);
+
+		return ((Number)statistics.get(key)).longValue();
+	}
 }
@@ -18,6 +18,7 @@
  */
 package org.structr.test.common;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -26,6 +27,7 @@ import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.DatabaseService;
 import org.structr.api.NotFoundException;
 import org.structr.api.NotInTransactionException;
 import org.structr.api.util.Iterables;
@@ -49,6 +51,7 @@ import org.structr.core.entity.SchemaRelationshipNode;
 import org.structr.core.entity.Security;
 import org.structr.core.entity.relationship.NodeHasLocation;
 import org.structr.core.entity.relationship.PrincipalOwnsNode;
+import org.structr.core.graph.GraphDatabaseCommand;
 import org.structr.core.graph.NodeAttribute;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.NodeServiceCommand;
@@ -60,6 +63,7 @@ import org.structr.core.property.StringProperty;
 import org.structr.test.core.entity.OneThreeOneToOne;
 import org.structr.test.core.entity.OneTwoOneToOne;
 import org.structr.test.core.entity.SixOneManyToMany;
+import org.structr.test.core.entity.SixOneOneToMany;
 import org.structr.test.core.entity.SixOneOneToOne;
 import org.structr.test.core.entity.SixThreeOneToMany;
 import org.structr.test.core.entity.TestOne;
@@ -1156,6 +1160,133 @@ public class BasicTest extends StructrTest {
 		}
 	}
 
+	@Test
+	public void test04BulkCreateNodesAndRelationships() {
+
+		final List<PropertyMap> nodeProperties = new LinkedList<>();
+		final int count                        = 100;
+
+		for (int i=0; i<count; i++) {
+			final PropertyMap properties = new PropertyMap();
+
+			properties.put(AbstractNode.name, "node" + i);
+			nodeProperties.add(properties);
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			final List<GenericNode> startNodes = app.create(GenericNode.class, nodeProperties);
+			final List<GenericNode> endNodes   = app.create(GenericNode.class, nodeProperties);
+
+			assertEquals("Invalid bulk creation result", count, startNodes.size());
+			assertEquals("Invalid bulk creation result", count, endNodes.size());
+
+			final List<NodeHasLocation> rels = app.create(startNodes, endNodes, NodeHasLocation.class);
+
+			assertEquals("Invalid bulk creation result", count, rels.size());
+
+			tx.success();
+
+		} catch (FrameworkException ex) {
+
+			logger.error(ex.toString());
+			fail("Unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			final List<GenericNode> nodes = app.nodeQuery(GenericNode.class).sort(AbstractNode.name).getAsList();
+
+			assertEquals("Invalid bulk creation result", count * 2, nodes.size());
+			assertEquals("Invalid bulk creation result", count, app.relationshipQuery(NodeHasLocation.class).getAsList().size());
+
+			for (final GenericNode node : nodes) {
+
+				assertNotNull("Bulk created node has no UUID", node.getUuid());
+				assertTrue("Bulk created node has wrong name", node.getName().startsWith("node"));
+			}
+
+			for (final NodeHasLocation rel : app.relationshipQuery(NodeHasLocation.class).getAsList()) {
+
+				assertEquals("Bulk created relationship has wrong end node", rel.getSourceNode().getName(), rel.getTargetNode().getName());
+			}
+
+			tx.success();
+
+		} catch (FrameworkException ex) {
+
+			logger.error(ex.toString());
+			fail("Unexpected exception");
+		}
+	}
+
+
+	@Test
+	public void test04BulkCreateRelationshipsValidatesBatch() {
+
+		TestSix six   = null;
+		TestOne one   = null;
+		TestOne other = null;
+
+		try (final Tx tx = app.tx()) {
+
+			six   = app.create(TestSix.class, "six");
+			one   = app.create(TestOne.class, "one");
+			other = app.create(TestOne.class, "other");
+
+			tx.success();
+
+		} catch (FrameworkException ex) {
+
+			logger.error(ex.toString());
+			fail("Unexpected exception");
+		}
+
+		// a TestOne can only have one incoming SixOneOneToMany relationship, also within a batch
+		try (final Tx tx = app.tx()) {
+
+			app.create(Arrays.asList(six, six), Arrays.asList(one, one), SixOneOneToMany.class);
+
+			tx.success();
+
+			fail("Duplicate relationship on the single end of a batch was accepted");
+
+		} catch (FrameworkException ex) {
+
+			assertEquals("Invalid status code", 422, ex.getStatus());
+		}
+
+		// a row whose end node does not exist must not be ignored
+		try (final Tx tx = app.tx()) {
+
+			final DatabaseService graphDb = app.command(GraphDatabaseCommand.class).execute();
+
+			graphDb.execute("MATCH (n) WHERE ID(n) = {id} DETACH DELETE n", Collections.singletonMap("id", other.getId()));
+
+			app.create(Arrays.asList(six, six), Arrays.asList(one, other), SixOneManyToMany.class);
+
+			tx.success();
+
+			fail("Relationship with a missing end node was silently ignored");
+
+		} catch (FrameworkException ex) {
+
+			assertEquals("Invalid status code", 404, ex.getStatus());
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertEquals("Relationships of failed batches were created", 0, app.relationshipQuery(SixOneOneToMany.class).getAsList().size());
+			assertEquals("Relationships of failed batches were created", 0, app.relationshipQuery(SixOneManyToMany.class).getAsList().size());
+
+			tx.success();
+
+		} catch (FrameworkException ex) {
+
+			logger.error(ex.toString());
+			fail("Unexpected exception");
+		}
+	}
 	@Test
 	public void test06DuplicateRelationshipsOneToOne() {
 
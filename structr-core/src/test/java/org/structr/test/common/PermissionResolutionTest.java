@@ -24,6 +24,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.common.AccessMode;
 import org.structr.common.Permission;
+import org.structr.common.PermissionResolutionCache;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.app.App;
@@ -495,4 +496,49 @@ public class PermissionResolutionTest extends StructrTest {
 			fail("Unexpected exception.");
 		}
 	}
+
+	@Test
+	public void testPermissionResolutionCacheDiscardsStaleResults() {
+
+		final PermissionResolutionCache cache = new PermissionResolutionCache(100);
+
+		// resolution starts, then the cache is invalidated before the result is stored
+		final long staleGeneration = cache.getGeneration();
+
+		cache.invalidate();
+		cache.put("1", 2L, Permission.read, true, staleGeneration);
+
+		assertNull("Result resolved before an invalidation must not be cached", cache.get("1", 2L, Permission.read));
+
+		// results of the current generation are stored
+		cache.put("1", 2L, Permission.read, false, cache.getGeneration());
+
+		assertEquals("Result of the current generation should be cached", Boolean.FALSE, cache.get("1", 2L, Permission.read));
+
+		// a stale grant must not replace the current result
+		cache.put("1", 2L, Permission.read, true, staleGeneration);
+
+		assertEquals("Stale result must not replace the current one", Boolean.FALSE, cache.get("1", 2L, Permission.read));
+
+		// results stored before an invalidation are misses afterwards
+		cache.put("3", 2L, Permission.write, true, cache.getGeneration());
+		cache.invalidate();
+
+		assertNull("Result of an older generation must be a miss", cache.get("3", 2L, Permission.write));
+	}
+
+	@Test
+	public void testPermissionResolutionCacheKeysCustomPermissionsByName() {
+
+		final PermissionResolutionCache cache = new PermissionResolutionCache(100);
+		final Permission custom               = () -> "custom";
+
+		cache.put("1", 2L, Permission.read, false, cache.getGeneration());
+		cache.put("1", 2L, custom, true, cache.getGeneration());
+
+		assertEquals("Custom permission must not share an entry with a built-in one", Boolean.FALSE, cache.get("1", 2L, Permission.read));
+		assertEquals("Custom permission should be cached", Boolean.TRUE, cache.get("1", 2L, custom));
+		assertEquals("Permissions with the same name should share an entry", Boolean.TRUE, cache.get("1", 2L, () -> "custom"));
+		assertNull("Permissions with different names must not share an entry", cache.get("1", 2L, () -> "other"));
+	}
 }
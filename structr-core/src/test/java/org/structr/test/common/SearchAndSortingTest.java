@@ -37,10 +37,12 @@ import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.Group;
 import org.structr.core.entity.Principal;
 import org.structr.test.core.entity.SixOneManyToMany;
+import org.structr.test.core.entity.TestEleven;
 import org.structr.test.core.entity.TestOne;
 import org.structr.test.core.entity.TestSeven;
 import org.structr.test.core.entity.TestSix;
 import org.structr.core.entity.relationship.NodeHasLocation;
+import org.structr.core.graph.CacheStatisticsCommand;
 import org.structr.core.graph.NodeAttribute;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.RelationshipInterface;
@@ -48,6 +50,7 @@ import org.structr.core.graph.Tx;
 import org.structr.core.graph.search.ComparisonSearchAttribute;
 import org.structr.core.graph.search.SearchAttribute;
 import org.structr.core.graph.search.SearchAttributeGroup;
+import org.structr.core.graph.search.SearchCommand;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
 import org.structr.core.property.StringProperty;
@@ -1829,6 +1832,275 @@ public class SearchAndSortingTest extends StructrTest {
 		}
 	}
 
+	@Test
+	public void test09CursorPaging() {
+
+		try (final Tx tx = app.tx()) {
+
+			// use duplicate names and dates to test the tie breaker
+			for (int i=0; i<25; i++) {
+
+				app.create(TestOne.class,
+					new NodeAttribute<>(AbstractNode.name, "node" + (i % 5)),
+					new NodeAttribute<>(TestOne.aDate,     new Date((i % 5) * 1000L))
+				);
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+
+		for (final PropertyKey sortKey : new PropertyKey[] { null, AbstractNode.name, TestOne.aDate }) {
+
+			try (final Tx tx = app.tx()) {
+
+				final Set<String> uuids = new LinkedHashSet<>();
+				String lastName         = null;
+				String cursor           = "";
+				int pages               = 0;
+
+				while (cursor != null) {
+
+					final ResultStream<TestOne> result = app.nodeQuery(TestOne.class).sort(sortKey).pageSize(10).cursor(cursor).getResultStream();
+
+					for (final TestOne test : result) {
+
+						assertTrue("Cursor paging returned duplicate result", uuids.add(test.getUuid()));
+
+						if (AbstractNode.name.equals(sortKey)) {
+
+							assertTrue("Cursor paging returned unsorted result", lastName == null || lastName.compareTo(test.getName()) <= 0);
+							lastName = test.getName();
+						}
+					}
+
+					cursor = result.getNextCursor();
+					pages++;
+				}
+
+				assertEquals("Invalid number of results with cursor paging", 25, uuids.size());
+				assertEquals("Invalid number of pages with cursor paging", 3, pages);
+
+				tx.success();
+
+			} catch (FrameworkException fex) {
+				fail("Unexpected exception.");
+			}
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			app.nodeQuery(TestOne.class).sort(TestOne.aStringArray).pageSize(10).cursor("").getResultStream();
+
+			fail("Cursor paging with a collection sort key should fail.");
+
+		} catch (FrameworkException fex) {
+			assertEquals("Invalid status code", 422, fex.getStatus());
+		}
+	}
+
+	@Test
+	public void test10ResultCountInDatabase() {
+
+		try {
+
+			createTestNodes(TestOne.class, 25);
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			final ResultStream<TestOne> result = app.nodeQuery(TestOne.class).pageSize(10).page(1).getResultStream();
+
+			// counting must not consume the result
+			assertEquals("Invalid result count", 25, result.calculateTotalResultCount());
+			assertEquals("Invalid page count", 3, result.calculatePageCount());
+			assertEquals("Invalid page size", 10, Iterables.count(result));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+
+		final SecurityContext estimatingContext = SecurityContext.getSuperUserInstance();
+		final App estimatingApp                 = StructrApp.getInstance(estimatingContext);
+
+		estimatingContext.estimateResultCount(true);
+
+		try (final Tx tx = estimatingApp.tx()) {
+
+			final ResultStream<TestOne> result = estimatingApp.nodeQuery(TestOne.class).andName("does not exist").pageSize(10).page(1).getResultStream();
+
+			// estimates are based on the type only
+			assertTrue("Invalid estimated result count", result.calculateTotalResultCount() >= 25);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+	}
+
+	@Test
+	public void testCachedQueryResults() {
+
+		SearchCommand.clearQueryCache();
+		SearchCommand.resetQueryCacheStatistics();
+
+		try {
+
+			createTestNodes(TestOne.class, 10);
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertEquals("Invalid cached result", 10, app.nodeQuery(TestOne.class).cached().getAsList().size());
+			assertEquals("Invalid cached result", 10, app.nodeQuery(TestOne.class).cached().getAsList().size());
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+
+		// statistics are available through the cacheStatistics maintenance command
+		try {
+
+			final CacheStatisticsCommand cmd = app.command(CacheStatisticsCommand.class);
+
+			cmd.execute(Collections.emptyMap());
+
+			final Map<String, Object> statistics = (Map<String, Object>)((Map<String, Object>)cmd.getCommandResult()).get("queryResults");
+
+			assertEquals("Cached query result was not used", 1L, statistics.get("hits"));
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+
+		// creating a node of a subtype must invalidate the result for the supertype
+		try {
+
+			createTestNode(TestEleven.class, "subtype");
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertEquals("Cached query result was not invalidated", 11, app.nodeQuery(TestOne.class).cached().getAsList().size());
+
+			// paging and result count of a cached page
+			app.nodeQuery(TestOne.class).sort(AbstractNode.name).pageSize(4).page(3).cached().getAsList();
+
+			final ResultStream<TestOne> result = app.nodeQuery(TestOne.class).sort(AbstractNode.name).pageSize(4).page(3).cached().getResultStream();
+
+			assertEquals("Invalid result count", 11, result.calculateTotalResultCount());
+			assertEquals("Invalid page count", 3, result.calculatePageCount());
+			assertEquals("Invalid page", 3, result.getPage());
+			assertEquals("Invalid page size", 3, Iterables.count(result));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+
+		// modifications must invalidate the result, and uncommitted modifications must be visible
+		try (final Tx tx = app.tx()) {
+
+			assertEquals("Invalid cached result", 0, app.nodeQuery(TestOne.class).andName("modified").cached().getAsList().size());
+
+			app.nodeQuery(TestOne.class).getFirst().setProperty(AbstractNode.name, "modified");
+
+			assertEquals("Uncommitted modification is not visible", 1, app.nodeQuery(TestOne.class).andName("modified").cached().getAsList().size());
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertEquals("Cached query result was not invalidated", 1, app.nodeQuery(TestOne.class).andName("modified").cached().getAsList().size());
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+	}
+
+	@Test
+	public void testInMemorySortingAndPaging() {
+
+		try (final Tx tx = app.tx()) {
+
+			// create nodes in reverse order so the database order differs from the sort order
+			for (int i=29; i>=0; i--) {
+
+				final TestOne node = createTestNode(TestOne.class, "item" + StringUtils.leftPad(Integer.toString(i), 2, "0"));
+
+				node.setProperty(TestOne.anInt, i);
+
+				if (i % 2 == 0) {
+					node.setProperty(TestOne.aDate, new Date());
+				}
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			// custom comparator
+			final ResultStream<TestOne> result1 = app.nodeQuery(TestOne.class).comparator((a, b) -> b.getName().compareTo(a.getName())).pageSize(7).page(2).getResultStream();
+			final List<String> names1           = new LinkedList<>();
+
+			for (final TestOne node : result1) {
+				names1.add(node.getName());
+			}
+
+			assertEquals("Invalid sorted page", Arrays.asList("item22", "item21", "item20", "item19", "item18", "item17", "item16"), names1);
+			assertEquals("Invalid result count", 30, result1.calculateTotalResultCount());
+
+			// empty date values are filtered in memory
+			final ResultStream<TestOne> result2 = app.nodeQuery(TestOne.class).blank(TestOne.aDate).sort(AbstractNode.name).pageSize(4).page(2).getResultStream();
+			final List<String> names2           = new LinkedList<>();
+
+			for (final TestOne node : result2) {
+				names2.add(node.getName());
+			}
+
+			assertEquals("Invalid filtered page", Arrays.asList("item09", "item11", "item13", "item15"), names2);
+			assertEquals("Invalid result count", 15, result2.calculateTotalResultCount());
+
+			// the last page is incomplete
+			assertEquals("Invalid last page", 3, Iterables.count(app.nodeQuery(TestOne.class).blank(TestOne.aDate).sortDescending(AbstractNode.name).pageSize(4).page(4).getResultStream()));
+
+			// empty string values are resolved by the database
+			assertEquals("Invalid result count", 30, app.nodeQuery(TestOne.class).blank(TestOne.aString).pageSize(10).getResultStream().calculateTotalResultCount());
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+	}
+
 	@Test
 	public void testManyToManyReverseNodeSearch() {
 
@@ -21,11 +21,17 @@ package org.structr.test.common;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.lang3.StringUtils;
+import org.structr.api.RetryException;
+import org.structr.api.config.Settings;
 import org.testng.annotations.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,6 +55,7 @@ import org.structr.test.core.entity.TestSix;
 import org.structr.core.graph.NodeAttribute;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.Tx;
+import org.structr.core.graph.UniqueValueLocks;
 import org.structr.core.property.IntProperty;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.StringProperty;
@@ -481,6 +488,201 @@ public class SystemTest extends StructrTest {
 		service.shutdownNow();
 	}
 
+	@Test
+	public void testConcurrentCommitThroughput() {
+
+		/**
+		 * This test measures the commit throughput of 8 threads that
+		 * concurrently update nodes of the same type with a unique
+		 * property, once for each commit locking mode.
+		 */
+
+		try (final Tx tx = app.tx()) {
+
+			app.create(SchemaNode.class,
+				new NodeAttribute(SchemaNode.name, "Member"),
+				new NodeAttribute(SchemaNode.schemaProperties,
+					Arrays.asList(app.create(
+						SchemaProperty.class,
+						new NodeAttribute(SchemaProperty.name, "name"),
+						new NodeAttribute(SchemaProperty.propertyType, "String"),
+						new NodeAttribute(SchemaProperty.unique, true),
+						new NodeAttribute(SchemaProperty.indexed, true)
+					)
+				))
+			);
+
+			tx.success();
+
+		} catch (FrameworkException ex) {
+			fail("Error creating schema node");
+		}
+
+		final Class memberType = StructrApp.getConfiguration().getNodeEntityClass("Member");
+		final int threads      = 8;
+		final int commits      = 100;
+
+		assertNotNull("Error creating schema node", memberType);
+
+		try {
+
+			for (final String mode : new String[] { "property", "value" }) {
+
+				Settings.CommitLocking.setValue(mode);
+
+				final ExecutorService service = Executors.newFixedThreadPool(threads);
+				final List<Future> futures    = new LinkedList<>();
+				final long t0                 = System.currentTimeMillis();
+
+				for (int t=0; t<threads; t++) {
+
+					final String prefix = mode + t + "-";
+
+					futures.add(service.submit(() -> {
+
+						NodeInterface member = null;
+
+						for (int i=0; i<commits; i++) {
+
+							try (final Tx tx = app.tx()) {
+
+								if (member == null) {
+
+									member = app.create(memberType, prefix + i);
+
+								} else {
+
+									member.setProperty(AbstractNode.name, prefix + i);
+								}
+
+								tx.success();
+							}
+						}
+
+						return null;
+					}));
+				}
+
+				for (final Future future : futures) {
+					future.get();
+				}
+
+				final long t1 = System.currentTimeMillis();
+
+				System.out.println("Commit locking mode " + mode + ": " + (threads * commits * 1000L / Math.max(1, t1 - t0)) + " commits/s");
+
+				service.shutdownNow();
+			}
+
+			// value locking must still detect concurrently created duplicates
+			final ExecutorService service = Executors.newFixedThreadPool(threads);
+			final List<Future> futures    = new LinkedList<>();
+
+			for (int t=0; t<threads; t++) {
+
+				futures.add(service.submit(() -> {
+
+					for (int i=0; i<commits; i++) {
+
+						try (final Tx tx = app.tx()) {
+
+							app.create(memberType, "duplicate" + i);
+							tx.success();
+
+						} catch (FrameworkException expected) {
+						}
+					}
+
+					return null;
+				}));
+			}
+
+			for (final Future future : futures) {
+				future.get();
+			}
+
+			service.shutdownNow();
+
+			try (final Tx tx = app.tx()) {
+
+				for (int i=0; i<commits; i++) {
+
+					assertEquals("Invalid concurrent constraint test result", 1, app.nodeQuery(memberType).andName("duplicate" + i).getAsList().size());
+				}
+
+				tx.success();
+			}
+
+		} catch (Throwable t) {
+
+			logger.warn("", t);
+			fail("Unexpected exception");
+
+		} finally {
+
+			Settings.CommitLocking.setValue("property");
+		}
+	}
+
+	@Test
+	public void testUniqueValueLocksDoNotDeadlock() {
+
+		final UniqueValueLocks locks  = new UniqueValueLocks();
+		final CyclicBarrier barrier   = new CyclicBarrier(2);
+		final AtomicInteger retries   = new AtomicInteger();
+		final ExecutorService service = Executors.newFixedThreadPool(2);
+		final List<Future> futures    = new LinkedList<>();
+		final long t0                 = System.currentTimeMillis();
+
+		try {
+
+			// two transactions validate the same values in opposite order
+			for (final String[] order : new String[][] { { "a", "b" }, { "b", "a" } }) {
+
+				futures.add(service.submit(() -> {
+
+					final SortedSet<Integer> held = new TreeSet<>();
+
+					try {
+
+						locks.lock(held, "Member.name", order[0], 30);
+
+						// both transactions hold their first value before they request the second one
+						barrier.await();
+
+						locks.lock(held, "Member.name", order[1], 30);
+
+					} catch (RetryException rex) {
+
+						retries.incrementAndGet();
+
+					} finally {
+
+						locks.unlock(held);
+					}
+
+					return null;
+				}));
+			}
+
+			for (final Future future : futures) {
+				future.get();
+			}
+
+		} catch (Throwable t) {
+
+			logger.warn("", t);
+			fail("Unexpected exception");
+
+		} finally {
+
+			service.shutdownNow();
+		}
+
+		assertEquals("Exactly one of the transactions should be retried", 1, retries.get());
+		assertTrue("Locking in opposite order must not wait for the timeout", System.currentTimeMillis() - t0 < 10000);
+	}
+
 	@Test
 	public void testTransactionIsolation() {
 
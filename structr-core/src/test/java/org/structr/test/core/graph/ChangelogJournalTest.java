@@ -0,0 +1,374 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.test.core.graph;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.core.graph.ChangelogJournal;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.fail;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ *
+ */
+public class ChangelogJournalTest {
+
+	private static final Logger logger = LoggerFactory.getLogger(ChangelogJournalTest.class);
+
+	private File directory = null;
+
+	@BeforeMethod
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("structr-changelog").toFile();
+	}
+
+	@AfterMethod
+	public void deleteDirectory() throws IOException {
+		FileUtils.deleteDirectory(directory);
+	}
+
+	@Test
+	public void testAppendAndRead() {
+
+		try (final ChangelogJournal journal = new ChangelogJournal(directory, 1024, false)) {
+
+			for (int i=0; i<100; i++) {
+
+				journal.append("n", "uuid" + (i % 10), "entry" + i + "\n");
+			}
+
+			// data must be visible immediately after appending
+			assertEquals("Invalid changelog", "entry3\nentry13\nentry23\nentry33\nentry43\nentry53\nentry63\nentry73\nentry83\nentry93\n", journal.read("n", "uuid3"));
+			assertEquals("Invalid changelog", "", journal.read("r", "uuid3"));
+			assertEquals("Invalid changelog", "", journal.read("n", "unknown"));
+
+		} catch (IOException ioex) {
+
+			logger.warn("", ioex);
+			fail("Unexpected exception.");
+		}
+
+		assertTrue("Segment was not rolled over", countSegments(directory) > 1);
+	}
+
+	@Test
+	public void testReopen() {
+
+		final List<String> expected = new LinkedList<>();
+
+		try (final ChangelogJournal journal = new ChangelogJournal(directory, 512, false)) {
+
+			for (int i=0; i<50; i++) {
+
+				final String entry = "{\"verb\":\"change\",\"time\":" + i + ",\"val\":\"\u00e4\u00f6\u00fc\"}\n";
+
+				journal.append("u", "user" + (i % 2), entry);
+
+				if (i % 2 == 0) {
+					expected.add(entry);
+				}
+			}
+
+		} catch (IOException ioex) {
+
+			logger.warn("", ioex);
+			fail("Unexpected exception.");
+		}
+
+		try {
+
+			// simulate a crash while writing the last entry
+			final File[] segments = directory.listFiles((dir, name) -> name.endsWith(".journal"));
+
+			Arrays.sort(segments);
+
+			try (final FileOutputStream fos = new FileOutputStream(segments[segments.length - 1], true)) {
+				fos.write(new byte[] { 0, 'u', 5, 'u', 's' });
+			}
+
+		} catch (IOException ioex) {
+
+			logger.warn("", ioex);
+			fail("Unexpected exception.");
+		}
+
+		try (final ChangelogJournal journal = new ChangelogJournal(directory, 512, false)) {
+
+			assertEquals("Invalid changelog after reopening", String.join("", expected), journal.read("u", "user0"));
+
+			journal.append("u", "user0", "last\n");
+
+			assertEquals("Invalid changelog after reopening", String.join("", expected) + "last\n", journal.read("u", "user0"));
+
+		} catch (IOException ioex) {
+
+			logger.warn("", ioex);
+			fail("Unexpected exception.");
+		}
+	}
+
+	@Test
+	public void testImportedDataPrecedesOtherData() {
+
+		try (final ChangelogJournal journal = new ChangelogJournal(directory, 1024 * 1024, false)) {
+
+			journal.append("r", "uuid", "new1\n");
+			journal.append("r", "uuid", "new2\n");
+
+			assertTrue("Import failed", journal.importData("r", "uuid", "old1\n"));
+			assertTrue("Import failed", journal.importData("r", "uuid", "old2\n"));
+
+			assertEquals("Invalid changelog", "old1\nold2\nnew1\nnew2\n", journal.read("r", "uuid"));
+
+		} catch (IOException ioex) {
+
+			logger.warn("", ioex);
+			fail("Unexpected exception.");
+		}
+
+		try (final ChangelogJournal journal = new ChangelogJournal(directory, 1024 * 1024, false)) {
+
+			assertEquals("Invalid changelog after reopening", "old1\nold2\nnew1\nnew2\n", journal.read("r", "uuid"));
+
+		} catch (IOException ioex) {
+
+			logger.warn("", ioex);
+			fail("Unexpected exception.");
+		}
+	}
+
+	@Test
+	public void testSubmittedImportsAreWrittenOnFlush() {
+
+		try (final ChangelogJournal journal = new ChangelogJournal(directory, 1024 * 1024, false)) {
+
+			final List<ChangelogJournal.PendingImport> imports = new LinkedList<>();
+
+			journal.append("n", "uuid", "new\n");
+
+			for (int i=0; i<100; i++) {
+				imports.add(journal.submitImport("n", "uuid", i + "\n"));
+			}
+
+			journal.flush();
+
+			for (final ChangelogJournal.PendingImport pending : imports) {
+				assertTrue("Import was not written", pending.isWritten());
+			}
+
+			assertTrue("Empty import should be written", journal.submitImport("n", "uuid", "").isWritten());
+
+			final StringBuilder expected = new StringBuilder();
+
+			for (int i=0; i<100; i++) {
+				expected.append(i).append("\n");
+			}
+
+			expected.append("new\n");
+
+			assertEquals("Invalid changelog", expected.toString(), journal.read("n", "uuid"));
+
+		} catch (IOException ioex) {
+
+			logger.warn("", ioex);
+			fail("Unexpected exception.");
+		}
+	}
+
+	@Test
+	public void testSegmentIndexLookup() {
+
+		try (final ChangelogJournal journal = new ChangelogJournal(directory, 256, false)) {
+
+			for (int i=0; i<200; i++) {
+
+				journal.append(i % 2 == 0 ? "n" : "r", "uuid" + (i % 20), i + "\n");
+			}
+
+			assertEquals("Invalid number of entries", 200, countEntries(journal, 20));
+
+			long records = 0L;
+
+			// each index record consists of the hash and the offset of an entry
+			for (final File index : directory.listFiles((dir, name) -> name.endsWith(".index"))) {
+				records += index.length() / 16;
+			}
+
+			assertTrue("Segment was not rolled over", countSegments(directory) > 1);
+			assertTrue("Full segments are not indexed on disk", records > 0 && records < 200);
+
+		} catch (IOException ioex) {
+
+			logger.warn("", ioex);
+			fail("Unexpected exception.");
+		}
+
+		try (final ChangelogJournal journal = new ChangelogJournal(directory, 256, false)) {
+
+			// the same UUID with a different type is a different entity
+			assertEquals("Invalid changelog after reopening", "5\n25\n45\n65\n85\n105\n125\n145\n165\n185\n", journal.read("r", "uuid5"));
+			assertEquals("Invalid changelog after reopening", "", journal.read("n", "uuid5"));
+			assertEquals("Invalid changelog after reopening", "", journal.read("n", "unknown"));
+
+		} catch (IOException ioex) {
+
+			logger.warn("", ioex);
+			fail("Unexpected exception.");
+		}
+	}
+
+	@Test
+	public void testWriteFailureIsReported() {
+
+		try (final ChangelogJournal journal = new ChangelogJournal(directory, 256, false)) {
+
+			final StringBuilder expected = new StringBuilder();
+
+			for (int i=0; i<5; i++) {
+
+				journal.append("n", "uuid", "entry" + i + "\n");
+				expected.append("entry").append(i).append("\n");
+			}
+
+			assertEquals("Invalid changelog", expected.toString(), journal.read("n", "uuid"));
+
+			// the current segment stays open, but the next one cannot be created
+			FileUtils.deleteDirectory(directory);
+
+			for (int i=5; i<50; i++) {
+
+				journal.append("n", "uuid", "entry" + i + "\n");
+				expected.append("entry").append(i).append("\n");
+			}
+
+			try {
+
+				journal.read("n", "uuid");
+				fail("Write failure should be reported to readers");
+
+			} catch (IOException expectedException) {
+			}
+
+			assertTrue("Unable to recreate directory", directory.mkdirs());
+
+			// unwritten entries are kept and written in the next attempt
+			String changelog = null;
+
+			for (int i=0; i<100 && changelog == null; i++) {
+
+				try {
+
+					changelog = journal.read("n", "uuid");
+
+				} catch (IOException retry) {
+
+					Thread.sleep(100);
+				}
+			}
+
+			assertEquals("Entries were lost after a write failure", expected.toString(), changelog);
+
+		} catch (IOException | InterruptedException ex) {
+
+			logger.warn("", ex);
+			fail("Unexpected exception.");
+		}
+	}
+
+	@Test
+	public void testJournalFailsAfterMaxAttempts() {
+
+		try (final ChangelogJournal journal = new ChangelogJournal(directory, 256, false, 16, 2)) {
+
+			journal.append("n", "uuid", "entry\n");
+
+			assertEquals("Invalid changelog", "entry\n", journal.read("n", "uuid"));
+
+			// the current segment stays open, but the next one cannot be created
+			FileUtils.deleteDirectory(directory);
+
+			try {
+
+				for (int i=0; i<50; i++) {
+					journal.append("n", "uuid", "entry" + i + "\n");
+				}
+
+			} catch (IOException expected) {
+				// the journal may fail while entries are appended
+			}
+
+			for (int i=0; i<100 && !journal.hasFailed(); i++) {
+				Thread.sleep(100);
+			}
+
+			assertTrue("Journal should fail after the maximum number of attempts", journal.hasFailed());
+
+			try {
+
+				journal.append("n", "uuid", "rejected\n");
+				fail("Failed journal should reject new entries");
+
+			} catch (IOException expected) {
+			}
+
+		} catch (IOException expectedOnClose) {
+
+			// closing a failed journal reports the failure
+
+		} catch (InterruptedException iex) {
+
+			logger.warn("", iex);
+			fail("Unexpected exception.");
+		}
+	}
+
+	// ----- private methods -----
+	private long countEntries(final ChangelogJournal journal, final int count) throws IOException {
+
+		long entries = 0L;
+
+		for (int i=0; i<count; i++) {
+
+			for (final String type : Arrays.asList("n", "r")) {
+
+				final String changelog = journal.read(type, "uuid" + i);
+
+				entries += changelog.isEmpty() ? 0 : changelog.split("\n").length;
+			}
+		}
+
+		return entries;
+	}
+
+	private int countSegments(final File directory) {
+		return directory.listFiles((dir, name) -> name.endsWith(".journal")).length;
+	}
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.test.core.graph;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.DatabaseService;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.graph.GraphDatabaseCommand;
+import org.structr.core.graph.Tx;
+import org.structr.test.common.StructrTest;
+import org.structr.test.core.entity.TestOne;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.fail;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the buffered property writes of a transaction.
+ */
+public class PropertyWriteBufferTest extends StructrTest {
+
+	private static final Logger logger = LoggerFactory.getLogger(PropertyWriteBufferTest.class);
+
+	@Test
+	public void testBufferedWritesAreFlushedOnCommit() {
+
+		try {
+
+			// more nodes than fit into a single update statement
+			final List<TestOne> nodes = createTestNodes(TestOne.class, 1100);
+
+			try (final Tx tx = app.tx()) {
+
+				for (final TestOne node : nodes) {
+					node.setProperty(TestOne.aString, "committed" + node.getId());
+				}
+
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				for (final TestOne node : nodes) {
+					assertEquals("Buffered value was not written on commit", "committed" + node.getId(), readStoredValue(node.getId(), "aString"));
+				}
+
+				tx.success();
+			}
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+		}
+	}
+
+	@Test
+	public void testBufferedWritesAreVisibleToQueries() {
+
+		try {
+
+			final TestOne node = createTestNode(TestOne.class, "original");
+
+			try (final Tx tx = app.tx()) {
+
+				node.setProperty(TestOne.aString, "dirty");
+
+				// statements in the same transaction must see the buffered value
+				assertEquals("Buffered value is not visible to native queries", "dirty", readStoredValue(node.getId(), "aString"));
+				assertNotNull("Buffered value is not visible to searches", app.nodeQuery(TestOne.class).and(TestOne.aString, "dirty").getFirst());
+
+				// rollback
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				assertNull("Buffered value of a rolled back transaction was written", readStoredValue(node.getId(), "aString"));
+
+				tx.success();
+			}
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+		}
+	}
+
+	@Test
+	public void testFailedFlushIsReported() {
+
+		TestOne node = null;
+
+		try {
+
+			node = createTestNode(TestOne.class, "original");
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			node.setProperty(TestOne.name, "modified");
+
+			// maps cannot be stored as property values, so the flush on commit fails
+			node.getNode().setProperty("invalid", Collections.singletonMap("key", "value"));
+
+			tx.success();
+
+			fail("Failed flush of buffered values was not reported");
+
+		} catch (FrameworkException fex) {
+
+			assertEquals("Invalid status code", 500, fex.getStatus());
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertEquals("Values of a failed transaction were written", "original", readStoredValue(node.getId(), "name"));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+		}
+	}
+
+	// ----- private methods -----
+	private Object readStoredValue(final long id, final String key) throws FrameworkException {
+
+		final DatabaseService graphDb    = app.command(GraphDatabaseCommand.class).execute();
+		final Map<String, Object> params = new HashMap<>();
+
+		params.put("id", id);
+
+		final Iterator<Map<String, Object>> iterator = graphDb.execute("MATCH (n) WHERE ID(n) = {id} RETURN n." + key + " AS value", params).iterator();
+
+		return iterator.hasNext() ? iterator.next().get("value") : null;
+	}
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.test.core.graph;
+
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.DatabaseService;
+import org.structr.api.graph.Direction;
+import org.structr.api.graph.Node;
+import org.structr.api.graph.Relationship;
+import org.structr.api.graph.RelationshipType;
+import org.structr.api.util.Iterables;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.entity.Relation;
+import org.structr.core.graph.GraphDatabaseCommand;
+import org.structr.core.graph.Tx;
+import org.structr.test.common.StructrTest;
+import org.structr.test.core.entity.SixOneManyToMany;
+import org.structr.test.core.entity.TestOne;
+import org.structr.test.core.entity.TestSix;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.fail;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for loading the relationships of several nodes at once.
+ */
+public class RelationshipPrefetchTest extends StructrTest {
+
+	private static final Logger logger = LoggerFactory.getLogger(RelationshipPrefetchTest.class);
+
+	@Test
+	public void testPrefetchFillsRelationshipCaches() {
+
+		final RelationshipType type = Relation.getInstance(SixOneManyToMany.class);
+
+		try {
+
+			final List<TestSix> sixes = createTestNodes(TestSix.class, 5);
+
+			try (final Tx tx = app.tx()) {
+
+				// the first node has no relationships at all
+				for (int i=0; i<sixes.size(); i++) {
+
+					final TestSix six = sixes.get(i);
+
+					six.setProperty(TestSix.index, i);
+					six.setProperty(TestSix.manyToManyTestOnes, createTestNodes(TestOne.class, i));
+				}
+
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				final DatabaseService db = app.command(GraphDatabaseCommand.class).execute();
+				final List<Node> nodes   = new LinkedList<>();
+
+				for (final TestSix six : app.nodeQuery(TestSix.class).sort(TestSix.index).getAsList()) {
+					nodes.add(six.getNode());
+				}
+
+				db.getQueryStatistics().reset();
+				db.prefetchRelationships(nodes, Direction.OUTGOING, type);
+
+				assertEquals("Prefetching should use a single query", 1, db.getQueryStatistics().getStatementCount());
+
+				for (int i=0; i<nodes.size(); i++) {
+
+					final Node node                   = nodes.get(i);
+					final List<Relationship> outgoing = Iterables.toList(node.getRelationships(Direction.OUTGOING, type));
+					final Set<Long> ids               = new HashSet<>();
+
+					assertEquals("Invalid number of prefetched relationships", i, outgoing.size());
+
+					for (final Relationship rel : outgoing) {
+
+						assertEquals("Prefetched relationship assigned to the wrong node", node.getId(), rel.getStartNode().getId());
+						ids.add(rel.getId());
+					}
+
+					assertEquals("Prefetched relationships contain duplicates", i, ids.size());
+				}
+
+				assertEquals("Prefetched relationships should be read from the cache", 1, db.getQueryStatistics().getStatementCount());
+
+				// a second prefetch finds all caches filled and does nothing
+				db.prefetchRelationships(nodes, Direction.OUTGOING, type);
+
+				assertEquals("Filled caches should not be loaded again", 1, db.getQueryStatistics().getStatementCount());
+
+				tx.success();
+			}
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+		}
+	}
+}
@@ -28,27 +28,35 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import org.testng.annotations.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.DatabaseService;
 import org.structr.api.Transaction;
+import org.structr.api.config.Settings;
 import org.structr.api.graph.Label;
 import org.structr.api.graph.Node;
 import org.structr.api.util.Iterables;
 import org.structr.test.common.StructrTest;
+import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.entity.Group;
 import org.structr.test.core.entity.TestEleven;
 import org.structr.test.core.entity.TestOne;
 import org.structr.test.core.entity.TestTwo;
 import org.structr.core.graph.BulkCreateLabelsCommand;
+import org.structr.core.graph.BulkGraphOperation;
+import org.structr.core.graph.BulkOperationCheckpoint;
 import org.structr.core.graph.BulkRebuildIndexCommand;
 import org.structr.core.graph.BulkSetNodePropertiesCommand;
+import org.structr.core.graph.PartitionedSource;
 import org.structr.core.graph.SyncCommand;
 import org.structr.core.graph.Tx;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertTrue;
 import static org.testng.AssertJUnit.fail;
 
@@ -448,4 +456,138 @@ public class MaintenanceTest extends StructrTest {
 			fail("Unexpected exception.");
 		}
 	}
+
+	@Test
+	public void testParallelBulkSetNodePropertiesCommand() {
+
+		final Integer one = 1;
+
+		try {
+
+			final List<TestOne> nodes = createTestNodes(TestOne.class, 100);
+
+			Settings.MaintenanceThreads.setValue(4);
+			Settings.MaintenancePartitionSize.setValue(10);
+
+			// simulate an interrupted run in which the partition of the first node was already processed
+			final long firstId  = nodes.get(0).getId();
+			final String name   = "SetNodeProperties-TestOne-" + Integer.toHexString(toMap("anInt", 1, "aString", "one").hashCode());
+			final int partition = (int)(firstId / 10);
+
+			BulkOperationCheckpoint.load(name, 10).complete(partition);
+
+			app.command(BulkSetNodePropertiesCommand.class).execute(toMap("type", "TestOne", "anInt", 1, "aString", "one"));
+
+			try (final Tx tx = app.tx()) {
+
+				for (final TestOne test : app.nodeQuery(TestOne.class).getAsList()) {
+
+					if (test.getId() / 10 == partition) {
+
+						assertNull("Node of completed partition was processed again", test.getProperty(TestOne.anInt));
+
+					} else {
+
+						assertEquals(one, test.getProperty(TestOne.anInt));
+						assertEquals("one", test.getProperty(TestOne.aString));
+					}
+				}
+
+				tx.success();
+			}
+
+			assertEquals("Checkpoint was not removed after completion", 0, BulkOperationCheckpoint.load(name, 10).getCompletedCount());
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+
+		} finally {
+
+			Settings.MaintenanceThreads.setValue(1);
+			Settings.MaintenancePartitionSize.setValue(1000000);
+		}
+	}
+
+	@Test
+	public void testParallelBulkOperationWithFailedPartition() {
+
+		final AtomicBoolean failing = new AtomicBoolean(true);
+		final Set<Long> processed   = Collections.synchronizedSet(new HashSet<>());
+		final String name           = "FailedPartition-numbers";
+
+		final PartitionedSource<Long> source = new PartitionedSource<Long>() {
+
+			@Override
+			public String getName() {
+				return "numbers";
+			}
+
+			@Override
+			public long getMaxId() {
+				return 99L;
+			}
+
+			@Override
+			public Iterable<Long> getRange(final long fromId, final long toId) {
+				return LongStream.rangeClosed(fromId + 1, toId).boxed().collect(Collectors.toList());
+			}
+		};
+
+		final BulkGraphOperation<Long> operation = new BulkGraphOperation<Long>() {
+
+			@Override
+			public boolean handleGraphObject(final SecurityContext securityContext, final Long id) throws FrameworkException {
+
+				if (failing.get() && id / 10 == 3) {
+					throw new FrameworkException(500, "Simulated failure");
+				}
+
+				processed.add(id);
+
+				return true;
+			}
+
+			@Override
+			public void handleThrowable(final SecurityContext securityContext, final Throwable t, final Long id) {
+
+				// fail the whole batch
+				throw new RuntimeException(t);
+			}
+		};
+
+		try {
+
+			Settings.MaintenanceThreads.setValue(4);
+			Settings.MaintenancePartitionSize.setValue(10);
+
+			BulkOperationCheckpoint.load(name, 10).delete();
+
+			final BulkSetNodePropertiesCommand command = app.command(BulkSetNodePropertiesCommand.class);
+
+			command.bulkGraphOperation(securityContext, source, 5, "FailedPartition", operation);
+
+			assertEquals("Partition with failed batches was marked as completed", 9, BulkOperationCheckpoint.load(name, 10).getCompletedCount());
+
+			// resume, only the failed partition must be processed again
+			failing.set(false);
+			processed.clear();
+
+			command.bulkGraphOperation(securityContext, source, 5, "FailedPartition", operation);
+
+			assertEquals("Invalid number of objects processed on resume", 10, processed.size());
+
+			for (final Long id : processed) {
+				assertEquals("Object of completed partition was processed again", 3L, id / 10);
+			}
+
+			assertEquals("Checkpoint was not removed after completion", 0, BulkOperationCheckpoint.load(name, 10).getCompletedCount());
+
+		} finally {
+
+			Settings.MaintenanceThreads.setValue(1);
+			Settings.MaintenancePartitionSize.setValue(1000000);
+		}
+	}
 }
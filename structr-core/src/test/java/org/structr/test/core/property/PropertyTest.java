@@ -18,6 +18,7 @@
  */
 package org.structr.test.core.property;
 
+import java.util.Arrays;
 import java.util.Date;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -47,6 +48,7 @@ import org.structr.test.core.entity.TestFour;
 import org.structr.test.core.entity.TestOne;
 import org.structr.test.core.entity.TestSix;
 import org.structr.test.core.entity.TestThree;
+import org.structr.core.graph.FlushCachesCommand;
 import org.structr.core.graph.NodeAttribute;
 import org.structr.core.graph.Tx;
 import org.structr.core.property.Property;
@@ -2276,4 +2278,107 @@ public class PropertyTest extends StructrTest {
 			fail("Unexpected exception");
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Reads all primitive and array properties of a freshly loaded entity
+	 * many times and checks that the values are correct, that database
+	 * converters are shared and that cached arrays cannot be modified.
+	 *
+	 * Note that the logged throughput is just a rough number as performance
+	 * is heavily depending on hardware and setup.
+	 */
+	@Test
+	public void testPrimitivePropertyReadPath() {
+
+		final Date date          = new Date(123456789L);
+		final String[] strings   = new String[] { "one", "two", "three" };
+		final Date[] dates       = new Date[] { new Date(123456789L), new Date(234567891L) };
+		final PropertyKey[] keys = new PropertyKey[] {
+			TestFour.booleanProperty, TestFour.doubleProperty, TestFour.integerProperty, TestFour.longProperty, TestFour.dateProperty,
+			TestFour.stringProperty, TestFour.enumProperty, TestFour.stringArrayProperty, TestFour.dateArrayProperty
+		};
+		String uuid = null;
+
+		try (final Tx tx = app.tx()) {
+
+			final TestFour test = app.create(TestFour.class,
+				new NodeAttribute<>(TestFour.booleanProperty,     true),
+				new NodeAttribute<>(TestFour.doubleProperty,      1.5),
+				new NodeAttribute<>(TestFour.integerProperty,     42),
+				new NodeAttribute<>(TestFour.longProperty,        4200000000L),
+				new NodeAttribute<>(TestFour.dateProperty,        date),
+				new NodeAttribute<>(TestFour.stringProperty,      "test"),
+				new NodeAttribute<>(TestFour.enumProperty,        TestEnum.Status2),
+				new NodeAttribute<>(TestFour.stringArrayProperty, strings),
+				new NodeAttribute<>(TestFour.dateArrayProperty,   dates)
+			);
+
+			uuid = test.getUuid();
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception");
+		}
+
+		// make sure the entity is hydrated from the database
+		FlushCachesCommand.flushAll();
+
+		try (final Tx tx = app.tx()) {
+
+			final TestFour test = app.get(TestFour.class, uuid);
+			final int loop      = 100000;
+
+			assertEquals(Boolean.TRUE, test.getProperty(TestFour.booleanProperty));
+			assertEquals(Double.valueOf(1.5), test.getProperty(TestFour.doubleProperty));
+			assertEquals(Integer.valueOf(42), test.getProperty(TestFour.integerProperty));
+			assertEquals(Long.valueOf(4200000000L), test.getProperty(TestFour.longProperty));
+			assertEquals(date, test.getProperty(TestFour.dateProperty));
+			assertEquals("test", test.getProperty(TestFour.stringProperty));
+			assertEquals(TestEnum.Status2, test.getProperty(TestFour.enumProperty));
+			assertTrue(Objects.deepEquals(strings, test.getProperty(TestFour.stringArrayProperty)));
+			assertTrue(Objects.deepEquals(dates, test.getProperty(TestFour.dateArrayProperty)));
+
+			// database converters do not depend on the context and must be shared
+			for (final PropertyKey key : keys) {
+				assertTrue("Database converter of " + key.jsonName() + " is not shared", key.databaseConverter(securityContext, test) == key.databaseConverter(securityContext, test));
+			}
+
+			// arrays are converted once when the entity is loaded, reads return a copy
+			final String[] copy = test.getProperty(TestFour.stringArrayProperty);
+
+			copy[0] = "modified";
+
+			assertTrue("Cached string array was modified", Arrays.equals(strings, test.getProperty(TestFour.stringArrayProperty)));
+
+			// direct readers of the property container get a copy as well
+			final String[] raw = (String[])test.getPropertyContainer().getProperty(TestFour.stringArrayProperty.dbName());
+
+			raw[0] = "modified";
+
+			assertTrue("Cached string array was modified", Arrays.equals(strings, (String[])test.getPropertyContainer().getProperty(TestFour.stringArrayProperty.dbName())));
+
+			final long t0 = System.nanoTime();
+
+			for (int i=0; i<loop; i++) {
+
+				for (final PropertyKey key : keys) {
+					test.getProperty(key);
+				}
+			}
+
+			final long t1 = System.nanoTime();
+
+			logger.info("{} property reads in {} ms", loop * keys.length, (t1 - t0) / 1000000);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception");
+		}
+	}
+}
@@ -66,6 +66,7 @@ import org.structr.test.core.entity.TestThree;
 import org.structr.test.core.entity.TestTwo;
 import org.structr.core.function.DateFormatFunction;
 import org.structr.core.function.FindFunction;
+import org.structr.core.function.Functions;
 import org.structr.core.function.NumberFormatFunction;
 import org.structr.core.function.ParseDateFunction;
 import org.structr.core.function.RoundFunction;
@@ -3023,6 +3024,93 @@ public class ScriptingTest extends StructrTest {
 		}
 	}
 
+	@Test
+	public void testCachedStructrScriptExpressions() {
+
+		final String source       = "concat(this.name, '-', upper(this.name))";
+		final List<TestOne> nodes = new LinkedList<>();
+
+		try (final Tx tx = app.tx()) {
+
+			for (int i=0; i<4; i++) {
+				nodes.add(app.create(TestOne.class, "node" + i));
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+		}
+
+		try {
+
+			assertTrue("Parsed expression was not cached", Functions.parse(source) == Functions.parse(source));
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+		}
+
+		// invalid expressions must fail every time
+		for (int i=0; i<2; i++) {
+
+			try {
+
+				Functions.parse("concat(this.name");
+				fail("Invalid expression should throw an exception.");
+
+			} catch (FrameworkException fex) {
+
+				assertEquals("Invalid status code for invalid expression", 422, fex.getStatus());
+			}
+		}
+
+		// evaluate the same cached expression concurrently for different entities
+		final List<Thread> threads = new LinkedList<>();
+		final List<String> errors  = Collections.synchronizedList(new LinkedList<>());
+
+		for (final TestOne node : nodes) {
+
+			final Thread thread = new Thread(() -> {
+
+				try (final Tx tx = app.tx()) {
+
+					final ActionContext ctx = new ActionContext(securityContext);
+					final String name       = node.getName();
+					final String expected   = name + "-" + name.toUpperCase();
+
+					for (int i=0; i<1000; i++) {
+
+						final Object result = Functions.evaluate(ctx, node, source);
+						if (!expected.equals(result)) {
+
+							errors.add("Expected " + expected + ", got " + result);
+							break;
+						}
+					}
+
+					tx.success();
+
+				} catch (UnlicensedScriptException | FrameworkException fex) {
+					errors.add(fex.getMessage());
+				}
+			});
+
+			threads.add(thread);
+			thread.start();
+		}
+
+		for (final Thread thread : threads) {
+
+			try { thread.join(); } catch (InterruptedException iex) {}
+		}
+
+		assertTrue("Concurrent evaluation of cached expression failed: " + errors, errors.isEmpty());
+	}
+
 	// ----- private methods ----
 	private void createTestType(final JsonSchema schema, final String name, final String createSource, final String saveSource, final String comment) {
 
@@ -25,6 +25,12 @@ import java.net.URISyntaxException;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.apache.commons.lang.StringUtils;
 import org.testng.annotations.Test;
 import org.slf4j.Logger;
@@ -42,7 +48,9 @@ import org.structr.core.entity.SchemaRelationshipNode;
 import org.structr.core.entity.SchemaView;
 import org.structr.core.graph.NodeAttribute;
 import org.structr.core.graph.Tx;
+import org.structr.core.graph.search.SearchCommand;
 import org.structr.core.property.PropertyKey;
+import org.structr.schema.SchemaService;
 import org.structr.schema.action.Actions;
 import org.structr.schema.export.StructrSchema;
 import org.structr.schema.json.InvalidSchemaException;
@@ -715,6 +723,90 @@ public class SchemaTest extends StructrTest {
 		}
 	}
 
+	@Test
+	public void testTypeLookupsDoNotWaitForSchemaReload() {
+
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		// a schema reload holds this monitor while it rebuilds the types
+		synchronized (SchemaService.class) {
+
+			final Future<Boolean> lookup = executor.submit(() -> {
+
+				SchemaService.getGraphQLSchema();
+
+				return StructrApp.getConfiguration().getNodeEntities().containsKey("SchemaNode")
+					&& StructrApp.getConfiguration().getPropertyViews().contains(PropertyView.Public)
+					&& SearchCommand.getAllSubtypesAsStringSet("Principal").contains("Principal");
+			});
+
+			try {
+
+				assertTrue("Type lookup failed", lookup.get(10, TimeUnit.SECONDS));
+
+			} catch (TimeoutException tex) {
+
+				fail("Type lookup waited for the schema lock");
+
+			} catch (InterruptedException | ExecutionException ex) {
+
+				logger.warn("", ex);
+				fail("Unexpected exception");
+
+			} finally {
+
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	@Test
+	public void testTypeRegistryIsUpdatedAfterSchemaChange() {
+
+		cleanDatabaseAndSchema();
+
+		try (final Tx tx = app.tx()) {
+
+			final JsonSchema schema = StructrSchema.createFromDatabase(app);
+			final JsonType contact  = schema.addType("Contact").setExtends(schema.getType("Principal"));
+
+			schema.addType("Customer").setExtends(contact);
+
+			StructrSchema.extendDatabaseSchema(app, schema);
+
+			tx.success();
+
+		} catch (Throwable t) {
+			t.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		final Set<String> subtypes = SearchCommand.getAllSubtypesAsStringSet("Contact");
+
+		assertTrue("Subtype set must contain the type itself", subtypes.contains("Contact"));
+		assertTrue("Subtype set must contain subtypes", subtypes.contains("Customer"));
+		assertTrue("Subtype set of supertype must contain new types", SearchCommand.getAllSubtypesAsStringSet("Principal").contains("Customer"));
+		assertNotNull("New type must be registered", StructrApp.getConfiguration().getNodeEntities().get("Customer"));
+
+		try (final Tx tx = app.tx()) {
+
+			final JsonSchema schema = StructrSchema.createFromDatabase(app);
+
+			schema.addType("VipCustomer").setExtends(schema.getType("Customer"));
+
+			StructrSchema.extendDatabaseSchema(app, schema);
+
+			tx.success();
+
+		} catch (Throwable t) {
+			t.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		assertTrue("Subtype set must be updated after schema change", SearchCommand.getAllSubtypesAsStringSet("Contact").contains("VipCustomer"));
+		assertEquals("Unknown types must only contain themselves", 1, SearchCommand.getAllSubtypesAsStringSet("DoesNotExist").size());
+	}
+
 	@Test
 	public void testModifiedPropertyValueAccessInScripting() {
 
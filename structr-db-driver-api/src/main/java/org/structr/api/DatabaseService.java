@@ -18,12 +18,18 @@
  */
 package org.structr.api;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.structr.api.graph.Direction;
 import org.structr.api.graph.GraphProperties;
 import org.structr.api.graph.Node;
+import org.structr.api.graph.NodeCreationData;
 import org.structr.api.graph.Relationship;
+import org.structr.api.graph.RelationshipCreationData;
+import org.structr.api.graph.RelationshipType;
 import org.structr.api.index.Index;
+import org.structr.api.util.QueryStatistics;
 
 /**
  *
@@ -46,6 +52,38 @@ public interface DatabaseService {
 
 	Node createNode(final Set<String> labels, final Map<String, Object> properties);
 
+	/**
+	 * Creates the given nodes in as few statements as possible and
+	 * returns them in the order of the input list.
+	 *
+	 * @param nodes
+	 * @return the created nodes
+	 */
+	List<Node> createNodes(final List<NodeCreationData> nodes);
+
+	/**
+	 * Creates the given relationships in as few statements as possible
+	 * and returns them in the order of the input list.
+	 *
+	 * @param relationships
+	 * @return the created relationships
+	 * @throws NotFoundException if the start or end node of a relationship does not exist
+	 */
+	List<Relationship> createRelationships(final List<RelationshipCreationData> relationships);
+
+	/**
+	 * Loads the relationships with the given direction and type of all
+	 * the given nodes in a single query and stores them in the
+	 * relationship cache of each node, so that subsequent calls to
+	 * {@link Node#getRelationships(Direction, RelationshipType)} do not
+	 * need a database round-trip.
+	 *
+	 * @param nodes
+	 * @param direction the direction, must be INCOMING or OUTGOING
+	 * @param relationshipType
+	 */
+	void prefetchRelationships(final List<Node> nodes, final Direction direction, final RelationshipType relationshipType);
+
 	Node getNodeById(final long id);
 	Relationship getRelationshipById(final long id);
 
@@ -56,6 +94,29 @@ public interface DatabaseService {
 	Iterable<Relationship> getAllRelationships();
 	Iterable<Relationship> getRelationshipsByType(final String type);
 
+	// ----- ID ranges, the lower bound is exclusive, the upper bound inclusive -----
+	Iterable<Node> getAllNodes(final long fromId, final long toId);
+	Iterable<Node> getNodesByLabel(final String label, final long fromId, final long toId);
+	Iterable<Node> getNodesByTypeProperty(final String type, final long fromId, final long toId);
+
+	Iterable<Relationship> getAllRelationships(final long fromId, final long toId);
+	Iterable<Relationship> getRelationshipsByType(final String type, final long fromId, final long toId);
+
+	/**
+	 * Returns the highest ID of all nodes, or -1 if there are no nodes.
+	 *
+	 * @return the highest node ID
+	 */
+	long getMaxNodeId();
+
+	/**
+	 * Returns the highest ID of all relationships, or -1 if there are
+	 * no relationships.
+	 *
+	 * @return the highest relationship ID
+	 */
+	long getMaxRelationshipId();
+
 	GraphProperties getGlobalProperties();
 
 	String getTenantIdentifier();
@@ -68,4 +129,7 @@ public interface DatabaseService {
 
 	Iterable<Map<String, Object>> execute(final String nativeQuery, final Map<String, Object> parameters);
 	Iterable<Map<String, Object>> execute(final String nativeQuery);
+
+	// ----- statistics -----
+	QueryStatistics getQueryStatistics();
 }
@@ -128,14 +128,26 @@ public class Settings {
 	public static final Setting<Integer> RelationshipCacheSize  = new IntegerSetting(databaseGroup, "Caching",             "database.cache.relationship.size", 500000);
 	public static final Setting<Integer> NodeCacheSize          = new IntegerSetting(databaseGroup, "Caching",             "database.cache.node.size",         100000);
 	public static final Setting<Integer> UuidCacheSize          = new IntegerSetting(databaseGroup, "Caching",             "database.cache.uuid.size",         1000000);
+	public static final Setting<Integer> PermissionCacheSize    = new IntegerSetting(databaseGroup, "Caching",             "database.cache.permission.size",   100000, "Maximum number of cached permission resolution results");
+	public static final Setting<Integer> QueryCacheSize         = new IntegerSetting(databaseGroup, "Caching",             "database.cache.query.size",        1000, "Maximum number of cached query results, only queries that request caching are cached");
+	public static final Setting<Integer> QueryCacheMaxResults   = new IntegerSetting(databaseGroup, "Caching",             "database.cache.query.maxresults",  1000, "Maximum number of result entries per cached query result, larger results are not cached");
+	public static final Setting<Integer> QueryCacheTimeout      = new IntegerSetting(databaseGroup, "Caching",             "database.cache.query.timeout",     60, "Number of seconds after which a cached query result expires, 0 disables the query cache");
 	public static final Setting<Boolean> ForceResultStreaming   = new BooleanSetting(databaseGroup, "Result Streaming",    "database.result.lazy",             false, "Forces Structr to use lazy evaluation for relationship queries");
+	public static final Setting<String> CommitLocking           = new ChoiceSetting(databaseGroup,  "Transactions",        "database.transaction.locking",     "property", Settings.getStringsAsSet("property", "value"), "Controls which commits are serialized during validation: <b>property</b> serializes all transactions that modify the same unique property, <b>value</b> only serializes transactions that validate the same unique value");
+	public static final Setting<Integer> CommitLockTimeout      = new IntegerSetting(databaseGroup, "Transactions",        "database.transaction.locking.timeout", 30, "Number of seconds a transaction waits for the lock on a unique value before it fails with a retryable error");
 	public static final Setting<Boolean> CypherDebugLogging     = new BooleanSetting(databaseGroup, "Debugging",           "log.cypher.debug",                 false, "Turns on debug logging for the generated Cypher queries");
 	public static final Setting<Boolean> CypherDebugLoggingPing = new BooleanSetting(databaseGroup, "Debugging",           "log.cypher.debug.ping",            false, "Turns on debug logging for the generated Cypher queries of the websocket PING command. Can only be used in conjunction with log.cypher.debug");
+	public static final Setting<Boolean> CypherStatistics       = new BooleanSetting(databaseGroup, "Query Statistics",    "log.cypher.statistics",            true, "Collects latency and row count statistics for each Cypher statement shape");
+	public static final Setting<Integer> CypherSlowQueryTime    = new IntegerSetting(databaseGroup, "Query Statistics",    "log.cypher.slow.threshold",        1000, "Cypher statements that take longer than this number of milliseconds are logged with their parameters, 0 disables the slow query log");
 	public static final Setting<Boolean> SyncDebugging          = new BooleanSetting(databaseGroup, "Sync debugging",      "sync.debug",                       false);
 
 	// application settings
 	public static final Setting<Boolean> ChangelogEnabled         = new BooleanSetting(applicationGroup, "Changelog",    "application.changelog.enabled",               false, "Turns on logging of changes to nodes and relationships");
 	public static final Setting<Boolean> UserChangelogEnabled     = new BooleanSetting(applicationGroup, "Changelog",    "application.changelog.user_centric.enabled",  false, "Turns on user-centric logging of what a user changed/created/deleted");
+	public static final Setting<Integer> ChangelogSegmentSize     = new IntegerSetting(applicationGroup, "Changelog",    "application.changelog.segment.size",          64, "Maximum size (MB) of a changelog journal segment file");
+	public static final Setting<Boolean> ChangelogSync            = new BooleanSetting(applicationGroup, "Changelog",    "application.changelog.sync",                  false, "Forces changelog entries to disk after each write, this makes changelog entries survive a system crash but slows down writing");
+	public static final Setting<Integer> ChangelogQueueSize       = new IntegerSetting(applicationGroup, "Changelog",    "application.changelog.queue.size",            100000, "Maximum number of changelog entries waiting to be written, transactions wait while the queue is full");
+	public static final Setting<Integer> ChangelogMaxAttempts     = new IntegerSetting(applicationGroup, "Changelog",    "application.changelog.write.attempts",        10, "Number of attempts to write pending changelog entries before the journal fails and transactions with changelog entries are rejected");
 	public static final Setting<Boolean> FilesystemEnabled        = new BooleanSetting(applicationGroup, "Filesystem",   "application.filesystem.enabled",              false);
 	public static final Setting<Boolean> UniquePaths              = new BooleanSetting(applicationGroup, "Filesystem",   "application.filesystem.unique.paths",         true);
 	public static final Setting<String> DefaultChecksums          = new StringSetting(applicationGroup,  "Filesystem",   "application.filesystem.checksums.default",    "", "List of checksums to be calculated on file creation by default.");
@@ -145,6 +157,8 @@ public class Settings {
 	public static final Setting<Integer> IndexingMaxLength        = new IntegerSetting(applicationGroup, "Filesystem",   "application.filesystem.indexing.maxlength",   30);
 	public static final Setting<Boolean> FollowSymlinks           = new BooleanSetting(applicationGroup, "Filesystem",   "application.filesystem.mount.followSymlinks", true);
 	public static final Setting<String> DefaultUploadFolder       = new StringSetting(applicationGroup,  "Filesystem",   "application.uploads.folder",                  "");
+	public static final Setting<Integer> MaintenanceThreads       = new IntegerSetting(applicationGroup, "Maintenance",  "application.maintenance.threads",             1, "Number of worker threads for bulk maintenance commands like rebuildIndex. Values greater than 1 split the database into ID ranges that are processed in parallel, and an interrupted run is resumed when the command is started again.");
+	public static final Setting<Integer> MaintenancePartitionSize = new IntegerSetting(applicationGroup, "Maintenance",  "application.maintenance.partition.size",      1000000, "Number of database IDs per range when a bulk maintenance command runs on more than one thread");
 	public static final Setting<String> HttpProxyUrl              = new StringSetting(applicationGroup,  "Proxy",        "application.proxy.http.url",                  "");
 	public static final Setting<String> HttpProxyUser             = new StringSetting(applicationGroup,  "Proxy",        "application.proxy.http.username",             "");
 	public static final Setting<String> HttpProxyPassword         = new StringSetting(applicationGroup,  "Proxy",        "application.proxy.http.password",             "");
@@ -167,6 +181,8 @@ public class Settings {
 	public static final Setting<Integer> JsonParallelizationThreshold = new IntegerSetting(advancedGroup, "JSON",   "json.parallelization.threshold", 100);
 	public static final Setting<Boolean> JsonLenient                  = new BooleanSetting(advancedGroup, "JSON",   "json.lenient",                   false);
 	public static final Setting<Boolean> ForceArrays                  = new BooleanSetting(advancedGroup, "JSON",   "json.output.forceArrays",        false);
+	public static final Setting<Boolean> JsonByteOutput               = new BooleanSetting(advancedGroup, "JSON",   "json.output.bytes",              false, "Write JSON responses as UTF-8 bytes directly to the response stream instead of using the servlet writer");
+	public static final Setting<Integer> JsonOutputBufferSize         = new IntegerSetting(advancedGroup, "JSON",   "json.output.buffersize",         65536, "Size (bytes) of the output buffer that is written to the response stream when json.output.bytes is enabled");
 
 	public static final Setting<String> GeocodingProvider        = new StringSetting(advancedGroup,  "Geocoding",   "geocoding.provider",            "org.structr.common.geo.GoogleGeoCodingProvider");
 	public static final Setting<String> GeocodingLanguage        = new StringSetting(advancedGroup,  "Geocoding",   "geocoding.language",            "de");
@@ -210,6 +226,16 @@ public class Settings {
 	public static final Setting<Boolean> HtmlUserAutocreate       = new BooleanSetting(servletsGroup, "HtmlServlet", "HtmlServlet.user.autocreate",       true);
 	public static final Setting<String> HtmlResolveProperties     = new StringSetting(servletsGroup,  "HtmlServlet", "HtmlServlet.resolveProperties",     "AbstractNode.name");
 	public static final Setting<String> HtmlCustomResponseHeaders = new TextSetting(servletsGroup,    "HtmlServlet", "HtmlServlet.customResponseHeaders", "Strict-Transport-Security:max-age=60,X-Content-Type-Options:nosniff,X-Frame-Options:SAMEORIGIN,X-XSS-Protection:1;mode=block");
+	public static final Setting<Integer> HtmlRenderThreads        = new IntegerSetting(servletsGroup, "HtmlServlet", "HtmlServlet.async.threads",         32, "Maximum number of threads that render pages asynchronously, further requests wait for a free thread");
+	public static final Setting<Integer> HtmlRenderQueueSize      = new IntegerSetting(servletsGroup, "HtmlServlet", "HtmlServlet.async.queue",           64, "Maximum number of asynchronously rendered pages that wait for a free render thread, further requests are answered with 503 Service Unavailable");
+	public static final Setting<Integer> HtmlRenderBufferSize     = new IntegerSetting(servletsGroup, "HtmlServlet", "HtmlServlet.async.buffer",          256, "Size (KB) of the output buffer of an asynchronously rendered page, rendering is paused while the buffer is full");
+	public static final Setting<Integer> HtmlRenderTimeout        = new IntegerSetting(servletsGroup, "HtmlServlet", "HtmlServlet.async.timeout",         60,  "Time (seconds) after which an asynchronously rendered page is aborted, including the time it waits for a free render thread");
+	public static final Setting<Integer> HtmlRenderStallTimeout   = new IntegerSetting(servletsGroup, "HtmlServlet", "HtmlServlet.async.stalltimeout",    30,  "Time (seconds) the render thread waits for the client to read output from a full buffer before rendering is aborted");
+	public static final Setting<Integer> HtmlFragmentCacheSize    = new IntegerSetting(servletsGroup, "HtmlServlet", "HtmlServlet.fragmentcache.size",    1000, "Maximum number of rendered fragments (elements with cacheFragment=true) that are cached on the server, 0 disables the fragment cache");
+	public static final Setting<Integer> HtmlFragmentCacheTimeout = new IntegerSetting(servletsGroup, "HtmlServlet", "HtmlServlet.fragmentcache.timeout", 300,  "Time (seconds) after which a cached fragment is rendered again even if the data it depends on was not modified");
+	public static final Setting<Integer> HtmlRenderProgramsSize   = new IntegerSetting(servletsGroup, "HtmlServlet", "HtmlServlet.renderprograms.size",   100,  "Maximum number of pages whose compiled render programs are cached on the server, 0 disables render programs");
+	public static final Setting<Integer> HtmlFileCacheSize        = new IntegerSetting(servletsGroup, "HtmlServlet", "HtmlServlet.filecache.size",        200,  "Maximum number of small files whose content is kept in memory for delivery, 0 disables the file cache");
+	public static final Setting<Integer> HtmlFileCacheMaxFileSize = new IntegerSetting(servletsGroup, "HtmlServlet", "HtmlServlet.filecache.maxfilesize", 256,  "Maximum size (KB) of a file whose content is kept in memory for delivery");
 
 	public static final Setting<String> PdfServletPath           = new StringSetting(servletsGroup,  "PdfServlet", "PdfServlet.path",                  "/structr/pdf/*");
 	public static final Setting<String> PdfServletClass          = new StringSetting(servletsGroup,  "PdfServlet", "PdfServlet.class",                 "org.structr.pdf.servlet.PdfServlet");
@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.graph;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Labels and initial properties of a node that is to be created
+ * in a batch.
+ */
+public class NodeCreationData {
+
+	private Map<String, Object> properties = null;
+	private Set<String> labels             = null;
+
+	public NodeCreationData(final Set<String> labels, final Map<String, Object> properties) {
+
+		this.labels     = labels;
+		this.properties = properties;
+	}
+
+	public Set<String> getLabels() {
+		return labels;
+	}
+
+	public Map<String, Object> getProperties() {
+		return properties;
+	}
+}
@@ -27,4 +27,24 @@ import org.structr.api.search.QueryPredicate;
 public interface Index<T> {
 
 	Iterable<T> query(final QueryContext context, final QueryPredicate predicate);
+
+	/**
+	 * Returns the number of results of the given query without fetching
+	 * them, or -1 if the query can not be counted in the database.
+	 *
+	 * @param context
+	 * @param predicate
+	 * @return the number of results, or -1
+	 */
+	long count(final QueryContext context, final QueryPredicate predicate);
+
+	/**
+	 * Returns an estimate of the number of results of the given query
+	 * that is based on the type only and ignores all other predicates.
+	 *
+	 * @param context
+	 * @param predicate
+	 * @return the estimated number of results
+	 */
+	long estimateCount(final QueryContext context, final QueryPredicate predicate);
 }
@@ -29,6 +29,10 @@ public class QueryContext {
 
 	private boolean isPing = false;
 
+	private boolean keyset     = false;
+	private QueryCursor cursor = null;
+	private int pageSize       = -1;
+
 	public QueryContext() {
 	}
 
@@ -62,4 +66,36 @@ public class QueryContext {
 		return this.isPing;
 	}
 
+	/**
+	 * Enables keyset pagination for this query. Results are ordered by
+	 * the sort key and the database ID, and only results that come after
+	 * the given cursor are returned. A null cursor selects the first page.
+	 * The database returns the results in pages of the given size, each
+	 * page continues after the last result of the previous one.
+	 *
+	 * @param cursor the position after which results are returned, or null
+	 * @param pageSize the number of results fetched per page
+	 * @return this
+	 */
+	public QueryContext keyset(final QueryCursor cursor, final int pageSize) {
+
+		this.keyset   = true;
+		this.cursor   = cursor;
+		this.pageSize = pageSize;
+
+		return this;
+	}
+
+	public boolean isKeyset() {
+		return keyset;
+	}
+
+	public QueryCursor getCursor() {
+		return cursor;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
 }
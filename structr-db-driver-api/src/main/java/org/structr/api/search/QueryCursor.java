@@ -0,0 +1,213 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Position in a sorted query result, used for keyset pagination. A cursor
+ * consists of the sort value and the database ID of the last element of
+ * the previous page, the ID is used to break ties between equal values.
+ *
+ * Only scalar sort values (strings, numbers, booleans and dates) can be
+ * compared in the database. For all other values, the cursor contains
+ * only the offset of the next page, and pagination continues by offset.
+ *
+ * Cursors are encoded into an opaque, URL-safe string so they can be
+ * handed out to clients and passed back unchanged.
+ */
+public class QueryCursor {
+
+	private Object value   = null;
+	private boolean keyset = true;
+	private long id        = -1L;
+	private int offset     = 0;
+
+	public QueryCursor(final Object value, final long id) {
+		this(value, id, 0);
+	}
+
+	public QueryCursor(final Object value, final long id, final int offset) {
+
+		this.keyset = isSupportedValue(value);
+		this.value  = keyset ? value : null;
+		this.id     = id;
+		this.offset = offset;
+	}
+
+	private QueryCursor(final long id, final int offset) {
+
+		this.keyset = false;
+		this.id     = id;
+		this.offset = offset;
+	}
+
+	public Object getValue() {
+		return value;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the number of results before the position of this cursor.
+	 *
+	 * @return the offset
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Indicates whether this cursor can be used in a keyset predicate,
+	 * or whether pagination must continue at the offset of the cursor.
+	 *
+	 * @return whether the sort value of this cursor is comparable
+	 */
+	public boolean isKeyset() {
+		return keyset;
+	}
+
+	@Override
+	public String toString() {
+		return encode();
+	}
+
+	public String encode() {
+
+		final StringBuilder buf = new StringBuilder();
+
+		buf.append(id);
+		buf.append(":");
+		buf.append(offset);
+		buf.append(":");
+
+		if (!keyset) {
+
+			buf.append("O");
+
+		} else if (value == null) {
+
+			buf.append("N");
+
+		} else if (value instanceof Boolean) {
+
+			buf.append("B");
+			buf.append(value);
+
+		} else if (value instanceof Float || value instanceof Double) {
+
+			buf.append("D");
+			buf.append(((Number)value).doubleValue());
+
+		} else if (value instanceof Number) {
+
+			buf.append("L");
+			buf.append(((Number)value).longValue());
+
+		} else if (value instanceof Date) {
+
+			buf.append("T");
+			buf.append(((Date)value).getTime());
+
+		} else {
+
+			buf.append("S");
+			buf.append((String)value);
+		}
+
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(buf.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Decodes a cursor that was created by {@link #encode()}.
+	 *
+	 * @param source the encoded cursor
+	 * @return the cursor
+	 *
+	 * @throws IllegalArgumentException if the source is not a valid cursor
+	 */
+	public static QueryCursor decode(final String source) {
+
+		try {
+
+			final String decoded = new String(Base64.getUrlDecoder().decode(source), StandardCharsets.UTF_8);
+			final int pos1       = decoded.indexOf(":");
+			final int pos2       = decoded.indexOf(":", pos1 + 1);
+			final long id        = Long.parseLong(decoded.substring(0, pos1));
+			final int offset     = Integer.parseInt(decoded.substring(pos1 + 1, pos2));
+			final String value   = decoded.substring(pos2 + 2);
+
+			if (offset >= 0) {
+
+				switch (decoded.charAt(pos2 + 1)) {
+
+					case 'O':
+						return new QueryCursor(id, offset);
+
+					case 'N':
+						return new QueryCursor(null, id, offset);
+
+					case 'B':
+						return new QueryCursor(Boolean.valueOf(value), id, offset);
+
+					case 'D':
+						return new QueryCursor(Double.valueOf(value), id, offset);
+
+					case 'L':
+						return new QueryCursor(Long.valueOf(value), id, offset);
+
+					case 'T':
+						// dates are stored as epoch milliseconds
+						return new QueryCursor(Long.valueOf(value), id, offset);
+
+					case 'S':
+						return new QueryCursor(value, id, offset);
+				}
+			}
+
+		} catch (RuntimeException ignore) {}
+
+		throw new IllegalArgumentException("Invalid cursor " + source);
+	}
+
+	/**
+	 * Indicates whether the given sort value can be encoded into a cursor
+	 * and compared with the stored values in the database.
+	 *
+	 * @param value
+	 * @return whether the value is a supported scalar value
+	 */
+	public static boolean isSupportedValue(final Object value) {
+
+		return value == null
+			|| value instanceof String
+			|| value instanceof Boolean
+			|| value instanceof Date
+			|| value instanceof Double
+			|| value instanceof Float
+			|| value instanceof Long
+			|| value instanceof Integer
+			|| value instanceof Short
+			|| value instanceof Byte;
+	}
+}
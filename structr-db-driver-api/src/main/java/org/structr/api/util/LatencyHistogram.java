@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram with logarithmic buckets that are split into
+ * eight linear sub-buckets each, similar to an HDR histogram with three
+ * significant bits. Recorded values are accurate to 12.5%, independent
+ * of their magnitude.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS  = 3;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKET_COUNT     = 64 - SUB_BUCKET_BITS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT * SUB_BUCKET_COUNT);
+	private final LongAccumulator max    = new LongAccumulator(Long::max, 0L);
+	private final LongAdder total        = new LongAdder();
+	private final LongAdder count        = new LongAdder();
+
+	public void record(final long value) {
+
+		final long positive = Math.max(0L, value);
+
+		counts.incrementAndGet(indexFor(positive));
+		max.accumulate(positive);
+		total.add(positive);
+		count.increment();
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getTotal() {
+		return total.sum();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public double getMean() {
+
+		final long n = getCount();
+		if (n > 0) {
+
+			return (double)getTotal() / (double)n;
+		}
+
+		return 0.0;
+	}
+
+	/**
+	 * Returns the highest value that is equivalent to the value at the
+	 * given percentile, i.e. an upper bound with the precision of the
+	 * histogram.
+	 *
+	 * @param percentile a value between 0 and 100
+	 * @return the value at the given percentile
+	 */
+	public long getValueAtPercentile(final double percentile) {
+
+		final long n = getCount();
+		if (n == 0) {
+			return 0L;
+		}
+
+		final long target = Math.max(1L, (long)Math.ceil((Math.min(100.0, percentile) / 100.0) * n));
+		long sum          = 0L;
+
+		for (int i=0; i<counts.length(); i++) {
+
+			sum += counts.get(i);
+
+			if (sum >= target) {
+				return Math.min(upperBound(i), getMax());
+			}
+		}
+
+		return getMax();
+	}
+
+	public void reset() {
+
+		for (int i=0; i<counts.length(); i++) {
+			counts.set(i, 0L);
+		}
+
+		max.reset();
+		total.reset();
+		count.reset();
+	}
+
+	// ----- static methods -----
+	static int indexFor(final long value) {
+
+		if (value < SUB_BUCKET_COUNT) {
+			return (int)value;
+		}
+
+		final int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+		final int sub   = (int)((value >>> shift) & (SUB_BUCKET_COUNT - 1));
+
+		return (shift + 1) * SUB_BUCKET_COUNT + sub;
+	}
+
+	static long lowerBound(final int index) {
+
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+
+		final int shift = (index / SUB_BUCKET_COUNT) - 1;
+		final int sub   = index % SUB_BUCKET_COUNT;
+
+		return ((long)(SUB_BUCKET_COUNT + sub)) << shift;
+	}
+
+	static long upperBound(final int index) {
+
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+
+		final int shift = (index / SUB_BUCKET_COUNT) - 1;
+
+		return lowerBound(index) + (1L << shift) - 1L;
+	}
+}
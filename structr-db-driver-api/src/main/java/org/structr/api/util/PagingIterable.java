@@ -18,7 +18,12 @@
  */
 package org.structr.api.util;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,9 +32,14 @@ import org.slf4j.LoggerFactory;
  */
 public class PagingIterable<T> implements ResultStream<T> {
 
-	private static final Logger logger = LoggerFactory.getLogger(PagingIterable.class);
-	private PagingIterator<T> source   = null;
-	private String queryTimeFormatted  = null;
+	private static final Logger logger         = LoggerFactory.getLogger(PagingIterable.class);
+	private Function<T, String> cursorFunction = null;
+	private IntSupplier resultCountFunction    = null;
+	private Consumer<List<T>> prefetchFunction = null;
+	private PagingIterator<T> source           = null;
+	private String queryTimeFormatted          = null;
+	private int resultCount                    = -1;
+	private int prefetchBatchSize              = 0;
 
 	public PagingIterable(final Iterable<T> source) {
 		this(source, Integer.MAX_VALUE, 1);
@@ -39,6 +49,10 @@ public class PagingIterable<T> implements ResultStream<T> {
 		this.source = new PagingIterator<>(source.iterator(), page, pageSize);
 	}
 
+	public PagingIterable(final Iterable<T> source, final int pageSize, final int page, final int skip) {
+		this.source = new PagingIterator<>(source.iterator(), page, pageSize, skip);
+	}
+
 	@Override
 	public Iterator<T> iterator() {
 
@@ -48,16 +62,41 @@ public class PagingIterable<T> implements ResultStream<T> {
 			Thread.dumpStack();
 		}
 
+		if (prefetchFunction != null) {
+			return new PrefetchingIterator();
+		}
+
 		return source;
 	}
 
 	@Override
 	public int calculateTotalResultCount() {
+
+		if (resultCountFunction != null) {
+
+			if (resultCount < 0) {
+				resultCount = resultCountFunction.getAsInt();
+			}
+
+			if (resultCount >= 0) {
+				return resultCount;
+			}
+		}
+
 		return source.getResultCount();
 	}
 
 	@Override
 	public int calculatePageCount() {
+
+		if (resultCountFunction != null) {
+
+			final double resultCount = calculateTotalResultCount();
+			final double pageSize    = getPageSize();
+
+			return (int) Math.rint(Math.ceil(resultCount / pageSize));
+		}
+
 		return source.getPageCount();
 	}
 
@@ -81,6 +120,57 @@ public class PagingIterable<T> implements ResultStream<T> {
 		return queryTimeFormatted;
 	}
 
+	@Override
+	public String getNextCursor() {
+
+		if (cursorFunction != null && source.isPageComplete()) {
+
+			final T last = source.getLastElement();
+			if (last != null) {
+
+				return cursorFunction.apply(last);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Enables keyset pagination by setting the function that creates
+	 * a cursor from the last element of this page.
+	 *
+	 * @param cursorFunction
+	 */
+	public void setCursorFunction(final Function<T, String> cursorFunction) {
+		this.cursorFunction = cursorFunction;
+	}
+
+	/**
+	 * Sets a function that determines the total number of results
+	 * without consuming this iterable, e.g. with a COUNT query. If
+	 * the function returns a negative value, the results are counted
+	 * by iterating over them.
+	 *
+	 * @param resultCountFunction
+	 */
+	public void setResultCountFunction(final IntSupplier resultCountFunction) {
+		this.resultCountFunction = resultCountFunction;
+	}
+
+	/**
+	 * Sets a function that is called with batches of elements of this
+	 * page before they are returned, e.g. to load related data for
+	 * several elements at once.
+	 *
+	 * @param prefetchFunction
+	 * @param batchSize
+	 */
+	public void setPrefetchFunction(final Consumer<List<T>> prefetchFunction, final int batchSize) {
+
+		this.prefetchFunction  = prefetchFunction;
+		this.prefetchBatchSize = Math.max(1, batchSize);
+	}
+
 	public static final PagingIterable EMPTY_ITERABLE = new PagingIterable(() -> new Iterator() {
 
 		@Override
@@ -98,4 +188,42 @@ public class PagingIterable<T> implements ResultStream<T> {
 	public boolean isConsumed() {
 		return source != null && source.isConsumed();
 	}
+
+	// ----- nested classes -----
+	private class PrefetchingIterator implements Iterator<T> {
+
+		private final List<T> batch = new ArrayList<>();
+		private Iterator<T> current = null;
+
+		@Override
+		public boolean hasNext() {
+
+			if (current == null || !current.hasNext()) {
+
+				batch.clear();
+
+				while (batch.size() < prefetchBatchSize && source.hasNext()) {
+					batch.add(source.next());
+				}
+
+				if (!batch.isEmpty()) {
+					prefetchFunction.accept(batch);
+				}
+
+				current = batch.iterator();
+			}
+
+			return current.hasNext();
+		}
+
+		@Override
+		public T next() {
+
+			if (hasNext()) {
+				return current.next();
+			}
+
+			throw new IllegalStateException("This iterator is empty.");
+		}
+	}
 }
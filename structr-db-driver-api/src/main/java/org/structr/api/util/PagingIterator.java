@@ -29,15 +29,32 @@ public class PagingIterator<T> implements Iterator<T> {
 	private final Iterator<T> iterator;
 	private final int page;
 	private final int pageSize;
+	private final int skip;
 	private int currentIndex;
 	private boolean consumed = false;
+	private int returned     = 0;
+	private T last           = null;
 
 	public PagingIterator(final Iterator<T> iterator, final int page, final int pageSize) {
+		this(iterator, page, pageSize, 0);
+	}
+
+	/**
+	 * Creates a paging iterator that skips the given number of elements
+	 * in addition to the preceding pages.
+	 *
+	 * @param iterator
+	 * @param page
+	 * @param pageSize
+	 * @param skip
+	 */
+	public PagingIterator(final Iterator<T> iterator, final int page, final int pageSize, final int skip) {
 
 		this.currentIndex = 0;
 		this.iterator     = iterator;
 		this.page         = page;
 		this.pageSize     = pageSize;
+		this.skip         = skip;
 
 		//On initialization forward iterator to page offset.
 		iterateToOffset();
@@ -56,14 +73,14 @@ public class PagingIterator<T> implements Iterator<T> {
 
 		if (page == 0) {
 
-			return 0;
+			return skip;
 
 		} else if (page  > 0) {
 
-			return pageSize == Integer.MAX_VALUE ? 0 : (page - 1) * pageSize;
+			return skip + (pageSize == Integer.MAX_VALUE ? 0 : (page - 1) * pageSize);
 		}
 
-		return 0;
+		return skip;
 	}
 
 	private int getLimitOffset() {
@@ -108,6 +125,10 @@ public class PagingIterator<T> implements Iterator<T> {
 			T next = iterator.next();
 			currentIndex++;
 
+			// remember the last element of the page for keyset pagination
+			last = next;
+			returned++;
+
 			return next;
 
 		}
@@ -147,4 +168,22 @@ public class PagingIterator<T> implements Iterator<T> {
 	public boolean isConsumed() {
 		return consumed;
 	}
+
+	/**
+	 * Returns the last element that was returned by this iterator, or null.
+	 *
+	 * @return the last element
+	 */
+	public T getLastElement() {
+		return last;
+	}
+
+	/**
+	 * Indicates whether this iterator has returned a full page of elements.
+	 *
+	 * @return whether the page is complete
+	 */
+	public boolean isPageComplete() {
+		return returned >= pageSize;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,256 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
+
+/**
+ * Collects latency, row count and caller statistics per statement shape.
+ * The shape of a statement is the statement text with all literal values
+ * and superfluous whitespace removed, so that statements that only differ
+ * in their parameters share the same statistics.
+ */
+public class QueryStatistics implements QueryStatisticsMXBean {
+
+	private static final Logger logger                 = LoggerFactory.getLogger(QueryStatistics.class.getName());
+	private static final Pattern STRING_LITERAL        = Pattern.compile("'(?:[^'\\\\]|\\\\.)*'|\"(?:[^\"\\\\]|\\\\.)*\"");
+	private static final Pattern NUMBER_LITERAL        = Pattern.compile("(?<![\\w.`])-?\\d+(?:\\.\\d+)?\\b");
+	private static final Pattern LIST_LITERAL          = Pattern.compile("\\[\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\]");
+	private static final Pattern WHITESPACE            = Pattern.compile("\\s+");
+	private static final String OTHER                  = "other";
+	private static final int MAX_SHAPES                = 2000;
+	private static final int TOP_STATEMENTS            = 100;
+	private static final int SUBSYSTEM_SAMPLE_INTERVAL = 128;
+
+	private final Map<String, StatementStatistics> statistics = new ConcurrentHashMap<>();
+	private final SegmentedCache<String, String> shapes       = new SegmentedCache<>(10000);
+	private final LongAdder statementCount                    = new LongAdder();
+	private final LongAdder slowStatementCount                = new LongAdder();
+
+	/**
+	 * Records a single execution of the given statement.
+	 *
+	 * @param statement the statement
+	 * @param parameters the parameters, only used for the slow query log
+	 * @param nanos the execution time in nanoseconds
+	 * @param rows the number of rows returned
+	 */
+	public void record(final String statement, final Map<String, Object> parameters, final long nanos, final long rows) {
+
+		if (!Settings.CypherStatistics.getValue()) {
+			return;
+		}
+
+		final StatementStatistics stats = getStatistics(getShape(statement));
+		final long micros               = nanos / 1000L;
+		final long millis               = micros / 1000L;
+		final int threshold             = Settings.CypherSlowQueryTime.getValue();
+		final boolean slow              = threshold > 0 && millis >= threshold;
+
+		stats.record(micros, rows, slow);
+		statementCount.increment();
+
+		if (slow) {
+
+			slowStatementCount.increment();
+
+			if (statement.contains("extractedContent")) {
+
+				logger.warn("Slow query ({} ms, {} rows): {} - parameters suppressed", millis, rows, statement);
+
+			} else {
+
+				logger.warn("Slow query ({} ms, {} rows): {} Parameters: {}", millis, rows, statement, parameters);
+			}
+		}
+	}
+
+	/**
+	 * Returns the statistics of all statement shapes, ordered by their
+	 * total execution time, with the most expensive shape first.
+	 *
+	 * @param limit the maximum number of shapes to return
+	 * @return a list of statement summaries
+	 */
+	public List<StatementSummary> getStatements(final int limit) {
+
+		final List<StatementSummary> summaries = new ArrayList<>();
+
+		for (final Entry<String, StatementStatistics> entry : statistics.entrySet()) {
+			summaries.add(entry.getValue().summarize(entry.getKey()));
+		}
+
+		Collections.sort(summaries, Comparator.comparingDouble(StatementSummary::getTotalMillis).reversed());
+
+		if (limit >= 0 && summaries.size() > limit) {
+			return new ArrayList<>(summaries.subList(0, limit));
+		}
+
+		return summaries;
+	}
+
+	// ----- interface QueryStatisticsMXBean -----
+	@Override
+	public long getStatementCount() {
+		return statementCount.sum();
+	}
+
+	@Override
+	public long getSlowStatementCount() {
+		return slowStatementCount.sum();
+	}
+
+	@Override
+	public int getShapeCount() {
+		return statistics.size();
+	}
+
+	@Override
+	public List<StatementSummary> getTopStatements() {
+		return getStatements(TOP_STATEMENTS);
+	}
+
+	@Override
+	public void reset() {
+
+		statistics.clear();
+		statementCount.reset();
+		slowStatementCount.reset();
+	}
+
+	// ----- public static methods -----
+	/**
+	 * Removes all literal values and superfluous whitespace from the
+	 * given statement.
+	 *
+	 * @param statement
+	 * @return the shape of the statement
+	 */
+	public static String normalize(final String statement) {
+
+		String shape = statement;
+
+		shape = STRING_LITERAL.matcher(shape).replaceAll("?");
+		shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+		shape = LIST_LITERAL.matcher(shape).replaceAll("[?]");
+		shape = WHITESPACE.matcher(shape).replaceAll(" ");
+
+		return shape.trim();
+	}
+
+	// ----- private methods -----
+	private String getShape(final String statement) {
+		return shapes.get(statement, s -> true, () -> normalize(statement));
+	}
+
+	private StatementStatistics getStatistics(final String shape) {
+
+		StatementStatistics stats = statistics.get(shape);
+		if (stats == null) {
+
+			// limit the number of distinct shapes, e.g. for native queries with inlined values
+			final String key = statistics.size() < MAX_SHAPES ? shape : OTHER;
+
+			stats = statistics.computeIfAbsent(key, k -> new StatementStatistics());
+		}
+
+		return stats;
+	}
+
+	private static String getSubsystem() {
+
+		for (final StackTraceElement element : new Throwable().getStackTrace()) {
+
+			final String className = element.getClassName();
+
+			if (className.startsWith("org.structr.") && !isDataLayer(className)) {
+
+				final String[] parts    = className.split("\\.");
+				final int length        = Math.min(parts.length - 1, 4);
+				final StringBuilder buf = new StringBuilder(parts[0]);
+
+				for (int i=1; i<length; i++) {
+					buf.append(".").append(parts[i]);
+				}
+
+				return buf.toString();
+			}
+		}
+
+		return OTHER;
+	}
+
+	private static boolean isDataLayer(final String className) {
+
+		return className.startsWith("org.structr.api.")
+			|| className.startsWith("org.structr.bolt.")
+			|| className.startsWith("org.structr.core.graph.")
+			|| className.startsWith("org.structr.core.app.")
+			|| className.startsWith("org.structr.core.property.")
+			|| className.startsWith("org.structr.core.entity.");
+	}
+
+	// ----- nested classes -----
+	private static class StatementStatistics {
+
+		private final Map<String, LongAdder> subsystems = new ConcurrentHashMap<>();
+		private final LatencyHistogram histogram        = new LatencyHistogram();
+		private final LongAdder rows                    = new LongAdder();
+		private final LongAdder slow                    = new LongAdder();
+
+		public void record(final long micros, final long rowCount, final boolean isSlow) {
+
+			histogram.record(micros);
+			rows.add(rowCount);
+
+			if (isSlow) {
+				slow.increment();
+			}
+
+			// walking the stack is expensive, so only every n-th call is attributed to a subsystem
+			if (isSlow || histogram.getCount() % SUBSYSTEM_SAMPLE_INTERVAL == 1) {
+
+				subsystems.computeIfAbsent(getSubsystem(), k -> new LongAdder()).increment();
+			}
+		}
+
+		public StatementSummary summarize(final String shape) {
+
+			final Map<String, Long> callers = new LinkedHashMap<>();
+
+			for (final Entry<String, LongAdder> entry : subsystems.entrySet()) {
+				callers.put(entry.getKey(), entry.getValue().sum());
+			}
+
+			return new StatementSummary(shape, histogram, rows.sum(), slow.sum(), callers);
+		}
+	}
+}
@@ -27,7 +27,8 @@ public interface ResultStream<T> extends Iterable<T> {
 	/**
 	 * Calculates and returns the total number of results
 	 * in this result stream. Note that calling this method
-	 * causes the full result to be pulled into memory.
+	 * causes the full result to be pulled into memory unless
+	 * the result can be counted in the database.
 	 *
 	 * @return the total number of results in this result stream
 	 */
@@ -36,7 +37,8 @@ public interface ResultStream<T> extends Iterable<T> {
 	/**
 	 * Calculates and returns the total number of result pages
 	 * in this result stream. Note that calling this method
-	 * causes the full result to be pulled into memory.
+	 * causes the full result to be pulled into memory unless
+	 * the result can be counted in the database.
 	 *
 	 * @return the total number of result pages in this result stream
 	 */
@@ -47,4 +49,13 @@ public interface ResultStream<T> extends Iterable<T> {
 
 	void setQueryTime(final String formattedTime);
 	String getQueryTime();
+
+	/**
+	 * Returns an opaque cursor that points behind the last element of
+	 * this result page, or null if keyset pagination is not enabled or
+	 * there are no more results.
+	 *
+	 * @return the cursor for the next page, or null
+	 */
+	String getNextCursor();
 }
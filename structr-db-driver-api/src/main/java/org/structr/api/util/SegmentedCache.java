@@ -0,0 +1,343 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.util;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A concurrent, size-bounded cache that is split into independent
+ * segments. Reads never lock, writes only contend within a segment.
+ * Eviction uses the CLOCK (second chance) algorithm per segment, which
+ * approximates LRU without reordering entries on every read. Values
+ * that implement {@link Cachable} are notified when they are evicted.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class SegmentedCache<K, V> {
+
+	private static final int MAX_SEGMENTS         = 64;
+	private static final int MIN_SEGMENT_CAPACITY = 16;
+
+	private final LongAdder hits      = new LongAdder();
+	private final LongAdder misses    = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private Segment<K, V>[] segments  = null;
+	private int segmentMask           = 0;
+	private int maxSize               = 0;
+
+	public SegmentedCache(final int maxSize) {
+
+		final int segmentCount = getSegmentCount(maxSize);
+
+		this.maxSize     = maxSize;
+		this.segments    = new Segment[segmentCount];
+		this.segmentMask = segmentCount - 1;
+
+		for (int i=0; i<segmentCount; i++) {
+
+			// distribute remaining capacity over the first segments so the total equals maxSize
+			final int capacity = (maxSize / segmentCount) + (i < (maxSize % segmentCount) ? 1 : 0);
+
+			segments[i] = new Segment<>(Math.max(1, capacity), evictions);
+		}
+	}
+
+	public V get(final K key) {
+
+		final CacheEntry<K, V> entry = segmentFor(key).map.get(key);
+		if (entry != null) {
+
+			entry.touch();
+			hits.increment();
+
+			return entry.value;
+		}
+
+		misses.increment();
+
+		return null;
+	}
+
+	/**
+	 * Returns the cached value for the given key if it exists and is
+	 * accepted by the given predicate, or creates, stores and returns a
+	 * new value. The factory is called outside of any lock, so it may be
+	 * called more than once for the same key under contention, but only
+	 * one of the created values is ever published.
+	 *
+	 * @param key
+	 * @param isValid
+	 * @param factory
+	 * @return the cached or newly created value
+	 */
+	public V get(final K key, final Predicate<V> isValid, final Supplier<V> factory) {
+
+		final Segment<K, V> segment = segmentFor(key);
+		CacheEntry<K, V> existing   = segment.map.get(key);
+
+		if (existing != null && isValid.test(existing.value)) {
+
+			existing.touch();
+			hits.increment();
+
+			return existing.value;
+		}
+
+		misses.increment();
+
+		while (true) {
+
+			final CacheEntry<K, V> entry = new CacheEntry<>(key, factory.get());
+
+			if (existing == null ? segment.map.putIfAbsent(key, entry) == null : segment.map.replace(key, existing, entry)) {
+
+				segment.enqueue(entry);
+				return entry.value;
+			}
+
+			// another thread was faster, use its value if possible
+			existing = segment.map.get(key);
+			if (existing != null && isValid.test(existing.value)) {
+
+				existing.touch();
+				return existing.value;
+			}
+		}
+	}
+
+	public void put(final K key, final V value) {
+
+		final Segment<K, V> segment  = segmentFor(key);
+		final CacheEntry<K, V> entry = new CacheEntry<>(key, value);
+
+		segment.map.put(key, entry);
+		segment.enqueue(entry);
+	}
+
+	public void removeAll(final Collection<K> keys) {
+
+		for (final K key : keys) {
+			remove(key);
+		}
+	}
+
+	public void remove(final K key) {
+		segmentFor(key).map.remove(key);
+	}
+
+	public void clear() {
+
+		for (final Segment<K, V> segment : segments) {
+			segment.clear();
+		}
+	}
+
+	public int size() {
+
+		int size = 0;
+
+		for (final Segment<K, V> segment : segments) {
+			size += segment.map.size();
+		}
+
+		return size;
+	}
+
+	public boolean isEmpty() {
+
+		for (final Segment<K, V> segment : segments) {
+
+			if (!segment.map.isEmpty()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	// ----- private methods -----
+	private Segment<K, V> segmentFor(final K key) {
+
+		final int hash = key.hashCode();
+
+		return segments[(hash ^ (hash >>> 16)) & segmentMask];
+	}
+
+	private int getSegmentCount(final int maxSize) {
+
+		final int processors = Runtime.getRuntime().availableProcessors();
+		int count            = 1;
+
+		// power of two, at least one segment per processor, but keep segments reasonably large
+		while (count < MAX_SEGMENTS && count < processors * 4 && (maxSize / (count * 2)) >= MIN_SEGMENT_CAPACITY) {
+			count *= 2;
+		}
+
+		return count;
+	}
+
+	// ----- nested classes -----
+	private static class CacheEntry<K, V> {
+
+		private volatile boolean referenced = false;
+		private K key                       = null;
+		private V value                     = null;
+
+		public CacheEntry(final K key, final V value) {
+
+			this.key   = key;
+			this.value = value;
+		}
+
+		public void touch() {
+
+			// avoid unnecessary writes to shared cache lines
+			if (!referenced) {
+				referenced = true;
+			}
+		}
+	}
+
+	private static class Segment<K, V> {
+
+		private final ConcurrentLinkedQueue<CacheEntry<K, V>> clock = new ConcurrentLinkedQueue<>();
+		private final ConcurrentHashMap<K, CacheEntry<K, V>> map    = new ConcurrentHashMap<>();
+		private final ReentrantLock evictionLock                    = new ReentrantLock();
+		private final AtomicInteger queued                          = new AtomicInteger();
+		private LongAdder evictions                                 = null;
+		private int capacity                                        = 0;
+
+		public Segment(final int capacity, final LongAdder evictions) {
+
+			this.capacity  = capacity;
+			this.evictions = evictions;
+		}
+
+		public void enqueue(final CacheEntry<K, V> entry) {
+
+			clock.offer(entry);
+			queued.incrementAndGet();
+
+			// writers never wait for each other here, one of them does the work and
+			// checks again after releasing the lock so no concurrent insert is missed
+			while (needsEviction() && evictionLock.tryLock()) {
+
+				try {
+
+					evict();
+
+				} finally {
+
+					evictionLock.unlock();
+				}
+			}
+		}
+
+		public void clear() {
+
+			evictionLock.lock();
+			try {
+
+				map.clear();
+				clock.clear();
+				queued.set(0);
+
+			} finally {
+
+				evictionLock.unlock();
+			}
+		}
+
+		// ----- private methods -----
+		private boolean needsEviction() {
+			return map.size() > capacity || queued.get() > capacity * 2;
+		}
+
+		private void evict() {
+
+			// each entry gets at most one second chance per eviction run, entries
+			// that are referenced again concurrently are evicted in the next round
+			int secondChances = queued.get();
+
+			while (map.size() > capacity) {
+
+				final CacheEntry<K, V> entry = clock.poll();
+				if (entry == null) {
+					break;
+				}
+
+				queued.decrementAndGet();
+
+				if (map.get(entry.key) != entry) {
+
+					// entry was replaced or removed, drop it
+					continue;
+				}
+
+				if (entry.referenced && secondChances-- > 0) {
+
+					entry.referenced = false;
+
+					clock.offer(entry);
+					queued.incrementAndGet();
+
+				} else if (map.remove(entry.key, entry)) {
+
+					evictions.increment();
+
+					if (entry.value instanceof Cachable) {
+
+						((Cachable)entry.value).onRemoveFromCache();
+					}
+				}
+			}
+
+			// purge entries that were replaced or removed from the map
+			if (queued.get() > capacity * 2) {
+
+				clock.removeIf(entry -> map.get(entry.key) != entry);
+				queued.set(clock.size());
+			}
+		}
+	}
+}
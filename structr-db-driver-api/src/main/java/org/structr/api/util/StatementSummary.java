@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of the statistics of a single statement shape.
+ */
+public class StatementSummary {
+
+	private Map<String, Long> subsystems = null;
+	private String shape                 = null;
+	private long count                   = 0L;
+	private long rows                    = 0L;
+	private long slowCount               = 0L;
+	private double totalMillis           = 0.0;
+	private double meanMillis            = 0.0;
+	private double p50Millis             = 0.0;
+	private double p95Millis             = 0.0;
+	private double p99Millis             = 0.0;
+	private double maxMillis             = 0.0;
+
+	public StatementSummary(final String shape, final LatencyHistogram histogram, final long rows, final long slowCount, final Map<String, Long> subsystems) {
+
+		this.shape       = shape;
+		this.count       = histogram.getCount();
+		this.rows        = rows;
+		this.slowCount   = slowCount;
+		this.subsystems  = subsystems;
+		this.totalMillis = toMillis(histogram.getTotal());
+		this.meanMillis  = histogram.getMean() / 1000.0;
+		this.p50Millis   = toMillis(histogram.getValueAtPercentile(50.0));
+		this.p95Millis   = toMillis(histogram.getValueAtPercentile(95.0));
+		this.p99Millis   = toMillis(histogram.getValueAtPercentile(99.0));
+		this.maxMillis   = toMillis(histogram.getMax());
+	}
+
+	public String getShape() {
+		return shape;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	public long getSlowCount() {
+		return slowCount;
+	}
+
+	public double getTotalMillis() {
+		return totalMillis;
+	}
+
+	public double getMeanMillis() {
+		return meanMillis;
+	}
+
+	public double getP50Millis() {
+		return p50Millis;
+	}
+
+	public double getP95Millis() {
+		return p95Millis;
+	}
+
+	public double getP99Millis() {
+		return p99Millis;
+	}
+
+	public double getMaxMillis() {
+		return maxMillis;
+	}
+
+	public Map<String, Long> getSubsystems() {
+		return subsystems;
+	}
+
+	public Map<String, Object> toMap() {
+
+		final Map<String, Object> map = new LinkedHashMap<>();
+
+		map.put("shape",       shape);
+		map.put("count",       count);
+		map.put("rows",        rows);
+		map.put("slowCount",   slowCount);
+		map.put("totalMillis", totalMillis);
+		map.put("meanMillis",  meanMillis);
+		map.put("p50Millis",   p50Millis);
+		map.put("p95Millis",   p95Millis);
+		map.put("p99Millis",   p99Millis);
+		map.put("maxMillis",   maxMillis);
+		map.put("subsystems",  subsystems);
+
+		return map;
+	}
+
+	// ----- private methods -----
+	private double toMillis(final long micros) {
+		return micros / 1000.0;
+	}
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.search;
+
+import java.util.Arrays;
+import java.util.Date;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.fail;
+import org.testng.annotations.Test;
+
+/**
+ *
+ */
+public class QueryCursorTest {
+
+	@Test
+	public void testEncodeDecode() {
+
+		for (final Object value : new Object[] { null, "test", "", "a:b:c", 123L, -1L, 1.5, true }) {
+
+			final QueryCursor cursor = QueryCursor.decode(new QueryCursor(value, 42L).encode());
+
+			assertEquals("Invalid cursor value", value, cursor.getValue());
+			assertEquals("Invalid cursor id", 42L, cursor.getId());
+		}
+
+		// integer types are normalized
+		assertEquals("Invalid cursor value", 7L, QueryCursor.decode(new QueryCursor(7, 1L).encode()).getValue());
+		assertNull("Invalid cursor value", QueryCursor.decode(new QueryCursor(null, 1L).encode()).getValue());
+	}
+
+	@Test
+	public void testDateAndOffset() {
+
+		final QueryCursor date = QueryCursor.decode(new QueryCursor(new Date(123456789L), 42L, 20).encode());
+
+		// dates are compared as epoch milliseconds in the database
+		assertTrue("Date cursor must use keyset pagination", date.isKeyset());
+		assertEquals("Invalid cursor value", 123456789L, date.getValue());
+		assertEquals("Invalid cursor offset", 20, date.getOffset());
+	}
+
+	@Test
+	public void testUnsupportedValueFallsBackToOffset() {
+
+		for (final Object value : new Object[] { new String[] { "a", "b" }, Arrays.asList(1L, 2L), new Object() }) {
+
+			final QueryCursor cursor = QueryCursor.decode(new QueryCursor(value, 42L, 30).encode());
+
+			assertFalse("Cursor with unsupported value must not use keyset pagination", cursor.isKeyset());
+			assertNull("Invalid cursor value", cursor.getValue());
+			assertEquals("Invalid cursor offset", 30, cursor.getOffset());
+		}
+	}
+
+	@Test
+	public void testInvalidCursor() {
+
+		for (final String source : new String[] { "", "invalid", "!!!", "MTIz", "MTI6LTE6Tg" }) {
+
+			try {
+
+				QueryCursor.decode(source);
+				fail("Invalid cursor " + source + " was accepted");
+
+			} catch (IllegalArgumentException expected) {}
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.util;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ *
+ */
+public class QueryStatisticsTest {
+
+	@Test
+	public void testHistogramBuckets() {
+
+		for (long value=0; value<100000; value++) {
+
+			final int index = LatencyHistogram.indexFor(value);
+
+			assertTrue("Value below lower bound of its bucket", LatencyHistogram.lowerBound(index) <= value);
+			assertTrue("Value above upper bound of its bucket", LatencyHistogram.upperBound(index) >= value);
+		}
+
+		assertEquals("Invalid bucket for maximum value", Long.MAX_VALUE, LatencyHistogram.upperBound(LatencyHistogram.indexFor(Long.MAX_VALUE)));
+	}
+
+	@Test
+	public void testHistogramPercentiles() {
+
+		final LatencyHistogram histogram = new LatencyHistogram();
+
+		for (int i=1; i<=1000; i++) {
+			histogram.record(i);
+		}
+
+		assertEquals("Invalid count", 1000, histogram.getCount());
+		assertEquals("Invalid max", 1000, histogram.getMax());
+		assertEquals("Invalid mean", 500.5, histogram.getMean(), 0.001);
+
+		final long p50 = histogram.getValueAtPercentile(50.0);
+		final long p99 = histogram.getValueAtPercentile(99.0);
+
+		// values are accurate to 12.5%
+		assertTrue("Invalid 50th percentile " + p50, p50 >= 500 && p50 <= 563);
+		assertTrue("Invalid 99th percentile " + p99, p99 >= 990 && p99 <= 1000);
+		assertEquals("Invalid 100th percentile", 1000, histogram.getValueAtPercentile(100.0));
+
+		histogram.reset();
+
+		assertEquals("Histogram was not reset", 0, histogram.getCount());
+		assertEquals("Histogram was not reset", 0, histogram.getValueAtPercentile(50.0));
+	}
+
+	@Test
+	public void testNormalize() {
+
+		assertEquals("MATCH (n:Test) WHERE n.name = ? RETURN n LIMIT ?", QueryStatistics.normalize("MATCH (n:Test)\n\tWHERE n.name = 'test'  RETURN n LIMIT 10"));
+		assertEquals("MATCH (n:Test2) WHERE n.name = {name} RETURN n", QueryStatistics.normalize("MATCH (n:Test2) WHERE n.name = {name} RETURN n"));
+		assertEquals("MATCH (n) WHERE ID(n) IN [?] RETURN n", QueryStatistics.normalize("MATCH (n) WHERE ID(n) IN [1, 2, 3] RETURN n"));
+		assertEquals("RETURN ?", QueryStatistics.normalize("RETURN \"it's \\\" quoted\""));
+		assertEquals("RETURN ? + ?", QueryStatistics.normalize("RETURN -1.5 + 2"));
+	}
+
+	@Test
+	public void testStatistics() {
+
+		final QueryStatistics statistics = new QueryStatistics();
+
+		statistics.record("MATCH (n) WHERE n.id = 'a' RETURN n", null, 2000000L, 1);
+		statistics.record("MATCH (n) WHERE n.id = 'b' RETURN n", null, 4000000L, 1);
+		statistics.record("MATCH (n) RETURN n",                  null, 1000000L, 5);
+
+		assertEquals("Invalid statement count", 3, statistics.getStatementCount());
+		assertEquals("Invalid shape count", 2, statistics.getShapeCount());
+
+		final StatementSummary first = statistics.getStatements(10).get(0);
+
+		assertEquals("Invalid order of statements", "MATCH (n) WHERE n.id = ? RETURN n", first.getShape());
+		assertEquals("Invalid count", 2, first.getCount());
+		assertEquals("Invalid row count", 2, first.getRows());
+		assertEquals("Invalid total time", 6.0, first.getTotalMillis(), 0.001);
+		assertEquals("Invalid limit", 1, statistics.getStatements(1).size());
+
+		statistics.reset();
+
+		assertEquals("Statistics were not reset", 0, statistics.getShapeCount());
+	}
+}
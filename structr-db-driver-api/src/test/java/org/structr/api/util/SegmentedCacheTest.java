@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.util;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ *
+ */
+public class SegmentedCacheTest {
+
+	@Test
+	public void testSizeLimit() {
+
+		final SegmentedCache<Long, Long> test = new SegmentedCache<>(1000);
+
+		for (int i=0; i<10000; i++) {
+
+			final Long value = Long.valueOf(i);
+			test.put(value, value);
+		}
+
+		assertTrue("Invalid SegmentedCache size", test.size() <= 1000);
+		assertTrue("Invalid SegmentedCache eviction count", test.getEvictionCount() >= 9000);
+	}
+
+	@Test
+	public void testRecentlyUsedEntriesSurvive() {
+
+		final SegmentedCache<Long, Long> test = new SegmentedCache<>(10);
+
+		for (int i=0; i<10; i++) {
+
+			final Long value = Long.valueOf(i);
+			test.put(value, value);
+		}
+
+		// mark first entry as recently used
+		assertEquals("Invalid SegmentedCache contents", Long.valueOf(0), test.get(0L));
+
+		test.put(10L, 10L);
+
+		assertEquals("Invalid SegmentedCache size", 10, test.size());
+		assertNotNull("Recently used entry was evicted", test.get(0L));
+		assertNull("Least recently used entry was not evicted", test.get(1L));
+	}
+
+	@Test
+	public void testRemovalCallback() {
+
+		final SegmentedCache<Long, TestCachable> test = new SegmentedCache<>(10);
+		final List<TestCachable> values               = new LinkedList<>();
+
+		for (int i=0; i<20; i++) {
+
+			final TestCachable value = new TestCachable();
+
+			test.put(Long.valueOf(i), value);
+			values.add(value);
+		}
+
+		int removed = 0;
+
+		for (final TestCachable value : values) {
+
+			if (value.removed) {
+				removed++;
+			}
+		}
+
+		assertEquals("Invalid number of removal callbacks", 10, removed);
+		assertEquals("Invalid eviction count", 10, test.getEvictionCount());
+	}
+
+	@Test
+	public void testStatistics() {
+
+		final SegmentedCache<Long, Long> test = new SegmentedCache<>(10);
+		final AtomicInteger created           = new AtomicInteger();
+
+		assertNull(test.get(1L));
+
+		final Long first  = test.get(1L, v -> true, () -> { created.incrementAndGet(); return 1L; });
+		final Long second = test.get(1L, v -> true, () -> { created.incrementAndGet(); return 2L; });
+
+		assertSame("Cached value was not returned", first, second);
+		assertEquals("Factory was called for cached value", 1, created.get());
+
+		// invalid values must be replaced
+		final Long third = test.get(1L, v -> v > 1L, () -> { created.incrementAndGet(); return 3L; });
+
+		assertEquals("Invalid value was not replaced", Long.valueOf(3), third);
+		assertEquals("Invalid hit count", 1, test.getHitCount());
+		assertEquals("Invalid miss count", 3, test.getMissCount());
+	}
+
+	@Test
+	public void testConcurrentAccess() throws InterruptedException {
+
+		final SegmentedCache<Long, Long> test = new SegmentedCache<>(500);
+		final List<Thread> threads            = new LinkedList<>();
+
+		for (int t=0; t<8; t++) {
+
+			final Thread thread = new Thread(() -> {
+
+				for (int i=0; i<10000; i++) {
+
+					final Long key = Long.valueOf(i % 2000);
+					assertEquals(key, test.get(key, v -> true, () -> key));
+				}
+			});
+
+			threads.add(thread);
+			thread.start();
+		}
+
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		assertTrue("Invalid SegmentedCache size", test.size() <= 500);
+	}
+
+	// ----- nested classes -----
+	private static class TestCachable implements Cachable {
+
+		private boolean removed = false;
+
+		@Override
+		public void onRemoveFromCache() {
+			removed = true;
+		}
+	}
+}
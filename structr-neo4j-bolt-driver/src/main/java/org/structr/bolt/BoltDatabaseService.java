@@ -24,15 +24,21 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import org.apache.commons.lang.StringUtils;
 import org.neo4j.driver.v1.AuthTokens;
 import org.neo4j.driver.v1.Config;
@@ -50,16 +56,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.DatabaseService;
 import org.structr.api.NetworkException;
+import org.structr.api.NotFoundException;
 import org.structr.api.NotInTransactionException;
 import org.structr.api.Transaction;
 import org.structr.api.config.Settings;
+import org.structr.api.graph.Direction;
 import org.structr.api.graph.GraphProperties;
 import org.structr.api.graph.Label;
 import org.structr.api.graph.Node;
+import org.structr.api.graph.NodeCreationData;
 import org.structr.api.graph.Relationship;
+import org.structr.api.graph.RelationshipCreationData;
 import org.structr.api.graph.RelationshipType;
 import org.structr.api.index.Index;
 import org.structr.api.util.Iterables;
+import org.structr.api.util.QueryStatistics;
 import org.structr.bolt.index.CypherNodeIndex;
 import org.structr.bolt.index.CypherRelationshipIndex;
 import org.structr.bolt.index.NodeResultStream;
@@ -76,10 +87,13 @@ import org.structr.bolt.wrapper.RelationshipWrapper;
 public class BoltDatabaseService implements DatabaseService, GraphProperties {
 
 	private static final Logger logger                                = LoggerFactory.getLogger(BoltDatabaseService.class.getName());
+	private static final int CREATION_BATCH_SIZE                      = 1000;
+	private static final String QUERY_STATISTICS_MBEAN                = "org.structr:type=QueryStatistics";
 	private static final Map<String, RelationshipType> relTypeCache   = new ConcurrentHashMap<>();
 	private static final Map<String, Label> labelCache                = new ConcurrentHashMap<>();
 	private static final ThreadLocal<SessionTransaction> sessions     = new ThreadLocal<>();
 	private static final long nanoEpoch                               = System.nanoTime();
+	private final QueryStatistics queryStatistics                     = new QueryStatistics();
 	private Properties globalGraphProperties                          = null;
 	private CypherRelationshipIndex relationshipIndex                 = null;
 	private CypherNodeIndex nodeIndex                                 = null;
@@ -158,6 +172,8 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 			RelationshipWrapper.initialize(relCacheSize);
 			logger.info("Relationship cache size set to {}", relCacheSize);
 
+			registerQueryStatistics();
+
 			// drop :NodeInterface index and create uniqueness constraint
 			// disabled, planned for Structr 2.4
 			//createUUIDConstraint();
@@ -179,8 +195,10 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 		RelationshipWrapper.clearCache();
 		NodeWrapper.clearCache();
 
+		unregisterQueryStatistics();
+
 		driver.close();
-		
+
 		if (graphDb != null) {
 			graphDb.shutdown();
 		}
@@ -249,6 +267,215 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 		return NodeWrapper.newInstance(this, getCurrentTransaction().getNode(buf.toString(), map));
 	}
 
+	@Override
+	public List<Node> createNodes(final List<NodeCreationData> nodes) {
+
+		final Map<String, List<Map<String, Object>>> batches = new LinkedHashMap<>();
+		final Node[] result                                  = new Node[nodes.size()];
+		final SessionTransaction tx                          = getCurrentTransaction();
+		int index                                            = 0;
+
+		// group nodes by label set, labels cannot be parameterized
+		for (final NodeCreationData data : nodes) {
+
+			final StringBuilder buf = new StringBuilder();
+
+			if (tenantId != null) {
+
+				buf.append(":");
+				buf.append(tenantId);
+			}
+
+			if (data.getLabels() != null) {
+
+				for (final String label : data.getLabels()) {
+
+					buf.append(":");
+					buf.append(label);
+				}
+			}
+
+			List<Map<String, Object>> rows = batches.get(buf.toString());
+			if (rows == null) {
+
+				rows = new LinkedList<>();
+				batches.put(buf.toString(), rows);
+			}
+
+			final Map<String, Object> row = new HashMap<>();
+
+			row.put("index",      index++);
+			row.put("properties", data.getProperties() != null ? data.getProperties() : Collections.emptyMap());
+
+			rows.add(row);
+		}
+
+		for (final Map.Entry<String, List<Map<String, Object>>> batch : batches.entrySet()) {
+
+			final String statement = "UNWIND {rows} AS row CREATE (n" + batch.getKey() + ") SET n = row.properties RETURN row.index AS index, n";
+
+			for (final List<Map<String, Object>> chunk : partition(batch.getValue())) {
+
+				for (final Map<String, Object> data : tx.run(statement, Collections.singletonMap("rows", chunk))) {
+
+					final NodeWrapper node = (NodeWrapper)data.get("n");
+
+					node.setModified();
+
+					result[((Number)data.get("index")).intValue()] = node;
+				}
+			}
+		}
+
+		return Arrays.asList(result);
+	}
+
+	@Override
+	public List<Relationship> createRelationships(final List<RelationshipCreationData> relationships) {
+
+		final Map<String, List<Map<String, Object>>> batches = new LinkedHashMap<>();
+		final Relationship[] result                          = new Relationship[relationships.size()];
+		final SessionTransaction tx                          = getCurrentTransaction();
+		final String tenantIdentifier                        = tenantId != null ? ":" + tenantId : "";
+		int index                                            = 0;
+
+		// group relationships by type, types cannot be parameterized
+		for (final RelationshipCreationData data : relationships) {
+
+			final String type              = data.getType().name();
+			List<Map<String, Object>> rows = batches.get(type);
+
+			if (rows == null) {
+
+				rows = new LinkedList<>();
+				batches.put(type, rows);
+			}
+
+			final Map<String, Object> row = new HashMap<>();
+
+			row.put("index",      index++);
+			row.put("startId",    data.getStartNode().getId());
+			row.put("endId",      data.getEndNode().getId());
+			row.put("properties", data.getProperties() != null ? data.getProperties() : Collections.emptyMap());
+
+			rows.add(row);
+		}
+
+		for (final Map.Entry<String, List<Map<String, Object>>> batch : batches.entrySet()) {
+
+			final StringBuilder buf = new StringBuilder();
+
+			buf.append("UNWIND {rows} AS row MATCH (n");
+			buf.append(tenantIdentifier);
+			buf.append("), (m");
+			buf.append(tenantIdentifier);
+			buf.append(") WHERE ID(n) = row.startId AND ID(m) = row.endId CREATE (n)-[r:");
+			buf.append(batch.getKey());
+			buf.append("]->(m) SET r = row.properties RETURN row.index AS index, r");
+
+			for (final List<Map<String, Object>> chunk : partition(batch.getValue())) {
+
+				for (final Map<String, Object> data : tx.run(buf.toString(), Collections.singletonMap("rows", chunk))) {
+
+					final RelationshipWrapper rel = (RelationshipWrapper)data.get("r");
+
+					rel.setModified();
+
+					result[((Number)data.get("index")).intValue()] = rel;
+				}
+			}
+		}
+
+		// rows whose start or end node does not exist (anymore) did not create anything
+		final List<Integer> missing = new LinkedList<>();
+
+		for (int i=0; i<result.length; i++) {
+
+			if (result[i] == null) {
+				missing.add(i);
+			}
+		}
+
+		if (!missing.isEmpty()) {
+			throw new NotFoundException("Unable to create relationships, start or end node not found for rows " + missing);
+		}
+
+		// start and end nodes are modified and need fresh relationship caches
+		for (final RelationshipCreationData data : relationships) {
+
+			final NodeWrapper startNode = (NodeWrapper)data.getStartNode();
+			final NodeWrapper endNode   = (NodeWrapper)data.getEndNode();
+
+			startNode.setModified();
+			startNode.clearCaches();
+
+			endNode.setModified();
+			endNode.clearCaches();
+		}
+
+		return Arrays.asList(result);
+	}
+
+	@Override
+	public void prefetchRelationships(final List<Node> nodes, final Direction direction, final RelationshipType relationshipType) {
+
+		final Map<Long, List<Relationship>> relationships = new HashMap<>();
+		final Map<Long, NodeWrapper> wrappers             = new LinkedHashMap<>();
+		final String tenantIdentifier                     = tenantId != null ? ":" + tenantId : "";
+		final boolean outgoing                            = Direction.OUTGOING.equals(direction);
+
+		if (Direction.BOTH.equals(direction)) {
+
+			// relationships between two of the given nodes could not be assigned
+			throw new IllegalArgumentException("Prefetching is not supported for direction BOTH");
+		}
+
+		for (final Node node : nodes) {
+
+			final NodeWrapper wrapper = (NodeWrapper)node;
+
+			if (!wrapper.hasCachedRelationships(direction, relationshipType)) {
+
+				wrappers.put(wrapper.getId(), wrapper);
+				relationships.put(wrapper.getId(), new LinkedList<>());
+			}
+		}
+
+		if (wrappers.isEmpty()) {
+			return;
+		}
+
+		final StringBuilder buf = new StringBuilder();
+
+		buf.append("MATCH (n");
+		buf.append(tenantIdentifier);
+		buf.append(outgoing ? ")-[r:" : ")<-[r:");
+		buf.append(relationshipType.name());
+		buf.append(outgoing ? "]->(t)" : "]-(s)");
+		buf.append(" WHERE ID(n) IN {ids} RETURN r, ");
+		buf.append(outgoing ? "t" : "s");
+		buf.append(" ORDER BY r.internalTimestamp");
+
+		final Map<String, Object> params = Collections.singletonMap("ids", new LinkedList<>(wrappers.keySet()));
+
+		for (final Relationship rel : Iterables.map(new RelationshipRelationshipMapper(this), getCurrentTransaction().getRelationships(buf.toString(), params))) {
+
+			final RelationshipWrapper wrapper = (RelationshipWrapper)rel;
+			final long nodeId                 = outgoing ? wrapper.getSourceNodeId() : wrapper.getTargetNodeId();
+			final List<Relationship> list     = relationships.get(nodeId);
+
+			if (list != null) {
+				list.add(rel);
+			}
+		}
+
+		// nodes without relationships get an empty cache entry as well
+		for (final NodeWrapper wrapper : wrappers.values()) {
+
+			wrapper.setCachedRelationships(direction, relationshipType, relationships.get(wrapper.getId()));
+		}
+	}
+
 	@Override
 	public Node getNodeById(final long id) {
 		return NodeWrapper.newInstance(this, id);
@@ -261,6 +488,11 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 
 	@Override
 	public Iterable<Node> getAllNodes() {
+		return getAllNodes(-1L, Long.MAX_VALUE);
+	}
+
+	@Override
+	public Iterable<Node> getAllNodes(final long fromId, final long toId) {
 
 		final StringBuilder buf = new StringBuilder();
 
@@ -271,16 +503,21 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 			buf.append(tenantId);
 		}
 
-		buf.append(") RETURN n");
+		buf.append(")");
 
-		return Iterables.map(new NodeNodeMapper(this), new NodeResultStream(this, new SimpleCypherQuery(buf.toString())));
+		return Iterables.map(new NodeNodeMapper(this), new NodeResultStream(this, new SimpleCypherQuery(buf.toString(), "n", null, fromId, toId)));
 	}
 
 	@Override
 	public Iterable<Node> getNodesByLabel(final String type) {
+		return getNodesByLabel(type, -1L, Long.MAX_VALUE);
+	}
+
+	@Override
+	public Iterable<Node> getNodesByLabel(final String type, final long fromId, final long toId) {
 
 		if (type == null) {
-			return getAllNodes();
+			return getAllNodes(fromId, toId);
 		}
 
 		final StringBuilder buf = new StringBuilder();
@@ -294,16 +531,21 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 
 		buf.append(":");
 		buf.append(type);
-		buf.append(") RETURN n");
+		buf.append(")");
 
-		return Iterables.map(new NodeNodeMapper(this), new NodeResultStream(this, new SimpleCypherQuery(buf.toString())));
+		return Iterables.map(new NodeNodeMapper(this), new NodeResultStream(this, new SimpleCypherQuery(buf.toString(), "n", null, fromId, toId)));
 	}
 
 	@Override
 	public Iterable<Node> getNodesByTypeProperty(final String type) {
+		return getNodesByTypeProperty(type, -1L, Long.MAX_VALUE);
+	}
+
+	@Override
+	public Iterable<Node> getNodesByTypeProperty(final String type, final long fromId, final long toId) {
 
 		if (type == null) {
-			return getAllNodes();
+			return getAllNodes(fromId, toId);
 		}
 
 		final StringBuilder buf = new StringBuilder();
@@ -315,9 +557,9 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 			buf.append(tenantId);
 		}
 
-		buf.append(") WHERE n.type = {type} RETURN n");
+		buf.append(")");
 
-		final SimpleCypherQuery query = new SimpleCypherQuery(buf.toString());
+		final SimpleCypherQuery query = new SimpleCypherQuery(buf.toString(), "n", "n.type = {type}", fromId, toId);
 
 		query.getParameters().put("type", type);
 
@@ -326,6 +568,21 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 
 	@Override
 	public Iterable<Relationship> getAllRelationships() {
+		return getAllRelationships(-1L, Long.MAX_VALUE);
+	}
+
+	@Override
+	public Iterable<Relationship> getAllRelationships(final long fromId, final long toId) {
+		return getRelationshipsByType(null, fromId, toId);
+	}
+
+	@Override
+	public Iterable<Relationship> getRelationshipsByType(final String type) {
+		return getRelationshipsByType(type, -1L, Long.MAX_VALUE);
+	}
+
+	@Override
+	public Iterable<Relationship> getRelationshipsByType(final String type, final long fromId, final long toId) {
 
 		final StringBuilder buf = new StringBuilder();
 
@@ -336,46 +593,57 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 			buf.append(tenantId);
 		}
 
-		buf.append(")-[r]->(");
+		buf.append(")-[r");
+
+		if (type != null) {
+			buf.append(":");
+			buf.append(type);
+		}
+
+		buf.append("]->(");
 
 		if (tenantId != null) {
 			buf.append(":");
 			buf.append(tenantId);
 		}
 
-		buf.append(") RETURN r");
+		buf.append(")");
 
-		return Iterables.map(new RelationshipRelationshipMapper(this), new RelationshipResultStream(this, new SimpleCypherQuery(buf.toString())));
+		return Iterables.map(new RelationshipRelationshipMapper(this), new RelationshipResultStream(this, new SimpleCypherQuery(buf.toString(), "r", null, fromId, toId)));
 	}
 
 	@Override
-	public Iterable<Relationship> getRelationshipsByType(final String type) {
-
-		if (type == null) {
-			return getAllRelationships();
-		}
+	public long getMaxNodeId() {
 
 		final StringBuilder buf = new StringBuilder();
 
-		buf.append("MATCH (");
+		buf.append("MATCH (n");
 
 		if (tenantId != null) {
 			buf.append(":");
 			buf.append(tenantId);
 		}
 
-		buf.append(")-[r:");
-		buf.append(type);
-		buf.append("]->(");
+		buf.append(") RETURN coalesce(max(ID(n)), -1)");
+
+		return getCurrentTransaction().getLong(buf.toString());
+	}
+
+	@Override
+	public long getMaxRelationshipId() {
+
+		final StringBuilder buf = new StringBuilder();
+
+		buf.append("MATCH (");
 
 		if (tenantId != null) {
 			buf.append(":");
 			buf.append(tenantId);
 		}
 
-		buf.append(") RETURN r");
+		buf.append(")-[r]->() RETURN coalesce(max(ID(r)), -1)");
 
-		return Iterables.map(new RelationshipRelationshipMapper(this), new RelationshipResultStream(this, new SimpleCypherQuery(buf.toString())));
+		return getCurrentTransaction().getLong(buf.toString());
 	}
 
 	@Override
@@ -575,6 +843,11 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 		return tx;
 	}
 
+	@Override
+	public QueryStatistics getQueryStatistics() {
+		return queryStatistics;
+	}
+
 	public boolean logQueries() {
 		return Settings.CypherDebugLogging.getValue();
 	}
@@ -685,6 +958,41 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 		}
 	}
 
+	private void registerQueryStatistics() {
+
+		try {
+
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final ObjectName name    = new ObjectName(QUERY_STATISTICS_MBEAN);
+
+			// a previous instance may still be registered, e.g. after a restart of the service
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+
+			server.registerMBean(queryStatistics, name);
+
+		} catch (JMException jex) {
+			logger.warn("Unable to register query statistics MBean: {}", jex.getMessage());
+		}
+	}
+
+	private void unregisterQueryStatistics() {
+
+		try {
+
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final ObjectName name    = new ObjectName(QUERY_STATISTICS_MBEAN);
+
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+
+		} catch (JMException jex) {
+			logger.warn("Unable to unregister query statistics MBean: {}", jex.getMessage());
+		}
+	}
+
 	private Properties getProperties() {
 
 		if (globalGraphProperties == null) {
@@ -702,6 +1010,29 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 		return globalGraphProperties;
 	}
 
+	private List<List<Map<String, Object>>> partition(final List<Map<String, Object>> rows) {
+
+		final List<List<Map<String, Object>>> chunks = new LinkedList<>();
+		List<Map<String, Object>> chunk              = new LinkedList<>();
+
+		for (final Map<String, Object> row : rows) {
+
+			chunk.add(row);
+
+			if (chunk.size() >= CREATION_BATCH_SIZE) {
+
+				chunks.add(chunk);
+				chunk = new LinkedList<>();
+			}
+		}
+
+		if (!chunk.isEmpty()) {
+			chunks.add(chunk);
+		}
+
+		return chunks;
+	}
+
 	// ----- nested classes -----
 	private static class LabelImpl implements Label {
 
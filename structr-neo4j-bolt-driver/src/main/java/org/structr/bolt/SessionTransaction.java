@@ -19,9 +19,14 @@
 package org.structr.bolt;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 import org.neo4j.driver.v1.Record;
@@ -60,17 +65,21 @@ import org.structr.bolt.wrapper.RelationshipWrapper;
  */
 public class SessionTransaction implements org.structr.api.Transaction {
 
-	private static final AtomicLong idSource          = new AtomicLong();
-	private final Set<EntityWrapper> modifiedEntities = new HashSet<>();
-	private final Set<Long> deletedNodes              = new HashSet<>();
-	private final Set<Long> deletedRels               = new HashSet<>();
-	private BoltDatabaseService db                    = null;
-	private Session session                           = null;
-	private Transaction tx                            = null;
-	private long transactionId                        = 0L;
-	private boolean closed                            = false;
-	private boolean success                           = false;
-	private boolean isPing                            = false;
+	private static final int PROPERTY_UPDATE_BATCH_SIZE = 1000;
+
+	private static final AtomicLong idSource                                  = new AtomicLong();
+	private final Map<String, Map<Long, Map<String, Object>>> propertyUpdates = new LinkedHashMap<>();
+	private final Set<EntityWrapper> modifiedEntities                         = new HashSet<>();
+	private final Set<Long> deletedNodes                                      = new HashSet<>();
+	private final Set<Long> deletedRels                                       = new HashSet<>();
+	private final List<IteratorWrapper<?>> openResults                        = new LinkedList<>();
+	private BoltDatabaseService db                                            = null;
+	private Session session                                                   = null;
+	private Transaction tx                                                    = null;
+	private long transactionId                                                = 0L;
+	private boolean closed                                                    = false;
+	private boolean success                                                   = false;
+	private boolean isPing                                                    = false;
 
 	public SessionTransaction(final BoltDatabaseService db, final Session session) {
 
@@ -82,12 +91,17 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 	@Override
 	public void failure() {
+
+		propertyUpdates.clear();
 		tx.failure();
 	}
 
 	@Override
 	public void success() {
 
+		// write buffered property values before committing
+		flushPropertyUpdates();
+
 		tx.success();
 
 		// transaction must be marked successfull explicitly
@@ -97,6 +111,9 @@ public class SessionTransaction implements org.structr.api.Transaction {
 	@Override
 	public void close() {
 
+		// discard property values that were not flushed
+		propertyUpdates.clear();
+
 		if (!success) {
 
 			// We need to invalidate all existing references because we cannot
@@ -123,6 +140,13 @@ public class SessionTransaction implements org.structr.api.Transaction {
 			}
 		}
 
+		// record statistics of results that were not consumed completely
+		for (final IteratorWrapper<?> result : openResults) {
+			result.close();
+		}
+
+		openResults.clear();
+
 		// mark this transaction as closed BEFORE trying to actually close it
 		// so that it is closed in case of a failure
 		closed = true;
@@ -179,12 +203,16 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 	public boolean getBoolean(final String statement, final Map<String, Object> map) {
 
-		final long t0 = System.currentTimeMillis();
+		final long t0 = beginStatement();
 
 		try {
 
 			logQuery(statement, map);
-			return tx.run(statement, map).next().get(0).asBoolean();
+			final boolean value = tx.run(statement, map).next().get(0).asBoolean();
+
+			recordStatistics(statement, map, t0, 1);
+
+			return value;
 
 		} catch (TransientException tex) {
 			closed = true;
@@ -198,8 +226,6 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 	public long getLong(final String statement) {
 
-		final long t0 = System.currentTimeMillis();
-
 		try {
 
 			logQuery(statement);
@@ -217,12 +243,16 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 	public long getLong(final String statement, final Map<String, Object> map) {
 
-		final long t0 = System.currentTimeMillis();
+		final long t0 = beginStatement();
 
 		try {
 
 			logQuery(statement, map);
-			return tx.run(statement, map).next().get(0).asLong();
+			final long value = tx.run(statement, map).next().get(0).asLong();
+
+			recordStatistics(statement, map, t0, 1);
+
+			return value;
 
 		} catch (TransientException tex) {
 			closed = true;
@@ -236,7 +266,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 	public Object getObject(final String statement, final Map<String, Object> map) {
 
-		final long t0 = System.currentTimeMillis();
+		final long t0 = beginStatement();
 
 		try {
 
@@ -244,9 +274,15 @@ public class SessionTransaction implements org.structr.api.Transaction {
 			final StatementResult result = tx.run(statement, map);
 			if (result.hasNext()) {
 
-				return result.next().get(0).asObject();
+				final Object value = result.next().get(0).asObject();
+
+				recordStatistics(statement, map, t0, 1);
+
+				return value;
 			}
 
+			recordStatistics(statement, map, t0, 0);
+
 		} catch (TransientException tex) {
 			closed = true;
 			throw new RetryException(tex);
@@ -261,12 +297,16 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 	public Entity getEntity(final String statement, final Map<String, Object> map) {
 
-		final long t0 = System.currentTimeMillis();
+		final long t0 = beginStatement();
 
 		try {
 
 			logQuery(statement, map);
-			return tx.run(statement, map).next().get(0).asEntity();
+			final Entity value = tx.run(statement, map).next().get(0).asEntity();
+
+			recordStatistics(statement, map, t0, 1);
+
+			return value;
 
 		} catch (TransientException tex) {
 			closed = true;
@@ -280,12 +320,16 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 	public Node getNode(final String statement, final Map<String, Object> map) {
 
-		final long t0 = System.currentTimeMillis();
+		final long t0 = beginStatement();
 
 		try {
 
 			logQuery(statement, map);
-			return tx.run(statement, map).next().get(0).asNode();
+			final Node value = tx.run(statement, map).next().get(0).asNode();
+
+			recordStatistics(statement, map, t0, 1);
+
+			return value;
 
 		} catch (TransientException tex) {
 			closed = true;
@@ -299,12 +343,16 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 	public Relationship getRelationship(final String statement, final Map<String, Object> map) {
 
-		final long t0 = System.currentTimeMillis();
+		final long t0 = beginStatement();
 
 		try {
 
 			logQuery(statement, map);
-			return tx.run(statement, map).next().get(0).asRelationship();
+			final Relationship value = tx.run(statement, map).next().get(0).asRelationship();
+
+			recordStatistics(statement, map, t0, 1);
+
+			return value;
 
 		} catch (TransientException tex) {
 			closed = true;
@@ -318,12 +366,12 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 	public Iterable<Node> getNodes(final String statement, final Map<String, Object> map) {
 
-		final long t0 = System.currentTimeMillis();
+		final long t0 = beginStatement();
 
 		try {
 
 			logQuery(statement, map);
-			return Iterables.map(new RecordNodeMapper(), new IteratorWrapper<>(tx.run(statement, map)));
+			return Iterables.map(new RecordNodeMapper(), new IteratorWrapper<>(tx.run(statement, map), statement, map, t0));
 
 		} catch (TransientException tex) {
 			closed = true;
@@ -337,12 +385,12 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 	public Iterable<Relationship> getRelationships(final String statement, final Map<String, Object> map) {
 
-		final long t0 = System.currentTimeMillis();
+		final long t0 = beginStatement();
 
 		try {
 
 			logQuery(statement, map);
-			return Iterables.map(new RecordRelationshipMapper(db), new IteratorWrapper<>(tx.run(statement, map)));
+			return Iterables.map(new RecordRelationshipMapper(db), new IteratorWrapper<>(tx.run(statement, map), statement, map, t0));
 
 		} catch (TransientException tex) {
 			closed = true;
@@ -356,12 +404,12 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 	public Iterable<NodeId> getNodeIds(final String statement, final Map<String, Object> map) {
 
-		final long t0 = System.currentTimeMillis();
+		final long t0 = beginStatement();
 
 		try {
 
 			logQuery(statement, map);
-			return Iterables.map(new RecordNodeIdMapper(), new IteratorWrapper<>(tx.run(statement, map)));
+			return Iterables.map(new RecordNodeIdMapper(), new IteratorWrapper<>(tx.run(statement, map), statement, map, t0));
 
 		} catch (TransientException tex) {
 			closed = true;
@@ -375,7 +423,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 	public Iterable<String> getStrings(final String statement, final Map<String, Object> map) {
 
-		final long t0 = System.currentTimeMillis();
+		final long t0 = beginStatement();
 
 		try {
 
@@ -384,6 +432,8 @@ public class SessionTransaction implements org.structr.api.Transaction {
 			final Record record          = result.next();
 			final Value value            = record.get(0);
 
+			recordStatistics(statement, map, t0, 1);
+
 			return new IteratorWrapper<>(value.asList(Values.ofString()).iterator());
 
 		} catch (TransientException tex) {
@@ -398,12 +448,12 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 	public Iterable<Map<String, Object>> run(final String statement, final Map<String, Object> map) {
 
-		final long t0 = System.currentTimeMillis();
+		final long t0 = beginStatement();
 
 		try {
 
 			logQuery(statement, map);
-			return Iterables.map(new RecordMapMapper(db), new IteratorWrapper<>(tx.run(statement, map)));
+			return Iterables.map(new RecordMapMapper(db), new IteratorWrapper<>(tx.run(statement, map), statement, map, t0));
 
 		} catch (TransientException tex) {
 			closed = true;
@@ -421,13 +471,15 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 	public void set(final String statement, final Map<String, Object> map) {
 
-		final long t0 = System.currentTimeMillis();
+		final long t0 = beginStatement();
 
 		try {
 
 			logQuery(statement, map);
 			tx.run(statement, map).consume();
 
+			recordStatistics(statement, map, t0, 0);
+
 		} catch (TransientException tex) {
 			closed = true;
 			throw new RetryException(tex);
@@ -442,6 +494,77 @@ public class SessionTransaction implements org.structr.api.Transaction {
 		}
 	}
 
+	/**
+	 * Buffers the given property values of the entity with the given ID
+	 * until the next statement is executed or the transaction is committed.
+	 * A null value removes the property.
+	 *
+	 * @param queryPrefix the MATCH clause that binds the entity to "n"
+	 * @param id
+	 * @param properties
+	 */
+	public void updateProperties(final String queryPrefix, final long id, final Map<String, Object> properties) {
+
+		Map<Long, Map<String, Object>> updates = propertyUpdates.get(queryPrefix);
+		if (updates == null) {
+
+			updates = new LinkedHashMap<>();
+			propertyUpdates.put(queryPrefix, updates);
+		}
+
+		Map<String, Object> values = updates.get(id);
+		if (values == null) {
+
+			values = new LinkedHashMap<>();
+			updates.put(id, values);
+		}
+
+		values.putAll(properties);
+	}
+
+	/**
+	 * Writes all buffered property values to the database, using one
+	 * UNWIND statement per entity type and batch.
+	 */
+	public void flushPropertyUpdates() {
+
+		if (propertyUpdates.isEmpty()) {
+			return;
+		}
+
+		final Map<String, Map<Long, Map<String, Object>>> updates = new LinkedHashMap<>(propertyUpdates);
+
+		// clear buffer first, the statements below would flush it again
+		propertyUpdates.clear();
+
+		for (final Entry<String, Map<Long, Map<String, Object>>> entry : updates.entrySet()) {
+
+			final String statement         = "UNWIND {rows} AS row " + entry.getKey() + " WHERE ID(n) = row.id SET n += row.props";
+			List<Map<String, Object>> rows = new LinkedList<>();
+
+			for (final Entry<Long, Map<String, Object>> update : entry.getValue().entrySet()) {
+
+				final Map<String, Object> row = new HashMap<>();
+
+				row.put("id",    update.getKey());
+				row.put("props", update.getValue());
+
+				rows.add(row);
+
+				if (rows.size() >= PROPERTY_UPDATE_BATCH_SIZE) {
+
+					set(statement, Collections.singletonMap("rows", rows));
+					rows = new LinkedList<>();
+				}
+			}
+
+			if (!rows.isEmpty()) {
+
+				set(statement, Collections.singletonMap("rows", rows));
+			}
+		}
+	}
+
 	public void logQuery(final String statement) {
 		logQuery(statement, null);
 	}
@@ -489,6 +612,19 @@ public class SessionTransaction implements org.structr.api.Transaction {
 		return this.transactionId;
 	}
 
+	// ----- private methods -----
+	private long beginStatement() {
+
+		// make buffered property values visible, the flush is recorded separately
+		flushPropertyUpdates();
+
+		return System.nanoTime();
+	}
+
+	private void recordStatistics(final String statement, final Map<String, Object> map, final long t0, final long rows) {
+		db.getQueryStatistics().record(statement, map, System.nanoTime() - t0, rows);
+	}
+
 	// ----- public static methods -----
 	public static RuntimeException translateClientException(final ClientException cex) {
 
@@ -519,24 +655,66 @@ public class SessionTransaction implements org.structr.api.Transaction {
 	}
 
 	// ----- nested classes -----
-	public class IteratorWrapper<T> implements Iterable<T> {
+	public class IteratorWrapper<T> implements Iterable<T>, AutoCloseable {
 
-		private Iterator<T> iterator = null;
+		private Map<String, Object> map = null;
+		private Iterator<T> iterator    = null;
+		private String statement        = null;
+		private boolean recorded        = false;
+		private long elapsed            = 0L;
+		private long rows               = 0L;
 
 		public IteratorWrapper(final Iterator<T> iterator) {
 			this.iterator = iterator;
 		}
 
+		/**
+		 * Creates a wrapper that records the statistics of the given statement
+		 * when the iterator is exhausted, the result is closed or the transaction
+		 * is closed, whichever comes first. Only the time spent in the database
+		 * is measured, not the time the caller needs to process the results.
+		 */
+		public IteratorWrapper(final Iterator<T> iterator, final String statement, final Map<String, Object> map, final long t0) {
+
+			this.iterator  = iterator;
+			this.statement = statement;
+			this.map       = map;
+			this.elapsed   = System.nanoTime() - t0;
+
+			openResults.add(this);
+		}
+
+		@Override
+		public void close() {
+
+			if (statement != null && !recorded) {
+
+				db.getQueryStatistics().record(statement, map, elapsed, rows);
+				recorded = true;
+			}
+		}
+
 		@Override
 		public Iterator<T> iterator() {
 
-			return new Iterator<T>() {
+			return new CloseableIterator() {
 
 				@Override
 				public boolean hasNext() {
 
+					final long t0 = System.nanoTime();
+
 					try {
-						return iterator.hasNext();
+
+						final boolean hasNext = iterator.hasNext();
+
+						elapsed += System.nanoTime() - t0;
+
+						if (!hasNext) {
+							IteratorWrapper.this.close();
+						}
+
+						return hasNext;
 
 					} catch (ClientException dex) {
 						throw SessionTransaction.translateClientException(dex);
@@ -548,9 +726,16 @@ public class SessionTransaction implements org.structr.api.Transaction {
 				@Override
 				public T next() {
 
+					final long t0 = System.nanoTime();
+
 					try {
 
-						return iterator.next();
+						final T next = iterator.next();
+
+						elapsed += System.nanoTime() - t0;
+						rows++;
+
+						return next;
 
 					} catch (ClientException dex) {
 						throw SessionTransaction.translateClientException(dex);
@@ -558,7 +743,18 @@ public class SessionTransaction implements org.structr.api.Transaction {
 						throw SessionTransaction.translateDatabaseException(dex);
 					}
 				}
+
+				@Override
+				public void close() {
+					IteratorWrapper.this.close();
+				}
 			};
 		}
+
+		private abstract class CloseableIterator implements Iterator<T>, AutoCloseable {
+
+			@Override
+			public abstract void close();
+		}
 	}
 }
@@ -22,6 +22,7 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.slf4j.Logger;
@@ -30,6 +31,7 @@ import org.structr.api.graph.PropertyContainer;
 import org.structr.api.index.Index;
 import org.structr.api.search.*;
 import org.structr.bolt.BoltDatabaseService;
+import org.structr.bolt.SessionTransaction;
 import org.structr.bolt.index.converter.BooleanTypeConverter;
 import org.structr.bolt.index.converter.ByteTypeConverter;
 import org.structr.bolt.index.converter.DateTypeConverter;
@@ -91,6 +93,8 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 	public abstract Iterable<T> getResult(final PageableQuery query);
 	public abstract String getQueryPrefix(final String mainType, final String sourceTypeLabel, final String targetTypeLabel);
 	public abstract String getQuerySuffix(final PageableQuery query);
+	public abstract String getCountSuffix();
+	public abstract String getEstimatedCountStatement(final String typeLabel);
 
 	@Override
 	public Iterable<T> query(final QueryContext context, final QueryPredicate predicate) {
@@ -108,6 +112,46 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 		return getResult(query);
 	}
 
+	@Override
+	public long count(final QueryContext context, final QueryPredicate predicate) {
+
+		final AdvancedCypherQuery query = new AdvancedCypherQuery(context, this);
+
+		createQuery(this, predicate, query, true);
+
+		final String statement = query.getCountStatement();
+		if (statement != null) {
+
+			return db.getCurrentTransaction().getLong(statement, query.getParameters());
+		}
+
+		return -1L;
+	}
+
+	@Override
+	public long estimateCount(final QueryContext context, final QueryPredicate predicate) {
+
+		final AdvancedCypherQuery query = new AdvancedCypherQuery(context, this);
+		final SessionTransaction tx     = db.getCurrentTransaction();
+		long count                      = 0L;
+
+		createQuery(this, predicate, query, true);
+
+		final List<String> typeLabels = query.getTypeLabels();
+		if (typeLabels.isEmpty()) {
+
+			return tx.getLong(getEstimatedCountStatement(null));
+		}
+
+		// single-label counts are served from the count store
+		for (final String typeLabel : typeLabels) {
+
+			count += tx.getLong(getEstimatedCountStatement(typeLabel));
+		}
+
+		return count;
+	}
+
 	// ----- interface QueryFactory -----
 	@Override
 	public boolean createQuery(final QueryFactory parent, final QueryPredicate predicate, final AdvancedCypherQuery query, final boolean isFirst) {
@@ -20,11 +20,12 @@ package org.structr.bolt.index;
 
 import java.util.Iterator;
 import java.util.Map;
+import org.neo4j.driver.v1.types.Entity;
 import org.structr.bolt.BoltDatabaseService;
 
 /**
  */
-public abstract class AbstractResultStream<T> implements Iterable<T> {
+public abstract class AbstractResultStream<T extends Entity> implements Iterable<T> {
 
 	private Iterable<T> result   = null;
 	private PageableQuery query     = null;
@@ -44,6 +45,7 @@ public abstract class AbstractResultStream<T> implements Iterable<T> {
 
 		return new Iterator<T>() {
 
+			private T last        = null;
 			private int remaining = 0;
 
 			@Override
@@ -57,6 +59,11 @@ public abstract class AbstractResultStream<T> implements Iterable<T> {
 						// reset count
 						remaining = query.pageSize();
 
+						// continue after the last result of the previous page
+						if (last != null) {
+							query.setLastResult(last);
+						}
+
 						final String statement            = query.getStatement();
 						final Map<String, Object> params  = query.getParameters();
 
@@ -83,8 +90,11 @@ public abstract class AbstractResultStream<T> implements Iterable<T> {
 
 			@Override
 			public T next() {
+
 				remaining--;
-				return current.next();
+				last = current.next();
+
+				return last;
 			}
 		};
 	}
@@ -25,7 +25,9 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.neo4j.driver.v1.types.Entity;
 import org.structr.api.search.QueryContext;
+import org.structr.api.search.QueryCursor;
 import org.structr.api.search.SortType;
 
 /**
@@ -47,12 +49,22 @@ public class AdvancedCypherQuery implements PageableQuery {
 	private int pageSize                            = 0;
 	private int count                               = 0;
 	private QueryContext queryContext               = null;
+	private QueryCursor cursor                      = null;
 
 	public AdvancedCypherQuery(final QueryContext queryContext, final AbstractCypherIndex<?> index) {
 		
 		this.queryContext = queryContext;
-		this.pageSize = 1000000;
-		this.index    = index;
+		this.pageSize     = 1000000;
+		this.index        = index;
+
+		if (queryContext.isKeyset()) {
+
+			this.cursor = queryContext.getCursor();
+
+			if (queryContext.getPageSize() > 0) {
+				this.pageSize = queryContext.getPageSize();
+			}
+		}
 	}
 
 	@Override
@@ -69,6 +81,16 @@ public class AdvancedCypherQuery implements PageableQuery {
 		page++;
 	}
 
+	@Override
+	public void setLastResult(final Entity last) {
+
+		if (queryContext.isKeyset()) {
+
+			// the next page continues after the last result of this one
+			cursor = new QueryCursor(sortKey != null ? last.get(sortKey).asObject() : null, last.id());
+		}
+	}
+
 	@Override
 	public int pageSize() {
 		return this.pageSize;
@@ -91,10 +113,7 @@ public class AdvancedCypherQuery implements PageableQuery {
 
 				buf.append(index.getQueryPrefix(null, sourceTypeLabel, targetTypeLabel));
 
-				if (buffer.length() > 0) {
-					buf.append(" WHERE ");
-					buf.append(buffer);
-				}
+				appendWhereClause(buf);
 
 				buf.append(index.getQuerySuffix(this));
 				break;
@@ -103,10 +122,7 @@ public class AdvancedCypherQuery implements PageableQuery {
 
 				buf.append(index.getQueryPrefix(typeLabels.get(0), sourceTypeLabel, targetTypeLabel));
 
-				if (buffer.length() > 0) {
-					buf.append(" WHERE ");
-					buf.append(buffer);
-				}
+				appendWhereClause(buf);
 
 				buf.append(index.getQuerySuffix(this));
 				break;
@@ -118,10 +134,7 @@ public class AdvancedCypherQuery implements PageableQuery {
 
 					buf.append(index.getQueryPrefix(it.next(), sourceTypeLabel, targetTypeLabel));
 
-					if (buffer.length() > 0) {
-						buf.append(" WHERE ");
-						buf.append(buffer);
-					}
+					appendWhereClause(buf);
 
 					buf.append(index.getQuerySuffix(this));
 
@@ -158,6 +171,20 @@ public class AdvancedCypherQuery implements PageableQuery {
 			if (sortDescending) {
 				buf.append(" DESC");
 			}
+
+			if (queryContext.isKeyset()) {
+
+				// break ties between equal sort values
+				buf.append(", ID(n)");
+
+				if (sortDescending) {
+					buf.append(" DESC");
+				}
+			}
+
+		} else if (queryContext.isKeyset()) {
+
+			buf.append(" ORDER BY ID(n)");
 		}
 
 		if (queryContext.isSliced()) {
@@ -166,13 +193,68 @@ public class AdvancedCypherQuery implements PageableQuery {
 			buf.append(queryContext.getSkip());
 			buf.append(" LIMIT ");
 			buf.append(queryContext.getLimit());
+
+		} else if (queryContext.isKeyset()) {
+
+			buf.append(" LIMIT {pageSize}");
+		}
+
+		return buf.toString();
+	}
+
+	/**
+	 * Returns a statement that counts the results of this query, or null
+	 * if the query consists of more than one part.
+	 *
+	 * @return the count statement or null
+	 */
+	public String getCountStatement() {
+
+		if (typeLabels.size() > 1) {
+
+			// the parts of a UNION query can not be counted in a single statement
+			return null;
+		}
+
+		final StringBuilder buf = new StringBuilder();
+
+		buf.append(index.getQueryPrefix(typeLabels.isEmpty() ? null : typeLabels.get(0), sourceTypeLabel, targetTypeLabel));
+
+		if (buffer.length() > 0) {
+			buf.append(" WHERE ");
+			buf.append(buffer);
 		}
 
+		buf.append(index.getCountSuffix());
+
 		return buf.toString();
 	}
 
+	public List<String> getTypeLabels() {
+		return typeLabels;
+	}
+
 	@Override
 	public Map<String, Object> getParameters() {
+
+		if (queryContext.isKeyset()) {
+
+			final Map<String, Object> keysetParameters = new HashMap<>(parameters);
+
+			keysetParameters.put("pageSize", pageSize);
+
+			if (cursor != null) {
+
+				final Object value = cursor.getValue();
+
+				// numeric sort values are coalesced to -1, see getStatement()
+				keysetParameters.put("cursorValue", value == null && sortKey != null && !SortType.Default.equals(sortType) ? -1 : value);
+				keysetParameters.put("cursorId",    cursor.getId());
+			}
+
+			return keysetParameters;
+		}
+
 		return parameters;
 	}
 
@@ -360,6 +442,79 @@ public class AdvancedCypherQuery implements PageableQuery {
 	}
 
 	// ----- private methods -----
+	private void appendWhereClause(final StringBuilder buf) {
+
+		final String keysetPredicate = getKeysetPredicate();
+
+		if (buffer.length() > 0 || keysetPredicate != null) {
+
+			buf.append(" WHERE ");
+
+			if (buffer.length() > 0 && keysetPredicate != null) {
+
+				buf.append("(");
+				buf.append(buffer);
+				buf.append(") AND ");
+				buf.append(keysetPredicate);
+
+			} else if (keysetPredicate != null) {
+
+				buf.append(keysetPredicate);
+
+			} else {
+
+				buf.append(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Creates the predicate that selects all results after the cursor,
+	 * in the order defined by the sort key and the node ID. Note that
+	 * null values are sorted last in ascending and first in descending
+	 * order.
+	 */
+	private String getKeysetPredicate() {
+
+		if (!queryContext.isKeyset() || cursor == null) {
+
+			return null;
+		}
+
+		final String operator = sortDescending ? " < " : " > ";
+
+		if (sortKey == null) {
+
+			return "ID(n) > {cursorId}";
+		}
+
+		if (!SortType.Default.equals(sortType)) {
+
+			final String value = "COALESCE(n.`" + sortKey + "`, -1)";
+
+			return "(" + value + operator + "{cursorValue} OR (" + value + " = {cursorValue} AND ID(n)" + operator + "{cursorId}))";
+		}
+
+		final String value = "n.`" + sortKey + "`";
+
+		if (cursor.getValue() == null) {
+
+			if (sortDescending) {
+
+				return "(" + value + " IS NOT NULL OR ID(n) < {cursorId})";
+			}
+
+			return "(" + value + " IS NULL AND ID(n) > {cursorId})";
+		}
+
+		if (sortDescending) {
+
+			return "(" + value + " < {cursorValue} OR (" + value + " = {cursorValue} AND ID(n) < {cursorId}))";
+		}
+
+		return "(" + value + " > {cursorValue} OR (" + value + " = {cursorValue} AND ID(n) > {cursorId}) OR " + value + " IS NULL)";
+	}
+
 	private int semanticHashCode(final boolean includeParameters) {
 
 		int hashCode = 3427;
@@ -82,9 +82,40 @@ public class CypherNodeIndex extends AbstractCypherIndex<Node> {
 		return buf.toString();
 	}
 
+	@Override
+	public String getCountSuffix() {
+		return " RETURN count(n)";
+	}
+
+	@Override
+	public String getEstimatedCountStatement(final String typeLabel) {
+
+		final StringBuilder buf = new StringBuilder("MATCH (n:");
+
+		// single label only, the count store can not combine labels
+		if (typeLabel != null) {
+
+			buf.append(typeLabel);
+
+		} else {
+
+			buf.append("NodeInterface");
+		}
+
+		buf.append(") RETURN count(n)");
+
+		return buf.toString();
+	}
+
 	@Override
 	public Iterable<Node> getResult(final PageableQuery query) {
 
+		if (query.getQueryContext().isKeyset()) {
+
+			// fetch one page at a time, each page continues after the last result
+			return Iterables.map(new NodeNodeMapper(db), new NodeResultStream(db, query));
+		}
+
 		try {
 			final SessionTransaction tx = db.getCurrentTransaction();
 
@@ -93,9 +93,36 @@ public class CypherRelationshipIndex extends AbstractCypherIndex<Relationship> {
 		return buf.toString();
 	}
 
+	@Override
+	public String getCountSuffix() {
+		return " RETURN count(DISTINCT n)";
+	}
+
+	@Override
+	public String getEstimatedCountStatement(final String typeLabel) {
+
+		final StringBuilder buf = new StringBuilder("MATCH ()-[n");
+
+		if (typeLabel != null) {
+
+			buf.append(":");
+			buf.append(typeLabel);
+		}
+
+		buf.append("]->() RETURN count(n)");
+
+		return buf.toString();
+	}
+
 	@Override
 	public Iterable<Relationship> getResult(final PageableQuery query) {
 
+		if (query.getQueryContext().isKeyset()) {
+
+			// fetch one page at a time, each page continues after the last result
+			return Iterables.map(new RelationshipRelationshipMapper(db), new RelationshipResultStream(db, query));
+		}
+
 		final SessionTransaction tx = db.getCurrentTransaction();
 
 		tx.setIsPing(query.getQueryContext().isPing());
@@ -19,11 +19,21 @@
 package org.structr.bolt.index;
 
 import java.util.Map;
+import org.neo4j.driver.v1.types.Entity;
 import org.structr.api.search.QueryContext;
 
 public interface PageableQuery {
 
 	void nextPage();
+
+	/**
+	 * Called with the last result of a page before the next page is
+	 * fetched, for queries that continue after the last result.
+	 *
+	 * @param last
+	 */
+	void setLastResult(final Entity last);
+
 	int pageSize();
 	String getSortKey();
 	String getStatement();
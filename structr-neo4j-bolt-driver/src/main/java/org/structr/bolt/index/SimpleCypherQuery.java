@@ -20,28 +20,67 @@ package org.structr.bolt.index;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
+import org.neo4j.driver.v1.types.Entity;
 import org.structr.api.search.QueryContext;
 
 /**
- *
+ * A query that reads all results of a simple MATCH clause in pages of a
+ * fixed size. Pages are selected by the ID of the last result of the
+ * previous page instead of SKIP, so reading deep into a large result does
+ * not require the database to skip over all previous pages again. The
+ * IDs can be restricted to a range, so a large result can be split into
+ * partitions that are read independently.
  */
 public class SimpleCypherQuery implements PageableQuery {
 
 	private final Map<String, Object> params = new LinkedHashMap<>();
 	private QueryContext queryContext        = new QueryContext();
+	private String identifier                = null;
+	private String condition                 = null;
 	private String base                      = null;
+	private long maxId                       = Long.MAX_VALUE;
 	private int pageSize                     = 0;
-	private int page                         = 0;
 
-	public SimpleCypherQuery(final String base) {
+	public SimpleCypherQuery(final String base, final String identifier) {
+		this(base, identifier, null);
+	}
+
+	public SimpleCypherQuery(final String base, final String identifier, final String condition) {
+		this(base, identifier, condition, -1L, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a query that only returns results with an ID greater than
+	 * fromId and less than or equal to toId.
+	 *
+	 * @param base the MATCH clause
+	 * @param identifier the identifier of the results
+	 * @param condition an optional condition, or null
+	 * @param fromId the exclusive lower bound of the IDs
+	 * @param toId the inclusive upper bound of the IDs
+	 */
+	public SimpleCypherQuery(final String base, final String identifier, final String condition, final long fromId, final long toId) {
+
+		this.pageSize   = 100000;
+		this.identifier = identifier;
+		this.condition  = condition;
+		this.base       = base;
+		this.maxId      = toId;
 
-		this.pageSize = 100000;
-		this.base     = base;
+		params.put("lastId", fromId);
+
+		if (toId < Long.MAX_VALUE) {
+			params.put("maxId", toId);
+		}
 	}
 
 	@Override
 	public void nextPage() {
-		page++;
+	}
+
+	@Override
+	public void setLastResult(final Entity last) {
+		params.put("lastId", last.id());
 	}
 
 	@Override
@@ -59,9 +98,30 @@ public class SimpleCypherQuery implements PageableQuery {
 
 		final StringBuilder buf = new StringBuilder(base);
 
-		buf.append(" SKIP ");
-		buf.append(page * pageSize);
-		buf.append(" LIMIT ");
+		buf.append(" WHERE ");
+
+		if (condition != null) {
+
+			buf.append(condition);
+			buf.append(" AND ");
+		}
+
+		buf.append("ID(");
+		buf.append(identifier);
+		buf.append(") > {lastId}");
+
+		if (maxId < Long.MAX_VALUE) {
+
+			buf.append(" AND ID(");
+			buf.append(identifier);
+			buf.append(") <= {maxId}");
+		}
+
+		buf.append(" RETURN ");
+		buf.append(identifier);
+		buf.append(" ORDER BY ID(");
+		buf.append(identifier);
+		buf.append(") LIMIT ");
 		buf.append(pageSize);
 
 		return buf.toString();
@@ -21,10 +21,30 @@ package org.structr.bolt.index.factory;
 import org.structr.api.search.QueryPredicate;
 import org.structr.bolt.index.AdvancedCypherQuery;
 
+/**
+ * Requires the given property value on both the start and the end node
+ * of the relationship.
+ */
 public class RelationshipQueryFactory extends AbstractQueryFactory {
 
 	@Override
 	public boolean createQuery(final QueryFactory parent, final QueryPredicate predicate, final AdvancedCypherQuery query, final boolean isFirst) {
+
+		final String name  = predicate.getName();
+		final Object value = getReadValue(predicate.getValue());
+
+		if (name == null || value == null) {
+			return false;
+		}
+
+		checkOccur(query, predicate.getOccurrence(), isFirst);
+
+		query.beginGroup();
+		query.addSimpleParameter("startNode(n).`" + name + "`", "=", value, false);
+		query.and();
+		query.addSimpleParameter("endNode(n).`" + name + "`", "=", value, false);
+		query.endGroup();
+
 		return true;
 	}
 }
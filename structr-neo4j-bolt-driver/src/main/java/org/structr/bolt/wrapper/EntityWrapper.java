@@ -44,14 +44,15 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 
 	protected final Map<String, Object> data = new ConcurrentHashMap<>();
 	protected BoltDatabaseService db         = null;
-	protected boolean stale                  = false;
+	protected volatile boolean stale         = false;
 	protected long id                        = -1L;
 
 	public EntityWrapper(final BoltDatabaseService db, final T entity) {
 
-		this.data.putAll(entity.asMap());
 		this.id   = entity.id();
 		this.db   = db;
+
+		update(entity.asMap());
 	}
 
 	protected abstract String getQueryPrefix();
@@ -83,26 +84,18 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 		assertNotStale();
 
 		final Object value = data.get(name);
-		if (value instanceof List) {
-
-			try {
-
-				final List list = (List)value;
-				if (!list.isEmpty()) {
 
-					final Object firstElement = ((List)value).get(0);
-					final Object[] arr        = (Object[])Array.newInstance(firstElement.getClass(), 0);
+		// lists are converted to arrays in update(), so only empty lists remain
+		if (value instanceof List && ((List)value).isEmpty()) {
 
-					// convert list to array
-					return ((List)value).toArray(arr);
-				}
+			// empty array => return null?
+			return null;
+		}
 
-				// empty array => return null?
-				return null;
+		// arrays are shared by all readers of this wrapper, return a copy so callers cannot modify them
+		if (value instanceof Object[]) {
 
-			} catch (Throwable t) {
-				logger.warn("", t);
-			}
+			return ((Object[])value).clone();
 		}
 
 		return value;
@@ -133,13 +126,11 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 		if (needsUpdate(key, value)) {
 
 			final Map<String, Object> map = new HashMap<>();
-			final String query            = getQueryPrefix() + " WHERE ID(n) = {id} SET n.`" + key + "` = {value}";
 
-			map.put("id", id);
-			map.put("value", value);
+			map.put(key, value);
 
-			// update entity handle
-			tx.set(query, map);
+			// buffer update, it is written in a batch with others
+			tx.updateProperties(getQueryPrefix(), id, map);
 
 			// update data
 			update(key, value);
@@ -160,16 +151,10 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 		// only update values if actually different from what is stored
 		if (!values.isEmpty()) {
 
-			final Map<String, Object> map = new HashMap<>();
-			final SessionTransaction tx   = db.getCurrentTransaction();
-			final String query            = getQueryPrefix() + " WHERE ID(n) = {id} SET n += {properties}";
-
-			// overwrite a potential "id" property
-			map.put("id", id);
-			map.put("properties", values);
+			final SessionTransaction tx = db.getCurrentTransaction();
 
-			// execute query
-			tx.set(query, map);
+			// buffer update, it is written in a batch with others
+			tx.updateProperties(getQueryPrefix(), id, values);
 
 			// update data
 			update(values);
@@ -185,12 +170,11 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 
 		final SessionTransaction tx   = db.getCurrentTransaction();
 		final Map<String, Object> map = new HashMap<>();
-		final String query            = getQueryPrefix() + " WHERE ID(n) = {id} SET n.`" + key + "` = Null";
 
-		map.put("id", id);
+		// null values remove the property when the update is written
+		map.put(key, null);
 
-		// execute query
-		tx.set(query, map);
+		tx.updateProperties(getQueryPrefix(), id, map);
 
 		// remove key from data
 		data.remove(key);
@@ -251,7 +235,17 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 	}
 
 	// ----- protected methods -----
-	protected synchronized void assertNotStale() {
+	protected void assertNotStale() {
+
+		// avoid locking on every read, stale entities are rare
+		if (stale) {
+
+			refresh();
+		}
+	}
+
+	// ----- private methods -----
+	private synchronized void refresh() {
 
 		if (stale) {
 
@@ -281,7 +275,6 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 		}
 	}
 
-	// ----- private methods -----
 	private void update(final Map<String, Object> values) {
 
 		for (final Entry<String, Object> entry : values.entrySet()) {
@@ -294,7 +287,7 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 
 		if (value != null) {
 
-			data.put(key, value);
+			data.put(key, toArray(value));
 
 		} else {
 
@@ -302,6 +295,35 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 		}
 	}
 
+	/**
+	 * Converts non-empty lists returned by the database to typed arrays,
+	 * so the conversion happens once when the entity is hydrated and
+	 * not on every read.
+	 */
+	private Object toArray(final Object value) {
+
+		if (value instanceof List) {
+
+			final List list = (List)value;
+			if (!list.isEmpty()) {
+
+				try {
+
+					final Object firstElement = list.get(0);
+					final Object[] arr        = (Object[])Array.newInstance(firstElement.getClass(), list.size());
+
+					// convert list to array
+					return list.toArray(arr);
+
+				} catch (Throwable t) {
+					logger.warn("", t);
+				}
+			}
+		}
+
+		return value;
+	}
+
 	private void filter(final Map<String, Object> data) {
 
 		final Iterator<Entry<String, Object>> it = data.entrySet().iterator();
@@ -343,7 +365,12 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 
 	private boolean equal(final Object existingValue, final Object newValue) {
 
-		if (existingValue instanceof List) {
+		if (existingValue instanceof Object[] && newValue instanceof Object[]) {
+
+			return Arrays.equals((Object[])existingValue, (Object[])newValue);
+		}
+
+		if (existingValue instanceof List && newValue instanceof Object[]) {
 
 			final List list1 = (List)existingValue;
 			final List list2 = Arrays.asList((Object[])newValue);
@@ -18,6 +18,7 @@
  */
 package org.structr.bolt.wrapper;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -36,8 +37,8 @@ import org.structr.api.graph.Label;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
 import org.structr.api.graph.RelationshipType;
-import org.structr.api.util.FixedSizeCache;
 import org.structr.api.util.Iterables;
+import org.structr.api.util.SegmentedCache;
 import org.structr.bolt.BoltDatabaseService;
 import org.structr.bolt.SessionTransaction;
 import org.structr.bolt.mapper.RelationshipRelationshipMapper;
@@ -49,7 +50,7 @@ public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> i
 
 	private static final Logger logger                                           = LoggerFactory.getLogger(NodeWrapper.class);
 	private final Map<String, Map<String, RelationshipResult>> relationshipCache = new HashMap<>();
-	private static FixedSizeCache<Long, NodeWrapper> nodeCache                   = null;
+	private static SegmentedCache<Long, NodeWrapper> nodeCache                   = null;
 	private boolean dontUseCache                                                 = false;
 
 	private NodeWrapper(final BoltDatabaseService db, final org.neo4j.driver.v1.types.Node node) {
@@ -57,7 +58,7 @@ public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> i
 	}
 
 	public static void initialize(final int cacheSize) {
-		nodeCache = new FixedSizeCache<>(cacheSize);
+		nodeCache = new SegmentedCache<>(cacheSize);
 	}
 
 	@Override
@@ -306,81 +307,84 @@ public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> i
 		list.add(rel);
 	}
 
+	/**
+	 * Indicates whether the relationships with the given direction and type
+	 * are already cached, or need not be cached because caching is disabled.
+	 *
+	 * @param direction
+	 * @param relationshipType
+	 * @return whether the relationships need to be loaded
+	 */
+	public boolean hasCachedRelationships(final Direction direction, final RelationshipType relationshipType) {
+
+		if (Settings.ForceResultStreaming.getValue() || dontUseCache) {
+			return true;
+		}
+
+		return getRelationshipCache(direction, relationshipType).isFilled();
+	}
+
+	/**
+	 * Fills the relationship cache for the given direction and type with
+	 * relationships that were loaded for several nodes at once.
+	 *
+	 * @param direction
+	 * @param relationshipType
+	 * @param relationships
+	 */
+	public void setCachedRelationships(final Direction direction, final RelationshipType relationshipType, final Collection<Relationship> relationships) {
+		getRelationshipCache(direction, relationshipType).fill(relationships);
+	}
+
 	// ----- public static methods -----
-	public static FixedSizeCache<Long, NodeWrapper> getCache() {
+	public static SegmentedCache<Long, NodeWrapper> getCache() {
 		return nodeCache;
 	}
 
 	public static void expunge(final Set<Long> toRemove) {
-
-		synchronized (nodeCache) {
-
-			nodeCache.removeAll(toRemove);
-		}
+		nodeCache.removeAll(toRemove);
 	}
 
 	public static void clearCache() {
-
-		synchronized (nodeCache) {
-
-			nodeCache.clear();
-		}
+		nodeCache.clear();
 	}
 
 	public static NodeWrapper newInstance(final BoltDatabaseService db, final org.neo4j.driver.v1.types.Node node) {
-
-		synchronized (nodeCache) {
-
-			NodeWrapper wrapper = nodeCache.get(node.id());
-			if (wrapper == null || wrapper.stale) {
-
-				wrapper = new NodeWrapper(db, node);
-				nodeCache.put(node.id(), wrapper);
-			}
-
-			return wrapper;
-		}
+		return nodeCache.get(node.id(), wrapper -> !wrapper.stale, () -> new NodeWrapper(db, node));
 	}
 
 	public static NodeWrapper newInstance(final BoltDatabaseService db, final long id) {
 
-		synchronized (nodeCache) {
-
-			NodeWrapper wrapper = nodeCache.get(id);
-			if (wrapper == null || wrapper.stale) {
-
-				final SessionTransaction tx   = db.getCurrentTransaction();
-				final Map<String, Object> map = new HashMap<>();
-				final String tenantIdentifier = getTenantIdentifer(db);
-
-				map.put("id", id);
+		// database round-trip happens in the factory, outside of any cache lock
+		return nodeCache.get(id, wrapper -> !wrapper.stale, () -> new NodeWrapper(db, fetchNode(db, id)));
+	}
 
-				final Iterable<org.neo4j.driver.v1.types.Node> result   = tx.getNodes(concat("MATCH (n", tenantIdentifier, ") WHERE ID(n) = {id} RETURN DISTINCT n"), map);
-				final Iterator<org.neo4j.driver.v1.types.Node> iterator = result.iterator();
+	// ----- protected methods -----
+	@Override
+	protected boolean isNode() {
+		return true;
+	}
 
-				if (iterator.hasNext()) {
+	// ----- private methods -----
+	private static org.neo4j.driver.v1.types.Node fetchNode(final BoltDatabaseService db, final long id) {
 
-					wrapper = NodeWrapper.newInstance(db, iterator.next());
+		final SessionTransaction tx   = db.getCurrentTransaction();
+		final Map<String, Object> map = new HashMap<>();
+		final String tenantIdentifier = getTenantIdentifer(db);
 
-					nodeCache.put(id, wrapper);
+		map.put("id", id);
 
-				} else {
+		final Iterable<org.neo4j.driver.v1.types.Node> result   = tx.getNodes(concat("MATCH (n", tenantIdentifier, ") WHERE ID(n) = {id} RETURN DISTINCT n"), map);
+		final Iterator<org.neo4j.driver.v1.types.Node> iterator = result.iterator();
 
-					throw new NotFoundException("Node with ID " + id + " not found.");
-				}
-			}
+		if (iterator.hasNext()) {
 
-			return wrapper;
+			return iterator.next();
 		}
-	}
 
-	// ----- protected methods -----
-	@Override
-	protected boolean isNode() {
-		return true;
+		throw new NotFoundException("Node with ID " + id + " not found.");
 	}
 
-	// ----- private methods -----
 	private Map<String, RelationshipResult> getCache(final Direction direction) {
 
 		final String directionKey             = direction != null ? direction.name() : "*";
@@ -452,6 +456,19 @@ public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> i
 			}
 		}
 
+		public synchronized boolean isFilled() {
+			return set != null;
+		}
+
+		public synchronized void fill(final Collection<Relationship> relationships) {
+
+			if (set == null) {
+
+				set = new TreeSet<>((o1, o2) -> { return compare("internalTimestamp", o1, o2); });
+				set.addAll(relationships);
+			}
+		}
+
 		public synchronized Iterable<Relationship> getResult(final BoltDatabaseService db, final long id, final String match, final String pattern, final String returnStatement) {
 
 			final RelationshipRelationshipMapper mapper = new RelationshipRelationshipMapper(db);
@@ -25,7 +25,7 @@ import org.structr.api.graph.Direction;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
 import org.structr.api.graph.RelationshipType;
-import org.structr.api.util.FixedSizeCache;
+import org.structr.api.util.SegmentedCache;
 import org.structr.bolt.BoltDatabaseService;
 import org.structr.bolt.SessionTransaction;
 
@@ -34,7 +34,7 @@ import org.structr.bolt.SessionTransaction;
  */
 public class RelationshipWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Relationship> implements Relationship {
 
-	private static FixedSizeCache<Long, RelationshipWrapper> relationshipCache = null;
+	private static SegmentedCache<Long, RelationshipWrapper> relationshipCache = null;
 
 	private long sourceNodeId = -1L;
 	private long targetNodeId = -1L;
@@ -50,7 +50,7 @@ public class RelationshipWrapper extends EntityWrapper<org.neo4j.driver.v1.types
 	}
 
 	public static void initialize(final int cacheSize) {
-		relationshipCache = new FixedSizeCache<>(cacheSize);
+		relationshipCache = new SegmentedCache<>(cacheSize);
 	}
 
 	@Override
@@ -71,11 +71,7 @@ public class RelationshipWrapper extends EntityWrapper<org.neo4j.driver.v1.types
 	}
 
 	public static void expunge(final Set<Long> toRemove) {
-
-		synchronized (relationshipCache) {
-
-			relationshipCache.removeAll(toRemove);
-		}
+		relationshipCache.removeAll(toRemove);
 	}
 
 	@Override
@@ -116,6 +112,14 @@ public class RelationshipWrapper extends EntityWrapper<org.neo4j.driver.v1.types
 		return getStartNode();
 	}
 
+	public long getSourceNodeId() {
+		return sourceNodeId;
+	}
+
+	public long getTargetNodeId() {
+		return targetNodeId;
+	}
+
 	@Override
 	public RelationshipType getType() {
 		return db.forName(RelationshipType.class, type);
@@ -158,7 +162,7 @@ public class RelationshipWrapper extends EntityWrapper<org.neo4j.driver.v1.types
 	}
 
 	// ----- public static methods -----
-	public static FixedSizeCache<Long, RelationshipWrapper> getCache() {
+	public static SegmentedCache<Long, RelationshipWrapper> getCache() {
 		return relationshipCache;
 	}
 
@@ -167,55 +171,41 @@ public class RelationshipWrapper extends EntityWrapper<org.neo4j.driver.v1.types
 	}
 
 	public static RelationshipWrapper newInstance(final BoltDatabaseService db, final org.neo4j.driver.v1.types.Relationship relationship) {
-
-		synchronized (relationshipCache) {
-
-			RelationshipWrapper wrapper = relationshipCache.get(relationship.id());
-			if (wrapper == null || wrapper.stale) {
-
-				wrapper = new RelationshipWrapper(db, relationship);
-				relationshipCache.put(relationship.id(), wrapper);
-			}
-
-			return wrapper;
-		}
+		return relationshipCache.get(relationship.id(), wrapper -> !wrapper.stale, () -> new RelationshipWrapper(db, relationship));
 	}
 
 	public static RelationshipWrapper newInstance(final BoltDatabaseService db, final long id) {
 
-		synchronized (relationshipCache) {
-
-			RelationshipWrapper wrapper = relationshipCache.get(id);
-			if (wrapper == null || wrapper.stale) {
+		// database round-trip happens in the factory, outside of any cache lock
+		return relationshipCache.get(id, wrapper -> !wrapper.stale, () -> new RelationshipWrapper(db, fetchRelationship(db, id)));
+	}
 
-				final SessionTransaction tx   = db.getCurrentTransaction();
-				final Map<String, Object> map = new HashMap<>();
-				final StringBuilder buf       = new StringBuilder();
-				final String tenantIdentifier = db.getTenantIdentifier();
+	// ----- private methods -----
+	private static org.neo4j.driver.v1.types.Relationship fetchRelationship(final BoltDatabaseService db, final long id) {
 
-				map.put("id", id);
+		final SessionTransaction tx   = db.getCurrentTransaction();
+		final Map<String, Object> map = new HashMap<>();
+		final StringBuilder buf       = new StringBuilder();
+		final String tenantIdentifier = db.getTenantIdentifier();
 
-				buf.append("MATCH (");
+		map.put("id", id);
 
-				if (tenantIdentifier != null) {
-					buf.append(":");
-					buf.append(tenantIdentifier);
-				}
+		buf.append("MATCH (");
 
-				buf.append(")-[n]-(");
+		if (tenantIdentifier != null) {
+			buf.append(":");
+			buf.append(tenantIdentifier);
+		}
 
-				if (tenantIdentifier != null) {
-					buf.append(":");
-					buf.append(tenantIdentifier);
-				}
+		buf.append(")-[n]-(");
 
-				buf.append(") WHERE ID(n) = {id} RETURN n");
+		if (tenantIdentifier != null) {
+			buf.append(":");
+			buf.append(tenantIdentifier);
+		}
 
-				wrapper = new RelationshipWrapper(db, tx.getRelationship(buf.toString(), map));
-					relationshipCache.put(id, wrapper);
-				}
+		buf.append(") WHERE ID(n) = {id} RETURN n");
 
-			return wrapper;
-		}
+		return tx.getRelationship(buf.toString(), map);
 	}
 }
@@ -35,8 +35,10 @@ import org.structr.core.graph.BulkRebuildIndexCommand;
 import org.structr.core.graph.BulkSetNodePropertiesCommand;
 import org.structr.core.graph.BulkSetRelationshipPropertiesCommand;
 import org.structr.core.graph.BulkSetUuidCommand;
+import org.structr.core.graph.CacheStatisticsCommand;
 import org.structr.core.graph.ClearDatabase;
 import org.structr.core.graph.FlushCachesCommand;
+import org.structr.core.graph.QueryStatisticsCommand;
 import org.structr.core.graph.SyncCommand;
 import org.structr.core.property.PropertyKey;
 import org.structr.rest.RestMethodResult;
@@ -74,6 +76,8 @@ public class MaintenanceParameterResource extends Resource {
 		maintenanceCommandMap.put("flushCaches", FlushCachesCommand.class);
 		maintenanceCommandMap.put("analyzeSchema", SchemaAnalyzer.class);
 		maintenanceCommandMap.put("migrateChangelog", BulkMigrateChangelogCommand.class);
+		maintenanceCommandMap.put("queryStatistics", QueryStatisticsCommand.class);
+		maintenanceCommandMap.put("cacheStatistics", CacheStatisticsCommand.class);
 
 	}
 
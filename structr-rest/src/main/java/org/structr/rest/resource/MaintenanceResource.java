@@ -19,20 +19,27 @@
 package org.structr.rest.resource;
 
 import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.agent.Task;
+import org.structr.api.util.PagingIterable;
 import org.structr.api.util.ResultStream;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObjectMap;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
+import org.structr.core.graph.BulkOperationProgress;
 import org.structr.core.graph.FlushCachesCommand;
 import org.structr.core.graph.MaintenanceCommand;
 import org.structr.core.graph.Tx;
+import org.structr.core.property.GenericProperty;
 import org.structr.core.property.PropertyKey;
 import org.structr.rest.RestMethodResult;
 import org.structr.rest.exception.IllegalPathException;
@@ -61,9 +68,34 @@ public class MaintenanceResource extends Resource {
 		return ("maintenance".equals(part));
 	}
 
+	/**
+	 * Returns the progress of all running parallel bulk operations.
+	 */
 	@Override
 	public ResultStream doGet(PropertyKey sortKey, boolean sortDescending, int pageSize, int page) throws FrameworkException {
-		throw new NotAllowedException("GET not allowed on " + getResourceSignature());
+
+		if ((securityContext != null) && isSuperUser()) {
+
+			final List<GraphObjectMap> resultList = new LinkedList<>();
+
+			for (final BulkOperationProgress progress : BulkOperationProgress.getRunningOperations()) {
+
+				final GraphObjectMap info = new GraphObjectMap();
+
+				for (final Entry<String, Object> entry : progress.toMap().entrySet()) {
+
+					info.setProperty(new GenericProperty(entry.getKey()), entry.getValue());
+				}
+
+				resultList.add(info);
+			}
+
+			return new PagingIterable(resultList);
+
+		} else {
+
+			throw new NotAllowedException("Use of the maintenance endpoint is restricted to admin users");
+		}
 	}
 
 	@Override
@@ -117,6 +149,13 @@ public class MaintenanceResource extends Resource {
 							result.addHeader(headerName, headerValue);
 						});
 						cmd.getCustomHeaders().clear();
+
+						final Object commandResult = cmd.getCommandResult();
+						if (commandResult != null) {
+
+							result.setNonGraphObjectResult(commandResult);
+						}
+
 						return result;
 
 					} else {
@@ -19,6 +19,7 @@
 package org.structr.rest.resource;
 
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
@@ -52,6 +53,7 @@ import org.structr.core.property.PropertyMap;
 import org.structr.rest.RestMethodResult;
 import org.structr.rest.exception.IllegalPathException;
 import org.structr.rest.exception.NotFoundException;
+import org.structr.rest.servlet.JsonRestServlet;
 import org.structr.schema.SchemaHelper;
 
 /**
@@ -146,6 +148,8 @@ public class TypeResource extends WrappingResource {
 					.order(sortDescending)
 					.pageSize(pageSize)
 					.page(page)
+					.cursor(request != null ? request.getParameter(JsonRestServlet.REQUEST_PARAMETER_CURSOR) : null)
+					.prefetch(getPrefetchKeys())
 					.getResultStream();
 			}
 
@@ -384,6 +388,29 @@ public class TypeResource extends WrappingResource {
 	}
 
 	// ----- private methods -----
+	private PropertyKey[] getPrefetchKeys() {
+
+		final List<PropertyKey> keys = new LinkedList<>();
+
+		if (request != null) {
+
+			final String names = request.getParameter(JsonRestServlet.REQUEST_PARAMETER_PREFETCH);
+			if (names != null) {
+
+				for (final String name : names.split(",")) {
+
+					final PropertyKey key = StructrApp.getConfiguration().getPropertyKeyForJSONName(entityClass, name.trim(), false);
+					if (key != null) {
+
+						keys.add(key);
+					}
+				}
+			}
+		}
+
+		return keys.toArray(new PropertyKey[0]);
+	}
+
 	private Relation getRelationshipTemplate() {
 
 		try {
@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.serialization;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A JSON property name together with its escaped and quoted form. Names
+ * are escaped once and can then be written for any number of objects.
+ * The escaping rules are the same as those of Gson's JsonWriter, so the
+ * output does not depend on the writer implementation.
+ */
+public class JsonName {
+
+	private static final String[] REPLACEMENT_CHARS = new String[128];
+
+	static {
+
+		for (int i=0; i<=0x1f; i++) {
+			REPLACEMENT_CHARS[i] = String.format("\\u%04x", i);
+		}
+
+		REPLACEMENT_CHARS['"']  = "\\\"";
+		REPLACEMENT_CHARS['\\'] = "\\\\";
+		REPLACEMENT_CHARS['\t'] = "\\t";
+		REPLACEMENT_CHARS['\b'] = "\\b";
+		REPLACEMENT_CHARS['\n'] = "\\n";
+		REPLACEMENT_CHARS['\r'] = "\\r";
+		REPLACEMENT_CHARS['\f'] = "\\f";
+	}
+
+	private byte[] encoded = null;
+	private String escaped = null;
+	private String name    = null;
+
+	public JsonName(final String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the escaped name including the surrounding quotes. The
+	 * escaped form is created on first use, concurrent callers may both
+	 * create it, but they always create the same string.
+	 *
+	 * @return the escaped and quoted name
+	 */
+	public String getEscaped() {
+
+		if (escaped == null) {
+			escaped = escape(name);
+		}
+
+		return escaped;
+	}
+
+	/**
+	 * Returns the escaped and quoted name as UTF-8 bytes.
+	 *
+	 * @return the encoded name
+	 */
+	public byte[] getEncoded() {
+
+		if (encoded == null) {
+			encoded = getEscaped().getBytes(StandardCharsets.UTF_8);
+		}
+
+		return encoded;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	// ----- static methods -----
+	public static String escape(final String value) {
+
+		final int length        = value.length();
+		final StringBuilder buf = new StringBuilder(length + 2);
+
+		buf.append('"');
+
+		for (int i=0; i<length; i++) {
+
+			final char c             = value.charAt(i);
+			final String replacement = getReplacement(c);
+
+			if (replacement != null) {
+
+				buf.append(replacement);
+
+			} else {
+
+				buf.append(c);
+			}
+		}
+
+		buf.append('"');
+
+		return buf.toString();
+	}
+
+	/**
+	 * Returns the escape sequence for the given character, or null if the
+	 * character can be written as is.
+	 *
+	 * @param c
+	 * @return the escape sequence or null
+	 */
+	static String getReplacement(final char c) {
+
+		if (c < 128) {
+			return REPLACEMENT_CHARS[c];
+		}
+
+		if (c == 0x2028) {
+			return "\\u2028";
+		}
+
+		if (c == 0x2029) {
+			return "\\u2029";
+		}
+
+		return null;
+	}
+}
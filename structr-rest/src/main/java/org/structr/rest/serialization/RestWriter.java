@@ -50,6 +50,16 @@ public interface RestWriter {
 	public void raw(final String data) throws IOException;
 	public void flush() throws IOException;
 
+	/**
+	 * Writes a property name that was escaped in advance. Writers that
+	 * cannot make use of the escaped form write the plain name.
+	 */
+	default public RestWriter name(final JsonName name) throws IOException {
+
+		return name(name.getName());
+
+	}
+
 	default public void increaseSerializationDepth() {
 
 		getSecurityContext().increaseSerializationDepth();
@@ -21,6 +21,7 @@ package org.structr.rest.serialization;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.lang.ref.WeakReference;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.HashSet;
@@ -31,6 +32,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -40,6 +42,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.config.Settings;
 import org.structr.api.util.ResultStream;
+import org.structr.api.util.SegmentedCache;
 import org.structr.common.PropertyView;
 import org.structr.common.QueryRange;
 import org.structr.common.SecurityContext;
@@ -52,6 +55,7 @@ import org.structr.core.entity.AbstractNode;
 import org.structr.core.graph.Tx;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
+import org.structr.schema.SchemaService;
 
 /**
  *
@@ -59,9 +63,12 @@ import org.structr.core.property.PropertyMap;
  */
 public abstract class StreamingWriter {
 
-	private static final Logger logger                   = LoggerFactory.getLogger(StreamingWriter.class.getName());
-	private static final Set<PropertyKey> idTypeNameOnly = new LinkedHashSet<>();
-	private static final Set<String> restrictedViews     = new HashSet<>();
+	private static final Logger logger                                        = LoggerFactory.getLogger(StreamingWriter.class.getName());
+	private static final SegmentedCache<PlanKey, SerializationPlan> planCache = new SegmentedCache<>(10000);
+	private static final SegmentedCache<Class, String> serializerNameCache    = new SegmentedCache<>(10000);
+	private static final Set<PropertyKey> idTypeNameOnly                      = new LinkedHashSet<>();
+	private static final Set<String> restrictedViews                          = new HashSet<>();
+	private static final String NO_SERIALIZER                                 = "";
 
 	static {
 
@@ -72,10 +79,12 @@ public abstract class StreamingWriter {
 		restrictedViews.add(PropertyView.All);
 		restrictedViews.add(PropertyView.Ui);
 		restrictedViews.add(PropertyView.Custom);
+
+		// cached plans and serializer names refer to the classes of the previous schema
+		SchemaService.registerReloadListener(StreamingWriter::clearCaches);
 	}
 
 	private final ExecutorService threadPool              = Executors.newWorkStealingPool();
-	private final Map<String, Serializer> serializerCache = new LinkedHashMap<>();
 	private final Map<String, Serializer> serializers     = new LinkedHashMap<>();
 	private final Serializer<GraphObject> root            = new RootSerializer();
 	private final Set<String> nonSerializerClasses        = new LinkedHashSet<>();
@@ -122,9 +131,9 @@ public abstract class StreamingWriter {
 
 	public void streamSingle(final SecurityContext securityContext, final Writer output, final GraphObject obj) throws IOException {
 
-		final Set<Integer> visitedObjects = new LinkedHashSet<>();
-		final RestWriter writer           = getRestWriter(securityContext, output);
-		final String view                 = propertyView.get(securityContext);
+		final VisitedObjects visitedObjects = new VisitedObjects();
+		final RestWriter writer             = getRestWriter(securityContext, output);
+		final String view                   = propertyView.get(securityContext);
 
 		configureWriter(writer);
 
@@ -139,15 +148,23 @@ public abstract class StreamingWriter {
 	}
 
 	public void stream(final SecurityContext securityContext, final Writer output, final ResultStream result, final String baseUrl, final boolean includeMetadata) throws IOException {
+		stream(getRestWriter(securityContext, output), result, baseUrl, includeMetadata);
+	}
+
+	/**
+	 * Streams the given result into the given writer, which allows callers
+	 * to supply a writer that does not sit on top of a character stream.
+	 */
+	public void stream(final RestWriter rootWriter, final ResultStream result, final String baseUrl, final boolean includeMetadata) throws IOException {
 
 		long t0 = System.nanoTime();
 
-		final RestWriter rootWriter = getRestWriter(securityContext, output);
+		final SecurityContext securityContext = rootWriter.getSecurityContext();
 
 		configureWriter(rootWriter);
 
 		// result fields in alphabetical order
-		final Set<Integer> visitedObjects             = new LinkedHashSet<>();
+		final VisitedObjects visitedObjects           = new VisitedObjects();
 		final String queryTime                        = result.getQueryTime();
 		final Integer page                            = result.getPage();
 		final Integer pageSize                        = result.getPageSize();
@@ -176,6 +193,12 @@ public abstract class StreamingWriter {
 				rootWriter.name("page_size").value(pageSize);
 			}
 
+			final String nextCursor = result.getNextCursor();
+			if (nextCursor != null) {
+
+				rootWriter.name("next_cursor").value(nextCursor);
+			}
+
 			if (queryTime != null) {
 				rootWriter.name("query_time").value(queryTime);
 			}
@@ -207,43 +230,59 @@ public abstract class StreamingWriter {
 		this.renderSerializationTime = doRender;
 	}
 
-	private Serializer getSerializerForType(Class type) {
+	/**
+	 * Removes all cached serialization plans and serializer names.
+	 */
+	public static void clearCaches() {
+
+		planCache.clear();
+		serializerNameCache.clear();
+	}
 
-		Class localType       = type;
-		Serializer serializer = serializerCache.get(type.getName());
+	/**
+	 * Returns the serializer for the given type. The result of the class
+	 * hierarchy search only depends on the type, so it is cached for all
+	 * writers.
+	 */
+	private Serializer getSerializerForType(final Class type) {
 
-		if (serializer == null && !nonSerializerClasses.contains(type.getName())) {
+		String name = serializerNameCache.get(type);
+		if (name == null) {
 
-			do {
-				serializer = serializers.get(localType.getName());
+			name = findSerializerName(type);
+			serializerNameCache.put(type, name);
+		}
 
-				if (serializer == null) {
+		return serializers.get(name);
+	}
 
-					Set<Class> interfaces = new LinkedHashSet<>();
-					collectAllInterfaces(localType, interfaces);
+	private String findSerializerName(final Class type) {
 
-					for (Class interfaceType : interfaces) {
+		if (!nonSerializerClasses.contains(type.getName())) {
 
-						serializer = serializers.get(interfaceType.getName());
+			Class localType = type;
 
-						if (serializer != null) {
-							break;
-						}
-					}
+			do {
+				if (serializers.containsKey(localType.getName())) {
+					return localType.getName();
 				}
 
-				localType = localType.getSuperclass();
+				Set<Class> interfaces = new LinkedHashSet<>();
+				collectAllInterfaces(localType, interfaces);
 
-			} while (serializer == null && !localType.equals(Object.class));
+				for (Class interfaceType : interfaces) {
 
+					if (serializers.containsKey(interfaceType.getName())) {
+						return interfaceType.getName();
+					}
+				}
 
-			// cache found serializer
-			if (serializer != null) {
-				serializerCache.put(type.getName(), serializer);
-			}
+				localType = localType.getSuperclass();
+
+			} while (localType != null && !localType.equals(Object.class));
 		}
 
-		return serializer;
+		return NO_SERIALIZER;
 	}
 
 	private void collectAllInterfaces(Class type, Set<Class> interfaces) {
@@ -290,12 +329,62 @@ public abstract class StreamingWriter {
 
 	}
 
+	/**
+	 * Returns the serialization plan for the given object, view and key
+	 * set. Plans are shared between all writers and only replaced when
+	 * the keys of an object differ from those of the cached plan, e.g.
+	 * after a schema reload or for types with per-object property keys.
+	 */
+	private SerializationPlan getSerializationPlan(final SecurityContext securityContext, final GraphObject source, final Set<PropertyKey> keys, final String view, final boolean compact) {
+
+		final PlanKey planKey  = new PlanKey(source.getClass(), view, compact);
+		SerializationPlan plan = planCache.get(planKey);
+
+		if (plan == null || !plan.matches(keys)) {
+
+			plan = createSerializationPlan(securityContext, source.getClass(), keys, view);
+			planCache.put(planKey, plan);
+		}
+
+		return plan;
+	}
+
+	private SerializationPlan createSerializationPlan(final SecurityContext securityContext, final Class type, final Set<PropertyKey> keys, final String view) {
+
+		final PlanEntry[] entries = new PlanEntry[keys.size()];
+		int index                 = 0;
+
+		for (final PropertyKey key : keys) {
+
+			// special handling for the internal _graph view: replace name with
+			// the name property from the ui view, in case it was overwritten
+			PropertyKey localKey = key;
+
+			if (View.INTERNAL_GRAPH_VIEW.equals(view)) {
+
+				if (AbstractNode.name.equals(localKey)) {
+
+					// replace key
+					localKey = StructrApp.key(type, AbstractNode.name.jsonName());
+				}
+			}
+
+			entries[index++] = new PlanEntry(key, localKey);
+		}
+
+		return new SerializationPlan(entries);
+	}
+
+	private boolean isPrimitive(final Object value) {
+		return value instanceof String || value instanceof Integer || value instanceof Long || value instanceof Double || value instanceof Boolean;
+	}
+
 	// ----- nested classes -----
 	public abstract class Serializer<T> {
 
-		public abstract void serialize(final RestWriter writer, final T value, final String localPropertyView, final int depth, final Set<Integer> visitedObjects) throws IOException;
+		public abstract void serialize(final RestWriter writer, final T value, final String localPropertyView, final int depth, final VisitedObjects visitedObjects) throws IOException;
 
-		public void serializeRoot(final RestWriter writer, final Object value, final String localPropertyView, final int depth, final Set<Integer> visitedObjects) throws IOException {
+		public void serializeRoot(final RestWriter writer, final Object value, final String localPropertyView, final int depth, final VisitedObjects visitedObjects) throws IOException {
 
 			if (value != null) {
 
@@ -311,12 +400,24 @@ public abstract class StreamingWriter {
 			serializePrimitive(writer, value);
 		}
 
-		public void serializeProperty(final RestWriter writer, final PropertyKey key, final Object value, final String localPropertyView, final int depth, final Set<Integer> visitedObjects) {
+		public void serializeProperty(final RestWriter writer, final PropertyKey key, final Object value, final String localPropertyView, final int depth, final VisitedObjects visitedObjects) {
+			serializeProperty(writer, key, true, value, localPropertyView, depth, visitedObjects);
+		}
+
+		public void serializeProperty(final RestWriter writer, final PropertyKey key, final boolean hasConverter, final Object value, final String localPropertyView, final int depth, final VisitedObjects visitedObjects) {
 
 			final SecurityContext securityContext = writer.getSecurityContext();
 
 			try {
-				final PropertyConverter converter = key.inputConverter(securityContext);
+
+				// values without converter that do not need a serializer can be written directly
+				if (!hasConverter && isPrimitive(value)) {
+
+					serializePrimitive(writer, value);
+					return;
+				}
+
+				final PropertyConverter converter = hasConverter ? key.inputConverter(securityContext) : null;
 				if (converter != null) {
 
 					Object convertedValue = null;
@@ -348,7 +449,7 @@ public abstract class StreamingWriter {
 	public class RootSerializer extends Serializer<GraphObject> {
 
 		@Override
-		public void serialize(final RestWriter writer, final GraphObject source, final String localPropertyView, final int depth, final Set<Integer> visitedObjects) throws IOException {
+		public void serialize(final RestWriter writer, final GraphObject source, final String localPropertyView, final int depth, final VisitedObjects visitedObjects) throws IOException {
 
 			int hashCode = -1;
 
@@ -364,47 +465,39 @@ public abstract class StreamingWriter {
 				if (depth <= outputNestingDepth) {
 
 					// property keys
-					Iterable<PropertyKey> keys = source.getPropertyKeys(localPropertyView);
+					Set<PropertyKey> keys = source.getPropertyKeys(localPropertyView);
 					if (keys != null) {
 
+						final SecurityContext securityContext = writer.getSecurityContext();
+						boolean compact                       = false;
+
 						// speciality for all, custom and ui view: limit recursive rendering to (id, name)
 						if (compactNestedProperties && depth > 0 && restrictedViews.contains(localPropertyView)) {
-							keys = idTypeNameOnly;
+
+							keys    = idTypeNameOnly;
+							compact = true;
 						}
 
-						for (final PropertyKey key : keys) {
+						for (final PlanEntry entry : getSerializationPlan(securityContext, source, keys, localPropertyView, compact).entries) {
 
-							final QueryRange range = writer.getSecurityContext().getRange(key.jsonName());
+							final QueryRange range = securityContext.getRange(entry.name.getName());
 							if (range != null) {
 								// Reset count for each key
 								range.resetCount();
 							}
 
-							// special handling for the internal _graph view: replace name with
-							// the name property from the ui view, in case it was overwritten
-							PropertyKey localKey = key;
-
-							if (View.INTERNAL_GRAPH_VIEW.equals(localPropertyView)) {
-
-								if (AbstractNode.name.equals(localKey)) {
-
-									// replace key
-									localKey = StructrApp.key(source.getClass(), AbstractNode.name.jsonName());
-								}
-							}
-
-							final Object value = source.getProperty(localKey, range);
+							final Object value = source.getProperty(entry.localKey, range);
 							if (value != null) {
 
 								if (!(reduceRedundancy && value instanceof GraphObject && visitedObjects.contains(value.hashCode()))) {
 
-									writer.name(key.jsonName());
-									serializeProperty(writer, localKey, value, localPropertyView, depth+1, visitedObjects);
+									writer.name(entry.name);
+									serializeProperty(writer, entry.localKey, entry.hasConverter(securityContext), value, localPropertyView, depth+1, visitedObjects);
 								}
 
 							} else {
 
-								writer.name(localKey.jsonName()).nullValue();
+								writer.name(entry.localName).nullValue();
 							}
 						}
 					}
@@ -421,7 +514,7 @@ public abstract class StreamingWriter {
 	public class IterableSerializer extends Serializer<Iterable> {
 
 		@Override
-		public void serialize(final RestWriter parentWriter, final Iterable value, final String localPropertyView, final int depth, final Set<Integer> visitedObjects) throws IOException {
+		public void serialize(final RestWriter parentWriter, final Iterable value, final String localPropertyView, final int depth, final VisitedObjects visitedObjects) throws IOException {
 
 			final Iterator iterator  = value.iterator();
 			final Object firstValue  = iterator.hasNext() ? iterator.next() : null;
@@ -468,7 +561,7 @@ public abstract class StreamingWriter {
 	public class MapSerializer extends Serializer<Map<String, Object>> {
 
 		@Override
-		public void serialize(final RestWriter writer, final Map<String, Object> source, final String localPropertyView, final int depth, final Set<Integer> visitedObjects) throws IOException {
+		public void serialize(final RestWriter writer, final Map<String, Object> source, final String localPropertyView, final int depth, final VisitedObjects visitedObjects) throws IOException {
 
 			writer.beginObject();
 
@@ -494,7 +587,7 @@ public abstract class StreamingWriter {
 		public PropertyMapSerializer() {}
 
 		@Override
-		public void serialize(final RestWriter writer, final PropertyMap source, final String localPropertyView, final int depth, final Set<Integer> visitedObjects) throws IOException {
+		public void serialize(final RestWriter writer, final PropertyMap source, final String localPropertyView, final int depth, final VisitedObjects visitedObjects) throws IOException {
 
 			writer.beginObject();
 
@@ -516,7 +609,7 @@ public abstract class StreamingWriter {
 	}
 
 	// ----- private methods -----
-	private void doParallel(final List list, final RestWriter parentWriter, final Set<Integer> visitedObjects, final Operation op) {
+	private void doParallel(final List list, final RestWriter parentWriter, final VisitedObjects visitedObjects, final Operation op) {
 
 		final SecurityContext securityContext = parentWriter.getSecurityContext();
 		final int numberOfPartitions          = (int)Math.rint(Math.log(list.size())) + 1;
@@ -535,7 +628,7 @@ public abstract class StreamingWriter {
 				try (final Tx tx = StructrApp.getInstance(securityContext).tx(false, false, false)) {
 
 					final RestWriter bufferingRestWriter = getRestWriter(securityContext, buffer);
-					final Set<Integer> nestedObjects     = new LinkedHashSet<>(visitedObjects);
+					final VisitedObjects nestedObjects   = new VisitedObjects(visitedObjects);
 					configureWriter(bufferingRestWriter);
 
 					bufferingRestWriter.beginArray();
@@ -590,6 +683,120 @@ public abstract class StreamingWriter {
 
 	private interface Operation {
 
-		public void run(final RestWriter writer, final Object o, final Set<Integer> visitedObjects) throws IOException;
+		public void run(final RestWriter writer, final Object o, final VisitedObjects visitedObjects) throws IOException;
+	}
+
+	private static class PlanKey {
+
+		private Class type      = null;
+		private String view     = null;
+		private boolean compact = false;
+		private int hashCode    = 0;
+
+		public PlanKey(final Class type, final String view, final boolean compact) {
+
+			this.type     = type;
+			this.view     = view;
+			this.compact  = compact;
+			this.hashCode = (31 * type.hashCode() + (view != null ? view.hashCode() : 0)) * 2 + (compact ? 1 : 0);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(final Object other) {
+
+			if (other instanceof PlanKey) {
+
+				final PlanKey key = (PlanKey)other;
+
+				return type.equals(key.type) && compact == key.compact && Objects.equals(view, key.view);
+			}
+
+			return false;
+		}
+	}
+
+	/**
+	 * The precomputed list of property keys that is written for objects of
+	 * a given type in a given view, in output order.
+	 */
+	private static class SerializationPlan {
+
+		private PlanEntry[] entries = null;
+
+		public SerializationPlan(final PlanEntry[] entries) {
+			this.entries = entries;
+		}
+
+		public boolean matches(final Set<PropertyKey> keys) {
+
+			if (keys.size() != entries.length) {
+				return false;
+			}
+
+			int index = 0;
+
+			for (final PropertyKey key : keys) {
+
+				if (entries[index++].key != key) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+	}
+
+	private static class PlanEntry {
+
+		private volatile ConverterCheck converterCheck = null;
+		private PropertyKey key                        = null;
+		private PropertyKey localKey                   = null;
+		private JsonName name                          = null;
+		private JsonName localName                     = null;
+
+		public PlanEntry(final PropertyKey key, final PropertyKey localKey) {
+
+			this.key       = key;
+			this.localKey  = localKey;
+			this.name      = new JsonName(key.jsonName());
+			this.localName = key.jsonName().equals(localKey.jsonName()) ? name : new JsonName(localKey.jsonName());
+		}
+
+		/**
+		 * Returns whether the local key has an input converter for the given
+		 * security context. Only the result for the most recent context is
+		 * kept, so all objects of a request share a single check.
+		 */
+		public boolean hasConverter(final SecurityContext securityContext) {
+
+			final ConverterCheck check = converterCheck;
+			if (check != null && check.securityContext.get() == securityContext) {
+
+				return check.hasConverter;
+			}
+
+			final boolean hasConverter = localKey.inputConverter(securityContext) != null;
+
+			converterCheck = new ConverterCheck(securityContext, hasConverter);
+
+			return hasConverter;
+		}
+	}
+
+	private static class ConverterCheck {
+
+		private WeakReference<SecurityContext> securityContext = null;
+		private boolean hasConverter                           = false;
+
+		public ConverterCheck(final SecurityContext securityContext, final boolean hasConverter) {
+
+			this.securityContext = new WeakReference<>(securityContext);
+			this.hasConverter    = hasConverter;
+		}
 	}
 }
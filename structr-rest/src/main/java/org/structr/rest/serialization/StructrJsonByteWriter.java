@@ -0,0 +1,662 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.serialization;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.structr.api.config.Settings;
+import org.structr.common.SecurityContext;
+import org.structr.core.GraphObject;
+
+/**
+ * A JSON writer that encodes its output as UTF-8 directly into a pooled
+ * byte buffer, which is written to the underlying output stream whenever
+ * it is full. The output is identical to that of {@link StructrJsonWriter},
+ * this class follows the same state machine and escaping rules as Gson's
+ * JsonWriter, but avoids the character writer and encoder layers of the
+ * servlet container.
+ *
+ * Instances are not thread-safe and must be closed to return the buffer
+ * to the pool. Closing the writer does not close the output stream.
+ */
+public class StructrJsonByteWriter implements RestWriter, Closeable {
+
+	private static final Queue<ByteBuffer> bufferPool = new ConcurrentLinkedQueue<>();
+	private static final AtomicInteger pooledBuffers  = new AtomicInteger();
+	private static final int MAX_POOLED_BUFFERS       = 64;
+	private static final int MIN_BUFFER_SIZE          = 1024;
+
+	private static final byte[] TRUE                  = "true".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] FALSE                 = "false".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] NULL                  = "null".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] MIN_LONG              = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.UTF_8);
+
+	// Gson's JsonWriter scopes
+	private static final int EMPTY_ARRAY              = 1;
+	private static final int NONEMPTY_ARRAY           = 2;
+	private static final int EMPTY_OBJECT             = 3;
+	private static final int DANGLING_NAME            = 4;
+	private static final int NONEMPTY_OBJECT          = 5;
+	private static final int EMPTY_DOCUMENT           = 6;
+	private static final int NONEMPTY_DOCUMENT        = 7;
+
+	private final byte[] digits                       = new byte[20];
+	private SecurityContext securityContext           = null;
+	private OutputStream out                          = null;
+	private ByteBuffer buffer                         = null;
+	private byte[] bytes                              = null;
+	private int[] stack                               = new int[32];
+	private int stackSize                             = 0;
+	private String deferredName                       = null;
+	private JsonName deferredJsonName                 = null;
+	private byte[] indent                             = null;
+	private boolean lenient                           = false;
+
+	public StructrJsonByteWriter(final SecurityContext securityContext, final OutputStream out) {
+		this(securityContext, out, Settings.JsonOutputBufferSize.getValue());
+	}
+
+	public StructrJsonByteWriter(final SecurityContext securityContext, final OutputStream out, final int bufferSize) {
+
+		this.securityContext = securityContext;
+		this.out             = out;
+		this.buffer          = acquireBuffer(Math.max(MIN_BUFFER_SIZE, bufferSize));
+		this.bytes           = buffer.array();
+		this.lenient         = Settings.JsonLenient.getValue();
+
+		push(EMPTY_DOCUMENT);
+	}
+
+	@Override
+	public void setIndent(final String indent) {
+
+		if (indent == null || indent.isEmpty()) {
+
+			this.indent = null;
+
+		} else {
+
+			this.indent = indent.getBytes(StandardCharsets.UTF_8);
+		}
+	}
+
+	@Override
+	public SecurityContext getSecurityContext() {
+		return securityContext;
+	}
+
+	@Override
+	public RestWriter beginDocument(final String baseUrl, final String propertyView) throws IOException {
+		return this;
+	}
+
+	@Override
+	public RestWriter endDocument() throws IOException {
+		return this;
+	}
+
+	@Override
+	public RestWriter beginArray() throws IOException {
+
+		writeDeferredName();
+		open(EMPTY_ARRAY, '[');
+
+		return this;
+	}
+
+	@Override
+	public RestWriter endArray() throws IOException {
+
+		close(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+
+		return this;
+	}
+
+	@Override
+	public RestWriter beginObject() throws IOException {
+		return beginObject(null);
+	}
+
+	@Override
+	public RestWriter beginObject(final GraphObject graphObject) throws IOException {
+
+		increaseSerializationDepth();
+
+		writeDeferredName();
+		open(EMPTY_OBJECT, '{');
+
+		return this;
+	}
+
+	@Override
+	public RestWriter endObject() throws IOException {
+		return endObject(null);
+	}
+
+	@Override
+	public RestWriter endObject(final GraphObject graphObject) throws IOException {
+
+		decreaseSerializationDepth();
+
+		close(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+
+		return this;
+	}
+
+	@Override
+	public RestWriter name(final String name) throws IOException {
+
+		assertCanWriteName(name);
+
+		deferredName = name;
+
+		return this;
+	}
+
+	@Override
+	public RestWriter name(final JsonName name) throws IOException {
+
+		assertCanWriteName(name);
+
+		deferredJsonName = name;
+
+		return this;
+	}
+
+	@Override
+	public RestWriter value(final String value) throws IOException {
+
+		if (value == null) {
+			return nullValue();
+		}
+
+		writeDeferredName();
+		beforeValue();
+		writeString(value);
+
+		return this;
+	}
+
+	@Override
+	public RestWriter nullValue() throws IOException {
+
+		writeDeferredName();
+		beforeValue();
+		write(NULL);
+
+		return this;
+	}
+
+	@Override
+	public RestWriter value(final boolean value) throws IOException {
+
+		writeDeferredName();
+		beforeValue();
+		write(value ? TRUE : FALSE);
+
+		return this;
+	}
+
+	@Override
+	public RestWriter value(final double value) throws IOException {
+
+		// Gson 2.8.0 rejects non-finite doubles even in lenient mode
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+		}
+
+		writeDeferredName();
+		beforeValue();
+		writeAscii(Double.toString(value));
+
+		return this;
+	}
+
+	@Override
+	public RestWriter value(final long value) throws IOException {
+
+		writeDeferredName();
+		beforeValue();
+		writeLong(value);
+
+		return this;
+	}
+
+	@Override
+	public RestWriter value(final Number value) throws IOException {
+
+		if (value == null) {
+			return nullValue();
+		}
+
+		// integral values are written without creating a string
+		if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+
+			writeDeferredName();
+			beforeValue();
+			writeLong(value.longValue());
+
+		} else {
+
+			final String string = value.toString();
+
+			if (!lenient && (string.equals("-Infinity") || string.equals("Infinity") || string.equals("NaN"))) {
+				throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+			}
+
+			writeDeferredName();
+			beforeValue();
+			writeString(string, false);
+		}
+
+		return this;
+	}
+
+	@Override
+	public void raw(final String data) throws IOException {
+		writeString(data, false);
+	}
+
+	@Override
+	public void flush() throws IOException {
+
+		flushBuffer();
+		out.flush();
+	}
+
+	/**
+	 * Writes all buffered data to the output stream and returns the buffer
+	 * to the pool. The output stream is flushed, but not closed.
+	 */
+	@Override
+	public void close() throws IOException {
+
+		if (buffer != null) {
+
+			try {
+
+				flush();
+
+			} finally {
+
+				releaseBuffer(buffer);
+
+				buffer = null;
+				bytes  = null;
+			}
+		}
+	}
+
+	// ----- private methods -----
+	private void open(final int empty, final char openBracket) throws IOException {
+
+		beforeValue();
+		push(empty);
+		write((byte)openBracket);
+	}
+
+	private void close(final int empty, final int nonempty, final char closeBracket) throws IOException {
+
+		final int context = peek();
+
+		if (context != nonempty && context != empty) {
+			throw new IllegalStateException("Nesting problem.");
+		}
+
+		if (deferredName != null || deferredJsonName != null) {
+			throw new IllegalStateException("Dangling name: " + (deferredName != null ? deferredName : deferredJsonName.getName()));
+		}
+
+		stackSize--;
+
+		if (context == nonempty) {
+			newline();
+		}
+
+		write((byte)closeBracket);
+	}
+
+	private void push(final int newTop) {
+
+		if (stackSize == stack.length) {
+
+			final int[] newStack = new int[stackSize * 2];
+			System.arraycopy(stack, 0, newStack, 0, stackSize);
+			stack = newStack;
+		}
+
+		stack[stackSize++] = newTop;
+	}
+
+	private int peek() {
+
+		if (stackSize == 0) {
+			throw new IllegalStateException("JsonWriter is closed.");
+		}
+
+		return stack[stackSize - 1];
+	}
+
+	private void replaceTop(final int topOfStack) {
+		stack[stackSize - 1] = topOfStack;
+	}
+
+	private void assertCanWriteName(final Object name) {
+
+		if (name == null) {
+			throw new NullPointerException("name == null");
+		}
+
+		if (deferredName != null || deferredJsonName != null) {
+			throw new IllegalStateException();
+		}
+
+		if (stackSize == 0) {
+			throw new IllegalStateException("JsonWriter is closed.");
+		}
+	}
+
+	private void writeDeferredName() throws IOException {
+
+		if (deferredJsonName != null) {
+
+			beforeName();
+			write(deferredJsonName.getEncoded());
+
+			deferredJsonName = null;
+
+		} else if (deferredName != null) {
+
+			beforeName();
+			writeString(deferredName);
+
+			deferredName = null;
+		}
+	}
+
+	private void beforeName() throws IOException {
+
+		final int context = peek();
+
+		if (context == NONEMPTY_OBJECT) {
+
+			write((byte)',');
+
+		} else if (context != EMPTY_OBJECT) {
+
+			throw new IllegalStateException("Nesting problem.");
+		}
+
+		newline();
+		replaceTop(DANGLING_NAME);
+	}
+
+	private void beforeValue() throws IOException {
+
+		switch (peek()) {
+
+			case NONEMPTY_DOCUMENT:
+				if (!lenient) {
+					throw new IllegalStateException("JSON must have only one top-level value.");
+				}
+				// fall-through
+
+			case EMPTY_DOCUMENT:
+				replaceTop(NONEMPTY_DOCUMENT);
+				break;
+
+			case EMPTY_ARRAY:
+				replaceTop(NONEMPTY_ARRAY);
+				newline();
+				break;
+
+			case NONEMPTY_ARRAY:
+				write((byte)',');
+				newline();
+				break;
+
+			case DANGLING_NAME:
+				write((byte)':');
+				if (indent != null) {
+					write((byte)' ');
+				}
+				replaceTop(NONEMPTY_OBJECT);
+				break;
+
+			default:
+				throw new IllegalStateException("Nesting problem.");
+		}
+	}
+
+	private void newline() throws IOException {
+
+		if (indent != null) {
+
+			write((byte)'\n');
+
+			for (int i=1; i<stackSize; i++) {
+				write(indent);
+			}
+		}
+	}
+
+	private void writeString(final String value) throws IOException {
+
+		write((byte)'"');
+		writeString(value, true);
+		write((byte)'"');
+	}
+
+	/**
+	 * Encodes the given string as UTF-8. ASCII characters that need no
+	 * escaping, which covers UUIDs, ISO dates and most property values,
+	 * are copied without further checks.
+	 */
+	private void writeString(final String value, final boolean escape) throws IOException {
+
+		final int length = value.length();
+		int position     = buffer.position();
+
+		for (int i=0; i<length; i++) {
+
+			final char c = value.charAt(i);
+
+			if (c < 128 && (!escape || JsonName.getReplacement(c) == null)) {
+
+				if (position == bytes.length) {
+
+					buffer.position(position);
+					flushBuffer();
+					position = 0;
+				}
+
+				bytes[position++] = (byte)c;
+
+			} else {
+
+				buffer.position(position);
+
+				final String replacement = escape ? JsonName.getReplacement(c) : null;
+				if (replacement != null) {
+
+					writeAscii(replacement);
+
+				} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+
+					writeCodePoint(Character.toCodePoint(c, value.charAt(++i)));
+
+				} else if (Character.isSurrogate(c)) {
+
+					// malformed input is replaced like the JDK's UTF-8 encoder does
+					write((byte)'?');
+
+				} else {
+
+					writeCodePoint(c);
+				}
+
+				position = buffer.position();
+			}
+		}
+
+		buffer.position(position);
+	}
+
+	private void writeAscii(final String value) throws IOException {
+
+		final int length = value.length();
+
+		ensureCapacity(length);
+
+		for (int i=0; i<length; i++) {
+			buffer.put((byte)value.charAt(i));
+		}
+	}
+
+	private void writeCodePoint(final int codePoint) throws IOException {
+
+		ensureCapacity(4);
+
+		if (codePoint < 0x80) {
+
+			buffer.put((byte)codePoint);
+
+		} else if (codePoint < 0x800) {
+
+			buffer.put((byte)(0xc0 | (codePoint >> 6)));
+			buffer.put((byte)(0x80 | (codePoint & 0x3f)));
+
+		} else if (codePoint < 0x10000) {
+
+			buffer.put((byte)(0xe0 | (codePoint >> 12)));
+			buffer.put((byte)(0x80 | ((codePoint >> 6) & 0x3f)));
+			buffer.put((byte)(0x80 | (codePoint & 0x3f)));
+
+		} else {
+
+			buffer.put((byte)(0xf0 | (codePoint >> 18)));
+			buffer.put((byte)(0x80 | ((codePoint >> 12) & 0x3f)));
+			buffer.put((byte)(0x80 | ((codePoint >> 6) & 0x3f)));
+			buffer.put((byte)(0x80 | (codePoint & 0x3f)));
+		}
+	}
+
+	private void writeLong(final long value) throws IOException {
+
+		if (value == Long.MIN_VALUE) {
+
+			write(MIN_LONG);
+			return;
+		}
+
+		long remaining = Math.abs(value);
+		int index      = digits.length;
+
+		do {
+
+			digits[--index] = (byte)('0' + (remaining % 10));
+			remaining /= 10;
+
+		} while (remaining > 0);
+
+		if (value < 0) {
+			digits[--index] = '-';
+		}
+
+		ensureCapacity(digits.length - index);
+		buffer.put(digits, index, digits.length - index);
+	}
+
+	private void write(final byte value) throws IOException {
+
+		ensureCapacity(1);
+		buffer.put(value);
+	}
+
+	private void write(final byte[] data) throws IOException {
+
+		if (data.length > bytes.length) {
+
+			flushBuffer();
+			out.write(data);
+
+		} else {
+
+			ensureCapacity(data.length);
+			buffer.put(data);
+		}
+	}
+
+	private void ensureCapacity(final int length) throws IOException {
+
+		if (buffer.remaining() < length) {
+			flushBuffer();
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+
+		final int position = buffer.position();
+		if (position > 0) {
+
+			out.write(bytes, 0, position);
+			buffer.clear();
+		}
+	}
+
+	// ----- private static methods -----
+	private static ByteBuffer acquireBuffer(final int size) {
+
+		ByteBuffer buffer = bufferPool.poll();
+
+		while (buffer != null) {
+
+			pooledBuffers.decrementAndGet();
+
+			// buffers of a different size are left over from a configuration change
+			if (buffer.capacity() == size) {
+
+				buffer.clear();
+				return buffer;
+			}
+
+			buffer = bufferPool.poll();
+		}
+
+		return ByteBuffer.allocate(size);
+	}
+
+	private static void releaseBuffer(final ByteBuffer buffer) {
+
+		if (pooledBuffers.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+
+			bufferPool.offer(buffer);
+
+		} else {
+
+			pooledBuffers.decrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.serialization;
+
+/**
+ * The set of objects on the current serialization path, tracked by
+ * their hash code, which is derived from the database id for nodes and
+ * relationships. The hash codes are stored in an open addressing table
+ * of primitive ints, so marking and unmarking objects does not box or
+ * allocate.
+ */
+public class VisitedObjects {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private boolean[] used = null;
+	private int[] values   = null;
+	private int size       = 0;
+
+	public VisitedObjects() {
+
+		this.used   = new boolean[INITIAL_CAPACITY];
+		this.values = new int[INITIAL_CAPACITY];
+	}
+
+	public VisitedObjects(final VisitedObjects source) {
+
+		this.used   = source.used.clone();
+		this.values = source.values.clone();
+		this.size   = source.size;
+	}
+
+	public boolean add(final int value) {
+
+		int index = indexOf(value);
+		if (used[index]) {
+			return false;
+		}
+
+		// keep the load factor below 0.5
+		if ((size + 1) * 2 > values.length) {
+
+			resize(values.length * 2);
+			index = indexOf(value);
+		}
+
+		used[index]   = true;
+		values[index] = value;
+		size++;
+
+		return true;
+	}
+
+	public boolean contains(final int value) {
+		return used[indexOf(value)];
+	}
+
+	public boolean remove(final int value) {
+
+		int index = indexOf(value);
+		if (!used[index]) {
+			return false;
+		}
+
+		used[index] = false;
+		size--;
+
+		// shift following entries of the same probe sequence back into the gap
+		final int mask = values.length - 1;
+		int next       = (index + 1) & mask;
+
+		while (used[next]) {
+
+			final int home = slot(values[next]);
+
+			// move the entry if its home slot is not between the gap and its current position
+			if (((next - home) & mask) >= ((next - index) & mask)) {
+
+				used[index]   = true;
+				values[index] = values[next];
+				used[next]    = false;
+				index         = next;
+			}
+
+			next = (next + 1) & mask;
+		}
+
+		return true;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	// ----- private methods -----
+	private int indexOf(final int value) {
+
+		final int mask = values.length - 1;
+		int index      = slot(value);
+
+		while (used[index] && values[index] != value) {
+			index = (index + 1) & mask;
+		}
+
+		return index;
+	}
+
+	private int slot(final int value) {
+
+		final int hash = value * 0x9E3779B9;
+
+		return (hash ^ (hash >>> 16)) & (values.length - 1);
+	}
+
+	private void resize(final int capacity) {
+
+		final boolean[] oldUsed = used;
+		final int[] oldValues   = values;
+
+		this.used   = new boolean[capacity];
+		this.values = new int[capacity];
+
+		for (int i=0; i<oldValues.length; i++) {
+
+			if (oldUsed[i]) {
+
+				final int index = indexOf(oldValues[i]);
+
+				used[index]   = true;
+				values[index] = oldValues[i];
+			}
+		}
+	}
+}
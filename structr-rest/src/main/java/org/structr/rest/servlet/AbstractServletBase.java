@@ -55,6 +55,7 @@ import org.structr.rest.RestMethodResult;
 import org.structr.rest.resource.Resource;
 import org.structr.rest.serialization.StreamingHtmlWriter;
 import org.structr.rest.serialization.StreamingJsonWriter;
+import org.structr.rest.serialization.StructrJsonByteWriter;
 import org.structr.rest.service.HttpServiceServlet;
 import org.structr.rest.service.StructrHttpServiceConfig;
 import static org.structr.rest.servlet.JsonRestServlet.REQUEST_PARAMTER_OUTPUT_DEPTH;
@@ -196,7 +197,7 @@ public abstract class AbstractServletBase extends HttpServlet implements HttpSer
 
 			try {
 				//response.getWriter().flush();
-				response.getWriter().close();
+				closeResponse(response);
 
 			} catch (Throwable t) {
 
@@ -233,11 +234,40 @@ public abstract class AbstractServletBase extends HttpServlet implements HttpSer
 		// no trailing semicolon so we dont trip MimeTypes.getContentTypeWithoutCharset
 		response.setContentType("application/json; charset=utf-8");
 
-		final Writer writer = response.getWriter();
+		if (Settings.JsonByteOutput.getValue()) {
 
-		jsonStreamer.stream(securityContext, writer, result, baseUrl);
-		writer.write(10);    // useful newline
-		writer.flush();
+			// encode directly into the response stream, bypassing the servlet writer
+			try (final StructrJsonByteWriter writer = new StructrJsonByteWriter(securityContext, response.getOutputStream())) {
+
+				jsonStreamer.stream(writer, result, baseUrl, true);
+				writer.raw("\n");    // useful newline
+			}
+
+		} else {
+
+			final Writer writer = response.getWriter();
+
+			jsonStreamer.stream(securityContext, writer, result, baseUrl);
+			writer.write(10);    // useful newline
+			writer.flush();
+		}
+	}
+
+	/**
+	 * Closes the response, regardless of whether it was written using
+	 * the servlet writer or the output stream.
+	 */
+	protected void closeResponse(final HttpServletResponse response) throws IOException {
+
+		try {
+
+			response.getWriter().close();
+
+		} catch (IllegalStateException isex) {
+
+			// output stream was already obtained
+			response.getOutputStream().close();
+		}
 	}
 
 	protected void writeException(final HttpServletResponse response, final FrameworkException fex) throws IOException {
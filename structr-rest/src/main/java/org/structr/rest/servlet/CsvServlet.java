@@ -504,7 +504,7 @@ public class CsvServlet extends AbstractServletBase implements HttpServiceServle
 
 			try {
 				//response.getWriter().flush();
-				response.getWriter().close();
+				closeResponse(response);
 
 			} catch (Throwable t) {
 
@@ -66,9 +66,11 @@ public class JsonRestServlet extends AbstractServletBase {
 
 	public static final int DEFAULT_VALUE_PAGE_SIZE                     = 20;
 	public static final String DEFAULT_VALUE_SORT_ORDER                 = "asc";
+	public static final String REQUEST_PARAMETER_CURSOR                 = "cursor";
 	public static final String REQUEST_PARAMETER_LOOSE_SEARCH           = "loose";
 	public static final String REQUEST_PARAMETER_PAGE_NUMBER            = "page";
 	public static final String REQUEST_PARAMETER_PAGE_SIZE              = "pageSize";
+	public static final String REQUEST_PARAMETER_PREFETCH               = "prefetch";
 	public static final String REQUEST_PARAMETER_SORT_KEY               = "sort";
 	public static final String REQUEST_PARAMETER_SORT_ORDER             = "order";
 	public static final String REQUEST_PARAMTER_OUTPUT_DEPTH            = "outputNestingDepth";
@@ -77,14 +79,17 @@ public class JsonRestServlet extends AbstractServletBase {
 
 	static {
 
+		commonRequestParameters.add(REQUEST_PARAMETER_CURSOR);
 		commonRequestParameters.add(REQUEST_PARAMETER_LOOSE_SEARCH);
 		commonRequestParameters.add(REQUEST_PARAMETER_PAGE_NUMBER);
 		commonRequestParameters.add(REQUEST_PARAMETER_PAGE_SIZE);
+		commonRequestParameters.add(REQUEST_PARAMETER_PREFETCH);
 		commonRequestParameters.add(REQUEST_PARAMETER_SORT_KEY);
 		commonRequestParameters.add(REQUEST_PARAMETER_SORT_ORDER);
 		commonRequestParameters.add(REQUEST_PARAMTER_OUTPUT_DEPTH);
 		commonRequestParameters.add("debugLoggingEnabled");
 		commonRequestParameters.add("ignoreResultCount");
+		commonRequestParameters.add("estimateResultCount");
 
 		// cross reference here, but these need to be added as well..
 		commonRequestParameters.add(SearchCommand.DISTANCE_SEARCH_KEYWORD);
@@ -99,6 +104,7 @@ public class JsonRestServlet extends AbstractServletBase {
 
 		// misc
 		commonRequestParameters.add(SecurityContext.JSON_PARALLELIZATION_REQUEST_PARAMETER_NAME);
+		commonRequestParameters.add(SecurityContext.QUERY_CACHE_REQUEST_PARAMETER_NAME);
 	}
 
 	// ----- protected methods -----
@@ -213,7 +219,7 @@ public class JsonRestServlet extends AbstractServletBase {
 
 			try {
 				//response.getWriter().flush();
-				response.getWriter().close();
+				closeResponse(response);
 
 			} catch (IOException t) {
 
@@ -331,7 +337,7 @@ public class JsonRestServlet extends AbstractServletBase {
 
 			try {
 				//response.getWriter().flush();
-				response.getWriter().close();
+				closeResponse(response);
 
 			} catch (Throwable t) {
 
@@ -514,7 +520,7 @@ public class JsonRestServlet extends AbstractServletBase {
 
 			try {
 				//response.getWriter().flush();
-				response.getWriter().close();
+				closeResponse(response);
 
 			} catch (Throwable t) {
 
@@ -636,7 +642,7 @@ public class JsonRestServlet extends AbstractServletBase {
 
 			try {
 				//response.getWriter().flush();
-				response.getWriter().close();
+				closeResponse(response);
 
 			} catch (Throwable t) {
 
@@ -777,7 +783,7 @@ public class JsonRestServlet extends AbstractServletBase {
 
 			try {
 				//response.getWriter().flush();
-				response.getWriter().close();
+				closeResponse(response);
 
 			} catch (Throwable t) {
 
@@ -924,7 +930,7 @@ public class JsonRestServlet extends AbstractServletBase {
 
 			try {
 				//response.getWriter().flush();
-				response.getWriter().close();
+				closeResponse(response);
 
 			} catch (Throwable t) {
 
@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.test.rest.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import org.structr.common.SecurityContext;
+import org.structr.rest.serialization.JsonName;
+import org.structr.rest.serialization.RestWriter;
+import org.structr.rest.serialization.StructrJsonByteWriter;
+import org.structr.rest.serialization.StructrJsonWriter;
+import static org.testng.AssertJUnit.assertEquals;
+import org.testng.annotations.Test;
+
+/**
+ * Verifies that the byte level JSON writer produces the same output as
+ * the Gson-based writer.
+ */
+public class StructrJsonByteWriterTest {
+
+	private static final String[] STRINGS = new String[] {
+		"",
+		"simple",
+		"2018-03-04T12:34:56+0100",
+		"3f6b8c2a9e1d4b7f8a0c5d2e1f4a7b9c",
+		"quotes \" and backslashes \\ and slashes /",
+		"control characters \t\n\r\b\f\u0000\u0001\u001f\u007f",
+		"html <script>alert('&')</script> = ok",
+		"umlauts \u00e4\u00f6\u00fc\u00df and euro \u20ac",
+		"separators \u2028 and \u2029",
+		"emoji \ud83d\ude00 and cjk \u4e2d\u6587"
+	};
+
+	@Test
+	public void testCompactOutput() throws IOException {
+		assertSameOutput(null);
+	}
+
+	@Test
+	public void testIndentedOutput() throws IOException {
+		assertSameOutput("	");
+	}
+
+	@Test
+	public void testSmallBuffer() throws IOException {
+
+		final StringBuilder buf = new StringBuilder();
+
+		for (int i=0; i<1000; i++) {
+			buf.append(STRINGS[i % STRINGS.length]);
+		}
+
+		final String value              = buf.toString();
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final StringWriter expected     = new StringWriter();
+
+		try (final StructrJsonByteWriter writer = new StructrJsonByteWriter(SecurityContext.getSuperUserInstance(), out, 1024)) {
+
+			writer.beginArray().value(value).endArray();
+		}
+
+		final RestWriter reference = new StructrJsonWriter(SecurityContext.getSuperUserInstance(), expected);
+
+		reference.beginArray().value(value).endArray();
+		reference.flush();
+
+		assertEquals("Invalid output for large string", expected.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	// ----- private methods -----
+	private void assertSameOutput(final String indent) throws IOException {
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final StringWriter expected     = new StringWriter();
+
+		try (final StructrJsonByteWriter writer = new StructrJsonByteWriter(SecurityContext.getSuperUserInstance(), out, 1024)) {
+
+			write(writer, indent);
+		}
+
+		write(new StructrJsonWriter(SecurityContext.getSuperUserInstance(), expected), indent);
+
+		assertEquals("Byte writer output differs from reference output", expected.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	private void write(final RestWriter writer, final String indent) throws IOException {
+
+		if (indent != null) {
+			writer.setIndent(indent);
+		}
+
+		writer.beginObject();
+		writer.name("result").beginArray();
+
+		for (final String value : STRINGS) {
+
+			writer.beginObject();
+			writer.name(value).value(value);
+			writer.name(new JsonName(value)).value(value.length());
+			writer.name("empty").beginObject().endObject();
+			writer.name("list").beginArray().endArray();
+			writer.endObject();
+		}
+
+		writer.endArray();
+
+		writer.name("numbers").beginArray();
+		writer.value(0L).value(-1L).value(Long.MIN_VALUE).value(Long.MAX_VALUE);
+		writer.value(1.5).value(-0.0).value(1e-10).value(Double.MAX_VALUE);
+		writer.value(Integer.valueOf(42)).value(Short.valueOf((short)7)).value(Float.valueOf(1.25f)).value(new BigDecimal("123.4500"));
+		writer.value(true).value(false).nullValue().value((String)null).value((Number)null);
+		writer.endArray();
+
+		writer.name("null").nullValue();
+		writer.endObject();
+
+		writer.flush();
+	}
+}
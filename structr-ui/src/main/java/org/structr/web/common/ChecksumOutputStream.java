@@ -0,0 +1,325 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.io.FileInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.zip.CRC32;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.structr.core.app.StructrApp;
+import org.structr.core.property.PropertyMap;
+import org.structr.web.entity.File;
+
+/**
+ * Output stream that computes the xxHash checksum and all enabled
+ * additional checksums of the data that is written through it, so
+ * that a file does not have to be read again after it was written.
+ *
+ * The xxHash value is identical to {@link FileHelper#getChecksum}.
+ */
+public class ChecksumOutputStream extends FilterOutputStream {
+
+	private static final int BufferSize = 131072;
+
+	private final XxHash64 xxHash = new XxHash64();
+	private MessageDigest sha512  = null;
+	private MessageDigest sha1    = null;
+	private MessageDigest md5     = null;
+	private CRC32 crc32           = null;
+
+	/**
+	 * Creates a new checksum stream.
+	 *
+	 * @param out the stream to write to
+	 * @param enabledChecksums the additional checksums to compute (crc32, md5, sha1, sha512)
+	 */
+	public ChecksumOutputStream(final OutputStream out, final String enabledChecksums) {
+
+		super(out);
+
+		if (StringUtils.contains(enabledChecksums, "crc32")) {
+			crc32 = new CRC32();
+		}
+
+		if (StringUtils.contains(enabledChecksums, "md5")) {
+			md5 = DigestUtils.getMd5Digest();
+		}
+
+		if (StringUtils.contains(enabledChecksums, "sha1")) {
+			sha1 = DigestUtils.getSha1Digest();
+		}
+
+		if (StringUtils.contains(enabledChecksums, "sha512")) {
+			sha512 = DigestUtils.getSha512Digest();
+		}
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+
+		out.write(b);
+
+		xxHash.update((byte)b);
+
+		if (crc32 != null) {
+			crc32.update(b);
+		}
+
+		if (md5 != null) {
+			md5.update((byte)b);
+		}
+
+		if (sha1 != null) {
+			sha1.update((byte)b);
+		}
+
+		if (sha512 != null) {
+			sha512.update((byte)b);
+		}
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+
+		out.write(b, off, len);
+
+		xxHash.update(b, off, len);
+
+		if (crc32 != null) {
+			crc32.update(b, off, len);
+		}
+
+		if (md5 != null) {
+			md5.update(b, off, len);
+		}
+
+		if (sha1 != null) {
+			sha1.update(b, off, len);
+		}
+
+		if (sha512 != null) {
+			sha512.update(b, off, len);
+		}
+	}
+
+	/**
+	 * Returns the checksum properties of the data written so far. This
+	 * method must only be called once, after all data was written.
+	 *
+	 * @return the checksum properties
+	 */
+	public PropertyMap getChecksums() {
+
+		final PropertyMap checksums = new PropertyMap();
+
+		checksums.put(StructrApp.key(File.class, "checksum"), xxHash.getValue());
+
+		if (crc32 != null) {
+			checksums.put(StructrApp.key(File.class, "crc32"), crc32.getValue());
+		}
+
+		if (md5 != null) {
+			checksums.put(StructrApp.key(File.class, "md5"), Hex.encodeHexString(md5.digest()));
+		}
+
+		if (sha1 != null) {
+			checksums.put(StructrApp.key(File.class, "sha1"), Hex.encodeHexString(sha1.digest()));
+		}
+
+		if (sha512 != null) {
+			checksums.put(StructrApp.key(File.class, "sha512"), Hex.encodeHexString(sha512.digest()));
+		}
+
+		return checksums;
+	}
+
+	/**
+	 * Computes the xxHash checksum and all enabled additional checksums
+	 * of the given file in a single pass.
+	 *
+	 * @param fileOnDisk the file
+	 * @param enabledChecksums the additional checksums to compute
+	 * @return the checksum properties
+	 * @throws IOException
+	 */
+	public static PropertyMap getChecksums(final java.io.File fileOnDisk, final String enabledChecksums) throws IOException {
+
+		try (final InputStream is = new FileInputStream(fileOnDisk)) {
+
+			final ChecksumOutputStream out = new ChecksumOutputStream(NullOutputStream.NULL_OUTPUT_STREAM, enabledChecksums);
+
+			IOUtils.copyLarge(is, out, new byte[BufferSize]);
+
+			return out.getChecksums();
+		}
+	}
+
+	// ----- nested classes -----
+	/**
+	 * Streaming variant of the 64 bit xxHash algorithm with seed 0.
+	 */
+	private static class XxHash64 {
+
+		private static final long P1 = 0x9E3779B185EBCA87L;
+		private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+		private static final long P3 = 0x165667B19E3779F9L;
+		private static final long P4 = 0x85EBCA77C2B2AE63L;
+		private static final long P5 = 0x27D4EB2F165667C5L;
+
+		private final byte[] buffer = new byte[32];
+		private long v1             = P1 + P2;
+		private long v2             = P2;
+		private long v3             = 0L;
+		private long v4             = -P1;
+		private long length         = 0L;
+		private int bufferSize      = 0;
+
+		public void update(final byte b) {
+
+			buffer[bufferSize++] = b;
+			length++;
+
+			if (bufferSize == 32) {
+
+				processStripe(buffer, 0);
+				bufferSize = 0;
+			}
+		}
+
+		public void update(final byte[] data, final int off, final int len) {
+
+			final int end = off + len;
+			int pos       = off;
+
+			length += len;
+
+			// fill up pending stripe first
+			if (bufferSize > 0) {
+
+				final int count = Math.min(32 - bufferSize, len);
+
+				System.arraycopy(data, pos, buffer, bufferSize, count);
+
+				bufferSize += count;
+				pos        += count;
+
+				if (bufferSize < 32) {
+					return;
+				}
+
+				processStripe(buffer, 0);
+				bufferSize = 0;
+			}
+
+			while (pos <= end - 32) {
+
+				processStripe(data, pos);
+				pos += 32;
+			}
+
+			if (pos < end) {
+
+				System.arraycopy(data, pos, buffer, 0, end - pos);
+				bufferSize = end - pos;
+			}
+		}
+
+		public long getValue() {
+
+			long hash = 0L;
+			int pos   = 0;
+
+			if (length >= 32) {
+
+				hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+				hash = mergeRound(hash, v1);
+				hash = mergeRound(hash, v2);
+				hash = mergeRound(hash, v3);
+				hash = mergeRound(hash, v4);
+
+			} else {
+
+				hash = P5;
+			}
+
+			hash += length;
+
+			while (pos <= bufferSize - 8) {
+
+				hash ^= round(0L, getLong(buffer, pos));
+				hash  = Long.rotateLeft(hash, 27) * P1 + P4;
+				pos  += 8;
+			}
+
+			if (pos <= bufferSize - 4) {
+
+				hash ^= (getInt(buffer, pos) & 0xFFFFFFFFL) * P1;
+				hash  = Long.rotateLeft(hash, 23) * P2 + P3;
+				pos  += 4;
+			}
+
+			while (pos < bufferSize) {
+
+				hash ^= (buffer[pos++] & 0xFFL) * P5;
+				hash  = Long.rotateLeft(hash, 11) * P1;
+			}
+
+			hash ^= hash >>> 33;
+			hash *= P2;
+			hash ^= hash >>> 29;
+			hash *= P3;
+			hash ^= hash >>> 32;
+
+			return hash;
+		}
+
+		// ----- private methods -----
+		private void processStripe(final byte[] data, final int pos) {
+
+			v1 = round(v1, getLong(data, pos));
+			v2 = round(v2, getLong(data, pos + 8));
+			v3 = round(v3, getLong(data, pos + 16));
+			v4 = round(v4, getLong(data, pos + 24));
+		}
+
+		private static long round(final long acc, final long input) {
+			return Long.rotateLeft(acc + input * P2, 31) * P1;
+		}
+
+		private static long mergeRound(final long acc, final long value) {
+			return (acc ^ round(0L, value)) * P1 + P4;
+		}
+
+		private static long getLong(final byte[] data, final int pos) {
+			return (getInt(data, pos) & 0xFFFFFFFFL) | ((getInt(data, pos + 4) & 0xFFFFFFFFL) << 32);
+		}
+
+		private static int getInt(final byte[] data, final int pos) {
+			return (data[pos] & 0xFF) | ((data[pos + 1] & 0xFF) << 8) | ((data[pos + 2] & 0xFF) << 16) | ((data[pos + 3] & 0xFF) << 24);
+		}
+	}
+}
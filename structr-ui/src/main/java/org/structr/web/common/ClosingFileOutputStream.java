@@ -34,6 +34,9 @@ public class ClosingFileOutputStream extends FileOutputStream {
 		super(thisFile.getFileOnDisk(), append);
 
 		this.thisFile = thisFile;
+
+		// checksums computed by an earlier write are stale now
+		FileHelper.forgetChecksums(thisFile);
 	}
 
 	@Override
@@ -0,0 +1,225 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.structr.api.util.Iterables;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
+import org.structr.core.entity.Principal;
+import org.structr.core.graph.TransactionCommand;
+import org.structr.core.graph.search.SearchCommand;
+import org.structr.web.entity.dom.Page;
+
+/**
+ * Caches the results of data source queries for the duration of a single
+ * rendering request, so that repeaters in repeaters and components that
+ * run the same query only access the database once. Results are keyed
+ * by the data source, the principal and the fully evaluated query, and
+ * are only cached while the current transaction has no modifications.
+ * The types that were queried are reported to the query observer again
+ * on every hit, so that cached fragments record their dependencies.
+ */
+public class DataSourceQueryCache {
+
+	private static final Map<String, PageStatistics> pageStatistics = new ConcurrentHashMap<>();
+
+	private final Map<String, Result> results = new HashMap<>();
+	private int queries                       = 0;
+	private int hits                          = 0;
+
+	/**
+	 * Returns the cached result of the given query, or executes the query
+	 * and caches its result.
+	 *
+	 * @param source the name of the data source
+	 * @param query the evaluated query
+	 * @param securityContext
+	 * @param executor
+	 * @return the result
+	 * @throws FrameworkException
+	 */
+	public Iterable<GraphObject> get(final String source, final String query, final SecurityContext securityContext, final QueryExecutor executor) throws FrameworkException {
+
+		// results must include uncommitted changes of the current transaction
+		if (TransactionCommand.hasPendingModifications()) {
+
+			results.clear();
+			queries++;
+
+			return executor.execute();
+		}
+
+		final String key               = source + ";" + getPrincipalKey(securityContext) + ";" + query;
+		final Consumer<Class> observer = SearchCommand.getQueryObserver();
+		final Result cachedResult      = results.get(key);
+
+		if (cachedResult != null) {
+
+			// report the types of the original query to the observer of the current render context
+			if (observer != null) {
+
+				cachedResult.types.forEach(observer);
+			}
+
+			hits++;
+			return cachedResult.objects;
+		}
+
+		final Set<Class> types     = new LinkedHashSet<>();
+		Iterable<GraphObject> data = null;
+
+		queries++;
+
+		SearchCommand.setQueryObserver(type -> {
+
+			types.add(type);
+
+			if (observer != null) {
+				observer.accept(type);
+			}
+		});
+
+		try {
+
+			data = executor.execute();
+
+		} finally {
+
+			SearchCommand.setQueryObserver(observer);
+		}
+
+		final Result result = new Result(data != null ? Iterables.toList(data) : Collections.emptyList(), types);
+
+		results.put(key, result);
+
+		return result.objects;
+	}
+
+	public int getQueryCount() {
+		return queries;
+	}
+
+	public int getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * Adds the number of executed and saved queries of this request to
+	 * the statistics of the given page.
+	 *
+	 * @param page
+	 */
+	public void recordStatistics(final Page page) {
+
+		if (page != null && (queries > 0 || hits > 0)) {
+
+			final String name = page.getName() != null ? page.getName() : page.getUuid();
+
+			pageStatistics.computeIfAbsent(name, k -> new PageStatistics()).add(queries, hits);
+		}
+	}
+
+	public static Map<String, Object> getStatistics() {
+
+		final Map<String, Object> statistics = new LinkedHashMap<>();
+
+		for (final Map.Entry<String, PageStatistics> entry : pageStatistics.entrySet()) {
+			statistics.put(entry.getKey(), entry.getValue().toMap());
+		}
+
+		return statistics;
+	}
+
+	public static void resetStatistics() {
+		pageStatistics.clear();
+	}
+
+	// ----- private methods -----
+	private String getPrincipalKey(final SecurityContext securityContext) {
+
+		if (securityContext == null || securityContext.isSuperUser()) {
+			return "superuser";
+		}
+
+		final Principal user = securityContext.getUser(false);
+
+		return (user != null ? user.getUuid() : "public") + "/" + securityContext.getAccessMode();
+	}
+
+	// ----- nested classes -----
+	/**
+	 * Executes a data source query.
+	 */
+	public interface QueryExecutor {
+
+		Iterable<GraphObject> execute() throws FrameworkException;
+	}
+
+	private static class Result {
+
+		private List<GraphObject> objects = null;
+		private Set<Class> types          = null;
+
+		public Result(final List<GraphObject> objects, final Set<Class> types) {
+
+			this.objects = objects;
+			this.types   = types;
+		}
+	}
+
+	private static class PageStatistics {
+
+		private final LongAdder renders = new LongAdder();
+		private final LongAdder queries = new LongAdder();
+		private final LongAdder saved   = new LongAdder();
+
+		public void add(final int queryCount, final int hitCount) {
+
+			renders.increment();
+			queries.add(queryCount);
+			saved.add(hitCount);
+		}
+
+		public Map<String, Object> toMap() {
+
+			final Map<String, Object> map = new LinkedHashMap<>();
+			final long queryCount         = queries.sum();
+			final long savedCount         = saved.sum();
+			final long total              = queryCount + savedCount;
+
+			map.put("renders",    renders.sum());
+			map.put("queries",    queryCount);
+			map.put("saved",      savedCount);
+			map.put("savedRatio", total > 0 ? (double)savedCount / (double)total : 0.0);
+
+			return map;
+		}
+	}
+}
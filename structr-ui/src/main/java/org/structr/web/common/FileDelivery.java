@@ -0,0 +1,515 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.DateUtils;
+import org.eclipse.jetty.server.HttpOutput;
+import org.structr.api.config.Settings;
+import org.structr.api.util.SegmentedCache;
+
+/**
+ * Delivers the content of files on disk to HTTP clients. Supports single
+ * and multiple byte ranges (multipart/byteranges) and conditional range
+ * requests with If-Range. Ranges are read at their position in the file
+ * channel, so a request for the end of a large file does not read the
+ * bytes before it. The content of small files is read into memory once
+ * and served from there until the length or modification time of the
+ * file changes.
+ */
+public class FileDelivery {
+
+	private static final Pattern RangePattern                           = Pattern.compile("\\s*(\\d*)\\s*-\\s*(\\d*)\\s*");
+	private static final int MaxRanges                                  = 100;
+	private static final int TransferBufferSize                         = 64 * 1024;
+	private static final long MaxCachedFileSize                         = Settings.HtmlFileCacheSize.getValue() > 0 ? Settings.HtmlFileCacheMaxFileSize.getValue() * 1024L : 0L;
+	private static final SegmentedCache<String, CachedFile> cachedFiles = new SegmentedCache<>(Math.max(1, Settings.HtmlFileCacheSize.getValue()));
+	private static final ThreadLocal<ByteBuffer> transferBuffers        = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(TransferBufferSize));
+	private static final LongAdder hits                                 = new LongAdder();
+	private static final LongAdder misses                               = new LongAdder();
+
+	/**
+	 * Writes the given file, or the ranges requested by the client, to the
+	 * given response. The content type of the file must already be set.
+	 *
+	 * @param fileOnDisk
+	 * @param contentType
+	 * @param etag the strong entity tag of the file, or null
+	 * @param lastModified
+	 * @param request
+	 * @param response
+	 * @return the status code of the response
+	 * @throws IOException
+	 */
+	public static int deliver(final java.io.File fileOnDisk, final String contentType, final String etag, final Date lastModified, final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+
+		final long length        = fileOnDisk.length();
+		final String rangeHeader = request.getHeader("Range");
+		List<ByteRange> ranges   = null;
+
+		// Tell the client that we support byte ranges
+		response.setHeader("Accept-Ranges", "bytes");
+
+		if (etag != null) {
+			response.setHeader("ETag", etag);
+		}
+
+		if (StringUtils.isNotBlank(rangeHeader) && ifRangeMatches(request.getHeader("If-Range"), etag, lastModified)) {
+			ranges = parseRanges(rangeHeader, length);
+		}
+
+		if (ranges != null && ranges.isEmpty()) {
+
+			response.setHeader("Content-Range", "bytes */" + length);
+			response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+
+			return HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
+		}
+
+		final ServletOutputStream out = response.getOutputStream();
+
+		try (final FileChannel channel = FileChannel.open(fileOnDisk.toPath(), StandardOpenOption.READ)) {
+
+			final ByteBuffer cached = getCachedContent(fileOnDisk, channel, length);
+
+			if (ranges == null) {
+
+				response.setStatus(HttpServletResponse.SC_OK);
+				response.setContentLengthLong(length);
+
+				write(channel, cached, 0L, length, out);
+
+				return HttpServletResponse.SC_OK;
+			}
+
+			response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+			if (ranges.size() == 1) {
+
+				final ByteRange range = ranges.get(0);
+
+				response.setHeader("Content-Range", range.getContentRange(length));
+				response.setContentLengthLong(range.getLength());
+
+				write(channel, cached, range.start, range.getLength(), out);
+
+			} else {
+
+				final String boundary      = UUID.randomUUID().toString().replace("-", "");
+				final List<byte[]> headers = new ArrayList<>();
+				final byte[] trailer       = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+				long contentLength         = trailer.length;
+
+				for (final ByteRange range : ranges) {
+
+					final StringBuilder header = new StringBuilder("\r\n--").append(boundary).append("\r\n");
+
+					if (contentType != null) {
+						header.append("Content-Type: ").append(contentType).append("\r\n");
+					}
+
+					header.append("Content-Range: ").append(range.getContentRange(length)).append("\r\n\r\n");
+
+					final byte[] bytes = header.toString().getBytes(StandardCharsets.ISO_8859_1);
+
+					headers.add(bytes);
+					contentLength += bytes.length + range.getLength();
+				}
+
+				response.setContentType("multipart/byteranges; boundary=" + boundary);
+				response.setContentLengthLong(contentLength);
+
+				for (int i=0; i<ranges.size(); i++) {
+
+					final ByteRange range = ranges.get(i);
+
+					out.write(headers.get(i));
+					write(channel, cached, range.start, range.getLength(), out);
+				}
+
+				out.write(trailer);
+			}
+
+			return HttpServletResponse.SC_PARTIAL_CONTENT;
+		}
+	}
+
+	/**
+	 * Returns a strong entity tag for the given checksum, or null if the
+	 * file has no checksum.
+	 *
+	 * @param checksum
+	 * @return the entity tag or null
+	 */
+	public static String getETag(final Long checksum) {
+		return checksum != null ? "\"" + Long.toHexString(checksum) + "\"" : null;
+	}
+
+	/**
+	 * Parses the given Range header and coalesces overlapping ranges.
+	 * Returns null if the header is invalid and must be ignored, and an
+	 * empty list if none of the ranges can be satisfied.
+	 *
+	 * @param header
+	 * @param length the length of the file
+	 * @return the list of ranges, or null
+	 */
+	public static List<ByteRange> parseRanges(final String header, final long length) {
+
+		if (!header.startsWith("bytes=")) {
+			return null;
+		}
+
+		final String[] specs         = header.substring(6).split(",");
+		final List<ByteRange> ranges = new ArrayList<>();
+
+		if (specs.length > MaxRanges) {
+			return null;
+		}
+
+		try {
+
+			for (final String spec : specs) {
+
+				final Matcher matcher = RangePattern.matcher(spec);
+				if (!matcher.matches()) {
+
+					return null;
+				}
+
+				final String first = matcher.group(1);
+				final String last  = matcher.group(2);
+
+				if (first.isEmpty()) {
+
+					if (last.isEmpty()) {
+						return null;
+					}
+
+					// suffix range, i.e. the last n bytes
+					final long suffix = Long.parseLong(last);
+					if (suffix > 0 && length > 0) {
+
+						ranges.add(new ByteRange(Math.max(0, length - suffix), length - 1));
+					}
+
+				} else {
+
+					final long start = Long.parseLong(first);
+					final long end   = last.isEmpty() ? length - 1 : Long.parseLong(last);
+
+					if (end < start) {
+						return null;
+					}
+
+					if (start < length) {
+
+						ranges.add(new ByteRange(start, Math.min(end, length - 1)));
+					}
+				}
+			}
+
+		} catch (NumberFormatException nex) {
+			return null;
+		}
+
+		return coalesce(ranges);
+	}
+
+	public static void resetStatistics() {
+
+		hits.reset();
+		misses.reset();
+	}
+
+	public static Map<String, Object> getStatistics() {
+
+		final Map<String, Object> statistics = new LinkedHashMap<>();
+		final long hitCount                  = hits.sum();
+		final long total                     = hitCount + misses.sum();
+
+		statistics.put("enabled",     MaxCachedFileSize > 0);
+		statistics.put("size",        cachedFiles.size());
+		statistics.put("maxSize",     cachedFiles.getMaxSize());
+		statistics.put("maxFileSize", MaxCachedFileSize);
+		statistics.put("hits",        hitCount);
+		statistics.put("misses",      misses.sum());
+		statistics.put("hitRatio",    total > 0 ? (double)hitCount / (double)total : 0.0);
+		statistics.put("evictions",   cachedFiles.getEvictionCount());
+
+		return statistics;
+	}
+
+	// ----- private methods -----
+	private static boolean ifRangeMatches(final String ifRange, final String etag, final Date lastModified) {
+
+		if (StringUtils.isBlank(ifRange)) {
+			return true;
+		}
+
+		final String value = ifRange.trim();
+
+		if (value.startsWith("\"") || value.startsWith("W/")) {
+
+			// weak entity tags never match
+			return etag != null && etag.equals(value);
+		}
+
+		if (lastModified != null) {
+
+			final DateFormat httpDateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z", Locale.US);
+			httpDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+
+			try {
+
+				// Last-Modified is sent with a resolution of seconds
+				return DateUtils.round(lastModified, Calendar.SECOND).getTime() == httpDateFormat.parse(value).getTime();
+
+			} catch (ParseException pex) {
+			}
+		}
+
+		return false;
+	}
+
+	private static List<ByteRange> coalesce(final List<ByteRange> ranges) {
+
+		if (ranges.size() < 2) {
+			return ranges;
+		}
+
+		final LinkedList<ByteRange> result = new LinkedList<>();
+
+		ranges.sort((a, b) -> Long.compare(a.start, b.start));
+
+		for (final ByteRange range : ranges) {
+
+			final ByteRange previous = result.peekLast();
+
+			if (previous != null && range.start <= previous.end + 1) {
+
+				result.removeLast();
+				result.add(new ByteRange(previous.start, Math.max(previous.end, range.end)));
+
+			} else {
+
+				result.add(range);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns a copy of the content of small files that is read once and
+	 * kept on the heap, so the file on disk can be replaced or truncated
+	 * at any time. Returns null for large files, or if the file changed
+	 * while it was read.
+	 */
+	private static ByteBuffer getCachedContent(final java.io.File fileOnDisk, final FileChannel channel, final long length) throws IOException {
+
+		if (length == 0 || length > MaxCachedFileSize) {
+			return null;
+		}
+
+		final String key        = fileOnDisk.getAbsolutePath();
+		final long lastModified = fileOnDisk.lastModified();
+		CachedFile cachedFile   = cachedFiles.get(key);
+
+		if (cachedFile != null && cachedFile.length == length && cachedFile.lastModified == lastModified) {
+
+			hits.increment();
+
+			return cachedFile.buffer;
+		}
+
+		misses.increment();
+
+		final ByteBuffer buffer = ByteBuffer.allocate((int)length);
+
+		while (buffer.hasRemaining()) {
+
+			if (channel.read(buffer, buffer.position()) < 0) {
+
+				// file was truncated while reading, read from the channel instead
+				cachedFiles.remove(key);
+				return null;
+			}
+		}
+
+		buffer.flip();
+
+		// do not cache content that was modified while reading
+		if (channel.size() == length && fileOnDisk.lastModified() == lastModified) {
+
+			cachedFiles.put(key, new CachedFile(buffer, length, lastModified));
+
+		} else {
+
+			cachedFiles.remove(key);
+		}
+
+		return buffer;
+	}
+
+	private static void write(final FileChannel channel, final ByteBuffer cached, final long position, final long count, final OutputStream out) throws IOException {
+
+		if (cached != null) {
+
+			final ByteBuffer buffer = cached.duplicate();
+
+			buffer.limit((int)(position + count));
+			buffer.position((int)position);
+
+			writeBuffer(buffer, out);
+
+		} else if (out instanceof HttpOutput) {
+
+			// read each chunk at its position into a direct buffer that is written to the connection without copying
+			final ByteBuffer buffer = transferBuffers.get();
+			long remaining          = count;
+			long offset             = position;
+
+			while (remaining > 0) {
+
+				buffer.clear();
+				buffer.limit((int)Math.min(remaining, buffer.capacity()));
+
+				final int read = channel.read(buffer, offset);
+				if (read < 0) {
+
+					throw new IOException("Unexpected end of file");
+				}
+
+				buffer.flip();
+				((HttpOutput)out).write(buffer);
+
+				remaining -= read;
+				offset    += read;
+			}
+
+		} else {
+
+			final WritableByteChannel target = Channels.newChannel(out);
+			long remaining                   = count;
+			long offset                      = position;
+
+			while (remaining > 0) {
+
+				final long written = channel.transferTo(offset, remaining, target);
+				if (written <= 0) {
+
+					throw new IOException("Unexpected end of file");
+				}
+
+				remaining -= written;
+				offset    += written;
+			}
+		}
+	}
+
+	private static void writeBuffer(final ByteBuffer buffer, final OutputStream out) throws IOException {
+
+		if (out instanceof HttpOutput) {
+
+			((HttpOutput)out).write(buffer);
+
+		} else {
+
+			final WritableByteChannel target = Channels.newChannel(out);
+
+			while (buffer.hasRemaining()) {
+				target.write(buffer);
+			}
+		}
+	}
+
+	// ----- nested classes -----
+	/**
+	 * An inclusive range of bytes.
+	 */
+	public static class ByteRange {
+
+		private long start = 0L;
+		private long end   = 0L;
+
+		public ByteRange(final long start, final long end) {
+
+			this.start = start;
+			this.end   = end;
+		}
+
+		public long getStart() {
+			return start;
+		}
+
+		public long getEnd() {
+			return end;
+		}
+
+		public long getLength() {
+			return end - start + 1;
+		}
+
+		public String getContentRange(final long total) {
+			return "bytes " + start + "-" + end + "/" + total;
+		}
+	}
+
+	private static class CachedFile {
+
+		private ByteBuffer buffer = null;
+		private long lastModified = 0L;
+		private long length       = 0L;
+
+		public CachedFile(final ByteBuffer buffer, final long length, final long lastModified) {
+
+			this.buffer       = buffer;
+			this.length       = length;
+			this.lastModified = lastModified;
+		}
+	}
+}
@@ -274,10 +274,10 @@ public class FileHelper {
 
 	public static void setFileData(final File file, final byte[] fileData, final String contentType, final boolean updateMetadata) throws FrameworkException, IOException {
 
-		FileHelper.writeToFile(file, fileData);
+		final PropertyMap checksums = FileHelper.writeToFile(file, fileData);
 
 		if (updateMetadata) {
-			setFileProperties(file, contentType);
+			setFileProperties(file, contentType, checksums);
 		}
 	}
 
@@ -292,8 +292,8 @@ public class FileHelper {
 	 */
 	public static void setFileData(final File file, final InputStream fileStream, final String contentType) throws FrameworkException, IOException {
 
-		FileHelper.writeToFile(file, fileStream);
-		setFileProperties(file, contentType);
+		final PropertyMap checksums = FileHelper.writeToFile(file, fileStream);
+		setFileProperties(file, contentType, checksums);
 	}
 
 	/**
@@ -305,6 +305,19 @@ public class FileHelper {
 	 * @throws IOException
 	 */
 	public static void setFileProperties (final File file, final String contentType) throws IOException, FrameworkException {
+		setFileProperties(file, contentType, getChecksums(file, file.getFileOnDisk(false)));
+	}
+
+	/**
+	 * Set the contentType, size and version properties and the given checksums of the given fileNode
+	 *
+	 * @param file
+	 * @param contentType if null, try to auto-detect content type
+	 * @param checksums the checksums computed while writing the file
+	 * @throws FrameworkException
+	 * @throws IOException
+	 */
+	public static void setFileProperties (final File file, final String contentType, final PropertyMap checksums) throws IOException, FrameworkException {
 
 		final java.io.File fileOnDisk = file.getFileOnDisk(false);
 		final PropertyMap map         = new PropertyMap();
@@ -313,7 +326,7 @@ public class FileHelper {
 		map.put(StructrApp.key(File.class, "size"),        FileHelper.getSize(fileOnDisk));
 		map.put(StructrApp.key(File.class, "version"),     1);
 
-		map.putAll(getChecksums(file, fileOnDisk));
+		map.putAll(checksums);
 
 		file.setProperties(file.getSecurityContext(), map);
 	}
@@ -344,16 +357,12 @@ public class FileHelper {
 	}
 
 	/**
-	 * Calculate checksums that are configured in settings of parent folder.
+	 * Return the checksums that are configured in settings of parent folder.
 	 *
 	 * @param file
-	 * @param fileOnDisk
-	 * @return
-	 * @throws IOException
+	 * @return the enabled checksums
 	 */
-	private static PropertyMap getChecksums(final File file, final java.io.File fileOnDisk) throws IOException {
-
-		final PropertyMap propertiesWithChecksums = new PropertyMap();
+	public static String getEnabledChecksums(final File file) {
 
 		Folder parentFolder = file.getParent();
 		String checksums = null;
@@ -368,26 +377,44 @@ public class FileHelper {
 			checksums = Settings.DefaultChecksums.getValue();
 		}
 
-		// New, very fast xxHash default checksum, will always be calculated
-		propertiesWithChecksums.put(StructrApp.key(File.class, "checksum"), FileHelper.getChecksum(fileOnDisk));
+		return checksums;
+	}
 
-		if (StringUtils.contains(checksums, "crc32"))	{
-			propertiesWithChecksums.put(StructrApp.key(File.class, "crc32"), FileHelper.getChecksum(fileOnDisk));
-		}
+	/**
+	 * Calculate checksums that are configured in settings of parent folder.
+	 *
+	 * The xxHash checksum is always calculated, all checksums are computed
+	 * in a single pass. Checksums that were computed while the file was
+	 * written are reused as long as the file on disk is unchanged.
+	 *
+	 * @param file
+	 * @param fileOnDisk
+	 * @return
+	 * @throws IOException
+	 */
+	private static PropertyMap getChecksums(final File file, final java.io.File fileOnDisk) throws IOException {
 
-		if (StringUtils.contains(checksums, "md5"))	{
-			propertiesWithChecksums.put(StructrApp.key(File.class, "md5"), FileHelper.getMD5Checksum(file));
-		}
+		final String checksums = getEnabledChecksums(file);
+		final Object computed  = file.getTemporaryStorage().get(ComputedChecksums.STORAGE_KEY);
 
-		if (StringUtils.contains(checksums, "sha1"))	{
-			propertiesWithChecksums.put(StructrApp.key(File.class, "sha1"), FileHelper.getSHA1Checksum(file));
+		if (computed instanceof ComputedChecksums && ((ComputedChecksums)computed).isValid(fileOnDisk, checksums)) {
+
+			return new PropertyMap(((ComputedChecksums)computed).checksums);
 		}
 
-		if (StringUtils.contains(checksums, "sha512"))	{
-			propertiesWithChecksums.put(StructrApp.key(File.class, "sha512"), FileHelper.getSHA512Checksum(file));
+		try {
+
+			final PropertyMap propertiesWithChecksums = ChecksumOutputStream.getChecksums(fileOnDisk, checksums);
+
+			rememberChecksums(file, fileOnDisk, checksums, propertiesWithChecksums);
+
+			return propertiesWithChecksums;
+
+		} catch (final IOException ex) {
+			logger.warn("Unable to calculate checksums for {}: {}", fileOnDisk.getAbsolutePath(), ex.getMessage());
 		}
 
-		return propertiesWithChecksums;
+		return new PropertyMap();
 	}
 	/**
 	 * Update checksums, content type, size and additional properties of the given file
@@ -543,15 +570,28 @@ public class FileHelper {
 	 *
 	 * @param fileNode
 	 * @param data
+	 * @return the checksums of the written data
 	 * @throws FrameworkException
 	 * @throws IOException
 	 */
-	public static void writeToFile(final File fileNode, final byte[] data) throws FrameworkException, IOException {
+	public static PropertyMap writeToFile(final File fileNode, final byte[] data) throws FrameworkException, IOException {
 
 		setFileProperties(fileNode);
 
-		FileUtils.writeByteArrayToFile(fileNode.getFileOnDisk(), data);
+		final java.io.File fileOnDisk  = fileNode.getFileOnDisk();
+		final String checksums         = getEnabledChecksums(fileNode);
+		final ChecksumOutputStream out = new ChecksumOutputStream(FileUtils.openOutputStream(fileOnDisk), checksums);
+
+		try {
+
+			out.write(data);
+
+		} finally {
 
+			out.close();
+		}
+
+		return rememberChecksums(fileNode, fileOnDisk, checksums, out.getChecksums());
 	}
 
 	/**
@@ -559,17 +599,28 @@ public class FileHelper {
 	 *
 	 * @param fileNode
 	 * @param data	The input stream from which to read the file data (Stream is not closed automatically - has to be handled by caller)
+	 * @return the checksums of the written data
 	 * @throws FrameworkException
 	 * @throws IOException
 	 */
-	public static void writeToFile(final File fileNode, final InputStream data) throws FrameworkException, IOException {
+	public static PropertyMap writeToFile(final File fileNode, final InputStream data) throws FrameworkException, IOException {
 
 		setFileProperties(fileNode);
 
-		try (final FileOutputStream out = new FileOutputStream(fileNode.getFileOnDisk())) {
+		final java.io.File fileOnDisk  = fileNode.getFileOnDisk();
+		final String checksums         = getEnabledChecksums(fileNode);
+		final ChecksumOutputStream out = new ChecksumOutputStream(new FileOutputStream(fileOnDisk), checksums);
+
+		try {
 
 			IOUtils.copy(data, out);
+
+		} finally {
+
+			out.close();
 		}
+
+		return rememberChecksums(fileNode, fileOnDisk, checksums, out.getChecksums());
 	}
 
 	/**
@@ -946,4 +997,49 @@ public class FileHelper {
 		return -1;
 
 	}
+
+	/**
+	 * Discard checksums that were computed while writing the given file,
+	 * must be called before the file is modified by other means.
+	 *
+	 * @param file
+	 */
+	static void forgetChecksums(final File file) {
+		file.getTemporaryStorage().remove(ComputedChecksums.STORAGE_KEY);
+	}
+
+	// ----- private methods -----
+	private static PropertyMap rememberChecksums(final File file, final java.io.File fileOnDisk, final String enabledChecksums, final PropertyMap checksums) {
+
+		file.getTemporaryStorage().put(ComputedChecksums.STORAGE_KEY, new ComputedChecksums(fileOnDisk, enabledChecksums, checksums));
+
+		return checksums;
+	}
+
+	// ----- nested classes -----
+	/**
+	 * Checksums of a file on disk, valid as long as size and modification
+	 * time of the file and the enabled checksums are unchanged.
+	 */
+	private static class ComputedChecksums {
+
+		private static final String STORAGE_KEY = "computedChecksums";
+
+		private PropertyMap checksums   = null;
+		private String enabledChecksums = null;
+		private long lastModified       = 0L;
+		private long length             = 0L;
+
+		public ComputedChecksums(final java.io.File fileOnDisk, final String enabledChecksums, final PropertyMap checksums) {
+
+			this.checksums        = new PropertyMap(checksums);
+			this.enabledChecksums = enabledChecksums;
+			this.lastModified     = fileOnDisk.lastModified();
+			this.length           = fileOnDisk.length();
+		}
+
+		public boolean isValid(final java.io.File fileOnDisk, final String enabledChecksums) {
+			return StringUtils.equals(this.enabledChecksums, enabledChecksums) && fileOnDisk.lastModified() == lastModified && fileOnDisk.length() == length;
+		}
+	}
 }
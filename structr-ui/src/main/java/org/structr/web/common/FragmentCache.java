@@ -0,0 +1,530 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import javax.servlet.http.HttpServletRequest;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.Predicate;
+import org.structr.api.config.Settings;
+import org.structr.api.util.SegmentedCache;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
+import org.structr.core.StructrTransactionListener;
+import org.structr.core.entity.Principal;
+import org.structr.core.entity.SchemaReloadingNode;
+import org.structr.core.graph.CacheStatisticsCommand;
+import org.structr.core.graph.ModificationEvent;
+import org.structr.core.graph.RelationshipInterface;
+import org.structr.core.graph.TransactionCommand;
+import org.structr.core.graph.search.SearchCommand;
+import org.structr.web.entity.dom.DOMNode;
+
+/**
+ * A server-side cache for the rendered output of DOM subtrees whose root
+ * element has the cacheFragment flag set. While a fragment is rendered,
+ * the objects it reads and the types it queries are recorded as its
+ * dependencies. Each dependency has a generation that is incremented
+ * when a committed transaction modifies it, which turns all fragments
+ * that depend on it into misses. Fragments also expire after a fixed
+ * time, which limits the effect of modifications that are not reported
+ * to transaction listeners.
+ */
+public class FragmentCache implements StructrTransactionListener {
+
+	private static final Logger logger          = LoggerFactory.getLogger(FragmentCache.class.getName());
+	private static final String ANY_DEPENDENCY  = "*";
+	private static final FragmentCache instance = new FragmentCache(Settings.HtmlFragmentCacheSize.getValue(), Settings.HtmlFragmentCacheTimeout.getValue() * 1000L);
+
+	private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+	private final AtomicLong version                  = new AtomicLong();
+	private final AtomicLong epoch                    = new AtomicLong();
+	private final LongAdder invalidations             = new LongAdder();
+	private final LongAdder expirations               = new LongAdder();
+	private final LongAdder rejections                = new LongAdder();
+	private final LongAdder hits                      = new LongAdder();
+	private final LongAdder misses                    = new LongAdder();
+	private SegmentedCache<String, Fragment> cache    = null;
+	private volatile boolean registered               = false;
+	private int maxGenerations                        = 0;
+	private long timeout                              = 0L;
+
+	public FragmentCache(final int maxSize, final long timeout) {
+
+		this.cache          = new SegmentedCache<>(Math.max(1, maxSize));
+		this.maxGenerations = Math.max(1, maxSize) * 100;
+		this.timeout        = maxSize > 0 ? timeout : 0L;
+	}
+
+	public static FragmentCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Registers this cache as a transaction listener and its statistics
+	 * with the cacheStatistics maintenance command. Fragments are only
+	 * cached after registration because they could not be invalidated
+	 * otherwise.
+	 */
+	public synchronized void register() {
+
+		if (!registered && timeout > 0) {
+
+			TransactionCommand.registerTransactionListener(this);
+			CacheStatisticsCommand.registerCache("fragments", this::getStatistics, this::resetStatistics);
+
+			registered = true;
+		}
+	}
+
+	public boolean isEnabled() {
+		return registered;
+	}
+
+	/**
+	 * Appends the cached output of the given node to the buffer of the
+	 * render context, or renders the node with the given renderer and
+	 * caches its output.
+	 *
+	 * @param node
+	 * @param renderContext
+	 * @param depth
+	 * @param renderer
+	 * @throws FrameworkException
+	 */
+	public void render(final DOMNode node, final RenderContext renderContext, final int depth, final FragmentRenderer renderer) throws FrameworkException {
+
+		final String key      = getCacheKey(node, renderContext, depth);
+		final Fragment cached = get(key);
+
+		if (cached != null) {
+
+			final Dependencies parent = renderContext.getFragmentDependencies();
+			if (parent != null) {
+
+				parent.addAll(Arrays.asList(cached.dependencies));
+			}
+
+			renderContext.getBuffer().append(cached.output);
+
+			return;
+		}
+
+		final Dependencies parent               = renderContext.getFragmentDependencies();
+		final Dependencies dependencies         = new Dependencies();
+		final Consumer<Class> observer          = SearchCommand.getQueryObserver();
+		final AsyncBuffer buffer                = renderContext.getBuffer();
+		final StringRenderBuffer fragmentBuffer = new StringRenderBuffer();
+		final long startEpoch                   = epoch.get();
+		final long startVersion                 = version.get();
+		boolean success                         = false;
+
+		// the objects that are part of the key must be dependencies as well
+		dependencies.add(node);
+		dependencies.add(renderContext.getDetailsDataObject());
+		dependencies.add(renderContext.getDataObject());
+
+		for (final GraphObject dataObject : renderContext.getDataObjects().values()) {
+			dependencies.add(dataObject);
+		}
+
+		renderContext.setFragmentDependencies(dependencies);
+		renderContext.setBuffer(fragmentBuffer);
+		SearchCommand.setQueryObserver(dependencies::addQuery);
+
+		try {
+
+			renderer.render();
+			success = true;
+
+		} finally {
+
+			SearchCommand.setQueryObserver(observer);
+			renderContext.setBuffer(buffer);
+			renderContext.setFragmentDependencies(parent);
+
+			buffer.append(fragmentBuffer.getBuffer().toString());
+		}
+
+		if (parent != null) {
+			parent.addAll(dependencies.keys);
+		}
+
+		if (success) {
+			put(key, fragmentBuffer.getBuffer().toString(), dependencies, startEpoch, startVersion);
+		}
+	}
+
+	public void clear() {
+
+		epoch.incrementAndGet();
+		version.incrementAndGet();
+
+		cache.clear();
+		generations.clear();
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public void resetStatistics() {
+
+		hits.reset();
+		misses.reset();
+		invalidations.reset();
+		expirations.reset();
+		rejections.reset();
+	}
+
+	public Map<String, Object> getStatistics() {
+
+		final Map<String, Object> statistics = new LinkedHashMap<>();
+		final long hitCount                  = getHitCount();
+		final long total                     = hitCount + getMissCount();
+
+		statistics.put("enabled",       isEnabled());
+		statistics.put("size",          cache.size());
+		statistics.put("maxSize",       cache.getMaxSize());
+		statistics.put("hits",          hitCount);
+		statistics.put("misses",        getMissCount());
+		statistics.put("hitRatio",      total > 0 ? (double)hitCount / (double)total : 0.0);
+		statistics.put("invalidations", invalidations.sum());
+		statistics.put("expirations",   expirations.sum());
+		statistics.put("rejections",    rejections.sum());
+		statistics.put("evictions",     cache.getEvictionCount());
+		statistics.put("dependencies",  generations.size());
+
+		return statistics;
+	}
+
+	// ----- interface StructrTransactionListener -----
+	@Override
+	public void beforeCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents) throws FrameworkException {
+	}
+
+	@Override
+	public void afterCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents) {
+
+		final Set<String> keys = new LinkedHashSet<>();
+
+		keys.add(ANY_DEPENDENCY);
+
+		for (final ModificationEvent event : modificationEvents) {
+
+			final GraphObject obj = event.getGraphObject();
+
+			if (obj instanceof SchemaReloadingNode) {
+
+				// schema changes can affect the output of every fragment
+				clear();
+				return;
+			}
+
+			keys.add(Dependencies.nodeKey(event.getUuid()));
+
+			if (obj != null) {
+
+				for (final Class type : SearchCommand.typeAndAllSupertypes(obj.getClass())) {
+					keys.add(Dependencies.typeKey(type));
+				}
+
+				if (obj instanceof RelationshipInterface) {
+
+					try {
+
+						final RelationshipInterface rel = (RelationshipInterface)obj;
+
+						keys.add(Dependencies.nodeKey(rel.getSourceNodeId()));
+						keys.add(Dependencies.nodeKey(rel.getTargetNodeId()));
+
+					} catch (Throwable t) {
+
+						logger.debug("Unable to determine nodes of relationship {}, clearing fragment cache: {}", event.getUuid(), t.getMessage());
+
+						clear();
+						return;
+					}
+				}
+			}
+		}
+
+		// the version must be incremented first so that fragments which are rendered concurrently are not stored
+		version.incrementAndGet();
+
+		for (final String key : keys) {
+
+			final AtomicLong generation = generations.get(key);
+			if (generation != null) {
+
+				generation.incrementAndGet();
+			}
+		}
+	}
+
+	@Override
+	public void simpleBroadcast(final String messageName, final Map<String, Object> data, final Predicate<String> sessionIdPredicate) {
+	}
+
+	// ----- private methods -----
+	private Fragment get(final String key) {
+
+		final Fragment fragment = cache.get(key);
+		if (fragment != null) {
+
+			if (System.currentTimeMillis() - fragment.timestamp > timeout) {
+
+				cache.remove(key);
+				expirations.increment();
+
+			} else if (isCurrent(fragment)) {
+
+				hits.increment();
+				return fragment;
+
+			} else {
+
+				cache.remove(key);
+				invalidations.increment();
+			}
+		}
+
+		misses.increment();
+
+		return null;
+	}
+
+	private void put(final String key, final String output, final Dependencies dependencies, final long startEpoch, final long startVersion) {
+
+		// uncommitted modifications of the current transaction must not be cached
+		if (TransactionCommand.hasPendingModifications()) {
+
+			rejections.increment();
+			return;
+		}
+
+		if (generations.size() > maxGenerations) {
+			clear();
+		}
+
+		final String[] keys = dependencies.keys.toArray(new String[0]);
+		final long[] values = new long[keys.length];
+
+		for (int i=0; i<keys.length; i++) {
+			values[i] = generations.computeIfAbsent(keys[i], k -> new AtomicLong()).get();
+		}
+
+		// a commit during rendering may have modified objects that were already read
+		if (version.get() != startVersion) {
+
+			rejections.increment();
+			return;
+		}
+
+		cache.put(key, new Fragment(output, keys, values, startEpoch));
+	}
+
+	private boolean isCurrent(final Fragment fragment) {
+
+		if (fragment.epoch != epoch.get()) {
+			return false;
+		}
+
+		for (int i=0; i<fragment.dependencies.length; i++) {
+
+			final AtomicLong generation = generations.get(fragment.dependencies[i]);
+			if (generation == null || generation.get() != fragment.generations[i]) {
+
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private String getCacheKey(final DOMNode node, final RenderContext renderContext, final int depth) {
+
+		final StringBuilder buf = new StringBuilder(node.getUuid());
+
+		buf.append(";").append(depth);
+		buf.append(";").append(renderContext.getEditMode(renderContext.getSecurityContext().getUser(false)));
+		buf.append(";").append(renderContext.getLocale());
+		buf.append(";").append(getPrincipalKey(node, renderContext));
+		buf.append(";").append(getUuid(renderContext.getDetailsDataObject()));
+		buf.append(";").append(getUuid(renderContext.getDataObject()));
+
+		for (final Map.Entry<String, GraphObject> entry : renderContext.getDataObjects().entrySet()) {
+
+			buf.append(";").append(entry.getKey()).append("=").append(getUuid(entry.getValue()));
+		}
+
+		final HttpServletRequest request = renderContext.getRequest();
+		if (request != null) {
+
+			final String names                     = node.getCacheFragmentParameters();
+			final Map<String, String[]> parameters = new TreeMap<>(request.getParameterMap());
+			final Set<String> relevantParameters   = new TreeSet<>();
+
+			if (StringUtils.isNotBlank(names)) {
+
+				for (final String name : names.split("[, ]+")) {
+					relevantParameters.add(name.trim());
+				}
+
+			} else {
+
+				relevantParameters.addAll(parameters.keySet());
+			}
+
+			for (final String name : relevantParameters) {
+
+				final String[] values = parameters.get(name);
+				if (values != null) {
+
+					buf.append(";").append(name).append("=").append(StringUtils.join(values, ","));
+				}
+			}
+		}
+
+		return buf.toString();
+	}
+
+	/**
+	 * Fragments are cached for each user. Elements with the
+	 * cacheFragmentShared flag share their fragments between all users
+	 * with the same groups, so their key omits the id of the user.
+	 */
+	private String getPrincipalKey(final DOMNode node, final RenderContext renderContext) {
+
+		final SecurityContext securityContext = renderContext.getSecurityContext();
+		final Principal user                  = securityContext.getUser(false);
+
+		String principalKey = renderContext.getFragmentCachePrincipalKey();
+		if (principalKey == null) {
+
+			if (securityContext.isSuperUser()) {
+
+				principalKey = "superuser";
+
+			} else if (user == null) {
+
+				principalKey = "public";
+
+			} else {
+
+				final Set<String> groups = new TreeSet<>();
+
+				for (final Principal parent : user.getParents()) {
+					groups.add(parent.getUuid());
+				}
+
+				principalKey = (user.isAdmin() ? "admin" : "user") + groups;
+			}
+
+			renderContext.setFragmentCachePrincipalKey(principalKey);
+		}
+
+		if (user != null && !node.cacheFragmentShared()) {
+
+			return principalKey + ":" + user.getUuid();
+		}
+
+		return principalKey;
+	}
+
+	private String getUuid(final GraphObject obj) {
+		return obj != null ? obj.getUuid() : "-";
+	}
+
+	// ----- nested classes -----
+	/**
+	 * Renders a fragment into the buffer of the current render context.
+	 */
+	public interface FragmentRenderer {
+
+		void render() throws FrameworkException;
+	}
+
+	/**
+	 * The objects and types a fragment depends on.
+	 */
+	public static class Dependencies {
+
+		private final Set<String> keys = new LinkedHashSet<>();
+
+		public void add(final GraphObject obj) {
+
+			if (obj != null) {
+				keys.add(nodeKey(obj.getUuid()));
+			}
+		}
+
+		public void addQuery(final Class type) {
+			keys.add(type != null ? typeKey(type) : ANY_DEPENDENCY);
+		}
+
+		public void addAll(final Collection<String> keys) {
+			this.keys.addAll(keys);
+		}
+
+		private static String nodeKey(final String uuid) {
+			return "N:" + uuid;
+		}
+
+		private static String typeKey(final Class type) {
+			return "T:" + type.getSimpleName();
+		}
+	}
+
+	private static class Fragment {
+
+		private String[] dependencies = null;
+		private long[] generations    = null;
+		private String output         = null;
+		private long timestamp        = 0L;
+		private long epoch            = 0L;
+
+		public Fragment(final String output, final String[] dependencies, final long[] generations, final long epoch) {
+
+			this.timestamp    = System.currentTimeMillis();
+			this.dependencies = dependencies;
+			this.generations  = generations;
+			this.output       = output;
+			this.epoch        = epoch;
+		}
+	}
+}
@@ -45,24 +45,28 @@ import org.structr.web.entity.dom.Page;
  */
 public class RenderContext extends ActionContext {
 
-	private final Map<String, GraphObject> dataObjects = new LinkedHashMap<>();
-	private final Stack<SecurityContext> scStack       = new Stack<>();
-	private EditMode editMode                          = EditMode.NONE;
-	private AsyncBuffer buffer                         = new AsyncBuffer();
-	private int depth                                  = 0;
-	private boolean inBody                             = false;
-	private boolean appLibRendered                     = false;
-	private GraphObject detailsDataObject              = null;
-	private GraphObject currentDataObject              = null;
-	private GraphObject sourceDataObject               = null;
-	private Iterable<GraphObject> listSource           = null;
-	private PropertyKey relatedProperty                = null;
-	private Page page                                  = null;
-	private HttpServletRequest request                 = null;
-	private HttpServletResponse response               = null;
-	private ResourceProvider resourceProvider          = null;
-	private boolean anyChildNodeCreatesNewLine         = false;
-	private boolean indentHtml                         = true;
+	private final Map<String, GraphObject> dataObjects      = new LinkedHashMap<>();
+	private final Stack<SecurityContext> scStack            = new Stack<>();
+	private EditMode editMode                               = EditMode.NONE;
+	private AsyncBuffer buffer                              = new AsyncBuffer();
+	private DataSourceQueryCache dataSourceQueryCache       = new DataSourceQueryCache();
+	private int depth                                       = 0;
+	private boolean inBody                                  = false;
+	private boolean appLibRendered                          = false;
+	private GraphObject detailsDataObject                   = null;
+	private GraphObject currentDataObject                   = null;
+	private GraphObject sourceDataObject                    = null;
+	private Iterable<GraphObject> listSource                = null;
+	private PropertyKey relatedProperty                     = null;
+	private Page page                                       = null;
+	private HttpServletRequest request                      = null;
+	private HttpServletResponse response                    = null;
+	private ResourceProvider resourceProvider               = null;
+	private boolean anyChildNodeCreatesNewLine              = false;
+	private boolean indentHtml                              = true;
+	private FragmentCache.Dependencies fragmentDependencies = null;
+	private String fragmentCachePrincipalKey                = null;
+	private RenderProgram renderProgram                     = null;
 
 	public enum EditMode {
 
@@ -101,6 +105,10 @@ public class RenderContext extends ActionContext {
 		this.anyChildNodeCreatesNewLine = other.anyChildNodeCreatesNewLine;
 		this.locale = other.locale;
 		this.indentHtml = other.indentHtml;
+		this.fragmentDependencies = other.fragmentDependencies;
+		this.fragmentCachePrincipalKey = other.fragmentCachePrincipalKey;
+		this.dataSourceQueryCache = other.dataSourceQueryCache;
+		this.renderProgram = other.renderProgram;
 
 	}
 
@@ -132,6 +140,7 @@ public class RenderContext extends ActionContext {
 
 	public void setDetailsDataObject(GraphObject detailsDataObject) {
 		this.detailsDataObject = detailsDataObject;
+		recordDependency(detailsDataObject);
 	}
 
 	public GraphObject getDetailsDataObject() {
@@ -140,6 +149,7 @@ public class RenderContext extends ActionContext {
 
 	public void setDataObject(GraphObject currentDataObject) {
 		this.currentDataObject = currentDataObject;
+		recordDependency(currentDataObject);
 	}
 
 	public GraphObject getDataObject() {
@@ -309,6 +319,10 @@ public class RenderContext extends ActionContext {
 		return inBody;
 	}
 
+	public DataSourceQueryCache getDataSourceQueryCache() {
+		return dataSourceQueryCache;
+	}
+
 	public void setAppLibRendered(final boolean appLibRendered) {
 		this.appLibRendered = appLibRendered;
 	}
@@ -337,6 +351,11 @@ public class RenderContext extends ActionContext {
 	}
 
 	public void setPage(final Page page) {
+
+		if (this.page != page) {
+			this.renderProgram = null;
+		}
+
 		this.page = page;
 	}
 
@@ -365,6 +384,10 @@ public class RenderContext extends ActionContext {
 	@Override
 	public Object evaluate(final GraphObject entity, final String key, final Object data, final String defaultValue, final int depth) throws FrameworkException {
 
+		if (data instanceof GraphObject) {
+			recordDependency((GraphObject)data);
+		}
+
 		// data key can only be used as the very first token
 		if (depth == 0 && hasDataForKey(key)) {
 			return getDataNode(key);
@@ -461,4 +484,47 @@ public class RenderContext extends ActionContext {
 	public boolean shouldIndentHtml() {
 		return indentHtml;
 	}
+
+	/**
+	 * Records the given object as a dependency of the fragments that are
+	 * currently rendered, if any.
+	 *
+	 * @param obj
+	 */
+	public void recordDependency(final GraphObject obj) {
+
+		if (fragmentDependencies != null) {
+
+			fragmentDependencies.add(obj);
+		}
+	}
+
+	// ----- package-private methods -----
+	Map<String, GraphObject> getDataObjects() {
+		return dataObjects;
+	}
+
+	FragmentCache.Dependencies getFragmentDependencies() {
+		return fragmentDependencies;
+	}
+
+	void setFragmentDependencies(final FragmentCache.Dependencies fragmentDependencies) {
+		this.fragmentDependencies = fragmentDependencies;
+	}
+
+	String getFragmentCachePrincipalKey() {
+		return fragmentCachePrincipalKey;
+	}
+
+	void setFragmentCachePrincipalKey(final String fragmentCachePrincipalKey) {
+		this.fragmentCachePrincipalKey = fragmentCachePrincipalKey;
+	}
+
+	RenderProgram getRenderProgram() {
+		return renderProgram;
+	}
+
+	void setRenderProgram(final RenderProgram renderProgram) {
+		this.renderProgram = renderProgram;
+	}
 }
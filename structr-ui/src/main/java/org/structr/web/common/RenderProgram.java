@@ -0,0 +1,378 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.common.PropertyView;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.app.StructrApp;
+import org.structr.core.property.PropertyKey;
+import org.structr.core.property.StringProperty;
+import org.structr.core.script.Scripting;
+import org.structr.schema.ConfigurationProvider;
+import org.structr.web.common.RenderContext.EditMode;
+import org.structr.web.entity.dom.Comment;
+import org.structr.web.entity.dom.Content;
+import org.structr.web.entity.dom.DOMElement;
+import org.structr.web.entity.dom.DOMNode;
+import org.structr.web.entity.dom.Template;
+import org.structr.web.property.CustomHtmlAttributeProperty;
+
+/**
+ * The compiled form of the DOM nodes of a page. Each node is compiled into
+ * an immutable program that contains the properties which are read on
+ * every request, the condition scripts in their evaluable form, the
+ * pre-escaped text of all static attributes and the converted output of
+ * content nodes without scripts. Only scripts, visibility and the order
+ * of child nodes are evaluated on each request.
+ */
+public class RenderProgram {
+
+	private final Map<String, NodeProgram> nodes = new ConcurrentHashMap<>();
+	private String pageId                        = null;
+
+	public RenderProgram(final String pageId) {
+		this.pageId = pageId;
+	}
+
+	public String getPageId() {
+		return pageId;
+	}
+
+	public NodeProgram get(final String uuid) {
+		return nodes.get(uuid);
+	}
+
+	public void put(final String uuid, final NodeProgram program) {
+		nodes.put(uuid, program);
+	}
+
+	public void remove(final String uuid, final NodeProgram program) {
+		nodes.remove(uuid, program);
+	}
+
+	public boolean containsAny(final Collection<String> uuids) {
+
+		for (final String uuid : uuids) {
+
+			if (nodes.containsKey(uuid)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	public int size() {
+		return nodes.size();
+	}
+
+	// ----- nested classes -----
+	/**
+	 * The compiled form of a single DOM node.
+	 */
+	public static class NodeProgram {
+
+		private Attribute[] attributes                    = new Attribute[0];
+		private String sharedComponentConfigurationScript = null;
+		private String showForLocales                     = null;
+		private String hideForLocales                     = null;
+		private String showScript                         = null;
+		private String hideScript                         = null;
+		private String attributeSuffix                    = "";
+		private String dataKey                            = null;
+		private String content                            = null;
+		private String tag                                = null;
+		private boolean staticContent                     = false;
+		private boolean cacheFragment                     = false;
+		private boolean renderDetails                     = false;
+		private boolean hideOnDetail                      = false;
+		private boolean hideOnIndex                       = false;
+		private boolean hasAction                         = false;
+		private boolean hidden                            = false;
+
+		/**
+		 * Compiles the given node for rendering in EditMode.NONE.
+		 *
+		 * @param node
+		 * @param renderContext
+		 * @return the program
+		 * @throws FrameworkException
+		 */
+		public static NodeProgram compile(final DOMNode node, final RenderContext renderContext) throws FrameworkException {
+
+			final NodeProgram program = new NodeProgram();
+
+			program.hidden                             = node.isHidden();
+			program.hideOnIndex                        = node.hideOnIndex();
+			program.hideOnDetail                       = node.hideOnDetail();
+			program.renderDetails                      = node.renderDetails();
+			program.cacheFragment                      = node.cacheFragment();
+			program.dataKey                            = node.getDataKey();
+			program.showForLocales                     = node.getProperty(StructrApp.key(DOMNode.class, "showForLocales"));
+			program.hideForLocales                     = node.getProperty(StructrApp.key(DOMNode.class, "hideForLocales"));
+			program.showScript                         = toScript(node.getShowConditions());
+			program.hideScript                         = toScript(node.getHideConditions());
+			program.sharedComponentConfigurationScript = toScript(node.getSharedComponentConfiguration());
+
+			if (node instanceof DOMElement) {
+
+				program.compileElement((DOMElement)node, renderContext);
+
+			} else if (node instanceof Content && !(node instanceof Template) && !(node instanceof Comment)) {
+
+				program.compileContent((Content)node, renderContext);
+			}
+
+			return program;
+		}
+
+		public boolean shouldBeRendered(final DOMNode node, final RenderContext renderContext) {
+
+			if (hidden || !DOMNode.displayForLocale(showForLocales, hideForLocales, renderContext)) {
+				return false;
+			}
+
+			if (showScript == null && hideScript == null) {
+				return true;
+			}
+
+			return DOMNode.displayForConditions(node, showScript, hideScript, renderContext);
+		}
+
+		public void evaluateSharedComponentConfiguration(final DOMNode node, final RenderContext renderContext) throws FrameworkException {
+
+			if (sharedComponentConfigurationScript != null) {
+
+				Scripting.evaluate(renderContext, node, sharedComponentConfigurationScript, "shared component configuration");
+			}
+		}
+
+		/**
+		 * Appends the attributes of the opening tag of the given element
+		 * to the given buffer.
+		 *
+		 * @param element
+		 * @param out
+		 * @param renderContext
+		 */
+		public void renderAttributes(final DOMElement element, final AsyncBuffer out, final RenderContext renderContext) {
+
+			for (final Attribute attribute : attributes) {
+
+				attribute.render(element, out, renderContext);
+			}
+
+			if (!attributeSuffix.isEmpty()) {
+				out.append(attributeSuffix);
+			}
+		}
+
+		public String getTag() {
+			return tag;
+		}
+
+		public String getDataKey() {
+			return dataKey;
+		}
+
+		public boolean hasStaticContent() {
+			return staticContent;
+		}
+
+		public String getContent() {
+			return content;
+		}
+
+		public boolean hasAction() {
+			return hasAction;
+		}
+
+		public boolean hideOnIndex() {
+			return hideOnIndex;
+		}
+
+		public boolean hideOnDetail() {
+			return hideOnDetail;
+		}
+
+		public boolean renderDetails() {
+			return renderDetails;
+		}
+
+		public boolean cacheFragment() {
+			return cacheFragment;
+		}
+
+		// ----- private methods -----
+		private void compileElement(final DOMElement element, final RenderContext renderContext) throws FrameworkException {
+
+			final ConfigurationProvider config = StructrApp.getConfiguration();
+			final List<Attribute> dynamic      = new ArrayList<>();
+			final StringBuilder buf            = new StringBuilder();
+			final Class type                   = element.getEntityType();
+
+			tag       = element.getTag();
+			hasAction = element.getProperty(new StringProperty(DOMElement.STRUCTR_ACTION_PROPERTY)) != null;
+
+			for (final String name : element.getNode().getPropertyKeys()) {
+
+				if (name.startsWith(PropertyView.Html)) {
+
+					final PropertyKey key = config.getPropertyKeyForJSONName(type, name);
+
+					compileAttribute(element, renderContext, key, key.jsonName().substring(PropertyView.Html.length()), false, buf, dynamic);
+				}
+			}
+
+			// data-* attributes, in the same order as DOMNode.renderCustomAttributes
+			for (final PropertyKey key : element.getDataPropertyKeys()) {
+
+				final String name = key instanceof CustomHtmlAttributeProperty ? ((CustomHtmlAttributeProperty)key).cleanName() : key.dbName();
+
+				compileAttribute(element, renderContext, key, name, true, buf, dynamic);
+			}
+
+			attributes      = dynamic.toArray(new Attribute[0]);
+			attributeSuffix = buf.toString();
+		}
+
+		private void compileAttribute(final DOMElement element, final RenderContext renderContext, final PropertyKey key, final String name, final boolean isCustom, final StringBuilder buf, final List<Attribute> dynamic) throws FrameworkException {
+
+			final Object value = element.getProperty(key);
+
+			if (value instanceof String && !Scripting.extractScripts((String)value).isEmpty()) {
+
+				dynamic.add(new Attribute(buf.toString(), key, name, (String)value, isCustom));
+				buf.setLength(0);
+
+			} else {
+
+				// values without scripts are not evaluated, so they can be replaced now
+				final String attribute = formatAttribute(name, Scripting.replaceVariables(renderContext, element, value, true), isCustom);
+				if (attribute != null) {
+
+					buf.append(attribute);
+				}
+			}
+		}
+
+		private void compileContent(final Content node, final RenderContext renderContext) throws FrameworkException {
+
+			final Object value = node.getProperty(StructrApp.key(Content.class, "content"));
+
+			if (!(value instanceof String) || Scripting.extractScripts((String)value).isEmpty()) {
+
+				content       = Content.formatContent(node, Scripting.replaceVariables(renderContext, node, value, true), node.getContentType(), EditMode.NONE);
+				staticContent = true;
+			}
+		}
+
+		private static String toScript(final String source) {
+			return StringUtils.isNotBlank(source) ? "${".concat(source).concat("}") : null;
+		}
+
+		/**
+		 * Formats an attribute like DOMElement.openingTag (html attributes)
+		 * or DOMNode.renderCustomAttributes (custom attributes) do.
+		 */
+		private static String formatAttribute(final String name, final String value, final boolean isCustom) {
+
+			String _value = value;
+
+			if (isCustom) {
+
+				if (_value != null) {
+					_value = _value.trim();
+				}
+
+				_value = DOMNode.escapeForHtmlAttributes(_value);
+
+				if (StringUtils.isBlank(_value)) {
+					return null;
+				}
+
+			} else {
+
+				_value = DOMNode.escapeForHtmlAttributes(_value);
+
+				if (_value == null) {
+					return null;
+				}
+			}
+
+			return " " + name + "=\"" + _value + "\"";
+		}
+	}
+
+	/**
+	 * An attribute whose value contains scripts, together with the static
+	 * text that precedes it.
+	 */
+	private static class Attribute {
+
+		private static final Logger logger = LoggerFactory.getLogger(Attribute.class.getName());
+
+		private PropertyKey key  = null;
+		private String prefix    = null;
+		private String name      = null;
+		private String source    = null;
+		private boolean isCustom = false;
+
+		public Attribute(final String prefix, final PropertyKey key, final String name, final String source, final boolean isCustom) {
+
+			this.prefix   = prefix;
+			this.key      = key;
+			this.name     = name;
+			this.source   = source;
+			this.isCustom = isCustom;
+		}
+
+		public void render(final DOMElement element, final AsyncBuffer out, final RenderContext renderContext) {
+
+			String value = null;
+
+			if (!prefix.isEmpty()) {
+				out.append(prefix);
+			}
+
+			try {
+
+				value = Scripting.replaceVariables(renderContext, element, source, true);
+
+			} catch (Throwable t) {
+
+				logger.warn("Scripting error in {} {}:\n{}", key.dbName(), element.getUuid(), source, t);
+			}
+
+			final String attribute = NodeProgram.formatAttribute(name, value, isCustom);
+			if (attribute != null) {
+
+				out.append(attribute);
+			}
+		}
+	}
+}
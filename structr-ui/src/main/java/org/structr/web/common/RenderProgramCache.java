@@ -0,0 +1,301 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.Predicate;
+import org.structr.api.config.Settings;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
+import org.structr.core.StructrTransactionListener;
+import org.structr.core.entity.SchemaReloadingNode;
+import org.structr.core.graph.CacheStatisticsCommand;
+import org.structr.core.graph.ModificationEvent;
+import org.structr.core.graph.RelationshipInterface;
+import org.structr.core.graph.TransactionCommand;
+import org.structr.web.common.RenderContext.EditMode;
+import org.structr.web.common.RenderProgram.NodeProgram;
+import org.structr.web.entity.dom.DOMNode;
+import org.structr.web.entity.dom.Page;
+
+/**
+ * Caches the compiled render programs of pages. Programs are only used
+ * for rendering in EditMode.NONE. The program of a page is discarded when
+ * a committed transaction modifies one of the DOM nodes it contains.
+ */
+public class RenderProgramCache implements StructrTransactionListener {
+
+	private static final Logger logger               = LoggerFactory.getLogger(RenderProgramCache.class.getName());
+	private static final RenderProgramCache instance = new RenderProgramCache(Settings.HtmlRenderProgramsSize.getValue());
+
+	private final Map<String, RenderProgram> programs = new ConcurrentHashMap<>();
+	private final AtomicLong version                  = new AtomicLong();
+	private final LongAdder invalidations             = new LongAdder();
+	private final LongAdder compilations              = new LongAdder();
+	private final LongAdder rejections                = new LongAdder();
+	private final LongAdder hits                      = new LongAdder();
+	private volatile boolean registered               = false;
+	private volatile boolean enabled                  = true;
+	private int maxSize                               = 0;
+
+	public RenderProgramCache(final int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public static RenderProgramCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Registers this cache as a transaction listener and its statistics
+	 * with the cacheStatistics maintenance command. Programs are only
+	 * used after registration because they could not be invalidated
+	 * otherwise.
+	 */
+	public synchronized void register() {
+
+		if (!registered && maxSize > 0) {
+
+			TransactionCommand.registerTransactionListener(this);
+			CacheStatisticsCommand.registerCache("renderPrograms", this::getStatistics, this::resetStatistics);
+
+			registered = true;
+		}
+	}
+
+	public boolean isEnabled() {
+		return registered && enabled;
+	}
+
+	/**
+	 * Enables or disables the use of render programs, e.g. to compare
+	 * their performance with the rendering of the DOM tree.
+	 *
+	 * @param enabled
+	 */
+	public void setEnabled(final boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Returns the program of the given node in the page of the given
+	 * render context, compiling it if necessary. Returns null if the node
+	 * must be rendered from the DOM tree.
+	 *
+	 * @param node
+	 * @param renderContext
+	 * @return the program or null
+	 */
+	public NodeProgram getProgram(final DOMNode node, final RenderContext renderContext) {
+
+		if (!isEnabled() || !EditMode.NONE.equals(renderContext.getEditMode(renderContext.getSecurityContext().getUser(false)))) {
+			return null;
+		}
+
+		final RenderProgram program = getRenderProgram(renderContext);
+		if (program == null) {
+			return null;
+		}
+
+		final String uuid       = node.getUuid();
+		NodeProgram nodeProgram = program.get(uuid);
+
+		if (nodeProgram != null) {
+
+			hits.increment();
+			return nodeProgram;
+		}
+
+		final long startVersion = version.get();
+
+		try {
+
+			nodeProgram = NodeProgram.compile(node, renderContext);
+			compilations.increment();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("Unable to compile render program for node {}: {}", uuid, fex.getMessage());
+			return null;
+		}
+
+		// programs of uncommitted or concurrently modified nodes are used for this request only
+		if (!TransactionCommand.hasPendingModifications() && version.get() == startVersion) {
+
+			program.put(uuid, nodeProgram);
+
+			// an invalidation between the check and the put can have missed the new entry
+			if (version.get() != startVersion) {
+
+				program.remove(uuid, nodeProgram);
+				rejections.increment();
+			}
+
+		} else {
+
+			rejections.increment();
+		}
+
+		return nodeProgram;
+	}
+
+	public void clear() {
+
+		version.incrementAndGet();
+		programs.clear();
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getCompilationCount() {
+		return compilations.sum();
+	}
+
+	public void resetStatistics() {
+
+		hits.reset();
+		compilations.reset();
+		rejections.reset();
+		invalidations.reset();
+	}
+
+	public Map<String, Object> getStatistics() {
+
+		final Map<String, Object> statistics = new LinkedHashMap<>();
+		int nodes                            = 0;
+
+		for (final RenderProgram program : programs.values()) {
+			nodes += program.size();
+		}
+
+		statistics.put("enabled",       isEnabled());
+		statistics.put("pages",         programs.size());
+		statistics.put("maxPages",      maxSize);
+		statistics.put("nodes",         nodes);
+		statistics.put("hits",          getHitCount());
+		statistics.put("compilations",  getCompilationCount());
+		statistics.put("rejections",    rejections.sum());
+		statistics.put("invalidations", invalidations.sum());
+
+		return statistics;
+	}
+
+	// ----- interface StructrTransactionListener -----
+	@Override
+	public void beforeCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents) throws FrameworkException {
+	}
+
+	@Override
+	public void afterCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents) {
+
+		final Set<String> uuids = new LinkedHashSet<>();
+
+		for (final ModificationEvent event : modificationEvents) {
+
+			final GraphObject obj = event.getGraphObject();
+
+			if (obj instanceof SchemaReloadingNode) {
+
+				// schema changes can modify the methods of every node type
+				clear();
+				return;
+			}
+
+			if (obj == null || obj instanceof DOMNode) {
+
+				uuids.add(event.getUuid());
+
+			} else if (obj instanceof RelationshipInterface) {
+
+				try {
+
+					final RelationshipInterface rel = (RelationshipInterface)obj;
+
+					if (rel.getSourceNode() instanceof DOMNode || rel.getTargetNode() instanceof DOMNode) {
+
+						uuids.add(rel.getSourceNodeId());
+						uuids.add(rel.getTargetNodeId());
+					}
+
+				} catch (Throwable t) {
+
+					logger.debug("Unable to determine nodes of relationship {}, clearing render programs: {}", event.getUuid(), t.getMessage());
+
+					clear();
+					return;
+				}
+			}
+		}
+
+		if (!uuids.isEmpty()) {
+
+			// the version must be incremented first so that nodes which are compiled concurrently are not stored
+			version.incrementAndGet();
+
+			for (final RenderProgram program : programs.values()) {
+
+				if (uuids.contains(program.getPageId()) || program.containsAny(uuids)) {
+
+					programs.remove(program.getPageId());
+					invalidations.increment();
+				}
+			}
+		}
+	}
+
+	@Override
+	public void simpleBroadcast(final String messageName, final Map<String, Object> data, final Predicate<String> sessionIdPredicate) {
+	}
+
+	// ----- private methods -----
+	private RenderProgram getRenderProgram(final RenderContext renderContext) {
+
+		RenderProgram program = renderContext.getRenderProgram();
+		if (program == null) {
+
+			final Page page = renderContext.getPage();
+			if (page == null) {
+
+				return null;
+			}
+
+			if (programs.size() >= maxSize && !programs.containsKey(page.getUuid())) {
+				programs.clear();
+			}
+
+			program = programs.computeIfAbsent(page.getUuid(), RenderProgram::new);
+
+			renderContext.setRenderProgram(program);
+		}
+
+		return program;
+	}
+}
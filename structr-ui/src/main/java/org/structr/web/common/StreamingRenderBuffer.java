@@ -0,0 +1,227 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Render buffer for asynchronous streaming of page output. Rendered output
+ * is encoded to UTF-8 in chunks that are handed over to the writing side
+ * through a bounded single-producer single-consumer ring buffer. The
+ * render thread is paused while the ring buffer is full, and the writing
+ * side is notified through a callback when new data is available, so
+ * neither side needs to lock or poll. If the writing side does not make
+ * progress within the given timeout, the output is aborted.
+ */
+public class StreamingRenderBuffer extends AsyncBuffer {
+
+	private static final int CHUNK_SIZE = 8192;
+
+	private final AtomicBoolean consumerWaiting = new AtomicBoolean(false);
+	private final StringBuilder pending         = new StringBuilder(CHUNK_SIZE);
+	private final AtomicLong head               = new AtomicLong();
+	private final AtomicLong tail               = new AtomicLong();
+	private volatile Thread waitingProducer     = null;
+	private volatile boolean finished           = false;
+	private volatile boolean aborted            = false;
+	private Runnable onDataAvailable            = null;
+	private ByteBuffer[] chunks                 = null;
+	private long timeout                        = 0L;
+	private int mask                            = 0;
+
+	/**
+	 * Creates a new buffer.
+	 *
+	 * @param bufferSize the maximum number of bytes that are buffered before the render thread is paused
+	 * @param timeout the maximum time (ms) the render thread waits for the writing side before the output is aborted
+	 * @param onDataAvailable the callback that is run when data becomes available after {@link #waitForData()} returned true
+	 */
+	public StreamingRenderBuffer(final int bufferSize, final long timeout, final Runnable onDataAvailable) {
+
+		int capacity = 2;
+
+		while (capacity < bufferSize / CHUNK_SIZE) {
+			capacity <<= 1;
+		}
+
+		this.onDataAvailable = onDataAvailable;
+		this.chunks          = new ByteBuffer[capacity];
+		this.timeout         = TimeUnit.MILLISECONDS.toNanos(timeout);
+		this.mask            = capacity - 1;
+	}
+
+	// ----- producer side -----
+	@Override
+	public AsyncBuffer append(final String s) {
+
+		if (s != null && !aborted) {
+
+			pending.append(s);
+
+			if (pending.length() >= CHUNK_SIZE) {
+				publish();
+			}
+		}
+
+		return this;
+	}
+
+	/**
+	 * Publishes the remaining output and marks the end of the output.
+	 */
+	public void finish() {
+
+		if (pending.length() > 0 && !aborted) {
+			publish();
+		}
+
+		finished = true;
+
+		signalConsumer();
+	}
+
+	// ----- consumer side -----
+	/**
+	 * Returns the next chunk of encoded output, or null if there is none.
+	 *
+	 * @return the next chunk or null
+	 */
+	public ByteBuffer poll() {
+
+		final long position = head.get();
+		if (position == tail.get()) {
+
+			return null;
+		}
+
+		final int index        = (int)position & mask;
+		final ByteBuffer chunk = chunks[index];
+
+		chunks[index] = null;
+		head.set(position + 1);
+
+		final Thread producer = waitingProducer;
+		if (producer != null) {
+
+			LockSupport.unpark(producer);
+		}
+
+		return chunk;
+	}
+
+	/**
+	 * Returns true if the output is finished and all chunks have been
+	 * consumed.
+	 *
+	 * @return whether the buffer is finished
+	 */
+	public boolean isFinished() {
+		return finished && head.get() == tail.get();
+	}
+
+	/**
+	 * Registers the consumer for the data available callback. Returns
+	 * false if data arrived in the meantime, in which case the consumer
+	 * should continue reading instead of waiting for the callback.
+	 *
+	 * @return true if the consumer should wait for the callback
+	 */
+	public boolean waitForData() {
+
+		consumerWaiting.set(true);
+
+		if (head.get() != tail.get() || finished) {
+
+			// take back the registration, unless the producer has already
+			// consumed it, in which case the callback is already on its way
+			return !consumerWaiting.compareAndSet(true, false);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Discards all further output, e.g. because the client has
+	 * disconnected, and releases the render thread.
+	 */
+	public void abort() {
+
+		aborted = true;
+
+		final Thread producer = waitingProducer;
+		if (producer != null) {
+
+			LockSupport.unpark(producer);
+		}
+	}
+
+	// ----- private methods -----
+	private void publish() {
+
+		final ByteBuffer chunk = StandardCharsets.UTF_8.encode(CharBuffer.wrap(pending));
+		final long position    = tail.get();
+
+		pending.setLength(0);
+
+		final long deadline = System.nanoTime() + timeout;
+
+		// wait while the ring buffer is full
+		while (position - head.get() >= chunks.length) {
+
+			if (aborted) {
+				return;
+			}
+
+			final long remaining = deadline - System.nanoTime();
+			if (remaining <= 0L) {
+
+				// the writing side did not make progress in time
+				abort();
+				return;
+			}
+
+			waitingProducer = Thread.currentThread();
+
+			// check again after registering, the consumer might have missed the registration
+			if (position - head.get() >= chunks.length && !aborted) {
+				LockSupport.parkNanos(this, remaining);
+			}
+
+			waitingProducer = null;
+		}
+
+		chunks[(int)position & mask] = chunk;
+		tail.set(position + 1);
+
+		signalConsumer();
+	}
+
+	private void signalConsumer() {
+
+		if (consumerWaiting.compareAndSet(true, false)) {
+			onDataAvailable.run();
+		}
+	}
+}
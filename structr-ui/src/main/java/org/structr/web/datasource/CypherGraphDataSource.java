@@ -18,15 +18,18 @@
  */
 package org.structr.web.datasource;
 
+import java.util.regex.Pattern;
 import org.apache.commons.lang3.StringUtils;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
+import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
 import org.structr.core.graph.CypherQueryCommand;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.datasources.GraphDataSource;
 import org.structr.core.graph.NodeInterface;
 import org.structr.schema.action.ActionContext;
+import org.structr.web.common.RenderContext;
 import org.structr.web.entity.dom.DOMNode;
 
 /**
@@ -35,6 +38,8 @@ import org.structr.web.entity.dom.DOMNode;
  */
 public class CypherGraphDataSource implements GraphDataSource<Iterable<GraphObject>> {
 
+	private static final Pattern writeQueryPattern = Pattern.compile("(?i)(?s)(?m).*\\b(create|merge|delete|set|remove)\\b.*");
+
 	@Override
 	public Iterable<GraphObject> getData(final ActionContext actionContext, final NodeInterface referenceNode) throws FrameworkException {
 
@@ -46,6 +51,19 @@ public class CypherGraphDataSource implements GraphDataSource<Iterable<GraphObje
 			return null;
 		}
 
-		return StructrApp.getInstance(actionContext.getSecurityContext()).command(CypherQueryCommand.class).execute(cypherQuery);
+		final App app = StructrApp.getInstance(actionContext.getSecurityContext());
+
+		// write queries must be executed every time
+		if (actionContext instanceof RenderContext && !isWriteQuery(cypherQuery)) {
+
+			return ((RenderContext)actionContext).getDataSourceQueryCache().get("cypher", cypherQuery, actionContext.getSecurityContext(), () -> app.command(CypherQueryCommand.class).execute(cypherQuery));
+		}
+
+		return app.command(CypherQueryCommand.class).execute(cypherQuery);
+	}
+
+	// ----- private methods -----
+	private boolean isWriteQuery(final String query) {
+		return writeQueryPattern.matcher(query).matches();
 	}
 }
@@ -23,6 +23,7 @@ import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
@@ -61,7 +62,9 @@ import org.structr.web.entity.dom.DOMNode;
  */
 public class RestDataSource implements GraphDataSource<Iterable<GraphObject>> {
 
-	private static final Logger logger = LoggerFactory.getLogger(RestDataSource.class.getName());
+	private static final Logger logger                                                    = LoggerFactory.getLogger(RestDataSource.class.getName());
+	private static final Map<Class, Map<Pattern, Class<? extends Resource>>> resourceMaps = new ConcurrentHashMap<>();
+	private static final ResourceProvider defaultResourceProvider                         = new UiResourceProvider();
 
 	@Override
 	public Iterable<GraphObject> getData(final ActionContext actionContext, NodeInterface referenceNode) throws FrameworkException {
@@ -75,28 +78,16 @@ public class RestDataSource implements GraphDataSource<Iterable<GraphObject>> {
 			return Collections.EMPTY_LIST;
 		}
 
-		return getData(renderContext, restQuery);
+		return renderContext.getDataSourceQueryCache().get("rest", restQuery, renderContext.getSecurityContext(), () -> getData(renderContext, restQuery));
 	}
 
 	// FIXME: this method is needed by the websocket search command because there is no reference node for the above method
 	public Iterable<GraphObject> getData(final RenderContext renderContext, final String restQuery) throws FrameworkException {
 
-		final Map<Pattern, Class<? extends Resource>> resourceMap = new LinkedHashMap<>();
+		final ResourceProvider resourceProvider                   = renderContext.getResourceProvider();
+		final Map<Pattern, Class<? extends Resource>> resourceMap = getResourceMap(resourceProvider != null ? resourceProvider : defaultResourceProvider);
 		final SecurityContext securityContext                     = renderContext.getSecurityContext();
 
-		ResourceProvider resourceProvider = renderContext.getResourceProvider();
-		if (resourceProvider == null) {
-			try {
-				resourceProvider = UiResourceProvider.class.newInstance();
-			} catch (Throwable t) {
-				logger.error("Couldn't establish a resource provider", t);
-				return Collections.EMPTY_LIST;
-			}
-		}
-
-		// inject resources
-		resourceMap.putAll(resourceProvider.getResources());
-
 		Value<String> propertyView = new ThreadLocalPropertyView();
 		propertyView.set(securityContext, PropertyView.Ui);
 
@@ -219,6 +210,14 @@ public class RestDataSource implements GraphDataSource<Iterable<GraphObject>> {
 		return Collections.EMPTY_LIST;
 	}
 
+	/**
+	 * Returns the resource map of the given provider, which is built only
+	 * once per provider class and shared by all requests.
+	 */
+	private static Map<Pattern, Class<? extends Resource>> getResourceMap(final ResourceProvider resourceProvider) {
+		return resourceMaps.computeIfAbsent(resourceProvider.getClass(), k -> Collections.unmodifiableMap(new LinkedHashMap<>(resourceProvider.getResources())));
+	}
+
 	/**
 	 * Tries to parse the given String to an int value, returning
 	 * defaultValue on error.
@@ -32,6 +32,7 @@ import org.structr.core.GraphObject;
 import org.structr.core.datasources.GraphDataSource;
 import org.structr.core.graph.NodeInterface;
 import org.structr.schema.action.ActionContext;
+import org.structr.web.common.RenderContext;
 import org.structr.web.entity.dom.DOMNode;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
@@ -54,7 +55,21 @@ public class XPathGraphDataSource implements GraphDataSource<Iterable<GraphObjec
 			return null;
 		}
 
-		final Document document    = ((DOMNode) referenceNode).getOwnerDocument();
+		final Document document = ((DOMNode) referenceNode).getOwnerDocument();
+
+		if (renderContext instanceof RenderContext && document instanceof GraphObject) {
+
+			final String query = ((GraphObject)document).getUuid() + ":" + xpathQuery;
+
+			return ((RenderContext)renderContext).getDataSourceQueryCache().get("xpath", query, renderContext.getSecurityContext(), () -> evaluate(document, xpathQuery));
+		}
+
+		return evaluate(document, xpathQuery);
+	}
+
+	// ----- private methods -----
+	private Iterable<GraphObject> evaluate(final Document document, final String xpathQuery) {
+
 		final XPathFactory factory = XPathFactory.newInstance();
 		final XPath xpath          = factory.newXPath();
 
@@ -40,6 +40,8 @@ import org.structr.schema.json.JsonSchema;
 import org.structr.web.common.AsyncBuffer;
 import org.structr.web.common.RenderContext;
 import org.structr.web.common.RenderContext.EditMode;
+import org.structr.web.common.RenderProgram.NodeProgram;
+import org.structr.web.common.RenderProgramCache;
 import org.structr.web.converter.ContentConverters;
 import static org.structr.web.entity.dom.DOMNode.escapeForHtml;
 import static org.structr.web.entity.dom.DOMNode.escapeForHtmlAttributes;
@@ -134,6 +136,9 @@ public interface Content extends DOMNode, Text, NonIndexed, Favoritable {
 		type.addViewProperty(PropertyView.Ui, "hideOnDetail");
 		type.addViewProperty(PropertyView.Ui, "hideOnIndex");
 		type.addViewProperty(PropertyView.Ui, "sharedComponentConfiguration");
+		type.addViewProperty(PropertyView.Ui, "cacheFragment");
+		type.addViewProperty(PropertyView.Ui, "cacheFragmentShared");
+		type.addViewProperty(PropertyView.Ui, "cacheFragmentParameters");
 		type.addViewProperty(PropertyView.Ui, "isDOMNode");
 		type.addViewProperty(PropertyView.Ui, "pageId");
 		type.addViewProperty(PropertyView.Ui, "parent");
@@ -245,6 +250,22 @@ public interface Content extends DOMNode, Text, NonIndexed, Favoritable {
 				return;
 			}
 
+			final NodeProgram program = RenderProgramCache.getInstance().getProgram(thisNode, renderContext);
+			if (program != null) {
+
+				program.evaluateSharedComponentConfiguration(thisNode, renderContext);
+
+				if (program.hasStaticContent()) {
+
+					// content without scripts was converted when the program was compiled
+					if (program.getContent() != null) {
+						renderContext.getBuffer().append(program.getContent());
+					}
+
+					return;
+				}
+			}
+
 			final String id           = thisNode.getUuid();
 			final boolean inBody      = renderContext.inBody();
 			final AsyncBuffer out     = renderContext.getBuffer();
@@ -252,19 +273,13 @@ public interface Content extends DOMNode, Text, NonIndexed, Favoritable {
 
 			// apply configuration for shared component if present
 			final String _sharedComponentConfiguration = thisNode.getSharedComponentConfiguration();
-			if (StringUtils.isNotBlank(_sharedComponentConfiguration)) {
+			if (program == null && StringUtils.isNotBlank(_sharedComponentConfiguration)) {
 
 				Scripting.evaluate(renderContext, thisNode, "${" + _sharedComponentConfiguration + "}", "shared component configuration");
 			}
 
 			// fetch content with variable replacement
-			String _content = thisNode.getPropertyWithVariableReplacement(renderContext, StructrApp.key(Content.class, "content"));
-
-			if (!(EditMode.RAW.equals(edit) || EditMode.WIDGET.equals(edit)) && (_contentType == null || ("text/plain".equals(_contentType)))) {
-
-				_content = escapeForHtml(_content);
-
-			}
+			String _content = formatContent(thisNode, thisNode.getPropertyWithVariableReplacement(renderContext, StructrApp.key(Content.class, "content")), _contentType, edit);
 
 			if (EditMode.CONTENT.equals(edit) && inBody && thisNode.isGranted(Permission.write, securityContext)) {
 
@@ -289,34 +304,6 @@ public interface Content extends DOMNode, Text, NonIndexed, Favoritable {
 
 			}
 
-			// examine content type and apply converter
-			if (_contentType != null) {
-
-				final Adapter<String, String> converter = ContentConverters.getConverterForType(_contentType);
-				if (converter != null) {
-
-					try {
-
-						// apply adapter
-						_content = converter.adapt(_content);
-
-					} catch (FrameworkException fex) {
-
-						logger.warn("Unable to convert content: {}", fex.getMessage());
-					}
-				}
-			}
-
-			// replace newlines with <br /> for rendering
-			if (((_contentType == null) || _contentType.equals("text/plain")) && (_content != null) && !_content.isEmpty()) {
-
-				final DOMNode _parent = thisNode.getParent();
-				if (_parent == null || !(_parent instanceof Textarea)) {
-
-					_content = _content.replaceAll("[\\n]{1}", "<br>");
-				}
-			}
-
 			if (_content != null) {
 
 				// insert whitespace to make element clickable
@@ -340,6 +327,57 @@ public interface Content extends DOMNode, Text, NonIndexed, Favoritable {
 		}
 	}
 
+	/**
+	 * Escapes the given content and applies the converter for the content
+	 * type of the given node.
+	 *
+	 * @param thisNode
+	 * @param content the content after variable replacement
+	 * @param contentType
+	 * @param edit
+	 * @return the content to be rendered
+	 */
+	public static String formatContent(final Content thisNode, final String content, final String contentType, final EditMode edit) {
+
+		String _content = content;
+
+		if (!(EditMode.RAW.equals(edit) || EditMode.WIDGET.equals(edit)) && (contentType == null || ("text/plain".equals(contentType)))) {
+
+			_content = escapeForHtml(_content);
+
+		}
+
+		// examine content type and apply converter
+		if (contentType != null) {
+
+			final Adapter<String, String> converter = ContentConverters.getConverterForType(contentType);
+			if (converter != null) {
+
+				try {
+
+					// apply adapter
+					_content = converter.adapt(_content);
+
+				} catch (FrameworkException fex) {
+
+					logger.warn("Unable to convert content: {}", fex.getMessage());
+				}
+			}
+		}
+
+		// replace newlines with <br /> for rendering
+		if (((contentType == null) || contentType.equals("text/plain")) && (_content != null) && !_content.isEmpty()) {
+
+			final DOMNode _parent = thisNode.getParent();
+			if (_parent == null || !(_parent instanceof Textarea)) {
+
+				_content = _content.replaceAll("[\\n]{1}", "<br>");
+			}
+		}
+
+		return _content;
+	}
+
 	// ----- interface org.w3c.dom.Text -----
 	public static Text splitText(final Content thisNode, final int offset) throws DOMException {
 
@@ -48,6 +48,8 @@ import org.structr.web.common.AsyncBuffer;
 import org.structr.web.common.HtmlProperty;
 import org.structr.web.common.RenderContext;
 import org.structr.web.common.RenderContext.EditMode;
+import org.structr.web.common.RenderProgram.NodeProgram;
+import org.structr.web.common.RenderProgramCache;
 import static org.structr.web.entity.dom.DOMNode.escapeForHtmlAttributes;
 import org.w3c.dom.Attr;
 import org.w3c.dom.DOMException;
@@ -245,6 +247,9 @@ public interface DOMElement extends DOMNode, Element, NamedNodeMap, NonIndexed {
 		type.addViewProperty(PropertyView.Ui, "hideOnDetail");
 		type.addViewProperty(PropertyView.Ui, "hideOnIndex");
 		type.addViewProperty(PropertyView.Ui, "sharedComponentConfiguration");
+		type.addViewProperty(PropertyView.Ui, "cacheFragment");
+		type.addViewProperty(PropertyView.Ui, "cacheFragmentShared");
+		type.addViewProperty(PropertyView.Ui, "cacheFragmentParameters");
 		type.addViewProperty(PropertyView.Ui, "isDOMNode");
 		type.addViewProperty(PropertyView.Ui, "pageId");
 		type.addViewProperty(PropertyView.Ui, "parent");
@@ -358,10 +363,11 @@ public interface DOMElement extends DOMNode, Element, NamedNodeMap, NonIndexed {
 
 		// final variables
 		final SecurityContext securityContext = renderContext.getSecurityContext();
+		final NodeProgram program             = RenderProgramCache.getInstance().getProgram(thisElement, renderContext);
 		final AsyncBuffer out                 = renderContext.getBuffer();
 		final EditMode editMode               = renderContext.getEditMode(securityContext.getUser(false));
 		final boolean isVoid                  = thisElement.isVoidElement();
-		final String _tag                     = thisElement.getTag();
+		final String _tag                     = program != null ? program.getTag() : thisElement.getTag();
 
 		// non-final variables
 		boolean anyChildNodeCreatesNewLine = false;
@@ -395,7 +401,7 @@ public interface DOMElement extends DOMNode, Element, NamedNodeMap, NonIndexed {
 			try {
 
 				// in body?
-				if (lowercaseBodyName.equals(thisElement.getTagName())) {
+				if (lowercaseBodyName.equals(_tag)) {
 					renderContext.setInBody(true);
 				}
 
@@ -415,10 +421,17 @@ public interface DOMElement extends DOMNode, Element, NamedNodeMap, NonIndexed {
 					}
 
 					// apply configuration for shared component if present
-					final String _sharedComponentConfiguration = thisElement.getProperty(StructrApp.key(DOMElement.class, "sharedComponentConfiguration"));
-					if (StringUtils.isNotBlank(_sharedComponentConfiguration)) {
+					if (program != null) {
 
-						Scripting.evaluate(renderContext, thisElement, "${" + _sharedComponentConfiguration + "}", "shared component configuration");
+						program.evaluateSharedComponentConfiguration(thisElement, renderContext);
+
+					} else {
+
+						final String _sharedComponentConfiguration = thisElement.getProperty(StructrApp.key(DOMElement.class, "sharedComponentConfiguration"));
+						if (StringUtils.isNotBlank(_sharedComponentConfiguration)) {
+
+							Scripting.evaluate(renderContext, thisElement, "${" + _sharedComponentConfiguration + "}", "shared component configuration");
+						}
 					}
 
 					for (final RelationshipInterface rel : rels) {
@@ -476,7 +489,7 @@ public interface DOMElement extends DOMNode, Element, NamedNodeMap, NonIndexed {
 
 		EditMode editMode = renderContext.getEditMode(securityContext.getUser(false));
 
-		if (!(EditMode.DEPLOYMENT.equals(editMode) || EditMode.RAW.equals(editMode) || EditMode.WIDGET.equals(editMode)) && !renderContext.appLibRendered() && thisElement.getProperty(new StringProperty(STRUCTR_ACTION_PROPERTY)) != null) {
+		if (!(EditMode.DEPLOYMENT.equals(editMode) || EditMode.RAW.equals(editMode) || EditMode.WIDGET.equals(editMode)) && !renderContext.appLibRendered() && hasAction(thisElement, renderContext)) {
 
 			out
 				.append("<!--")
@@ -521,52 +534,17 @@ public interface DOMElement extends DOMNode, Element, NamedNodeMap, NonIndexed {
 
 			out.append("<").append(tag);
 
-			final ConfigurationProvider config = StructrApp.getConfiguration();
-			final Class type = thisElement.getEntityType();
-
-			final List<PropertyKey> htmlAttributes = new ArrayList<>();
-			thisElement.getNode().getPropertyKeys().forEach((key) -> {
-				if (key.startsWith(PropertyView.Html)) {
-					htmlAttributes.add(config.getPropertyKeyForJSONName(type, key));
-				}
-			});
-
-			if (EditMode.DEPLOYMENT.equals(editMode)) {
-				Collections.sort(htmlAttributes);
-			}
-
-			for (PropertyKey attribute : htmlAttributes) {
-
-				String value = null;
-
-				if (EditMode.DEPLOYMENT.equals(editMode)) {
+			final NodeProgram program = RenderProgramCache.getInstance().getProgram(thisElement, renderContext);
+			if (program != null) {
 
-					value = (String)thisElement.getProperty(attribute);
-
-				} else {
-
-					value = thisElement.getPropertyWithVariableReplacement(renderContext, attribute);
-				}
+				// static attributes were rendered when the program was compiled
+				program.renderAttributes(thisElement, out, renderContext);
 
-				if (!(EditMode.RAW.equals(editMode) || EditMode.WIDGET.equals(editMode))) {
-
-					value = escapeForHtmlAttributes(value);
-				}
-
-				if (value != null) {
-
-					String key = attribute.jsonName().substring(PropertyView.Html.length());
-
-					out.append(" ").append(key).append("=\"").append(value).append("\"");
-
-				}
+			} else {
 
+				renderAttributes(thisElement, out, editMode, renderContext);
 			}
 
-			// include arbitrary data-* attributes
-			thisElement.renderSharedComponentConfiguration(out, editMode);
-			thisElement.renderCustomAttributes(out, renderContext.getSecurityContext(), renderContext);
-
 			// include special mode attributes
 			switch (editMode) {
 
@@ -595,6 +573,66 @@ public interface DOMElement extends DOMNode, Element, NamedNodeMap, NonIndexed {
 		out.append(">");
 	}
 
+	static void renderAttributes(final DOMElement thisElement, final AsyncBuffer out, final EditMode editMode, final RenderContext renderContext) throws FrameworkException {
+
+		final ConfigurationProvider config = StructrApp.getConfiguration();
+		final Class type = thisElement.getEntityType();
+
+		final List<PropertyKey> htmlAttributes = new ArrayList<>();
+		thisElement.getNode().getPropertyKeys().forEach((key) -> {
+			if (key.startsWith(PropertyView.Html)) {
+				htmlAttributes.add(config.getPropertyKeyForJSONName(type, key));
+			}
+		});
+
+		if (EditMode.DEPLOYMENT.equals(editMode)) {
+			Collections.sort(htmlAttributes);
+		}
+
+		for (PropertyKey attribute : htmlAttributes) {
+
+			String value = null;
+
+			if (EditMode.DEPLOYMENT.equals(editMode)) {
+
+				value = (String)thisElement.getProperty(attribute);
+
+			} else {
+
+				value = thisElement.getPropertyWithVariableReplacement(renderContext, attribute);
+			}
+
+			if (!(EditMode.RAW.equals(editMode) || EditMode.WIDGET.equals(editMode))) {
+
+				value = escapeForHtmlAttributes(value);
+			}
+
+			if (value != null) {
+
+				String key = attribute.jsonName().substring(PropertyView.Html.length());
+
+				out.append(" ").append(key).append("=\"").append(value).append("\"");
+
+			}
+
+		}
+
+		// include arbitrary data-* attributes
+		thisElement.renderSharedComponentConfiguration(out, editMode);
+		thisElement.renderCustomAttributes(out, renderContext.getSecurityContext(), renderContext);
+	}
+
+	static boolean hasAction(final DOMElement thisElement, final RenderContext renderContext) {
+
+		final NodeProgram program = RenderProgramCache.getInstance().getProgram(thisElement, renderContext);
+		if (program != null) {
+
+			return program.hasAction();
+		}
+
+		return thisElement.getProperty(new StringProperty(STRUCTR_ACTION_PROPERTY)) != null;
+	}
+
 	public static Node doImport(final DOMElement thisNode, final Page newPage) throws DOMException {
 
 		DOMElement newElement = (DOMElement) newPage.createElement(thisNode.getTag());
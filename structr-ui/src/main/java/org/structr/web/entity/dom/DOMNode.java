@@ -69,8 +69,11 @@ import org.structr.schema.json.JsonObjectType;
 import org.structr.schema.json.JsonReferenceType;
 import org.structr.schema.json.JsonSchema;
 import org.structr.web.common.AsyncBuffer;
+import org.structr.web.common.FragmentCache;
 import org.structr.web.common.RenderContext;
 import org.structr.web.common.RenderContext.EditMode;
+import org.structr.web.common.RenderProgram.NodeProgram;
+import org.structr.web.common.RenderProgramCache;
 import org.structr.web.common.StringRenderBuffer;
 import org.structr.web.entity.LinkSource;
 import org.structr.web.entity.Linkable;
@@ -111,6 +114,10 @@ public interface DOMNode extends NodeInterface, Node, Renderable, DOMAdoptable,
 
 		type.addStringProperty("sharedComponentConfiguration").setFormat("multi-line").setCategory(PAGE_CATEGORY).setHint("The contents of this field will be evaluated before rendering this component. This is usually used to customize shared components to make them more flexible.<br><br>This is an 'auto-script' environment, meaning that the text is automatically surrounded with ${}");
 
+		type.addBooleanProperty("cacheFragment").setCategory(PAGE_CATEGORY).setHint("Caches the rendered output of this element and its children on the server until the data it depends on is modified. The output is cached separately for each user unless cacheFragmentShared is set.");
+		type.addBooleanProperty("cacheFragmentShared").setCategory(PAGE_CATEGORY).setHint("Shares the cached output of this element between all users with the same groups. Only use this for output that does not depend on the individual user.");
+		type.addStringProperty("cacheFragmentParameters").setCategory(PAGE_CATEGORY).setHint("Comma-separated list of request parameters the cached output depends on. If empty, all request parameters are used.");
+
 		type.addStringProperty("data-structr-id").setHint("Set to ${current.id} most of the time").setCategory(PAGE_CATEGORY);
 		type.addStringProperty("data-structr-hash").setCategory(PAGE_CATEGORY);
 
@@ -129,6 +136,7 @@ public interface DOMNode extends NodeInterface, Node, Renderable, DOMAdoptable,
 		type.addPropertyGetter("dataKey", String.class);
 		type.addPropertyGetter("showConditions", String.class);
 		type.addPropertyGetter("hideConditions", String.class);
+		type.addPropertyGetter("cacheFragmentParameters", String.class);
 
 		type.addPropertyGetter("parent", DOMNode.class);
 		type.addPropertyGetter("children", Iterable.class);
@@ -169,6 +177,8 @@ public interface DOMNode extends NodeInterface, Node, Renderable, DOMAdoptable,
 
 		type.overrideMethod("inTrash",                     false, "return getParent() == null && getOwnerDocumentAsSuperUser() == null;");
 		type.overrideMethod("dontCache",                   false, "return getProperty(dontCacheProperty);");
+		type.overrideMethod("cacheFragment",               false, "return getProperty(cacheFragmentProperty);");
+		type.overrideMethod("cacheFragmentShared",         false, "return getProperty(cacheFragmentSharedProperty);");
 		type.overrideMethod("renderDetails",               false, "return getProperty(renderDetailsProperty);");
 		type.overrideMethod("hideOnIndex",                 false, "return getProperty(hideOnIndexProperty);");
 		type.overrideMethod("hideOnDetail",                false, "return getProperty(hideOnDetailProperty);");
@@ -302,7 +312,7 @@ public interface DOMNode extends NodeInterface, Node, Renderable, DOMAdoptable,
 	}));
 
 	public static final String[] rawProps = new String[] {
-		"dataKey", "restQuery", "cypherQuery", "xpathQuery", "functionQuery", "flow", "hideOnIndex", "hideOnDetail", "showForLocales", "hideForLocales", "showConditions", "hideConditions"
+		"dataKey", "restQuery", "cypherQuery", "xpathQuery", "functionQuery", "flow", "hideOnIndex", "hideOnDetail", "showForLocales", "hideForLocales", "showConditions", "hideConditions", "cacheFragment", "cacheFragmentShared", "cacheFragmentParameters"
 	};
 
 	boolean isSynced();
@@ -312,6 +322,8 @@ public interface DOMNode extends NodeInterface, Node, Renderable, DOMAdoptable,
 	boolean avoidWhitespace();
 	boolean inTrash();
 	boolean dontCache();
+	boolean cacheFragment();
+	boolean cacheFragmentShared();
 	boolean hideOnIndex();
 	boolean hideOnDetail();
 	boolean renderDetails();
@@ -325,6 +337,7 @@ public interface DOMNode extends NodeInterface, Node, Renderable, DOMAdoptable,
 	String getIdHashOrProperty();
 	String getShowConditions();
 	String getHideConditions();
+	String getCacheFragmentParameters();
 	String getContent(final RenderContext.EditMode editMode) throws FrameworkException;
 	String getDataHash();
 	String getDataKey();
@@ -1000,16 +1013,21 @@ public interface DOMNode extends NodeInterface, Node, Renderable, DOMAdoptable,
 
 	static boolean displayForLocale(final DOMNode thisNode, final RenderContext renderContext) {
 
-		String localeString = renderContext.getLocale().toString();
+		final String show = thisNode.getProperty(StructrApp.key(DOMNode.class, "showForLocales"));
+		final String hide = thisNode.getProperty(StructrApp.key(DOMNode.class, "hideForLocales"));
+
+		return displayForLocale(show, hide, renderContext);
+	}
 
-		String show = thisNode.getProperty(StructrApp.key(DOMNode.class, "showForLocales"));
-		String hide = thisNode.getProperty(StructrApp.key(DOMNode.class, "hideForLocales"));
+	static boolean displayForLocale(final String show, final String hide, final RenderContext renderContext) {
 
 		// If both fields are empty, render node
 		if (StringUtils.isBlank(hide) && StringUtils.isBlank(show)) {
 			return true;
 		}
 
+		final String localeString = renderContext.getLocale().toString();
+
 		// If locale string is found in hide, don't render
 		if (StringUtils.contains(hide, localeString)) {
 			return false;
@@ -1033,23 +1051,33 @@ public interface DOMNode extends NodeInterface, Node, Renderable, DOMAdoptable,
 		if (StringUtils.isBlank(_hideConditions) && StringUtils.isBlank(_showConditions)) {
 			return true;
 		}
+
+		return displayForConditions(thisNode, StringUtils.isNotBlank(_showConditions) ? "${".concat(_showConditions).concat("}") : null, StringUtils.isNotBlank(_hideConditions) ? "${".concat(_hideConditions).concat("}") : null, renderContext);
+	}
+
+	/**
+	 * Evaluates the given show and hide condition scripts, which must
+	 * already be wrapped in ${}.
+	 */
+	static boolean displayForConditions(final DOMNode thisNode, final String showScript, final String hideScript, final RenderContext renderContext) {
+
 		try {
 			// If hide conditions evaluate to "true", don't render
-			if (StringUtils.isNotBlank(_hideConditions) && Boolean.TRUE.equals(Scripting.evaluate(renderContext, thisNode, "${".concat(_hideConditions).concat("}"), "hide condition"))) {
+			if (hideScript != null && Boolean.TRUE.equals(Scripting.evaluate(renderContext, thisNode, hideScript, "hide condition"))) {
 				return false;
 			}
 
 		} catch (UnlicensedScriptException |FrameworkException ex) {
-			logger.error("Hide conditions " + _hideConditions + " could not be evaluated.", ex);
+			logger.error("Hide conditions " + hideScript + " could not be evaluated.", ex);
 		}
 		try {
 			// If show conditions evaluate to "false", don't render
-			if (StringUtils.isNotBlank(_showConditions) && Boolean.FALSE.equals(Scripting.evaluate(renderContext, thisNode, "${".concat(_showConditions).concat("}"), "show condition"))) {
+			if (showScript != null && Boolean.FALSE.equals(Scripting.evaluate(renderContext, thisNode, showScript, "show condition"))) {
 				return false;
 			}
 
 		} catch (UnlicensedScriptException |FrameworkException ex) {
-			logger.error("Show conditions " + _showConditions + " could not be evaluated.", ex);
+			logger.error("Show conditions " + showScript + " could not be evaluated.", ex);
 		}
 
 		return true;
@@ -1064,6 +1092,12 @@ public interface DOMNode extends NodeInterface, Node, Renderable, DOMAdoptable,
 			return true;
 		}
 
+		final NodeProgram program = RenderProgramCache.getInstance().getProgram(thisNode, renderContext);
+		if (program != null) {
+
+			return program.shouldBeRendered(thisNode, renderContext);
+		}
+
 		if (thisNode.isHidden() || !thisNode.displayForLocale(renderContext) || !thisNode.displayForConditions(renderContext)) {
 			return false;
 		}
@@ -1463,6 +1497,9 @@ public interface DOMNode extends NodeInterface, Node, Renderable, DOMAdoptable,
 		final SecurityContext securityContext = renderContext.getSecurityContext();
 		final EditMode editMode = renderContext.getEditMode(securityContext.getUser(false));
 
+		// visibility and hide flags of this node are part of the output of an enclosing cached fragment
+		renderContext.recordDependency(thisNode);
+
 		// admin-only edit modes ==> visibility check not necessary
 		final boolean isAdminOnlyEditMode = (EditMode.RAW.equals(editMode) || EditMode.WIDGET.equals(editMode) || EditMode.DEPLOYMENT.equals(editMode));
 
@@ -1470,14 +1507,15 @@ public interface DOMNode extends NodeInterface, Node, Renderable, DOMAdoptable,
 			return;
 		}
 
+		final NodeProgram program = RenderProgramCache.getInstance().getProgram(thisNode, renderContext);
 		final GraphObject details = renderContext.getDetailsDataObject();
-		final boolean detailMode = details != null;
+		final boolean detailMode  = details != null;
 
-		if (detailMode && thisNode.hideOnDetail()) {
+		if (detailMode && (program != null ? program.hideOnDetail() : thisNode.hideOnDetail())) {
 			return;
 		}
 
-		if (!detailMode && thisNode.hideOnIndex()) {
+		if (!detailMode && (program != null ? program.hideOnIndex() : thisNode.hideOnIndex())) {
 			return;
 		}
 
@@ -1485,99 +1523,113 @@ public interface DOMNode extends NodeInterface, Node, Renderable, DOMAdoptable,
 
 			thisNode.renderContent(renderContext, depth);
 
+		} else if ((program != null ? program.cacheFragment() : thisNode.cacheFragment()) && FragmentCache.getInstance().isEnabled()) {
+
+			FragmentCache.getInstance().render(thisNode, renderContext, depth, () -> renderWithData(thisNode, renderContext, depth));
+
 		} else {
 
-			final String subKey = thisNode.getDataKey();
+			renderWithData(thisNode, renderContext, depth);
+		}
+	}
 
-			if (StringUtils.isNotBlank(subKey)) {
+	static void renderWithData(final DOMNode thisNode, final RenderContext renderContext, final int depth) throws FrameworkException {
 
-				final GraphObject currentDataNode = renderContext.getDataObject();
+		final SecurityContext securityContext = renderContext.getSecurityContext();
+		final NodeProgram program             = RenderProgramCache.getInstance().getProgram(thisNode, renderContext);
+		final GraphObject details             = renderContext.getDetailsDataObject();
+		final boolean detailMode              = details != null;
 
-				// fetch (optional) list of external data elements
-				final Iterable<GraphObject> listData = checkListSources(thisNode, securityContext, renderContext);
+		final String subKey = program != null ? program.getDataKey() : thisNode.getDataKey();
 
-				final PropertyKey propertyKey;
+		if (StringUtils.isNotBlank(subKey)) {
 
-				if (thisNode.renderDetails() && detailMode) {
+			final GraphObject currentDataNode = renderContext.getDataObject();
 
-					renderContext.setDataObject(details);
-					renderContext.putDataObject(subKey, details);
+			// fetch (optional) list of external data elements
+			final Iterable<GraphObject> listData = checkListSources(thisNode, securityContext, renderContext);
 
-					thisNode.renderContent(renderContext, depth);
+			final PropertyKey propertyKey;
 
-				} else {
+			if ((program != null ? program.renderDetails() : thisNode.renderDetails()) && detailMode) {
+
+				renderContext.setDataObject(details);
+				renderContext.putDataObject(subKey, details);
 
-					if (Iterables.isEmpty(listData) && currentDataNode != null) {
+				thisNode.renderContent(renderContext, depth);
 
-						// There are two alternative ways of retrieving sub elements:
-						// First try to get generic properties,
-						// if that fails, try to create a propertyKey for the subKey
-						final Object elements = currentDataNode.getProperty(new GenericProperty(subKey));
+			} else {
 
-						renderContext.setRelatedProperty(new GenericProperty(subKey));
-						renderContext.setSourceDataObject(currentDataNode);
+				if (Iterables.isEmpty(listData) && currentDataNode != null) {
 
-						if (elements != null) {
+					// There are two alternative ways of retrieving sub elements:
+					// First try to get generic properties,
+					// if that fails, try to create a propertyKey for the subKey
+					final Object elements = currentDataNode.getProperty(new GenericProperty(subKey));
 
-							if (elements instanceof Iterable) {
+					renderContext.setRelatedProperty(new GenericProperty(subKey));
+					renderContext.setSourceDataObject(currentDataNode);
 
-								for (Object o : (Iterable)elements) {
+					if (elements != null) {
 
-									if (o instanceof GraphObject) {
+						if (elements instanceof Iterable) {
 
-										GraphObject graphObject = (GraphObject)o;
-										renderContext.putDataObject(subKey, graphObject);
-										thisNode.renderContent(renderContext, depth);
+							for (Object o : (Iterable)elements) {
 
-									}
-								}
+								if (o instanceof GraphObject) {
+
+									GraphObject graphObject = (GraphObject)o;
+									renderContext.putDataObject(subKey, graphObject);
+									thisNode.renderContent(renderContext, depth);
 
+								}
 							}
 
-						} else {
+						}
+
+					} else {
 
-							propertyKey = StructrApp.getConfiguration().getPropertyKeyForJSONName(currentDataNode.getClass(), subKey, false);
-							renderContext.setRelatedProperty(propertyKey);
+						propertyKey = StructrApp.getConfiguration().getPropertyKeyForJSONName(currentDataNode.getClass(), subKey, false);
+						renderContext.setRelatedProperty(propertyKey);
 
-							if (propertyKey != null) {
+						if (propertyKey != null) {
 
-								final Object value = currentDataNode.getProperty(propertyKey);
-								if (value != null) {
+							final Object value = currentDataNode.getProperty(propertyKey);
+							if (value != null) {
 
-									if (value instanceof Iterable) {
+								if (value instanceof Iterable) {
 
-										for (final Object o : ((Iterable)value)) {
+									for (final Object o : ((Iterable)value)) {
 
-											if (o instanceof GraphObject) {
+										if (o instanceof GraphObject) {
 
-												renderContext.putDataObject(subKey, (GraphObject)o);
-												thisNode.renderContent(renderContext, depth);
+											renderContext.putDataObject(subKey, (GraphObject)o);
+											thisNode.renderContent(renderContext, depth);
 
-											}
 										}
 									}
 								}
 							}
-
 						}
 
-						// reset data node in render context
-						renderContext.setDataObject(currentDataNode);
-						renderContext.setRelatedProperty(null);
+					}
 
-					} else {
+					// reset data node in render context
+					renderContext.setDataObject(currentDataNode);
+					renderContext.setRelatedProperty(null);
 
-						renderContext.setListSource(listData);
-						thisNode.renderNodeList(securityContext, renderContext, depth, subKey);
+				} else {
 
-					}
+					renderContext.setListSource(listData);
+					thisNode.renderNodeList(securityContext, renderContext, depth, subKey);
 
 				}
 
-			} else {
-
-				thisNode.renderContent(renderContext, depth);
 			}
+
+		} else {
+
+			thisNode.renderContent(renderContext, depth);
 		}
 	}
 
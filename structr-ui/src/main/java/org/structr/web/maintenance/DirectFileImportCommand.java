@@ -26,6 +26,7 @@ import java.nio.file.FileVisitor;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -48,8 +49,10 @@ import org.structr.core.graph.NodeAttribute;
 import org.structr.core.graph.NodeServiceCommand;
 import org.structr.core.graph.TransactionCommand;
 import org.structr.core.graph.Tx;
+import org.structr.core.property.PropertyMap;
 import org.structr.rest.resource.MaintenanceParameterResource;
 import org.structr.schema.SchemaHelper;
+import org.structr.web.common.ChecksumOutputStream;
 import org.structr.web.common.FileHelper;
 import org.structr.web.entity.AbstractFile;
 import org.structr.web.entity.Folder;
@@ -319,6 +322,7 @@ public class DirectFileImportCommand extends NodeServiceCommand implements Maint
 
 				final java.io.File fileOnDisk = newFile.getFileOnDisk(false);
 				final Path fullFolderPath     = fileOnDisk.toPath();
+				final PropertyMap checksums   = new PropertyMap();
 
 				Files.createDirectories(fullFolderPath.getParent());
 
@@ -329,11 +333,16 @@ public class DirectFileImportCommand extends NodeServiceCommand implements Maint
 						break;
 
 					case COPY:
-						Files.copy(file, fullFolderPath);
+						// compute checksums while copying
+						try (final ChecksumOutputStream out = new ChecksumOutputStream(Files.newOutputStream(fullFolderPath, StandardOpenOption.CREATE_NEW), FileHelper.getEnabledChecksums(newFile))) {
+
+							Files.copy(file, out);
+							checksums.putAll(out.getChecksums());
+						}
 						break;
 				}
 
-				FileHelper.updateMetadata(newFile);
+				FileHelper.updateMetadata(newFile, checksums);
 
 				if (doIndex) {
 					indexer.addToFulltextIndex(newFile);
@@ -21,6 +21,7 @@ package org.structr.web.servlet;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.text.DateFormat;
 import java.text.ParseException;
@@ -36,15 +37,20 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.WriteListener;
@@ -76,6 +82,7 @@ import org.structr.core.auth.exception.AuthenticationException;
 import org.structr.core.converter.PropertyConverter;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.Principal;
+import org.structr.core.graph.CacheStatisticsCommand;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.Tx;
 import org.structr.core.property.PropertyKey;
@@ -85,9 +92,14 @@ import org.structr.rest.service.StructrHttpServiceConfig;
 import org.structr.schema.ConfigurationProvider;
 import org.structr.util.Base64;
 import org.structr.web.auth.UiAuthenticator;
+import org.structr.web.common.DataSourceQueryCache;
+import org.structr.web.common.FileDelivery;
 import org.structr.web.common.FileHelper;
+import org.structr.web.common.FragmentCache;
 import org.structr.web.common.RenderContext;
 import org.structr.web.common.RenderContext.EditMode;
+import org.structr.web.common.RenderProgramCache;
+import org.structr.web.common.StreamingRenderBuffer;
 import org.structr.web.common.StringRenderBuffer;
 import org.structr.web.entity.AbstractFile;
 import org.structr.web.entity.File;
@@ -120,9 +132,10 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 
 	private static final List<String> customResponseHeaders        = new LinkedList<>();
 	private static final ThreadLocalMatcher threadLocalUUIDMatcher = new ThreadLocalMatcher("[a-fA-F0-9]{32}");
-	private static final ExecutorService threadPool                = Executors.newCachedThreadPool();
+	private static ExecutorService renderThreadPool                = null;
 
 	private final Pattern FilenameCleanerPattern                      = Pattern.compile("[\n\r]", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL);
+	private final Pattern RangePattern                                = Pattern.compile("bytes=(?<start>\\d*)-(?<end>\\d*)");
 	private final StructrHttpServiceConfig config                     = new StructrHttpServiceConfig();
 	private final Set<String> possiblePropertyNamesForEntityResolving = new LinkedHashSet<>();
 
@@ -171,6 +184,11 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 		} catch (FrameworkException fex) {
 			logger.warn("Unable to create shadow page: {}", fex.getMessage());
 		}
+
+		FragmentCache.getInstance().register();
+		RenderProgramCache.getInstance().register();
+		CacheStatisticsCommand.registerCache("files", FileDelivery::getStatistics, FileDelivery::resetStatistics);
+		CacheStatisticsCommand.registerCache("dataSourceQueries", DataSourceQueryCache::getStatistics, DataSourceQueryCache::resetStatistics);
 	}
 
 	@Override
@@ -476,6 +494,7 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 
 							// render
 							rootElement.render(renderContext, 0);
+							renderContext.getDataSourceQueryCache().recordStatistics(renderContext.getPage());
 
 							try {
 
@@ -817,107 +836,68 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 	}
 
 	protected void renderAsyncOutput(HttpServletRequest request, HttpServletResponse response, App app, RenderContext renderContext, DOMNode rootElement) throws IOException {
-		final AsyncContext async = request.startAsync();
-		final ServletOutputStream out = async.getResponse().getOutputStream();
-		final AtomicBoolean finished = new AtomicBoolean(false);
-		final DOMNode rootNode = rootElement;
-
-		threadPool.submit(new Runnable() {
 
-			@Override
-			public void run() {
+		final AsyncContext async           = request.startAsync();
+		final ServletOutputStream out      = async.getResponse().getOutputStream();
+		final AsyncOutputWriter writer     = new AsyncOutputWriter(request, async, out, renderContext);
+		final StreamingRenderBuffer buffer = writer.getBuffer();
+		final DOMNode rootNode             = rootElement;
 
-				try (final Tx tx = app.tx()) {
+		// release the render thread when the request times out or fails
+		async.setTimeout(Settings.HtmlRenderTimeout.getValue() * 1000L);
+		async.addListener(writer);
 
-					// render
-					rootNode.render(renderContext, 0);
-					finished.set(true);
-
-					tx.success();
+		renderContext.setBuffer(buffer);
 
-				} catch (Throwable t) {
-
-					t.printStackTrace();
-					logger.warn("Error while rendering page {}: {}", rootNode.getName(), t.getMessage());
+		try {
 
-					try {
+			getRenderThreadPool().execute(new Runnable() {
 
-						response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-						finished.set(true);
+				@Override
+				public void run() {
 
-					} catch (IOException ex) {
-						logger.warn("", ex);
-					}
-				}
-			}
+					try (final Tx tx = app.tx()) {
 
-		});
+						// render
+						rootNode.render(renderContext, 0);
+						renderContext.getDataSourceQueryCache().recordStatistics(renderContext.getPage());
 
-		// start output write listener
-		out.setWriteListener(new WriteListener() {
+						tx.success();
 
-			@Override
-			public void onWritePossible() throws IOException {
+					} catch (Throwable t) {
 
-				try {
+						t.printStackTrace();
+						logger.warn("Error while rendering page {}: {}", rootNode.getName(), t.getMessage());
 
-					final Queue<String> queue = renderContext.getBuffer().getQueue();
-					while (out.isReady()) {
+						try {
 
-						String buffer = null;
+							response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
 
-						synchronized (queue) {
-							buffer = queue.poll();
+						} catch (IOException ex) {
+							logger.warn("", ex);
 						}
 
-						if (buffer != null) {
+					} finally {
 
-							out.print(buffer);
-
-						} else {
-
-							if (finished.get()) {
-
-								async.complete();
-
-								// prevent this block from being called again
-								break;
-							}
-
-							Thread.sleep(1);
-						}
+						buffer.finish();
 					}
+				}
 
-				} catch (EofException ee) {
+			});
 
-					final SecurityContext sc = renderContext.getSecurityContext();
-					final Principal user     = sc.getUser(false);
-					final String username    = (user != null) ? user.getName() : "anonymous";
+		} catch (RejectedExecutionException rex) {
 
-					logger.warn("Could not flush the response body content to the client, probably because the network connection was terminated.");
-					logger.warn(" -> From: {} | URI: {} | Query: {} | User: {}", request.getRemoteAddr(), request.getRequestURI(), request.getQueryString(), username);
+			// all render threads are busy and the queue is full
+			logger.warn("Unable to render page {}, too many pages are waiting to be rendered", rootNode.getName());
 
-				} catch (IOException | InterruptedException t) {
-					logger.warn("Unexpected exception", t);
-				}
-			}
+			response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			async.complete();
 
-			@Override
-			public void onError(Throwable t) {
-				if (t instanceof EofException) {
-
-					final SecurityContext sc = renderContext.getSecurityContext();
-					final Principal user     = sc.getUser(false);
-					final String username    = (user != null) ? user.getName() : "anonymous";
-
-					logger.warn("Could not flush the response body content to the client, probably because the network connection was terminated.");
-					logger.warn(" -> From: {} | URI: {} | Query: {} | User: {}", request.getRemoteAddr(), request.getRequestURI(), request.getQueryString(), username);
+			return;
+		}
 
-				} else {
-					logger.warn("Unexpected exception", t);
-				}
-			}
-		});
+		// start output write listener
+		out.setWriteListener(writer);
 	}
 
 	protected void writeOutputSteam(HttpServletResponse response, StringRenderBuffer buffer) throws IOException {
@@ -1528,7 +1508,6 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 			} else {
 
 				// 2b: stream file to response
-				final InputStream in = file.getInputStream();
 				final String contentType = file.getContentType();
 
 				if (contentType != null) {
@@ -1541,68 +1520,96 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 					response.setContentType("application/octet-stream");
 				}
 
-				final String range = request.getHeader("Range");
+				// the content of templates is evaluated and can only be streamed
+				final java.io.File fileOnDisk = file.isTemplate() ? null : file.getFileOnDisk(false);
+				if (fileOnDisk != null && fileOnDisk.isFile()) {
 
-				try {
+					try {
 
-					if (StringUtils.isNotEmpty(range)) {
+						final int statusCode = FileDelivery.deliver(fileOnDisk, contentType, FileDelivery.getETag(file.getChecksum()), file.getLastModifiedDate(), request, response);
 
-						final long len = file.getSize();
-						long start     = 0;
-						long end       = len - 1;
+						callbackMap.put("statusCode", statusCode);
 
-						final Matcher matcher = Pattern.compile("bytes=(?<start>\\d*)-(?<end>\\d*)").matcher(range);
+					} catch (Throwable t) {
 
-						if (matcher.matches()) {
-							String startGroup = matcher.group("start");
-							start = startGroup.isEmpty() ? start : Long.valueOf(startGroup);
-							start = Math.max(0, start);
+						logger.debug("Unable to deliver file {}: {}", file.getUuid(), t.getMessage());
 
-							String endGroup = matcher.group("end");
-							end = endGroup.isEmpty() ? end : Long.valueOf(endGroup);
-							end = end > len - 1 ? len - 1 : end;
+					} finally {
+
+						try {
+							out.flush();
+							out.close();
+
+						} catch (Throwable t) {
 						}
+					}
 
-						long contentLength = end - start + 1;
+				} else {
 
-						// Tell the client that we support byte ranges
-						response.setHeader("Accept-Ranges", "bytes");
-						response.setHeader("Content-Range", String.format("bytes %s-%s/%s", start, end, len));
-						response.setHeader("Content-Length", String.format("%s", contentLength));
+					final InputStream in = file.getInputStream();
+					final String range   = request.getHeader("Range");
 
-						response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
-						callbackMap.put("statusCode", HttpServletResponse.SC_PARTIAL_CONTENT);
+					try {
 
-						IOUtils.copyLarge(in, out, start, contentLength);
+						if (StringUtils.isNotEmpty(range)) {
 
-					} else {
+							final long len = file.getSize();
+							long start     = 0;
+							long end       = len - 1;
 
-						response.setStatus(HttpServletResponse.SC_OK);
-						callbackMap.put("statusCode", HttpServletResponse.SC_OK);
+							final Matcher matcher = RangePattern.matcher(range);
 
-						IOUtils.copyLarge(in, out);
-					}
+							if (matcher.matches()) {
+								String startGroup = matcher.group("start");
+								start = startGroup.isEmpty() ? start : Long.valueOf(startGroup);
+								start = Math.max(0, start);
 
-				} catch (Throwable t) {
+								String endGroup = matcher.group("end");
+								end = endGroup.isEmpty() ? end : Long.valueOf(endGroup);
+								end = end > len - 1 ? len - 1 : end;
+							}
 
-				} finally {
+							long contentLength = end - start + 1;
 
-					if (out != null) {
+							// Tell the client that we support byte ranges
+							response.setHeader("Accept-Ranges", "bytes");
+							response.setHeader("Content-Range", String.format("bytes %s-%s/%s", start, end, len));
+							response.setHeader("Content-Length", String.format("%s", contentLength));
 
-						try {
-							// 3: output content
-							out.flush();
-							out.close();
+							response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+							callbackMap.put("statusCode", HttpServletResponse.SC_PARTIAL_CONTENT);
 
-						} catch (Throwable t) {
+							IOUtils.copyLarge(in, out, start, contentLength);
+
+						} else {
+
+							response.setStatus(HttpServletResponse.SC_OK);
+							callbackMap.put("statusCode", HttpServletResponse.SC_OK);
+
+							IOUtils.copyLarge(in, out);
 						}
-					}
 
-					if (in != null) {
-						in.close();
-					}
+					} catch (Throwable t) {
+
+					} finally {
+
+						if (out != null) {
+
+							try {
+								// 3: output content
+								out.flush();
+								out.close();
+
+							} catch (Throwable t) {
+							}
+						}
 
-					response.setStatus(HttpServletResponse.SC_OK);
+						if (in != null) {
+							in.close();
+						}
+
+						response.setStatus(HttpServletResponse.SC_OK);
+					}
 				}
 			}
 		}
@@ -1856,6 +1863,26 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 
 		return null;
 	}
+
+	private static synchronized ExecutorService getRenderThreadPool() {
+
+		if (renderThreadPool == null) {
+
+			final int threads                   = Math.max(1, Settings.HtmlRenderThreads.getValue());
+			final int queueSize                 = Settings.HtmlRenderQueueSize.getValue();
+			final BlockingQueue<Runnable> queue = queueSize > 0 ? new ArrayBlockingQueue<>(queueSize) : new SynchronousQueue<>();
+
+			// requests that exceed the queue are rejected instead of holding their async context
+			final ThreadPoolExecutor executor   = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, queue, new ThreadPoolExecutor.AbortPolicy());
+
+			executor.allowCoreThreadTimeOut(true);
+
+			renderThreadPool = executor;
+		}
+
+		return renderThreadPool;
+	}
+
 	// ----- nested classes -----
 	private enum AuthState {
 		NoBasicAuth, MustAuthenticate, Authenticated
@@ -1894,4 +1921,124 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 			return rootElement;
 		}
 	}
+
+	/**
+	 * Writes the chunks of a {@link StreamingRenderBuffer} to the output
+	 * stream whenever the stream is ready, and is dispatched again by the
+	 * buffer when new chunks are available. The buffer is aborted when the
+	 * asynchronous request ends, so the render thread is never left waiting.
+	 */
+	private static class AsyncOutputWriter implements WriteListener, AsyncListener {
+
+		private HttpServletRequest request   = null;
+		private RenderContext renderContext  = null;
+		private StreamingRenderBuffer buffer = null;
+		private ServletOutputStream out      = null;
+		private AsyncContext async           = null;
+
+		public AsyncOutputWriter(final HttpServletRequest request, final AsyncContext async, final ServletOutputStream out, final RenderContext renderContext) {
+
+			this.request       = request;
+			this.renderContext = renderContext;
+			this.async         = async;
+			this.out           = out;
+			this.buffer        = new StreamingRenderBuffer(Settings.HtmlRenderBufferSize.getValue() * 1024, Settings.HtmlRenderStallTimeout.getValue() * 1000L, () -> async.start(this::writeAvailableChunks));
+		}
+
+		public StreamingRenderBuffer getBuffer() {
+			return buffer;
+		}
+
+		@Override
+		public void onWritePossible() throws IOException {
+			writeAvailableChunks();
+		}
+
+		@Override
+		public void onError(Throwable t) {
+
+			buffer.abort();
+
+			if (t instanceof EofException) {
+
+				logConnectionTerminated();
+
+			} else {
+				logger.warn("Unexpected exception", t);
+			}
+		}
+
+		// ----- interface AsyncListener -----
+		@Override
+		public void onComplete(final AsyncEvent event) throws IOException {
+			buffer.abort();
+		}
+
+		@Override
+		public void onTimeout(final AsyncEvent event) throws IOException {
+
+			buffer.abort();
+
+			logger.warn("Asynchronous rendering timed out, URI: {}", request.getRequestURI());
+
+			event.getAsyncContext().complete();
+		}
+
+		@Override
+		public void onError(final AsyncEvent event) throws IOException {
+			buffer.abort();
+		}
+
+		@Override
+		public void onStartAsync(final AsyncEvent event) throws IOException {
+		}
+
+		// ----- private methods -----
+		private void writeAvailableChunks() {
+
+			try {
+
+				while (out.isReady()) {
+
+					final ByteBuffer chunk = buffer.poll();
+					if (chunk != null) {
+
+						out.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+
+					} else if (buffer.isFinished()) {
+
+						async.complete();
+
+						// prevent this block from being called again
+						break;
+
+					} else if (buffer.waitForData()) {
+
+						// the buffer dispatches this method again when data is available
+						break;
+					}
+				}
+
+			} catch (EofException ee) {
+
+				buffer.abort();
+				logConnectionTerminated();
+
+			} catch (IOException t) {
+
+				buffer.abort();
+				logger.warn("Unexpected exception", t);
+			}
+		}
+
+		private void logConnectionTerminated() {
+
+			final SecurityContext sc = renderContext.getSecurityContext();
+			final Principal user     = sc.getUser(false);
+			final String username    = (user != null) ? user.getName() : "anonymous";
+
+			logger.warn("Could not flush the response body content to the client, probably because the network connection was terminated.");
+			logger.warn(" -> From: {} | URI: {} | Query: {} | User: {}", request.getRemoteAddr(), request.getRequestURI(), request.getQueryString(), username);
+		}
+	}
 }
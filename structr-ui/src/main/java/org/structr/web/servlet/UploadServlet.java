@@ -452,7 +452,8 @@ public class UploadServlet extends HttpServlet implements HttpServiceServlet {
 
 							try (final InputStream is = fileItem.openStream()) {
 
-								FileHelper.writeToFile(file, is);
+								// store the checksums computed while writing
+								FileHelper.updateMetadata(file, FileHelper.writeToFile(file, is));
 								file.increaseVersion();
 
 								// upload trigger
@@ -18,33 +18,52 @@
  */
 package org.structr.test.web.advanced;
 
+import com.jayway.restassured.RestAssured;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import org.hamcrest.Matchers;
 import org.testng.annotations.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.structr.api.util.Iterables;
 import org.structr.common.error.FrameworkException;
+import org.structr.core.app.StructrApp;
 import org.structr.core.entity.SchemaNode;
 import org.structr.core.entity.SchemaProperty;
 import org.structr.core.graph.NodeAttribute;
 import org.structr.core.graph.Tx;
+import org.structr.core.property.PropertyKey;
 import org.structr.schema.export.StructrSchema;
 import org.structr.schema.json.JsonProperty;
 import org.structr.schema.json.JsonSchema;
 import org.structr.schema.json.JsonType;
 import org.structr.test.web.StructrUiTest;
 import org.structr.test.web.entity.TestFive;
+import org.structr.test.web.entity.TestOne;
 import org.structr.test.web.entity.TestTwo;
+import org.structr.web.common.DataSourceQueryCache;
+import org.structr.web.common.FragmentCache;
+import org.structr.web.entity.User;
+import org.structr.web.entity.dom.Content;
+import org.structr.web.entity.dom.DOMNode;
+import org.structr.web.entity.dom.Page;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.fail;
 
 /**
  */
 public class CacheTest extends StructrUiTest {
 
+	private static final Logger logger = LoggerFactory.getLogger(CacheTest.class);
+
 	@Test
 	public void testCaching() {
 
@@ -135,6 +154,194 @@ public class CacheTest extends StructrUiTest {
 		service.shutdown();
 	}
 
+	@Test
+	public void testFragmentCache() {
+
+		final FragmentCache fragmentCache = FragmentCache.getInstance();
+		Content content                   = null;
+
+		try (final Tx tx = app.tx()) {
+
+			final Page page   = Page.createSimplePage(securityContext, "page1");
+			final DOMNode div = (DOMNode)page.getElementsByTagName("div").item(0);
+
+			div.setProperty(StructrApp.key(DOMNode.class, "cacheFragment"), true);
+
+			content = (Content)div.getFirstChild();
+			content.setProperty(StructrApp.key(Content.class, "content"), "${size(find('TestOne'))} items");
+
+			for (final DOMNode node : app.nodeQuery(DOMNode.class).getAsList()) {
+				node.setProperty(StructrApp.key(DOMNode.class, "visibleToPublicUsers"), true);
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception");
+		}
+
+		RestAssured.basePath = "/";
+
+		// first request renders and caches the fragment
+		RestAssured.expect().statusCode(200).body("html.body.div", Matchers.equalTo("0 items")).when().get("/html/page1");
+
+		assertTrue("Fragment cache was not enabled by the servlet", fragmentCache.isEnabled());
+
+		fragmentCache.resetStatistics();
+
+		RestAssured.expect().statusCode(200).body("html.body.div", Matchers.equalTo("0 items")).when().get("/html/page1");
+
+		assertEquals("Cached fragment was not used", 1L, fragmentCache.getHitCount());
+
+		// creating an object of a queried type must invalidate the fragment
+		try (final Tx tx = app.tx()) {
+
+			app.create(TestOne.class, "test");
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception");
+		}
+
+		RestAssured.expect().statusCode(200).body("html.body.div", Matchers.equalTo("1 items")).when().get("/html/page1");
+
+		// modifying a rendered node must invalidate the fragment
+		try (final Tx tx = app.tx()) {
+
+			content.setProperty(StructrApp.key(Content.class, "content"), "${size(find('TestOne'))} objects");
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception");
+		}
+
+		RestAssured.expect().statusCode(200).body("html.body.div", Matchers.equalTo("1 objects")).when().get("/html/page1");
+		RestAssured.expect().statusCode(200).body("html.body.div", Matchers.equalTo("1 objects")).when().get("/html/page1");
+
+		assertEquals("Cached fragment was not used", 2L, fragmentCache.getHitCount());
+	}
+
+	@Test
+	public void testFragmentCacheIsPerUser() {
+
+		final PropertyKey<Boolean> shared = StructrApp.key(DOMNode.class, "cacheFragmentShared");
+		DOMNode div                       = null;
+
+		try (final Tx tx = app.tx()) {
+
+			final Page page = Page.createSimplePage(securityContext, "page2");
+
+			div = (DOMNode)page.getElementsByTagName("div").item(0);
+			div.setProperty(StructrApp.key(DOMNode.class, "cacheFragment"), true);
+
+			final Content content = (Content)div.getFirstChild();
+			content.setProperty(StructrApp.key(Content.class, "content"), "${me.name}");
+
+			for (final DOMNode node : app.nodeQuery(DOMNode.class).getAsList()) {
+				node.setProperty(StructrApp.key(DOMNode.class, "visibleToAuthenticatedUsers"), true);
+			}
+
+			app.create(User.class,
+				new NodeAttribute<>(StructrApp.key(User.class, "name"),     "user1"),
+				new NodeAttribute<>(StructrApp.key(User.class, "password"), "password1")
+			);
+
+			app.create(User.class,
+				new NodeAttribute<>(StructrApp.key(User.class, "name"),     "user2"),
+				new NodeAttribute<>(StructrApp.key(User.class, "password"), "password2")
+			);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception");
+		}
+
+		RestAssured.basePath = "/";
+
+		// fragments are not shared between users by default
+		RestAssured.given().header("X-User", "user1").header("X-Password", "password1").expect().statusCode(200).body("html.body.div", Matchers.equalTo("user1")).when().get("/html/page2");
+		RestAssured.given().header("X-User", "user2").header("X-Password", "password2").expect().statusCode(200).body("html.body.div", Matchers.equalTo("user2")).when().get("/html/page2");
+
+		try (final Tx tx = app.tx()) {
+
+			div.setProperty(shared, true);
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception");
+		}
+
+		// users with the same groups share the fragment if the element allows it
+		RestAssured.given().header("X-User", "user1").header("X-Password", "password1").expect().statusCode(200).body("html.body.div", Matchers.equalTo("user1")).when().get("/html/page2");
+		RestAssured.given().header("X-User", "user2").header("X-Password", "password2").expect().statusCode(200).body("html.body.div", Matchers.equalTo("user1")).when().get("/html/page2");
+	}
+
+	@Test
+	public void testDataSourceQueryMemoization() {
+
+		final String query = "MATCH (n:TestOne) RETURN n ORDER BY n.name";
+
+		try (final Tx tx = app.tx()) {
+
+			final Page page   = Page.createSimplePage(securityContext, "page2");
+			final DOMNode h1  = (DOMNode)page.getElementsByTagName("h1").item(0);
+			final DOMNode div = (DOMNode)page.getElementsByTagName("div").item(0);
+
+			// two repeaters with the same query
+			h1.setProperty(StructrApp.key(DOMNode.class, "cypherQuery"), query);
+			h1.setProperty(StructrApp.key(DOMNode.class, "dataKey"),     "a");
+			h1.getFirstChild().setTextContent("${a.name}");
+
+			div.setProperty(StructrApp.key(DOMNode.class, "cypherQuery"), query);
+			div.setProperty(StructrApp.key(DOMNode.class, "dataKey"),     "b");
+			div.getFirstChild().setTextContent("${b.name}");
+
+			for (final DOMNode node : app.nodeQuery(DOMNode.class).getAsList()) {
+				node.setProperty(StructrApp.key(DOMNode.class, "visibleToPublicUsers"), true);
+			}
+
+			app.create(TestOne.class, "item1");
+			app.create(TestOne.class, "item2");
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception");
+		}
+
+		DataSourceQueryCache.resetStatistics();
+
+		RestAssured.basePath = "/";
+		RestAssured
+			.expect()
+				.statusCode(200)
+				.body("html.body.h1[0]",  Matchers.equalTo("item1"))
+				.body("html.body.h1[1]",  Matchers.equalTo("item2"))
+				.body("html.body.div[0]", Matchers.equalTo("item1"))
+				.body("html.body.div[1]", Matchers.equalTo("item2"))
+			.when()
+				.get("/html/page2");
+
+		final Map<String, Object> statistics = (Map<String, Object>)DataSourceQueryCache.getStatistics().get("page2");
+
+		assertNotNull("No data source statistics recorded for page", statistics);
+		assertEquals("Invalid number of executed queries", 1L, statistics.get("queries"));
+		assertEquals("Invalid number of memoized queries", 1L, statistics.get("saved"));
+	}
+
 	@Test
 	public void testRollback() {
 
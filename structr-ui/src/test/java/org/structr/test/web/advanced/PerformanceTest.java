@@ -18,39 +18,65 @@
  */
 package org.structr.test.web.advanced;
 
+import com.jayway.restassured.RestAssured;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.lang3.StringUtils;
 import org.testng.annotations.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.util.PagingIterable;
 import org.structr.common.AccessMode;
+import org.structr.common.PropertyView;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
+import org.structr.common.error.UnlicensedScriptException;
 import org.structr.core.GraphObject;
+import org.structr.core.StaticValue;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.GenericNode;
 import org.structr.core.entity.relationship.NodeHasLocation;
+import org.structr.core.function.Functions;
 import org.structr.core.graph.BulkDeleteCommand;
 import org.structr.core.graph.FlushCachesCommand;
 import org.structr.core.graph.NodeAttribute;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.Tx;
+import org.structr.core.property.GenericProperty;
+import org.structr.rest.serialization.StreamingJsonWriter;
+import org.structr.schema.action.ActionContext;
 import org.structr.test.web.StructrUiTest;
 import org.structr.test.web.entity.TestFive;
 import org.structr.test.web.entity.TestOne;
 import org.structr.test.web.entity.TestTwo;
+import org.structr.web.common.FileHelper;
+import org.structr.web.common.RenderContext;
+import org.structr.web.common.RenderProgramCache;
+import org.structr.web.entity.File;
+import org.structr.web.entity.Folder;
 import org.structr.web.entity.User;
+import org.structr.web.entity.dom.DOMElement;
+import org.structr.web.entity.dom.DOMNode;
+import org.structr.web.entity.dom.Page;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertTrue;
 import static org.testng.AssertJUnit.fail;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
 /**
  *
@@ -288,7 +314,7 @@ public class PerformanceTest extends StructrUiTest {
 
 				try (final Tx tx = app.tx()) {
 
-					for (final TestTwo t : app.nodeQuery(TestTwo.class).getAsList()) {
+					for (final TestTwo t : app.nodeQuery(TestTwo.class).prefetch(TestTwo.testFives).getAsList()) {
 
 						t.getName();
 
@@ -374,7 +400,429 @@ public class PerformanceTest extends StructrUiTest {
 		assertTrue("Deletion rate of nodes too low, expected > 100, was " + rate, rate > 50);
 	}
 
+	/**
+	 * Compares the evaluation of typical DOM attribute expressions with
+	 * and without the parse tree cache.
+	 *
+	 * Note that this is just a very rough test as performance is heavily
+	 * depending on hardware and setup.
+	 */
+	@Test
+	public void testStructrScriptEvaluationPerformance() {
+
+		final String[] expressions = new String[] {
+			"this.name",
+			"concat('/items/', this.id)",
+			"if(empty(this.name), 'none', capitalize(this.name))",
+			"is(equal(this.name, 'test'), 'active')",
+			"date_format(this.createdDate, 'dd.MM.yyyy')"
+		};
+
+		try {
+
+			final SecurityContext securityContext = setupSecurityContext();
+			final App app                         = StructrApp.getInstance(securityContext);
+			final int loop                        = 10000;
+
+			createNodes(app, TestOne.class, 1);
+
+			try (final Tx tx = app.tx()) {
+
+				final TestOne node      = app.nodeQuery(TestOne.class).getFirst();
+				final ActionContext ctx = new ActionContext(securityContext);
+
+				// warm up
+				for (int i=0; i<loop; i++) {
+
+					for (final String expression : expressions) {
+						Functions.evaluate(ctx, node, expression);
+					}
+				}
+
+				final long t0 = System.nanoTime();
+
+				for (int i=0; i<loop; i++) {
+
+					for (final String expression : expressions) {
+
+						Functions.clearCache();
+						Functions.evaluate(ctx, node, expression);
+					}
+				}
+
+				final long t1 = System.nanoTime();
+
+				for (int i=0; i<loop; i++) {
+
+					for (final String expression : expressions) {
+						Functions.evaluate(ctx, node, expression);
+					}
+				}
+
+				final long t2 = System.nanoTime();
+
+				DecimalFormat decimalFormat = new DecimalFormat("0.000000000", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+				double cold                 = (t1 - t0) / 1000000000.0;
+				double cached               = (t2 - t1) / 1000000000.0;
+
+				logger.info("Evaluated {} expressions in {} seconds without and in {} seconds with cached parse trees", new Object[] { loop * expressions.length, decimalFormat.format(cold), decimalFormat.format(cached) });
+				assertTrue("Cached evaluation should be faster than cold evaluation", cached < cold);
+
+				tx.success();
+			}
+
+		} catch (UnlicensedScriptException | FrameworkException ex) {
+
+			logger.error(ex.toString());
+			fail("Unexpected exception");
+		}
+	}
+
+	/**
+	 * Serializes a list of nodes repeatedly and checks that the cached
+	 * serialization plans produce the same output as the first run.
+	 *
+	 * Note that this is just a very rough test as performance is heavily
+	 * depending on hardware and setup.
+	 */
+	@Test
+	public void testJsonSerializationPerformance() {
+
+		try {
+
+			final SecurityContext securityContext = setupSecurityContext();
+			final App app                         = StructrApp.getInstance(securityContext);
+			final int number                      = 1000;
+			final int loop                        = 20;
+
+			createNodes(app, TestOne.class, number);
+
+			try (final Tx tx = app.tx()) {
+
+				final List<TestOne> nodes = app.nodeQuery(TestOne.class).getAsList();
+				final String first        = serialize(securityContext, nodes);
+
+				final long t0 = System.nanoTime();
+
+				for (int i=0; i<loop; i++) {
+
+					assertEquals("Serialization output differs between runs", first, serialize(securityContext, nodes));
+				}
+
+				final long t1 = System.nanoTime();
+
+				DecimalFormat decimalFormat = new DecimalFormat("0.000000000", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+				double seconds              = (t1 - t0) / 1000000000.0;
+
+				logger.info("Serialized {} objects in {} seconds", new Object[] { number * loop, decimalFormat.format(seconds) });
+
+				tx.success();
+			}
+
+		} catch (IOException | FrameworkException ex) {
+
+			logger.error(ex.toString());
+			fail("Unexpected exception");
+		}
+	}
+
+	/**
+	 * Renders a large page through the asynchronous HTML servlet and
+	 * checks that the streamed output is complete.
+	 *
+	 * Note that this is just a very rough test as performance is heavily
+	 * depending on hardware and setup.
+	 */
+	@Test
+	public void testAsyncRenderingPerformanceOfLargePage() {
+
+		final int number = 10000;
+
+		try (final Tx tx = app.tx()) {
+
+			createTestNode(User.class,
+				new NodeAttribute<>(StructrApp.key(User.class, "name"),     "admin"),
+				new NodeAttribute<>(StructrApp.key(User.class, "password"), "admin"),
+				new NodeAttribute<>(StructrApp.key(User.class, "isAdmin"), true)
+			);
+
+			final Page page = Page.createSimplePage(securityContext, "large");
+			final Node div  = page.getElementsByTagName("div").item(0);
+
+			for (int i=0; i<number; i++) {
+
+				final Element p = page.createElement("p");
+
+				p.appendChild(page.createTextNode("paragraph\u00e4" + i));
+				div.appendChild(p);
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception");
+		}
+
+		RestAssured.basePath = "/";
+
+		final long t0 = System.nanoTime();
+
+		final String body = RestAssured
+			.given()
+			.header("X-User",     "admin")
+			.header("X-Password", "admin")
+			.expect()
+			.statusCode(200)
+			.when()
+			.get("/html/large")
+			.asString();
+
+		final long t1 = System.nanoTime();
+
+		DecimalFormat decimalFormat = new DecimalFormat("0.000000000", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+		double seconds              = (t1 - t0) / 1000000000.0;
+
+		logger.info("Rendered page with {} elements ({} bytes) in {} seconds", new Object[] { number, body.length(), decimalFormat.format(seconds) });
+
+		assertTrue("Rendered output is incomplete", body.contains("paragraph\u00e4" + (number - 1)));
+		assertTrue("Rendered output is incomplete", body.trim().endsWith("</html>"));
+	}
+
+	@Test
+	public void testRenderProgramPerformance() {
+
+		final RenderProgramCache cache = RenderProgramCache.getInstance();
+		final int number               = 5000;
+		final int rounds               = 10;
+
+		try (final Tx tx = app.tx()) {
+
+			final Page page = Page.createSimplePage(securityContext, "programs");
+			final Node div  = page.getElementsByTagName("div").item(0);
+
+			for (int i=0; i<number; i++) {
+
+				final DOMElement p = (DOMElement)page.createElement("p");
+
+				p.setAttribute("class", "item item-" + (i % 10));
+				p.setAttribute("title", "Item & \"" + i + "\"");
+				p.setProperty(new GenericProperty<String>("data-index"), Integer.toString(i));
+
+				if (i % 10 == 0) {
+
+					p.setAttribute("id", "${concat('item', " + i + ")}");
+					p.setProperty(StructrApp.key(DOMNode.class, "showConditions"), "true");
+				}
+
+				p.appendChild(page.createTextNode("paragraph <" + i + ">\nsecond line"));
+				div.appendChild(p);
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception");
+		}
+
+		cache.register();
+
+		try {
+
+			cache.setEnabled(false);
+
+			final String expected = renderPage("programs");
+			final double treeTime = measureRendering("programs", rounds);
+
+			cache.setEnabled(true);
+
+			// first rendering compiles the programs
+			assertEquals("Compiled rendering differs from tree rendering", expected, renderPage("programs"));
+
+			final double programTime = measureRendering("programs", rounds);
+
+			assertEquals("Compiled rendering differs from tree rendering", expected, renderPage("programs"));
+			assertTrue("Render programs were not used", cache.getHitCount() > 0);
+
+			DecimalFormat decimalFormat = new DecimalFormat("0.000000000", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+
+			logger.info("Rendered page with {} elements {} times: tree {} seconds, programs {} seconds", new Object[] { number, rounds, decimalFormat.format(treeTime), decimalFormat.format(programTime) });
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception");
+
+		} finally {
+
+			cache.setEnabled(true);
+		}
+	}
+
+	@Test
+	public void testConcurrentRangeRequestPerformance() {
+
+		final byte[] data          = new byte[32 * 1024 * 1024];
+		final int chunkSize        = 256 * 1024;
+		final int numThreads       = 8;
+		final int requests         = 50;
+		final List<Thread> threads = new LinkedList<>();
+		final AtomicInteger errors = new AtomicInteger();
+
+		new Random(42L).nextBytes(data);
+
+		try (final Tx tx = app.tx()) {
+
+			final File file = FileHelper.createFile(securityContext, data, "video/mp4", File.class, "video.mp4", true);
+
+			file.setProperty(StructrApp.key(File.class, "visibleToPublicUsers"), true);
+
+			tx.success();
+
+		} catch (FrameworkException | IOException ex) {
+
+			logger.warn("", ex);
+			fail("Unexpected exception");
+		}
+
+		RestAssured.basePath = "/";
+
+		final long t0 = System.currentTimeMillis();
+
+		// simulate clients seeking through a video
+		for (int t=0; t<numThreads; t++) {
+
+			final Random random = new Random(t);
+
+			final Thread thread = new Thread(() -> {
+
+				for (int i=0; i<requests; i++) {
+
+					final int start   = random.nextInt(data.length - chunkSize);
+					final int end     = start + chunkSize - 1;
+					final byte[] body = RestAssured.given().header("Range", "bytes=" + start + "-" + end).when().get("/html/video.mp4").asByteArray();
+
+					if (!Arrays.equals(Arrays.copyOfRange(data, start, end + 1), body)) {
+						errors.incrementAndGet();
+					}
+				}
+			});
+
+			threads.add(thread);
+			thread.start();
+		}
+
+		try {
+
+			for (final Thread thread : threads) {
+				thread.join();
+			}
+
+		} catch (InterruptedException iex) {
+
+			logger.warn("", iex);
+			fail("Unexpected exception");
+		}
+
+		final long t1 = System.currentTimeMillis();
+
+		DecimalFormat decimalFormat = new DecimalFormat("0.000000000", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+		final double time           = (t1 - t0) / 1000.0;
+		final double megabytes      = (double)numThreads * requests * chunkSize / (1024.0 * 1024.0);
+
+		logger.info("Served {} range requests with {} threads in {} seconds ({} MB/s)", new Object[] { numThreads * requests, numThreads, decimalFormat.format(time), decimalFormat.format(megabytes / time) });
+
+		assertEquals("Invalid range response content", 0, errors.get());
+	}
+
+	@Test
+	public void testChecksumPerformanceOfLargeUpload() {
+
+		final byte[] data = new byte[64 * 1024 * 1024];
+
+		new Random(42L).nextBytes(data);
+
+		try (final Tx tx = app.tx()) {
+
+			final Folder folder = app.create(Folder.class,
+				new NodeAttribute<>(StructrApp.key(Folder.class, "name"),             "checksums"),
+				new NodeAttribute<>(StructrApp.key(Folder.class, "enabledChecksums"), "crc32,md5,sha1,sha512")
+			);
+
+			final long t0 = System.currentTimeMillis();
+
+			final File file = FileHelper.createFile(securityContext, new ByteArrayInputStream(data), "application/octet-stream", File.class, "large.bin", folder);
+
+			final long t1 = System.currentTimeMillis();
+
+			// separate passes for each checksum, as before
+			final java.io.File fileOnDisk = file.getFileOnDisk(false);
+			final Long checksum           = FileHelper.getChecksum(fileOnDisk);
+
+			FileHelper.getCRC32Checksum(fileOnDisk);
+			FileHelper.getMD5Checksum(fileOnDisk);
+			FileHelper.getSHA1Checksum(fileOnDisk);
+			FileHelper.getSHA512Checksum(fileOnDisk);
+
+			final long t2 = System.currentTimeMillis();
+
+			assertEquals("Invalid checksum", checksum, file.getChecksum());
+
+			DecimalFormat decimalFormat = new DecimalFormat("0.000000000", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+
+			logger.info("Uploaded {} bytes with all checksums in {} seconds, computing checksums separately took {} seconds", new Object[] { data.length, decimalFormat.format((t1 - t0) / 1000.0), decimalFormat.format((t2 - t1) / 1000.0) });
+
+			tx.success();
+
+		} catch (FrameworkException | IOException ex) {
+
+			logger.warn("", ex);
+			fail("Unexpected exception");
+		}
+	}
+
 	// ----- private methods -----
+	private String renderPage(final String name) throws FrameworkException {
+
+		try (final Tx tx = app.tx()) {
+
+			final Page page                   = app.nodeQuery(Page.class).andName(name).getFirst();
+			final RenderContext renderContext = new RenderContext(securityContext);
+
+			page.render(renderContext, 0);
+
+			tx.success();
+
+			return StringUtils.join(renderContext.getBuffer().getQueue(), "");
+		}
+	}
+
+	private double measureRendering(final String name, final int rounds) throws FrameworkException {
+
+		final long t0 = System.nanoTime();
+
+		for (int i=0; i<rounds; i++) {
+			renderPage(name);
+		}
+
+		final long t1 = System.nanoTime();
+
+		return (t1 - t0) / 1000000000.0;
+	}
+
+	private String serialize(final SecurityContext securityContext, final List<? extends GraphObject> nodes) throws IOException {
+
+		final StreamingJsonWriter writer = new StreamingJsonWriter(new StaticValue<>(PropertyView.Public), false, 3, true);
+		final StringWriter buffer        = new StringWriter();
+
+		writer.stream(securityContext, buffer, new PagingIterable<>(nodes), null, false);
+
+		return buffer.toString();
+	}
+
 	private SecurityContext setupSecurityContext() {
 
 		final App app = StructrApp.getInstance();
@@ -18,12 +18,19 @@
  */
 package org.structr.test.web.basic;
 
+import com.jayway.restassured.RestAssured;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URI;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.tika.io.IOUtils;
+import org.hamcrest.Matchers;
 import org.testng.annotations.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,9 +50,11 @@ import org.structr.schema.export.StructrSchema;
 import org.structr.schema.json.JsonSchema;
 import org.structr.schema.json.JsonType;
 import org.structr.test.web.StructrUiTest;
+import org.structr.web.common.FileDelivery;
 import org.structr.web.common.FileHelper;
 import org.structr.web.common.ImageHelper;
 import org.structr.web.common.ImageHelper.Thumbnail;
+import org.structr.web.common.StreamingRenderBuffer;
 import org.structr.web.entity.AbstractFile;
 import org.structr.web.entity.File;
 import org.structr.web.entity.Folder;
@@ -54,6 +63,7 @@ import org.structr.web.entity.User;
 import org.structr.web.property.ThumbnailProperty;
 import static org.testng.Assert.assertNotEquals;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertTrue;
 import static org.testng.AssertJUnit.fail;
@@ -739,6 +749,218 @@ public class UiTest extends StructrUiTest {
 		}
 	}
 
+	@Test
+	public void testFileRangeRequests() {
+
+		final byte[] data = new byte[10000];
+		String etag       = null;
+
+		for (int i=0; i<data.length; i++) {
+			data[i] = (byte)(i % 251);
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			final File file = FileHelper.createFile(securityContext, data, "application/octet-stream", File.class, "range.bin", true);
+
+			file.setProperty(StructrApp.key(File.class, "visibleToPublicUsers"), true);
+
+			etag = FileDelivery.getETag(file.getChecksum());
+
+			tx.success();
+
+		} catch (FrameworkException | IOException ex) {
+
+			logger.warn("", ex);
+			fail("Unexpected exception");
+		}
+
+		RestAssured.basePath = "/";
+
+		// single range
+		final byte[] single = RestAssured
+			.given()
+			.header("Range", "bytes=100-199")
+			.expect()
+			.statusCode(206)
+			.header("Content-Range", "bytes 100-199/10000")
+			.header("Content-Length", "100")
+			.when()
+			.get("/html/range.bin")
+			.asByteArray();
+
+		assertTrue("Invalid range content", Arrays.equals(Arrays.copyOfRange(data, 100, 200), single));
+
+		// suffix range
+		final byte[] suffix = RestAssured
+			.given()
+			.header("Range", "bytes=-100")
+			.expect()
+			.statusCode(206)
+			.header("Content-Range", "bytes 9900-9999/10000")
+			.when()
+			.get("/html/range.bin")
+			.asByteArray();
+
+		assertTrue("Invalid suffix range content", Arrays.equals(Arrays.copyOfRange(data, 9900, 10000), suffix));
+
+		// multiple ranges
+		final String multi = RestAssured
+			.given()
+			.header("Range", "bytes=0-9,20-29")
+			.expect()
+			.statusCode(206)
+			.header("Content-Type", Matchers.startsWith("multipart/byteranges; boundary="))
+			.when()
+			.get("/html/range.bin")
+			.asString();
+
+		assertTrue("Missing first part of multipart response",  multi.contains("Content-Range: bytes 0-9/10000"));
+		assertTrue("Missing second part of multipart response", multi.contains("Content-Range: bytes 20-29/10000"));
+
+		// unsatisfiable range
+		RestAssured
+			.given()
+			.header("Range", "bytes=20000-")
+			.expect()
+			.statusCode(416)
+			.header("Content-Range", "bytes */10000")
+			.when()
+			.get("/html/range.bin");
+
+		// matching If-Range validator
+		RestAssured
+			.given()
+			.header("Range", "bytes=0-99")
+			.header("If-Range", etag)
+			.expect()
+			.statusCode(206)
+			.header("ETag", etag)
+			.when()
+			.get("/html/range.bin");
+
+		// stale If-Range validator must return the full entity
+		final byte[] full = RestAssured
+			.given()
+			.header("Range", "bytes=0-99")
+			.header("If-Range", "\"stale\"")
+			.expect()
+			.statusCode(200)
+			.header("Accept-Ranges", "bytes")
+			.when()
+			.get("/html/range.bin")
+			.asByteArray();
+
+		assertTrue("Invalid full content", Arrays.equals(data, full));
+
+		// overwriting (and truncating) a delivered file must be possible and must not serve cached content
+		final byte[] shorter = Arrays.copyOfRange(data, 5000, 6000);
+
+		try (final Tx tx = app.tx()) {
+
+			FileHelper.setFileData(app.nodeQuery(File.class).andName("range.bin").getFirst(), shorter, "application/octet-stream");
+
+			tx.success();
+
+		} catch (FrameworkException | IOException ex) {
+
+			logger.warn("", ex);
+			fail("Unexpected exception");
+		}
+
+		final byte[] modified = RestAssured
+			.given()
+			.expect()
+			.statusCode(200)
+			.header("Content-Length", "1000")
+			.when()
+			.get("/html/range.bin")
+			.asByteArray();
+
+		assertTrue("Cached content was delivered after the file was modified", Arrays.equals(shorter, modified));
+	}
+
+	@Test
+	public void testChecksumsComputedWhileWriting() {
+
+		final Random random = new Random(42L);
+		final int[] sizes   = new int[] { 0, 1, 31, 32, 33, 1000, 131073 };
+
+		try (final Tx tx = app.tx()) {
+
+			final Folder folder = app.create(Folder.class,
+				new NodeAttribute<>(StructrApp.key(Folder.class, "name"),             "checksums"),
+				new NodeAttribute<>(StructrApp.key(Folder.class, "enabledChecksums"), "crc32,md5,sha1,sha512")
+			);
+
+			for (final int size : sizes) {
+
+				final byte[] data = new byte[size];
+
+				random.nextBytes(data);
+
+				final File file               = FileHelper.createFile(securityContext, new ByteArrayInputStream(data), "application/octet-stream", File.class, "file" + size, folder);
+				final java.io.File fileOnDisk = file.getFileOnDisk(false);
+
+				assertEquals("Invalid xxHash checksum",  FileHelper.getChecksum(fileOnDisk),       file.getChecksum());
+				assertEquals("Invalid CRC32 checksum",   FileHelper.getCRC32Checksum(fileOnDisk),  file.getProperty(StructrApp.key(File.class, "crc32")));
+				assertEquals("Invalid MD5 checksum",     FileHelper.getMD5Checksum(fileOnDisk),    file.getMd5());
+				assertEquals("Invalid SHA-1 checksum",   FileHelper.getSHA1Checksum(fileOnDisk),   file.getProperty(StructrApp.key(File.class, "sha1")));
+				assertEquals("Invalid SHA-512 checksum", FileHelper.getSHA512Checksum(fileOnDisk), file.getProperty(StructrApp.key(File.class, "sha512")));
+
+				// re-computation of checksums for a modified file
+				FileUtils.writeByteArrayToFile(fileOnDisk, "modified".getBytes());
+				FileHelper.updateMetadata(file, true);
+
+				assertEquals("Invalid xxHash checksum after modification", FileHelper.getChecksum(fileOnDisk),     file.getChecksum());
+				assertEquals("Invalid SHA-1 checksum after modification",  FileHelper.getSHA1Checksum(fileOnDisk), file.getProperty(StructrApp.key(File.class, "sha1")));
+			}
+
+			tx.success();
+
+		} catch (FrameworkException | IOException ex) {
+
+			logger.warn("", ex);
+			fail("Unexpected exception");
+		}
+	}
+
+	@Test
+	public void testStreamingRenderBufferTimeout() {
+
+		// no consumer reads from this buffer, so the render thread must give up after the timeout
+		final StreamingRenderBuffer buffer = new StreamingRenderBuffer(16 * 1024, 200L, () -> {});
+		final String line                  = StringUtils.repeat("x", 1023) + "\n";
+		final Thread producer              = new Thread(() -> {
+
+			for (int i=0; i<1024; i++) {
+				buffer.append(line);
+			}
+
+			buffer.finish();
+		});
+
+		try {
+
+			producer.start();
+			producer.join(10000);
+
+		} catch (InterruptedException iex) {
+			fail("Unexpected exception.");
+		}
+
+		assertFalse("Render thread was not released after the timeout", producer.isAlive());
+
+		int chunks = 0;
+
+		while (buffer.poll() != null) {
+			chunks++;
+		}
+
+		assertTrue("Output was not discarded after the timeout", chunks * 8192 < 1024 * 1024);
+		assertTrue("Buffer is not finished", buffer.isFinished());
+	}
+
 	// ----- private methods -----
 	private Class createTestImageType() {
 